@@ -0,0 +1,166 @@
+package scot.massie.lib.permissions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * <p>Record of the content hashes of a set of keyed entities, such as the users or groups of a registry, that may be
+ * compared against another such record to find which entities differ.</p>
+ *
+ * <p>Entities are split between a fixed number of buckets by the hashes of their keys, and the sum of the hashes of
+ * the entities in each bucket is kept, along with the sum of all of them. Comparing two records only goes through the
+ * entities of buckets whose sums differ, so is proportional to the number of entities that differ, rather than the
+ * number of entities there are.</p>
+ * @param <K> The type of the keys of the entities.
+ */
+final class ContentHashIndex<K>
+{
+    /**
+     * The number of bits of the hashes of keys used to pick the buckets they go in.
+     */
+    private static final int bucketBits = 10;
+
+    /**
+     * The number of buckets entities are split between.
+     */
+    private static final int bucketCount = 1 << bucketBits;
+
+    /**
+     * Gets the hash of a key.
+     */
+    private final ToLongFunction<? super K> keyHasher;
+
+    /**
+     * The hashes of the entities in each bucket, (combined with the hashes of their keys) mapped against their keys.
+     * Buckets are null until an entity is put in them.
+     */
+    private final Map<K, Long>[] buckets;
+
+    /**
+     * The sum of the hashes of the entities in each bucket.
+     */
+    private final long[] bucketHashes = new long[bucketCount];
+
+    /**
+     * The sum of the hashes of all entities.
+     */
+    private long hash = 0;
+
+    /**
+     * Creates a new content hash index.
+     * @param keyHasher Gets the hash of a key. This must be the same for the same key in any index compared against
+     *                  this one.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ContentHashIndex(ToLongFunction<? super K> keyHasher)
+    {
+        this.keyHasher = keyHasher;
+        this.buckets = (Map<K, Long>[])new Map[bucketCount];
+    }
+
+    /**
+     * Gets the bucket the entity with the key of the given hash goes in.
+     * @param keyHash The hash of an entity's key.
+     * @return The index of the bucket the entity goes in.
+     */
+    private static int getBucketIndex(long keyHash)
+    { return (int)(keyHash >>> (Long.SIZE - bucketBits)); }
+
+    /**
+     * Gets the sum of the hashes of all entities in this index.
+     * @return A hash of all entities in this index.
+     */
+    long getHash()
+    { return hash; }
+
+    /**
+     * Records the content hash of an entity, replacing any previously recorded for it.
+     * @param key The key of the entity.
+     * @param contentHash The hash of the entity's contents.
+     */
+    void put(K key, long contentHash)
+    {
+        long keyHash = keyHasher.applyAsLong(key);
+        int bucketIndex = getBucketIndex(keyHash);
+        long entityHash = PermissionSet.mixHash(keyHash + PermissionSet.mixHash(contentHash));
+        Map<K, Long> bucket = buckets[bucketIndex];
+
+        if(bucket == null)
+            bucket = buckets[bucketIndex] = new HashMap<>();
+
+        Long oldEntityHash = bucket.put(key, entityHash);
+        long change = oldEntityHash == null ? entityHash : entityHash - oldEntityHash;
+        bucketHashes[bucketIndex] += change;
+        hash += change;
+    }
+
+    /**
+     * Removes the record of an entity. Does nothing if there is no record of the entity.
+     * @param key The key of the entity.
+     */
+    void remove(K key)
+    {
+        int bucketIndex = getBucketIndex(keyHasher.applyAsLong(key));
+        Map<K, Long> bucket = buckets[bucketIndex];
+
+        if(bucket == null)
+            return;
+
+        Long oldEntityHash = bucket.remove(key);
+
+        if(oldEntityHash != null)
+        {
+            bucketHashes[bucketIndex] -= oldEntityHash;
+            hash -= oldEntityHash;
+        }
+    }
+
+    /**
+     * Removes the records of all entities.
+     */
+    void clear()
+    {
+        Arrays.fill(buckets, null);
+        Arrays.fill(bucketHashes, 0);
+        hash = 0;
+    }
+
+    /**
+     * Finds the entities that differ between this index and another.
+     * @param other The index to compare against. This should use the same key hasher as this one.
+     * @param onlyInThis The collection to add the keys of entities only in this index to.
+     * @param onlyInOther The collection to add the keys of entities only in the other index to.
+     * @param inBoth The collection to add the keys of entities in both indices, with different hashes, to.
+     */
+    void diff(ContentHashIndex<K> other, Collection<K> onlyInThis, Collection<K> onlyInOther, Collection<K> inBoth)
+    {
+        if(hash == other.hash)
+            return;
+
+        for(int i = 0; i < bucketCount; i++)
+        {
+            if(bucketHashes[i] == other.bucketHashes[i])
+                continue;
+
+            Map<K, Long> bucket = buckets[i] != null ? buckets[i] : new HashMap<>();
+            Map<K, Long> otherBucket = other.buckets[i] != null ? other.buckets[i] : new HashMap<>();
+
+            for(Map.Entry<K, Long> e : bucket.entrySet())
+            {
+                Long otherEntityHash = otherBucket.get(e.getKey());
+
+                if(otherEntityHash == null)
+                    onlyInThis.add(e.getKey());
+                else if(!otherEntityHash.equals(e.getValue()))
+                    inBoth.add(e.getKey());
+            }
+
+            for(K key : otherBucket.keySet())
+                if(!bucket.containsKey(key))
+                    onlyInOther.add(key);
+        }
+    }
+}
@@ -4,14 +4,27 @@ import scot.massie.lib.permissions.exceptions.GroupMissingPermissionException;
 import scot.massie.lib.permissions.exceptions.PermissionNotDefaultException;
 import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.CharArrayReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,8 +37,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -46,90 +67,156 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
      * <p>A line in this sense may make up multiple actual lines where a permission is spread across multiple lines -
      * e.g. where a permission has a multi-line permission argument.</p>
      */
-    private static class PermissionsLineReader extends Reader
+    static class PermissionsLineReader extends Reader
     {
+        /**
+         * The number of characters read from the contained reader at a time, by default.
+         */
+        static final int defaultBlockSize = 1 << 16;
+
         /**
          * Creates a new PermissionLineReader which reads from the provided reader object.
          * @param source The reader to read text from.
          */
         public PermissionsLineReader(Reader source)
-        { this.source = source; }
+        { this(source, defaultBlockSize); }
+
+        /**
+         * Creates a new PermissionLineReader which reads from the provided reader object the given number of
+         * characters at a time.
+         * @param source The reader to read text from.
+         * @param blockSize The number of characters to read from the given reader at a time.
+         */
+        public PermissionsLineReader(Reader source, int blockSize)
+        {
+            this.source = source;
+            this.buffer = new char[Math.max(blockSize, 16)];
+        }
 
         private final Reader source;
+
+        /**
+         * The characters read from the contained reader. Those from {@link #position} to {@link #limit} have not yet
+         * been read from this. Where a line is longer than the buffer, the buffer is replaced with a larger one.
+         */
+        private char[] buffer;
+
+        /**
+         * The position in {@link #buffer} of the first character not yet read from this.
+         */
+        private int position = 0;
+
+        /**
+         * The position in {@link #buffer} after the last character read from the contained reader.
+         */
+        private int limit = 0;
+
+        /**
+         * Whether or not the end of the contained reader has been reached.
+         */
+        private boolean sourceExhausted = false;
+
         private String heldOverLine = null;
         private boolean lastLineReadDumblyHadStringArg = false;
 
+        /**
+         * The number of spaces at the start of the line last read by {@link #readLineDumbly()}.
+         */
+        private int lastLineReadDumblyIndentLevel = 0;
+
+        /**
+         * Reads more characters from the contained reader into the buffer, first moving the characters not yet read
+         * from this to the start of the buffer, and replacing the buffer with a larger one if it's full.
+         * @return True if any characters were read. False if the end of the contained reader has been reached.
+         * @throws IOException If an IO exception is thrown by the contained reader in the process of reading from it.
+         */
+        private boolean fillBuffer() throws IOException
+        {
+            if(sourceExhausted)
+                return false;
+
+            if(position > 0)
+            {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+
+            if(limit == buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+            int charsRead = source.read(buffer, limit, buffer.length - limit);
+
+            if(charsRead < 0)
+            {
+                sourceExhausted = true;
+                return false;
+            }
+
+            limit += charsRead;
+            return true;
+        }
+
         /**
          * <p>Reads lines from the contained reader without considering logical lines that may span across multiple
          * actual lines.</p>
          *
          * <p>Has the side effect of setting {@link #lastLineReadDumblyHadStringArg} when reading a line containing a
          * permission argument, so that it can be determined by {@link #readLine()} whether the multiple actual lines
-         * are part of the same logical line.</p>
+         * are part of the same logical line, and of setting {@link #lastLineReadDumblyIndentLevel}.</p>
          * @return The next line, or null if there are no more lines.
          * @throws IOException If an IO exception is thrown by the contained reader in the process of reading from it.
          */
         private String readLineDumbly() throws IOException
         {
-            StringBuilder sb = new StringBuilder();
-            boolean eligibleForStringArg = false;
-            boolean foundNonWhitespaceChars = false;
+            int indentLevel = 0;
+            boolean inIndent = true;
             boolean hasStringArg = false;
+            int lineLength = 0;
+            int charsConsumed;
 
-            for(int ci = source.read(); ci != '\n'; ci = source.read())
+            for(;; lineLength++)
             {
-                if(ci == -1)
+                if(position + lineLength == limit && !fillBuffer())
                 {
-                    if(sb.length() == 0)
+                    if(lineLength == 0)
                         return null;
 
-                    String line = sb.toString();
-
-                    if(line.endsWith("\r"))
-                        line = line.substring(0, line.length() - 1);
-
-                    return line;
+                    charsConsumed = lineLength;
+                    break;
                 }
 
-                char c = (char)ci;
-                sb.append(c);
+                char c = buffer[position + lineLength];
 
-                if(c != ' ')
-                    foundNonWhitespaceChars = true;
+                if(c == '\n')
+                {
+                    charsConsumed = lineLength + 1;
+                    break;
+                }
 
-                if(!foundNonWhitespaceChars)
-                    eligibleForStringArg = true;
+                if(inIndent)
+                {
+                    if(c == ' ')
+                        indentLevel++;
+                    else
+                        inIndent = false;
+                }
 
-                if((eligibleForStringArg) && (c == ':'))
+                // Only lines starting with a space may have permission arguments; lines that don't are headers.
+                if(c == ':' && indentLevel > 0)
                     hasStringArg = true;
             }
 
-            String line = sb.toString();
-
-            if(line.endsWith("\r"))
-                line = line.substring(0, line.length() - 1);
+            if(lineLength > 0 && buffer[position + lineLength - 1] == '\r')
+                lineLength--;
 
+            String line = new String(buffer, position, lineLength);
+            position += charsConsumed;
             lastLineReadDumblyHadStringArg = hasStringArg;
+            lastLineReadDumblyIndentLevel = indentLevel;
             return line;
         }
 
-        /**
-         * Gets the number of spaces at the start of a given string.
-         * @param of The string to get the number of spaces at the start of.
-         * @return The number of spaces at the start of the given string.
-         */
-        private static int getIndentLevel(String of)
-        {
-            // Assumes a single-line line
-            int stringLength = of.length();
-
-            for(int i = 0; i < stringLength; i++)
-                if(of.charAt(i) != ' ')
-                    return i;
-
-            return stringLength;
-        }
-
         /**
          * Gets a single line of the save string this reads from. A single line in this sense may include newline
          * characters where a permission has a multi-line permission argument.
@@ -156,12 +243,20 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             if(!lastLineReadDumblyHadStringArg)
                 return line;
 
-            int lineIndentLevel = getIndentLevel(line);
-            String nextLine;
-            StringBuilder lineBuilder = new StringBuilder(line);
+            int lineIndentLevel = lastLineReadDumblyIndentLevel;
+            String nextLine = readLineDumbly();
+
+            if(nextLine == null || lastLineReadDumblyIndentLevel < lineIndentLevel + 4)
+            {
+                heldOverLine = nextLine;
+                return line;
+            }
+
+            StringBuilder lineBuilder = new StringBuilder(line.length() + nextLine.length() + 1).append(line);
 
-            while(((nextLine = readLineDumbly()) != null) && ((lineIndentLevel + 4) <= getIndentLevel(nextLine)))
-                lineBuilder.append("\n").append(nextLine.substring(lineIndentLevel));
+            do
+            { lineBuilder.append('\n').append(nextLine, lineIndentLevel, nextLine.length()); }
+            while(((nextLine = readLineDumbly()) != null) && (lastLineReadDumblyIndentLevel >= lineIndentLevel + 4));
 
             heldOverLine = nextLine;
             return lineBuilder.toString();
@@ -169,24 +264,183 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
         @Override
         public int read(char[] cbuf, int off, int len) throws IOException
-        { return source.read(cbuf, off, len); }
+        {
+            if(position == limit)
+                return source.read(cbuf, off, len);
+
+            int charsRead = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, cbuf, off, charsRead);
+            position += charsRead;
+            return charsRead;
+        }
 
         @Override
         public void close() throws IOException
         { source.close(); }
     }
+
+    /**
+     * <p>Record of the state of the users, groups, and default permissions of the registry before they were modified in
+     * a batch, for restoring them to where the batch fails.</p>
+     *
+     * <p>Entities are recorded, as save strings, the first time they're modified in a batch - so the cost of making a
+     * batch rollbackable is proportional to what the batch touches rather than to the size of the registry. Operations
+     * that affect the registry as a whole record the whole registry instead, after which individual entities no longer
+     * need recording.</p>
+     */
+    private final class BatchRollback
+    {
+        /**
+         * Whether or not the registry had been modified since it was last saved or loaded, as of the start of the
+         * batch.
+         */
+        final boolean wasDifferentiatedFromFiles = hasBeenDifferentiatedFromFiles;
+
+        /**
+         * Whether or not the registry had been modified as a whole since it was last saved or loaded, as of the start
+         * of the batch.
+         */
+        final boolean allEntitiesWereModified = allEntitiesModified;
+
+        /**
+         * The save string of the registry's users, as of when the whole registry was recorded. Null if the whole
+         * registry has not been recorded.
+         */
+        String usersSaveString = null;
+
+        /**
+         * The save string of the registry's groups, as of when the whole registry was recorded. Null if the whole
+         * registry has not been recorded.
+         */
+        String groupsSaveString = null;
+
+        /**
+         * The save strings of the users modified in the batch, as of before they were first modified, mapped against
+         * their IDs. Users that didn't exist before the batch are mapped against null.
+         */
+        final Map<ID, String> userSaveStrings = new HashMap<>();
+
+        /**
+         * The save strings of the groups modified in the batch, as of before they were first modified, mapped against
+         * their names. Groups that didn't exist before the batch are mapped against null.
+         */
+        final Map<String, String> groupSaveStrings = new HashMap<>();
+
+        /**
+         * The priorities of the groups modified in the batch, as of before they were first modified, mapped against
+         * their names.
+         */
+        final Map<String, PermissionGroup.Priority> groupPriorities = new HashMap<>();
+
+        /**
+         * The save string of the default permissions, as of before they were first modified in the batch. Null if the
+         * default permissions were not modified.
+         */
+        String defaultsSaveString = null;
+
+        /**
+         * Gets whether or not the whole registry has been recorded.
+         * @return True if the whole registry has been recorded. Otherwise, false.
+         */
+        boolean hasRecordedWholeRegistry()
+        { return usersSaveString != null; }
+    }
+
+    /**
+     * A user's block of a users file, parsed into a permission group not yet registered in the registry, by
+     * {@link #loadUsersInParallel()}.
+     */
+    private final class ParsedUserBlock
+    {
+        /**
+         * The ID of the user the block is for.
+         */
+        final ID userId;
+
+        /**
+         * The permission group of the user, containing the permissions in the block. This does not yet reference any
+         * groups.
+         */
+        final PermissionGroup permissions;
+
+        /**
+         * The names of the groups the block assigns to the user, in the order they appear in the block.
+         */
+        final List<String> groupNames;
+
+        /**
+         * The position of the first character of the block in the text it was parsed from.
+         */
+        final int start;
+
+        /**
+         * The position after the last character of the block in the text it was parsed from.
+         */
+        final int end;
+
+        /**
+         * Creates a new parsed user block.
+         * @param userId The ID of the user the block is for.
+         * @param permissions The permission group containing the permissions in the block.
+         * @param groupNames The names of the groups the block assigns to the user.
+         * @param start The position of the first character of the block in the text it was parsed from.
+         * @param end The position after the last character of the block in the text it was parsed from.
+         */
+        ParsedUserBlock(ID userId, PermissionGroup permissions, List<String> groupNames, int start, int end)
+        {
+            this.userId = userId;
+            this.permissions = permissions;
+            this.groupNames = groupNames;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The contents of the registry as of when a background save was requested, to be written to the save files.
+     */
+    private static final class BackgroundSave
+    {
+        /**
+         * The save string of the registry's users. Null if the registry has no users file.
+         */
+        final String usersSaveString;
+
+        /**
+         * The save string of the registry's groups. Null if the registry has no groups file.
+         */
+        final String groupsSaveString;
+
+        /**
+         * Completed once the save strings have been written.
+         */
+        final CompletableFuture<Void> completion;
+
+        /**
+         * Creates a new background save.
+         * @param usersSaveString The save string of the registry's users, or null if there is no users file.
+         * @param groupsSaveString The save string of the registry's groups, or null if there is no groups file.
+         * @param completion The future to complete once the save strings have been written.
+         */
+        BackgroundSave(String usersSaveString, String groupsSaveString, CompletableFuture<Void> completion)
+        {
+            this.usersSaveString = usersSaveString;
+            this.groupsSaveString = groupsSaveString;
+            this.completion = completion;
+        }
+    }
     //endregion
 
     //region Instance fields
     /**
      * The permission groups for users, mapped against the IDs of the users they're permissions for.
      */
-    protected final Map<ID, PermissionGroup> permissionsForUsers = new HashMap<>();
+    protected final Map<ID, PermissionGroup> permissionsForUsers;
 
     /**
      * The permission groups for groups, mapped against the names of the groups.
      */
-    protected final Map<String, PermissionGroup> assignableGroups = new HashMap<>();
+    protected final Map<String, PermissionGroup> assignableGroups;
 
     /**
      * The default permission group.
@@ -220,25 +474,155 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
      * Flag indicating whether or not the permissions registry has been modified since it was last saved or loaded.
      */
     protected boolean hasBeenDifferentiatedFromFiles = false;
+
+    /**
+     * The IDs of users modified since the registry was last saved or loaded. Where {@link #allEntitiesModified} is true,
+     * this may not include every user modified.
+     */
+    protected final Set<ID> modifiedUsers = new HashSet<>();
+
+    /**
+     * The names of groups modified since the registry was last saved or loaded, including "*" where the default
+     * permissions have been modified. Where {@link #allEntitiesModified} is true, this may not include every group
+     * modified.
+     */
+    protected final Set<String> modifiedGroups = new HashSet<>();
+
+    /**
+     * Flag indicating whether or not the registry has been modified as a whole since it was last saved or loaded, such
+     * that every user and group should be considered modified.
+     */
+    protected boolean allEntitiesModified = false;
+
+    /**
+     * Where a batch is currently being performed, the record of the state of the registry to restore where the batch
+     * fails. Null where no batch is being performed.
+     */
+    private BatchRollback batchRollback = null;
+
+
+    /**
+     * The executor background saves of all registries are written on. This is created when first needed.
+     */
+    private static ExecutorService backgroundSaveExecutor = null;
+
+    /**
+     * Lock for starting and finishing background saves.
+     */
+    private final Object backgroundSaveLock = new Object();
+
+    /**
+     * The background save currently being written. Null where no background save is being written.
+     */
+    private BackgroundSave backgroundSaveInProgress = null;
+
+    /**
+     * The background save to write once the one currently being written has been written. Null where no further
+     * background save has been requested.
+     */
+    private BackgroundSave pendingBackgroundSave = null;
+
+    /**
+     * Whether or not a background save has failed to be written since the registry was last marked as modified as a
+     * result. This is set on the thread the save was written on, and applied by {@link #applyBackgroundSaveFailure()}
+     * on the thread the registry is used from.
+     */
+    private volatile boolean backgroundSaveFailed = false;
+
+    /**
+     * Whether or not the users file is parsed across multiple threads when loading. See
+     * {@link #setLoadsUsersInParallel(boolean)}.
+     */
+    private volatile boolean loadsUsersInParallel = false;
+
+    /**
+     * The minimum number of characters of a users file parsed as a single chunk when loading users in parallel.
+     */
+    private static final int minParallelLoadChunkSize = 1 << 16;
+
+    /**
+     * The hash of the contents this registry last wrote to the users file. Null if this registry has not written to the
+     * users file since it was created or last loaded.
+     */
+    private volatile byte[] usersFileHash = null;
+
+    /**
+     * The hash of the contents this registry last wrote to the groups file. Null if this registry has not written to
+     * the groups file since it was created or last loaded.
+     */
+    private volatile byte[] groupsFileHash = null;
+
+    /**
+     * The content hash of the users, as of when this registry last wrote them to the users file. Null if this registry
+     * has not written to the users file since it was created or last loaded, or if it's not known what was written.
+     */
+    private volatile Long usersContentHashAsWritten = null;
+
+    /**
+     * The content hash of the groups and default permissions, as of when this registry last wrote them to the groups
+     * file. Null if this registry has not written to the groups file since it was created or last loaded, or if it's
+     * not known what was written.
+     */
+    private volatile Long groupsContentHashAsWritten = null;
+
+    /**
+     * The content hashes of the users in this registry, as of when they were last hashed. See
+     * {@link #getContentHash()}.
+     */
+    private final ContentHashIndex<ID> userContentHashes = new ContentHashIndex<>(this::hashOfUserId);
+
+    /**
+     * The content hashes of the groups in this registry, as of when they were last hashed, including the default
+     * permissions as "*". See {@link #getContentHash()}.
+     */
+    private final ContentHashIndex<String> groupContentHashes = new ContentHashIndex<>(PermissionSet::hashOfString);
+
+    /**
+     * The IDs of users modified since their content hashes were last updated.
+     */
+    private final Set<ID> usersWithStaleContentHashes = new HashSet<>();
+
+    /**
+     * The names of groups modified since their content hashes were last updated, including "*" where the default
+     * permissions have been.
+     */
+    private final Set<String> groupsWithStaleContentHashes = new HashSet<>();
+
+    /**
+     * Whether or not the registry has been modified as a whole since the content hashes were last updated, such that
+     * every user and group should be rehashed.
+     */
+    private boolean allContentHashesStale = true;
     //endregion
 
     //region Initialisation
 
     /**
-     * Creates a new permissions registry with the ability to save and load to and from files. Uses the given
-     * {@link PermissionGroup} object as the default permissions rather than creating a new one.
+     * <p>Creates a new permissions registry with the ability to save and load to and from files. Uses the given maps to
+     * store the permission groups of users and groups in, and the given {@link PermissionGroup} object as the default
+     * permissions, rather than creating new ones.</p>
+     *
+     * <p>The map of groups and the default permissions may be shared with other registries, which then share the same
+     * groups and default permissions. Only one of the registries sharing them should be used to modify groups or
+     * default permissions.</p>
+     * @param permissionsForUsers The map to store the permission groups of users in. This should be empty.
+     * @param assignableGroups The map to store the permission groups of groups in.
      * @param defaultPermissions The object to use to store default permissions.
      * @param idToString The conversion for turning a user ID into a reversible string representation of it.
      * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
      * @param usersFile The filepath of the users permissions save file.
      * @param groupsFile The filepath of the groups permissions save file.
      */
-    protected GroupMapPermissionsRegistry(PermissionGroup defaultPermissions,
+    protected GroupMapPermissionsRegistry(Map<ID, PermissionGroup> permissionsForUsers,
+                                          Map<String, PermissionGroup> assignableGroups,
+                                          PermissionGroup defaultPermissions,
                                           Function<ID, String> idToString,
                                           Function<String, ID> idFromString,
                                           Path usersFile,
                                           Path groupsFile)
     {
+        this.permissionsForUsers = permissionsForUsers;
+        this.assignableGroups = assignableGroups;
         this.defaultPermissions = defaultPermissions;
         this.convertIdToString = idToString;
         this.parseIdFromString = idFromString;
@@ -246,6 +630,44 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         this.groupsFilePath = groupsFile;
     }
 
+    /**
+     * Creates a new permissions registry with the ability to save and load to and from files. Uses the given map to
+     * store the permission groups of users in, and the given {@link PermissionGroup} object as the default permissions,
+     * rather than creating new ones.
+     * @param permissionsForUsers The map to store the permission groups of users in. This should be empty.
+     * @param defaultPermissions The object to use to store default permissions.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    protected GroupMapPermissionsRegistry(Map<ID, PermissionGroup> permissionsForUsers,
+                                          PermissionGroup defaultPermissions,
+                                          Function<ID, String> idToString,
+                                          Function<String, ID> idFromString,
+                                          Path usersFile,
+                                          Path groupsFile)
+    {
+        this(permissionsForUsers, new HashMap<>(), defaultPermissions, idToString, idFromString, usersFile,
+             groupsFile);
+    }
+
+    /**
+     * Creates a new permissions registry with the ability to save and load to and from files. Uses the given
+     * {@link PermissionGroup} object as the default permissions rather than creating a new one.
+     * @param defaultPermissions The object to use to store default permissions.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    protected GroupMapPermissionsRegistry(PermissionGroup defaultPermissions,
+                                          Function<ID, String> idToString,
+                                          Function<String, ID> idFromString,
+                                          Path usersFile,
+                                          Path groupsFile)
+    { this(new HashMap<>(), defaultPermissions, idToString, idFromString, usersFile, groupsFile); }
+
     /**
      * Creates a new permissions registry with the ability to save and load to and from files.
      * @param idToString The conversion for turning a user ID into a reversible string representation of it.
@@ -340,16 +762,14 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     public void assertUserHasAllPermissions(ID userId, Iterable<String> permissions)
             throws UserMissingPermissionException
     {
-        if(!userHasAllPermissions(userId, permissions))
-        {
-            List<String> permissionsMissing = new ArrayList<>();
+        List<String> permissionsMissing = new ArrayList<>();
 
-            for(String perm : permissions)
-                if(!userHasPermission(userId, perm))
-                    permissionsMissing.add(perm);
+        for(String perm : permissions)
+            if(!userHasPermission(userId, perm))
+                permissionsMissing.add(perm);
 
+        if(!permissionsMissing.isEmpty())
             throw new UserMissingPermissionException(userId, permissionsMissing);
-        }
     }
 
     @Override
@@ -361,16 +781,14 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     public void assertGroupHasAllPermissions(String groupName, Iterable<String> permissions)
             throws GroupMissingPermissionException
     {
-        if(!groupHasAllPermissions(groupName, permissions))
-        {
-            List<String> permissionsMissing = new ArrayList<>();
+        List<String> permissionsMissing = new ArrayList<>();
 
-            for(String perm : permissions)
-                if(!groupHasPermission(groupName, perm))
-                    permissionsMissing.add(perm);
+        for(String perm : permissions)
+            if(!groupHasPermission(groupName, perm))
+                permissionsMissing.add(perm);
 
+        if(!permissionsMissing.isEmpty())
             throw new GroupMissingPermissionException(groupName, permissionsMissing);
-        }
     }
 
     @Override
@@ -382,16 +800,14 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     public void assertAllAreDefaultPermissions(Iterable<String> permissions)
             throws PermissionNotDefaultException
     {
-        if(!areAllDefaultPermissions(permissions))
-        {
-            List<String> permissionsMissing = new ArrayList<>();
+        List<String> permissionsMissing = new ArrayList<>();
 
-            for(String perm : permissions)
-                if(!isDefaultPermission(perm))
-                    permissionsMissing.add(perm);
+        for(String perm : permissions)
+            if(!isDefaultPermission(perm))
+                permissionsMissing.add(perm);
 
+        if(!permissionsMissing.isEmpty())
             throw new PermissionNotDefaultException(permissionsMissing);
-        }
     }
 
     @Override
@@ -449,7 +865,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Single
     @Override
     public PermissionStatus getUserPermissionStatus(ID userId, String permission)
-    { return getPermissionStatus(permissionsForUsers.get(userId), permission, true); }
+    { return getPermissionStatus(getUserPermissionsGroup(userId), permission, true); }
 
     @Override
     public PermissionStatus getGroupPermissionStatus(String groupName, String permission)
@@ -482,11 +898,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Multiple
     @Override
     public Map<String, PermissionStatus> getUserPermissionStatuses(ID userId, Iterable<String> permissions)
-    { return getPermissionStatuses(permissionsForUsers.get(userId), permissions, true); }
+    { return getPermissionStatuses(getUserPermissionsGroup(userId), permissions, true); }
 
     @Override
     public Map<String, PermissionStatus> getUserPermissionStatuses(ID userId, String... permissions)
-    { return getPermissionStatuses(permissionsForUsers.get(userId), Arrays.asList(permissions), true); }
+    { return getPermissionStatuses(getUserPermissionsGroup(userId), Arrays.asList(permissions), true); }
 
     @Override
     public Map<String, PermissionStatus> getGroupPermissionStatuses(String groupName, Iterable<String> permissions)
@@ -549,7 +965,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has
     @Override
     public boolean userHasPermission(ID userId, String permission)
-    { return hasPermission(permissionsForUsers.get(userId), permission, true); }
+    { return hasPermission(getUserPermissionsGroup(userId), permission, true); }
 
     @Override
     public boolean groupHasPermission(String groupName, String permission)
@@ -604,11 +1020,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has all
     @Override
     public boolean userHasAllPermissions(ID userId, Iterable<String> permissions)
-    { return hasAllPermissions(permissionsForUsers.get(userId), permissions, true); }
+    { return hasAllPermissions(getUserPermissionsGroup(userId), permissions, true); }
 
     @Override
     public boolean userHasAllPermissions(ID userId, String... permissions)
-    { return hasAllPermissions(permissionsForUsers.get(userId), Arrays.asList(permissions), true); }
+    { return hasAllPermissions(getUserPermissionsGroup(userId), Arrays.asList(permissions), true); }
 
     @Override
     public boolean groupHasAllPermissions(String groupName, Iterable<String> permissions)
@@ -666,11 +1082,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has any
     @Override
     public boolean userHasAnyPermissions(ID userId, Iterable<String> permissions)
-    { return hasAnyPermissions(permissionsForUsers.get(userId), permissions, true); }
+    { return hasAnyPermissions(getUserPermissionsGroup(userId), permissions, true); }
 
     @Override
     public boolean userHasAnyPermissions(ID userId, String... permissions)
-    { return hasAnyPermissions(permissionsForUsers.get(userId), Arrays.asList(permissions), true); }
+    { return hasAnyPermissions(getUserPermissionsGroup(userId), Arrays.asList(permissions), true); }
 
     @Override
     public boolean groupHasAnyPermissions(String groupName, Iterable<String> permissions)
@@ -708,11 +1124,6 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                     if(defaultPermissions.hasPermission(permission))
                         return true;
             }
-            else
-            {
-                for(String ignored : permissions) // if permissions.hasAny();
-                    return true;
-            }
 
             return false;
         }
@@ -728,15 +1139,15 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has any subpermission of
     @Override
     public boolean userHasAnySubPermissionOf(ID userId, String permission)
-    { return hasAnySubPermissionOf(permissionsForUsers.get(userId), permission, true); }
+    { return hasAnySubPermissionOf(getUserPermissionsGroup(userId), permission, true); }
 
     @Override
     public boolean userHasAnySubPermissionOf(ID userId, Iterable<String> permissions)
-    { return hasAnySubPermissionOf(permissionsForUsers.get(userId), permissions, true); }
+    { return hasAnySubPermissionOf(getUserPermissionsGroup(userId), permissions, true); }
 
     @Override
     public boolean userHasAnySubPermissionOf(ID userId, String... permissions)
-    { return hasAnySubPermissionOf(permissionsForUsers.get(userId), permissions, true); }
+    { return hasAnySubPermissionOf(getUserPermissionsGroup(userId), permissions, true); }
 
     @Override
     public boolean groupHasAnySubPermissionOf(String groupId, String permission)
@@ -827,7 +1238,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Args
     @Override
     public String getUserPermissionArg(ID userId, String permission)
-    { return getPermissionArg(permissionsForUsers.get(userId), permission, true); }
+    { return getPermissionArg(getUserPermissionsGroup(userId), permission, true); }
 
     @Override
     public String getGroupPermissionArg(String groupId, String permission)
@@ -868,7 +1279,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has
     @Override
     public boolean userHasGroup(ID userId, String groupName)
-    { return hasGroup(permissionsForUsers.get(userId), groupName, true); }
+    { return hasGroup(getUserPermissionsGroup(userId), groupName, true); }
 
     @Override
     public boolean groupExtendsFromGroup(String groupId, String superGroupName)
@@ -915,11 +1326,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has all
     @Override
     public boolean userHasAllGroups(ID userId, Iterable<String> groupNames)
-    { return hasAllGroups(permissionsForUsers.get(userId), groupNames, true); }
+    { return hasAllGroups(getUserPermissionsGroup(userId), groupNames, true); }
 
     @Override
     public boolean userHasAllGroups(ID userId, String... groupNames)
-    { return hasAllGroups(permissionsForUsers.get(userId), Arrays.asList(groupNames), true); }
+    { return hasAllGroups(getUserPermissionsGroup(userId), Arrays.asList(groupNames), true); }
 
     @Override
     public boolean groupExtendsFromAllGroups(String groupName, Iterable<String> superGroupNames)
@@ -977,11 +1388,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Has any
     @Override
     public boolean userHasAnyGroups(ID userId, Iterable<String> groupNames)
-    { return hasAnyGroups(permissionsForUsers.get(userId), groupNames, true); }
+    { return hasAnyGroups(getUserPermissionsGroup(userId), groupNames, true); }
 
     @Override
     public boolean userHasAnyGroups(ID userId, String... groupNames)
-    { return hasAnyGroups(permissionsForUsers.get(userId), Arrays.asList(groupNames), true); }
+    { return hasAnyGroups(getUserPermissionsGroup(userId), Arrays.asList(groupNames), true); }
 
     @Override
     public boolean groupExtendsFromAnyGroups(String groupName, Iterable<String> superGroupNames)
@@ -1035,18 +1446,158 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region State
     @Override
     public boolean hasBeenDifferentiatedFromFiles()
-    { return hasBeenDifferentiatedFromFiles; }
-    //endregion
-
-    //region Getters
-    //region Members
-    @Override
-    public Collection<String> getGroupNames()
-    { return new HashSet<>(assignableGroups.keySet()); }
+    { return hasBeenDifferentiatedFromFiles || backgroundSaveFailed; }
 
-    @Override
-    public Collection<ID> getUsers()
-    { return new HashSet<>(permissionsForUsers.keySet()); }
+    /**
+     * <p>Gets a hash of the contents of this registry - its users, groups, and default permissions.</p>
+     *
+     * <p>Two registries with the same contents have the same hash. The hashes of users and groups are kept between
+     * calls, so only users and groups modified since this was last called are rehashed.</p>
+     *
+     * <p>Users not held in memory are included by the content hashes provided for them by
+     * {@link #getContentHashesOfUsersNotInMemory()}.</p>
+     * @return A hash of the contents of this registry.
+     */
+    public long getContentHash()
+    {
+        refreshContentHashes();
+        return PermissionSet.mixHash(userContentHashes.getHash() + PermissionSet.mixHash(groupContentHashes.getHash()));
+    }
+
+    /**
+     * <p>Gets the differences between the contents of this registry and another.</p>
+     *
+     * <p>The content hashes of the two registries are compared, and only the users and groups whose hashes may differ
+     * are looked at, so this is proportional to the number of users and groups that differ rather than the size of the
+     * registries. See {@link #getContentHash()}.</p>
+     *
+     * <p>Where the other registry is a {@link PermissionsRegistryDecorator decorator}, the registry it wraps is
+     * compared against directly. Where it's not a {@link GroupMapPermissionsRegistry}, it's copied into one to compare
+     * against, which requires going through all of its contents.</p>
+     *
+     * <p>Users not held in memory by either registry are compared by the content hashes provided for them by
+     * {@link #getContentHashesOfUsersNotInMemory()}, without being loaded.</p>
+     * @apiNote The other registry should use the same conversion of user IDs to strings as this one.
+     * @param other The registry to compare this one to.
+     * @return The differences going from this registry to the other.
+     */
+    public PermissionsRegistryDiff<ID> diff(PermissionsRegistry<ID> other)
+    {
+        GroupMapPermissionsRegistry<ID> otherGroupMap = asGroupMap(other);
+
+        if(otherGroupMap == null)
+        {
+            otherGroupMap = new GroupMapPermissionsRegistry<>(convertIdToString, parseIdFromString);
+            otherGroupMap.absorb(other);
+        }
+
+        refreshContentHashes();
+        otherGroupMap.refreshContentHashes();
+        Set<ID> usersAdded = new HashSet<>();
+        Set<ID> usersRemoved = new HashSet<>();
+        Set<ID> usersChanged = new HashSet<>();
+        Set<String> groupsAdded = new HashSet<>();
+        Set<String> groupsRemoved = new HashSet<>();
+        Set<String> groupsChanged = new HashSet<>();
+        userContentHashes.diff(otherGroupMap.userContentHashes, usersRemoved, usersAdded, usersChanged);
+        groupContentHashes.diff(otherGroupMap.groupContentHashes, groupsRemoved, groupsAdded, groupsChanged);
+        boolean defaultsChanged = groupsChanged.remove("*");
+
+        return new PermissionsRegistryDiff<>(usersAdded, usersRemoved, usersChanged,
+                                             groupsAdded, groupsRemoved, groupsChanged,
+                                             defaultsChanged);
+    }
+
+    /**
+     * Gets a hash of the given user ID, by its string representation.
+     * @param userId The user ID to hash.
+     * @return A hash of the given user ID.
+     */
+    private long hashOfUserId(ID userId)
+    { return PermissionSet.hashOfString(convertIdToString.apply(userId)); }
+
+    /**
+     * Gets the content hashes of the users in this registry not held in memory, such as users a subclass loads only as
+     * they're needed. These are included in {@link #getContentHash()} and {@link #diff(PermissionsRegistry)}.
+     * @apiNote The content hash of a user must be the same as that of their permission group were they loaded.
+     * @return A map of the content hashes of the users not held in memory, against their IDs. This registry holds all
+     *         of its users in memory, so this is empty.
+     */
+    protected Map<ID, Long> getContentHashesOfUsersNotInMemory()
+    { return Collections.emptyMap(); }
+
+    /**
+     * Gets the content hash of a user in this registry not held in memory. See
+     * {@link #getContentHashesOfUsersNotInMemory()}.
+     * @param userId The ID of the user.
+     * @return The content hash of the user, or null if there's no user with the given ID not held in memory. This
+     *         registry holds all of its users in memory, so this is null.
+     */
+    protected Long getContentHashOfUserNotInMemory(ID userId)
+    { return null; }
+
+    /**
+     * Rehashes the contents of the users and groups modified since they were last hashed.
+     */
+    private void refreshContentHashes()
+    {
+        if(allContentHashesStale)
+        {
+            userContentHashes.clear();
+            groupContentHashes.clear();
+
+            for(Map.Entry<ID, PermissionGroup> e : permissionsForUsers.entrySet())
+                userContentHashes.put(e.getKey(), e.getValue().getContentHash());
+
+            for(Map.Entry<ID, Long> e : getContentHashesOfUsersNotInMemory().entrySet())
+                userContentHashes.put(e.getKey(), e.getValue());
+
+            for(Map.Entry<String, PermissionGroup> e : assignableGroups.entrySet())
+                groupContentHashes.put(e.getKey(), e.getValue().getContentHash());
+
+            groupContentHashes.put("*", defaultPermissions.getContentHash());
+        }
+        else
+        {
+            for(ID userId : usersWithStaleContentHashes)
+            {
+                PermissionGroup permGroup = permissionsForUsers.get(userId);
+                Long contentHash = permGroup != null ? (Long)permGroup.getContentHash()
+                                                     : getContentHashOfUserNotInMemory(userId);
+
+                if(contentHash == null)
+                    userContentHashes.remove(userId);
+                else
+                    userContentHashes.put(userId, contentHash);
+            }
+
+            for(String groupName : groupsWithStaleContentHashes)
+            {
+                PermissionGroup permGroup = groupName.equals("*") ? defaultPermissions
+                                                                  : assignableGroups.get(groupName);
+
+                if(permGroup == null)
+                    groupContentHashes.remove(groupName);
+                else
+                    groupContentHashes.put(groupName, permGroup.getContentHash());
+            }
+        }
+
+        allContentHashesStale = false;
+        usersWithStaleContentHashes.clear();
+        groupsWithStaleContentHashes.clear();
+    }
+    //endregion
+
+    //region Getters
+    //region Members
+    @Override
+    public Collection<String> getGroupNames()
+    { return new HashSet<>(assignableGroups.keySet()); }
+
+    @Override
+    public Collection<ID> getUsers()
+    { return new HashSet<>(permissionsForUsers.keySet()); }
 
     @Override
     public Path getUsersFilePath()
@@ -1103,7 +1654,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Permissions
     @Override
     public List<String> getUserPermissions(ID userId)
-    { return getPermissions(permissionsForUsers.getOrDefault(userId, null)); }
+    { return getPermissions(getUserPermissionsGroup(userId)); }
 
     @Override
     public List<String> getGroupPermissions(String groupName)
@@ -1149,7 +1700,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
     @Override
     public List<String> getUserPermissionsWithArgs(ID userId)
-    { return getPermissionsWithArgs(permissionsForUsers.getOrDefault(userId, null)); }
+    { return getPermissionsWithArgs(getUserPermissionsGroup(userId)); }
 
     @Override
     public List<String> getGroupPermissionsWithArgs(String groupName)
@@ -1176,7 +1727,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region All permission statuses
     @Override
     public Collection<PermissionStatus> getAllUserPermissionStatuses(ID userId)
-    { return getAllPermissionsStatuses(permissionsForUsers.getOrDefault(userId, null)); }
+    { return getAllPermissionsStatuses(getUserPermissionsGroup(userId)); }
 
     @Override
     public Collection<PermissionStatus> getAllGroupPermissionStatuses(String groupName)
@@ -1204,7 +1755,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Groups
     @Override
     public List<String> getGroupsOfUser(ID userId)
-    { return getGroupsOf(permissionsForUsers.getOrDefault(userId, null)); }
+    { return getGroupsOf(getUserPermissionsGroup(userId)); }
 
     @Override
     public List<String> getGroupsOfGroup(String groupId)
@@ -1259,9 +1810,12 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
         assertGroupNameValid(groupName);
 
+        if(!assignableGroups.containsKey(groupName))
+            recordGroupForRollback(groupName);
+
         return assignableGroups.computeIfAbsent(groupName, s ->
         {
-            markAsModified();
+            markGroupAsModified(groupName);
             return new PermissionGroup(groupName);
         });
     }
@@ -1280,10 +1834,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             return defaultPermissions;
 
         assertGroupNameValid(groupName);
+        recordGroupForRollback(groupName);
 
         return assignableGroups.compute(groupName, (s, permissionGroup) ->
         {
-            markAsModified();
+            markGroupAsModified(groupName);
 
             if(permissionGroup != null)
             {
@@ -1309,10 +1864,11 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             return defaultPermissions;
 
         assertGroupNameValid(groupName);
+        recordGroupForRollback(groupName);
 
         return assignableGroups.compute(groupName, (s, permissionGroup) ->
         {
-            markAsModified();
+            markGroupAsModified(groupName);
 
             if(permissionGroup != null)
             {
@@ -1324,6 +1880,14 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         });
     }
 
+    /**
+     * Gets the permission group object of the specified group, reässigning the priority in the process. If the
+     * specified group does not currently exist in the registry, creates it.
+     * @param groupName The name of the group to get the permission group object of.
+     * @param priority The priority to ensure the specified group has, as either a long or a double.
+     * @return The permission group object of the group of the given name.
+     * @throws InvalidGroupNameException If the group name provided is not a valid group name.
+     */
     PermissionGroup getGroupPermissionsGroupOrNew(String groupName, PermissionGroup.Priority priority)
     {
         return priority.isLong()
@@ -1422,6 +1986,21 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         return result;
     }
 
+    /**
+     * Gets the permission group object of the specified user.
+     * @param userId The ID of the user to get the permission group object of.
+     * @return The permission group object of the specified user, or null if the user is not registered.
+     */
+    PermissionGroup getUserPermissionsGroup(ID userId)
+    { return permissionsForUsers.get(userId); }
+
+    /**
+     * Gets the permission group objects of all users in the registry.
+     * @return A collection of the permission group objects of all users in the registry.
+     */
+    Collection<PermissionGroup> getUserPermissionsGroups()
+    { return permissionsForUsers.values(); }
+
     /**
      * Gets the permission group object of the specified user. If the specified user does not currently exist in the
      * registry, registers it.
@@ -1432,7 +2011,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     {
         return permissionsForUsers.computeIfAbsent(userId, id ->
         {
-            markAsModified();
+            markUserAsModified(id);
             return new PermissionGroup(convertIdToString.apply(id), defaultPermissions);
         });
     }
@@ -1472,15 +2051,146 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Mutators
     //region Other registries
     //region Absorb
+    /**
+     * Gets the given registry as a group map permissions registry, where it is one or is a decorator of one.
+     * @param registry The registry to get as a group map permissions registry.
+     * @param <ID> The type of the unique identifier used to represent users.
+     * @return The given registry, or the group map permissions registry it decorates, or null if it is neither.
+     */
+    static <ID extends Comparable<? super ID>> GroupMapPermissionsRegistry<ID> asGroupMap(
+            PermissionsRegistry<ID> registry)
+    {
+        while(registry instanceof PermissionsRegistryDecorator)
+            registry = ((PermissionsRegistryDecorator<ID>)registry).inner;
+
+        return (registry instanceof GroupMapPermissionsRegistry) ? ((GroupMapPermissionsRegistry<ID>)registry) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Where the other registry is a {@link GroupMapPermissionsRegistry}, or a decorator of one, its contents are
+     * merged into this one structurally, as by {@link #absorb(PermissionsRegistry, boolean)}.</p>
+     * @param other The other registry.
+     */
     @Override
     public void absorb(PermissionsRegistry<ID> other)
+    { absorb(other, false); }
+
+    /**
+     * <p>Copies the contents of another permissions registry into this one, as {@link #absorb(PermissionsRegistry)}.
+     * </p>
+     *
+     * <p>Where the other registry is a {@link GroupMapPermissionsRegistry}, or a decorator of one, the permissions of
+     * its users and groups are copied directly from their permission sets into those of this registry, rather than
+     * being converted into strings and parsed back. Where this is done in parallel, the permissions of users are copied
+     * across multiple threads, on the {@link ForkJoinPool#commonPool() common fork-join pool}. Users and groups are
+     * still created and assigned groups on the calling thread.</p>
+     * @apiNote The other registry should not be modified while it's being absorbed.
+     * @param other The other registry.
+     * @param inParallel Whether or not to copy the permissions of users across multiple threads, where the other
+     *                   registry is a group map permissions registry.
+     */
+    public void absorb(PermissionsRegistry<ID> other, boolean inParallel)
     {
-        absorbGroups(other);
-        absorbDefaults(other);
-        absorbUsers(other);
+        GroupMapPermissionsRegistry<ID> otherGroupMap = asGroupMap(other);
+
+        if(otherGroupMap == this)
+            return;
+
+        recordWholeRegistryForRollback();
+
+        if(otherGroupMap != null)
+        {
+            absorbGroupsStructurally(otherGroupMap);
+            absorbUsersStructurally(otherGroupMap, inParallel);
+        }
+        else
+        {
+            absorbGroups(other);
+            absorbDefaults(other);
+            absorbUsers(other);
+        }
+
         markAsModified();
     }
 
+    /**
+     * Copies the groups and default permissions of another group map permissions registry into this one, copying
+     * their permissions directly between permission sets.
+     * @apiNote Where groups already exist in this one, priority is not overridden.
+     * @param other The permissions registry to copy groups from.
+     */
+    private void absorbGroupsStructurally(GroupMapPermissionsRegistry<ID> other)
+    {
+        for(String groupName : other.getGroupNames())
+        {
+            PermissionGroup otherGroup = other.getGroupPermissionsGroup(groupName);
+
+            PermissionGroup group = assignableGroups.containsKey(groupName)
+                                            ? getGroupPermissionsGroupOrNew(groupName)
+                                            : getGroupPermissionsGroupOrNew(groupName,
+                                                                            otherGroup.getPriorityAsObject());
+
+            group.permissionSet.setAll(otherGroup.permissionSet);
+            assignGroupsTo(group, getNamesOf(otherGroup.getPermissionGroups()), true);
+        }
+
+        defaultPermissions.permissionSet.setAll(other.defaultPermissions.permissionSet);
+        assignGroupsTo(defaultPermissions, getNamesOf(other.defaultPermissions.getPermissionGroups()), true);
+    }
+
+    /**
+     * Copies the users of another group map permissions registry into this one, copying their permissions directly
+     * between permission sets.
+     * @param other The permissions registry to copy users from.
+     * @param inParallel Whether or not to copy the permissions of users across multiple threads.
+     */
+    private void absorbUsersStructurally(GroupMapPermissionsRegistry<ID> other, boolean inParallel)
+    {
+        Collection<ID> userIds = other.getUsers();
+        List<PermissionGroup> userGroups = new ArrayList<>(userIds.size());
+        List<PermissionGroup> otherUserGroups = new ArrayList<>(userIds.size());
+
+        for(ID userId : userIds)
+        {
+            PermissionGroup otherUserGroup = other.getUserPermissionsGroup(userId);
+
+            if(otherUserGroup == null)
+                continue;
+
+            PermissionGroup userGroup = getUserPermissionsGroupOrNew(userId);
+
+            for(PermissionGroup referencedGroup : otherUserGroup.getPermissionGroups())
+                userGroup.addPermissionGroup(getGroupPermissionsGroupOrNew(referencedGroup.getName()));
+
+            userGroups.add(userGroup);
+            otherUserGroups.add(otherUserGroup);
+        }
+
+        IntStream indices = IntStream.range(0, userGroups.size());
+
+        if(inParallel)
+            indices = indices.parallel();
+
+        indices.forEach(i -> userGroups.get(i).permissionSet.setAll(otherUserGroups.get(i).permissionSet));
+    }
+
+    /**
+     * Gets the names of the given permission groups.
+     * @param groups The permission groups to get the names of.
+     * @return A list of the names of the given permission groups, in the same order.
+     */
+    private static List<String> getNamesOf(List<PermissionGroup> groups)
+    {
+        List<String> names = new ArrayList<>(groups.size());
+
+        for(PermissionGroup group : groups)
+            names.add(group.getName());
+
+        return names;
+    }
+
     /**
      * Adds the groups of another permissions registry to this one.
      * @apiNote Where groups already exist in this one, priority is not overridden.
@@ -1508,7 +2218,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
      */
     private void absorbDefaults(PermissionsRegistry<ID> other)
     {
-        assignDefaultPermissions(other.getDefaultPermissions());
+        assignDefaultPermissions(other.getDefaultPermissionsWithArgs());
         assignDefaultGroups(other.getDefaultGroups());
         markAsModified();
     }
@@ -1521,7 +2231,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     {
         for(ID user : other.getUsers())
         {
-            assignUserPermissions(user, other.getUserPermissions(user));
+            assignUserPermissions(user, other.getUserPermissionsWithArgs(user));
             assignGroupsToUser(user, other.getGroupsOfUser(user));
         }
 
@@ -1530,11 +2240,27 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //endregion
 
     //region Remove contents of
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Where the other registry is a {@link GroupMapPermissionsRegistry}, or a decorator of one, the default
+     * permissions it has are removed from this one directly by their paths in its permission set, rather than being
+     * converted into strings and parsed back.</p>
+     * @param other The other registry.
+     */
     @Override
     public void removeContentsOf(PermissionsRegistry<ID> other)
     {
-        for(String p : other.getDefaultPermissions())
-            defaultPermissions.removePermission(p);
+        recordWholeRegistryForRollback();
+        GroupMapPermissionsRegistry<ID> otherGroupMap = asGroupMap(other);
+
+        if(otherGroupMap != null)
+            defaultPermissions.permissionSet.removeAll(otherGroupMap.defaultPermissions.permissionSet);
+        else
+        {
+            for(String p : other.getDefaultPermissions())
+                defaultPermissions.removePermission(p);
+        }
 
         for(String g : other.getDefaultGroups())
             defaultPermissions.removePermissionGroup(g);
@@ -1551,15 +2277,24 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Single
     @Override
     public Permission assignUserPermission(ID userId, String permission)
-    { return assignPermission(getUserPermissionsGroupOrNew(userId), permission); }
+    {
+        recordUserForRollback(userId);
+        return assignPermission(getUserPermissionsGroupOrNew(userId), permission);
+    }
 
     @Override
     public Permission assignGroupPermission(String groupId, String permission)
-    { return assignPermission(getGroupPermissionsGroupOrNew(groupId), permission); }
+    {
+        recordGroupForRollback(groupId);
+        return assignPermission(getGroupPermissionsGroupOrNew(groupId), permission);
+    }
 
     @Override
     public Permission assignDefaultPermission(String permission)
-    { return assignPermission(defaultPermissions, permission); }
+    {
+        recordDefaultsForRollback();
+        return assignPermission(defaultPermissions, permission);
+    }
 
     /**
      * Assigns the given permission to given permission group object.
@@ -1569,7 +2304,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
      */
     protected Permission assignPermission(PermissionGroup permGroup, String permission)
     {
-        markAsModified();
+        markAsModified(permGroup);
 
         try
         { return permGroup.addPermission(permission); }
@@ -1581,7 +2316,10 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Multiple
     @Override
     public void assignUserPermissions(ID userId, List<String> permissions)
-    { assignPermissions(getUserPermissionsGroupOrNew(userId), permissions); }
+    {
+        recordUserForRollback(userId);
+        assignPermissions(getUserPermissionsGroupOrNew(userId), permissions);
+    }
 
     @Override
     public void assignUserPermissions(ID userId, String[] permissions)
@@ -1589,7 +2327,10 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
     @Override
     public void assignGroupPermissions(String groupName, List<String> permissions)
-    { assignPermissions(getGroupPermissionsGroupOrNew(groupName), permissions); }
+    {
+        recordGroupForRollback(groupName);
+        assignPermissions(getGroupPermissionsGroupOrNew(groupName), permissions);
+    }
 
     @Override
     public void assignGroupPermissions(String groupName, String[] permissions)
@@ -1597,7 +2338,10 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
     @Override
     public void assignDefaultPermissions(List<String> permissions)
-    { assignPermissions(defaultPermissions, permissions); }
+    {
+        recordDefaultsForRollback();
+        assignPermissions(defaultPermissions, permissions);
+    }
 
     @Override
     public void assignDefaultPermissions(String[] permissions)
@@ -1610,7 +2354,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
      */
     protected void assignPermissions(PermissionGroup permGroup, List<String> permissions)
     {
-        markAsModified();
+        markAsModified(permGroup);
 
         for(String p : permissions)
         {
@@ -1627,15 +2371,24 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Single
     @Override
     public Permission revokeUserPermission(ID userId, String permission)
-    { return revokePermission(permissionsForUsers.get(userId), permission); }
+    {
+        recordUserForRollback(userId);
+        return revokePermission(getUserPermissionsGroup(userId), permission);
+    }
 
     @Override
     public Permission revokeGroupPermission(String groupeName, String permission)
-    { return revokePermission(getGroupPermissionsGroup(groupeName), permission); }
+    {
+        recordGroupForRollback(groupeName);
+        return revokePermission(getGroupPermissionsGroup(groupeName), permission);
+    }
 
     @Override
     public Permission revokeDefaultPermission(String permission)
-    { return revokePermission(defaultPermissions, permission); }
+    {
+        recordDefaultsForRollback();
+        return revokePermission(defaultPermissions, permission);
+    }
 
     /**
      * Removes the given permission from the specified permission group object.
@@ -1649,7 +2402,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if(permGroup == null)
             return null;
 
-        markAsModified();
+        markAsModified(permGroup);
         return permGroup.removePermission(permission);
     }
     //endregion
@@ -1657,15 +2410,24 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region All
     @Override
     public void revokeAllUserPermissions(ID userId)
-    { revokeAllPermissions(permissionsForUsers.get(userId)); }
+    {
+        recordUserForRollback(userId);
+        revokeAllPermissions(getUserPermissionsGroup(userId));
+    }
 
     @Override
     public void revokeAllGroupPermissions(String groupName)
-    { revokeAllPermissions(getGroupPermissionsGroup(groupName)); }
+    {
+        recordGroupForRollback(groupName);
+        revokeAllPermissions(getGroupPermissionsGroup(groupName));
+    }
 
     @Override
     public void revokeAllDefaultPermissions()
-    { revokeAllPermissions(defaultPermissions); }
+    {
+        recordDefaultsForRollback();
+        revokeAllPermissions(defaultPermissions);
+    }
 
     /**
      * Removes all direct permissions from the specified permission group object.
@@ -1678,7 +2440,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if(permGroup != null)
             permGroup.clearPermissions();
 
-        markAsModified();
+        markAsModified(permGroup);
     }
     //endregion
     //endregion
@@ -1689,15 +2451,24 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Single
     @Override
     public void assignGroupToUser(ID userId, String groupNameBeingAssigned)
-    { assignGroupTo(getUserPermissionsGroupOrNew(userId), groupNameBeingAssigned, false); }
+    {
+        recordUserForRollback(userId);
+        assignGroupTo(getUserPermissionsGroupOrNew(userId), groupNameBeingAssigned, false);
+    }
 
     @Override
     public void assignGroupToGroup(String groupName, String groupNameBeingAssigned)
-    { assignGroupTo(getGroupPermissionsGroupOrNew(groupName), groupNameBeingAssigned, true); }
+    {
+        recordGroupForRollback(groupName);
+        assignGroupTo(getGroupPermissionsGroupOrNew(groupName), groupNameBeingAssigned, true);
+    }
 
     @Override
     public void assignDefaultGroup(String groupNameBeingAssigned)
-    {  assignGroupTo(defaultPermissions, groupNameBeingAssigned, true); }
+    {
+        recordDefaultsForRollback();
+        assignGroupTo(defaultPermissions, groupNameBeingAssigned, true);
+    }
 
     /**
      * Assigns a group to a permission group object.
@@ -1713,14 +2484,17 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             assertNotCircular(permGroup, permGroupBeingAssigned);
 
         permGroup.addPermissionGroup(permGroupBeingAssigned);
-        markAsModified();
+        markAsModified(permGroup);
     }
     //endregion
 
     //region Multiple
     @Override
     public void assignGroupsToUser(ID userId, List<String> groupNamesBeingAssigned)
-    { assignGroupsTo(getUserPermissionsGroupOrNew(userId), groupNamesBeingAssigned, false); }
+    {
+        recordUserForRollback(userId);
+        assignGroupsTo(getUserPermissionsGroupOrNew(userId), groupNamesBeingAssigned, false);
+    }
 
     @Override
     public void assignGroupsToUser(ID userId, String[] groupNamesBeingAssigned)
@@ -1728,7 +2502,10 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
     @Override
     public void assignGroupsToGroup(String groupName, List<String> groupNamesBeingAssigned)
-    { assignGroupsTo(getGroupPermissionsGroupOrNew(groupName), groupNamesBeingAssigned, true); }
+    {
+        recordGroupForRollback(groupName);
+        assignGroupsTo(getGroupPermissionsGroupOrNew(groupName), groupNamesBeingAssigned, true);
+    }
 
     @Override
     public void assignGroupsToGroup(String groupName, String[] groupNamesBeingAssigned)
@@ -1736,7 +2513,10 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
     @Override
     public void assignDefaultGroups(List<String> groupNamesBeingAssigned)
-    { assignGroupsTo(defaultPermissions, groupNamesBeingAssigned, true); }
+    {
+        recordDefaultsForRollback();
+        assignGroupsTo(defaultPermissions, groupNamesBeingAssigned, true);
+    }
 
     @Override
     public void assignDefaultGroups(String[] groupNamesBeingAssigned)
@@ -1770,7 +2550,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             }
         }
 
-        markAsModified();
+        markAsModified(permGroup);
     }
     //endregion
     //endregion
@@ -1779,15 +2559,24 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region Single
     @Override
     public boolean revokeGroupFromUser(ID userId, String groupNameBeingRevoked)
-    { return revokeGroupFrom(permissionsForUsers.get(userId), groupNameBeingRevoked); }
+    {
+        recordUserForRollback(userId);
+        return revokeGroupFrom(getUserPermissionsGroup(userId), groupNameBeingRevoked);
+    }
 
     @Override
     public boolean revokeGroupFromGroup(String groupName, String groupNameBeingRevoked)
-    { return revokeGroupFrom(getGroupPermissionsGroup(groupName), groupNameBeingRevoked); }
+    {
+        recordGroupForRollback(groupName);
+        return revokeGroupFrom(getGroupPermissionsGroup(groupName), groupNameBeingRevoked);
+    }
 
     @Override
     public boolean revokeDefaultGroup(String groupNameBeingRevoked)
-    { return revokeGroupFrom(defaultPermissions, groupNameBeingRevoked); }
+    {
+        recordDefaultsForRollback();
+        return revokeGroupFrom(defaultPermissions, groupNameBeingRevoked);
+    }
 
     /**
      * Removes a group from the referenced groups of the given permission group object.
@@ -1805,7 +2594,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if(permGroupBeingRevoked == null)
             return false;
 
-        markAsModified();
+        markAsModified(permGroup);
         return permGroup.removePermissionGroup(permGroupBeingRevoked);
     }
     //endregion
@@ -1813,15 +2602,24 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     //region All
     @Override
     public void revokeAllGroupsFromUser(ID userId)
-    { revokeAllGroups(permissionsForUsers.get(userId)); }
+    {
+        recordUserForRollback(userId);
+        revokeAllGroups(getUserPermissionsGroup(userId));
+    }
 
     @Override
     public void revokeAllGroupsFromGroup(String groupName)
-    { revokeAllGroups(getGroupPermissionsGroup(groupName)); }
+    {
+        recordGroupForRollback(groupName);
+        revokeAllGroups(getGroupPermissionsGroup(groupName));
+    }
 
     @Override
     public void revokeAllDefaultGroups()
-    { revokeAllGroups(defaultPermissions); }
+    {
+        recordDefaultsForRollback();
+        revokeAllGroups(defaultPermissions);
+    }
 
     /**
      * Removes all referenced groups of the given permission group object.
@@ -1832,7 +2630,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if(permGroup != null)
             permGroup.clearGroups();
 
-        markAsModified();
+        markAsModified(permGroup);
     }
     //endregion
     //endregion
@@ -1842,6 +2640,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     @Override
     public void clear()
     {
+        recordWholeRegistryForRollback();
         permissionsForUsers.clear();
         assignableGroups.clear();
         defaultPermissions.clear();
@@ -1851,6 +2650,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     @Override
     public void clearUsers()
     {
+        recordWholeRegistryForRollback();
         permissionsForUsers.clear();
         markAsModified();
     }
@@ -1859,42 +2659,64 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     public void clearUsers(Collection<ID> userIds)
     {
         for(ID userId : userIds)
+        {
+            recordUserForRollback(userId);
             permissionsForUsers.remove(userId);
-
-        markAsModified();
+            markUserAsModified(userId);
+        }
     }
 
     @Override
     public void clearUsers(ID[] userIds)
     {
         for(ID userId : userIds)
+        {
+            recordUserForRollback(userId);
             permissionsForUsers.remove(userId);
-
-        markAsModified();
+            markUserAsModified(userId);
+        }
     }
 
     @Override
     public void clearUser(ID userId)
     {
+        recordUserForRollback(userId);
         permissionsForUsers.remove(userId);
-        markAsModified();
+        markUserAsModified(userId);
     }
 
     @Override
     public void clearGroups()
     {
+        recordWholeRegistryForRollback();
+
+        for(String groupName : assignableGroups.keySet())
+            markGroupAsModified(groupName);
+
         assignableGroups.clear();
-        defaultPermissions.clearGroups();
 
-        for(PermissionGroup user : permissionsForUsers.values())
-            user.clearGroups();
+        if(!defaultPermissions.getPermissionGroups().isEmpty())
+        {
+            defaultPermissions.clearGroups();
+            markAsModified(defaultPermissions);
+        }
 
-        markAsModified();
+        for(PermissionGroup user : getUserPermissionsGroups())
+        {
+            if(!user.getPermissionGroups().isEmpty())
+            {
+                user.clearGroups();
+                markAsModified(user);
+            }
+        }
+
+        hasBeenDifferentiatedFromFiles = true;
     }
 
     @Override
     public void clearGroups(Collection<String> groupNames)
     {
+        recordWholeRegistryForRollback();
         Set<String> otherGroupsToCheckIfNeedingPruning = new HashSet<>();
         Collection<PermissionGroup> groupObjs = new ArrayList<>();
 
@@ -1906,6 +2728,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                 continue;
 
             groupObjs.add(groupObj);
+            markGroupAsModified(groupName);
 
             otherGroupsToCheckIfNeedingPruning.addAll(groupObj.getPermissionGroups()
                                                               .stream()
@@ -1914,11 +2737,13 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         }
 
         for(PermissionGroup groupObj : groupObjs)
-            defaultPermissions.removePermissionGroup(groupObj);
+            if(defaultPermissions.removePermissionGroup(groupObj))
+                markAsModified(defaultPermissions);
 
-        for(PermissionGroup user : permissionsForUsers.values())
+        for(PermissionGroup user : getUserPermissionsGroups())
             for(PermissionGroup groupObj : groupObjs)
-                user.removePermissionGroup(groupObj);
+                if(user.removePermissionGroup(groupObj))
+                    markAsModified(user);
 
         for(PermissionGroup otherGroup : assignableGroups.values())
         {
@@ -1927,12 +2752,17 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             for(PermissionGroup groupObj : groupObjs)
                 changed = changed || otherGroup.removePermissionGroup(groupObj);
 
-            if(changed && otherGroup.isEmpty())
-                otherGroupsToCheckIfNeedingPruning.add(otherGroup.getName());
+            if(changed)
+            {
+                markAsModified(otherGroup);
+
+                if(otherGroup.isEmpty())
+                    otherGroupsToCheckIfNeedingPruning.add(otherGroup.getName());
+            }
         }
 
         prune(otherGroupsToCheckIfNeedingPruning);
-        markAsModified();
+        hasBeenDifferentiatedFromFiles = true;
     }
 
     @Override
@@ -1942,6 +2772,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     @Override
     public void clearGroup(String groupName)
     {
+        recordWholeRegistryForRollback();
         PermissionGroup groupObj = assignableGroups.remove(groupName);
 
         if(groupObj == null)
@@ -1952,29 +2783,41 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                                                                   .map(PermissionGroup::getName)
                                                                   .collect(Collectors.toCollection(ArrayList::new));
 
-        defaultPermissions.removePermissionGroup(groupObj);
+        markGroupAsModified(groupName);
+
+        if(defaultPermissions.removePermissionGroup(groupObj))
+            markAsModified(defaultPermissions);
 
-        for(PermissionGroup user : permissionsForUsers.values())
-            user.removePermissionGroup(groupObj);
+        for(PermissionGroup user : getUserPermissionsGroups())
+            if(user.removePermissionGroup(groupObj))
+                markAsModified(user);
 
         for(PermissionGroup otherGroup : assignableGroups.values())
-            if(otherGroup.removePermissionGroup(groupObj) && otherGroup.isEmpty())
-                otherGroupsToCheckIfNeedingPruning.add(otherGroup.getName());
+        {
+            if(otherGroup.removePermissionGroup(groupObj))
+            {
+                markAsModified(otherGroup);
+
+                if(otherGroup.isEmpty())
+                    otherGroupsToCheckIfNeedingPruning.add(otherGroup.getName());
+            }
+        }
 
         prune(otherGroupsToCheckIfNeedingPruning);
-        markAsModified();
     }
 
     @Override
     public void clearDefaults()
     {
+        recordDefaultsForRollback();
         defaultPermissions.clear();
-        markAsModified();
+        markAsModified(defaultPermissions);
     }
 
     @Override
     public void prune()
     {
+        recordWholeRegistryForRollback();
         Iterator<Map.Entry<String, PermissionGroup>> iter = assignableGroups.entrySet().iterator();
         List<String> groupNamesOnlyExistentInOtherGroups = new ArrayList<>();
 
@@ -1987,7 +2830,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
             if(   !entry.getValue().isEmpty()
                || defaultPermissions.hasGroupDirectly(groupName)
-               || permissionsForUsers.values().stream().anyMatch(x -> x.hasGroupDirectly(groupName)))
+               || getUserPermissionsGroups().stream().anyMatch(x -> x.hasGroupDirectly(groupName)))
             { continue; }
 
             if(assignableGroups.values().stream().anyMatch(x -> x.hasGroupDirectly(groupName)))
@@ -1997,6 +2840,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             }
 
             iter.remove();
+            markGroupAsModified(groupName);
         }
 
         // Go over groups that were only existent in other groups and remove them if they're no longer referenced by any
@@ -2013,6 +2857,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                 if(assignableGroups.values().stream().noneMatch(x -> x.hasGroupDirectly(groupName)))
                 {
                     assignableGroups.remove(groupName);
+                    markGroupAsModified(groupName);
                     groupNamesIter.remove();
                     groupRemoved = true;
                 }
@@ -2023,6 +2868,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     @Override
     public void prune(Collection<String> groupNames)
     {
+        recordWholeRegistryForRollback();
         Iterator<Map.Entry<String, PermissionGroup>> iter = assignableGroups.entrySet().iterator();
         List<String> groupNamesOnlyExistentInOtherGroups = new ArrayList<>();
 
@@ -2038,7 +2884,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
 
             if(   !entry.getValue().isEmpty()
                   || defaultPermissions.hasGroupDirectly(groupName)
-                  || permissionsForUsers.values().stream().anyMatch(x -> x.hasGroupDirectly(groupName)))
+                  || getUserPermissionsGroups().stream().anyMatch(x -> x.hasGroupDirectly(groupName)))
             { continue; }
 
             if(assignableGroups.values().stream().anyMatch(x -> x.hasGroupDirectly(groupName)))
@@ -2048,6 +2894,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             }
 
             iter.remove();
+            markGroupAsModified(groupName);
         }
 
         // Go over groups that were only existent in other groups and remove them if they're no longer referenced by any
@@ -2064,6 +2911,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                 if(assignableGroups.values().stream().noneMatch(x -> x.hasGroupDirectly(groupName)))
                 {
                     assignableGroups.remove(groupName);
+                    markGroupAsModified(groupName);
                     groupNamesIter.remove();
                     groupRemoved = true;
                 }
@@ -2072,27 +2920,321 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     }
     //endregion
 
-    //region Set flags
+    //region Batches
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        if(batchRollback != null)
+        {
+            transaction.accept(this);
+            return;
+        }
+
+        BatchRollback rollback = new BatchRollback();
+        batchRollback = rollback;
+
+        try
+        { transaction.accept(this); }
+        catch(RuntimeException | Error e)
+        {
+            batchRollback = null;
+            rollBack(rollback);
+            throw e;
+        }
+        finally
+        { batchRollback = null; }
+    }
+
     /**
-     * Marks this registry as having been modified.
+     * Gets whether or not a batch is currently being performed on this registry.
+     * @return True if a batch is currently being performed. Otherwise, false.
      */
-    protected void markAsModified()
-    { hasBeenDifferentiatedFromFiles = true; }
-    //endregion
-    //endregion
+    protected boolean isPerformingBatch()
+    { return batchRollback != null; }
 
-    //region Saving & loading
-    //region Saving
     /**
-     * Writes reversible string representations of permission group objects to the provided writer object.
-     * @param writer The writer to write to.
-     * @param permGroups The permission groups to write.
-     * @throws IOException If an IO exception is thrown by the provided writer.
+     * Records the current state of the specified user, for restoring to if the batch currently being performed fails.
+     * @apiNote Does nothing if no batch is being performed, or if the user has already been recorded in it.
+     * @param userId The ID of the user to record.
      */
-    protected static void savePerms(BufferedWriter writer, Collection<PermissionGroup> permGroups) throws IOException
+    protected void recordUserForRollback(ID userId)
     {
-        Iterator<PermissionGroup> iter = permGroups.stream()
-                                                   .sorted(Comparator.comparing(PermissionGroup::getName))
+        if(   (batchRollback == null)
+           || (batchRollback.hasRecordedWholeRegistry())
+           || (batchRollback.userSaveStrings.containsKey(userId)))
+        { return; }
+
+        PermissionGroup permGroup = getUserPermissionsGroup(userId);
+        batchRollback.userSaveStrings.put(userId, (permGroup == null) ? (null) : (permGroup.toSaveString()));
+    }
+
+    /**
+     * Records the current state of the specified group, for restoring to if the batch currently being performed fails.
+     * If the group is specified as "*", records the default permissions.
+     * @apiNote Does nothing if no batch is being performed, or if the group has already been recorded in it.
+     * @param groupName The name of the group to record.
+     */
+    protected void recordGroupForRollback(String groupName)
+    {
+        if("*".equals(groupName))
+        {
+            recordDefaultsForRollback();
+            return;
+        }
+
+        if(   (batchRollback == null)
+           || (batchRollback.hasRecordedWholeRegistry())
+           || (batchRollback.groupSaveStrings.containsKey(groupName)))
+        { return; }
+
+        PermissionGroup permGroup = assignableGroups.get(groupName);
+
+        if(permGroup == null)
+        {
+            batchRollback.groupSaveStrings.put(groupName, null);
+            return;
+        }
+
+        batchRollback.groupSaveStrings.put(groupName, permGroup.toSaveString());
+        batchRollback.groupPriorities.put(groupName, permGroup.getPriorityAsObject());
+    }
+
+    /**
+     * Records the current state of the default permissions, for restoring to if the batch currently being performed
+     * fails.
+     * @apiNote Does nothing if no batch is being performed, or if the default permissions have already been recorded
+     *          in it.
+     */
+    protected void recordDefaultsForRollback()
+    {
+        if(   (batchRollback == null)
+           || (batchRollback.hasRecordedWholeRegistry())
+           || (batchRollback.defaultsSaveString != null))
+        { return; }
+
+        batchRollback.defaultsSaveString = defaultPermissions.toSaveString();
+    }
+
+    /**
+     * Records the current state of the whole registry, for restoring to if the batch currently being performed fails.
+     * @apiNote Does nothing if no batch is being performed, or if the whole registry has already been recorded in it.
+     */
+    protected void recordWholeRegistryForRollback()
+    {
+        if((batchRollback == null) || (batchRollback.hasRecordedWholeRegistry()))
+            return;
+
+        batchRollback.groupsSaveString = groupsToSaveString();
+        batchRollback.usersSaveString = usersToSaveString();
+    }
+
+    /**
+     * <p>Restores the registry to the state it was in before a batch, as recorded in the given rollback record.</p>
+     *
+     * <p>Where the whole registry was recorded, the registry is restored to that recording first. Entities recorded
+     * individually were recorded before it, so are then restored on top of it.</p>
+     * @param rollback The record of the registry's state to restore.
+     */
+    private void rollBack(BatchRollback rollback)
+    {
+        try
+        {
+            if(rollback.hasRecordedWholeRegistry())
+            {
+                clear();
+                loadGroups(new PermissionsLineReader(new StringReader(rollback.groupsSaveString)));
+                loadUsers(new PermissionsLineReader(new StringReader(rollback.usersSaveString)));
+            }
+
+            // Groups that didn't exist before the batch. Anything referencing them was modified in the batch, and so is
+            // restored below.
+            for(Map.Entry<String, String> entry : rollback.groupSaveStrings.entrySet())
+            {
+                if(entry.getValue() != null)
+                    continue;
+
+                PermissionGroup permGroup = assignableGroups.remove(entry.getKey());
+
+                if(permGroup != null)
+                    permGroup.clear();
+            }
+
+            for(Map.Entry<String, String> entry : rollback.groupSaveStrings.entrySet())
+            {
+                if(entry.getValue() == null)
+                    continue;
+
+                PermissionGroup permGroup = getGroupPermissionsGroupOrNew(entry.getKey(),
+                                                                          rollback.groupPriorities.get(entry.getKey()));
+                permGroup.clear();
+                loadGroups(new PermissionsLineReader(new StringReader(entry.getValue())));
+            }
+
+            if(rollback.defaultsSaveString != null)
+            {
+                defaultPermissions.clear();
+                loadGroups(new PermissionsLineReader(new StringReader(rollback.defaultsSaveString)));
+            }
+
+            for(Map.Entry<ID, String> entry : rollback.userSaveStrings.entrySet())
+            {
+                PermissionGroup permGroup = permissionsForUsers.remove(entry.getKey());
+
+                if(permGroup != null)
+                    permGroup.clearGroups();
+
+                if(entry.getValue() != null)
+                    loadUsers(new PermissionsLineReader(new StringReader(entry.getValue())));
+            }
+        }
+        catch(IOException e)
+        { throw new UncheckedIOException(e); }
+
+        // Entities modified in the batch are left recorded as modified. They're restored to how they were, so at most
+        // they're written unnecessarily.
+        if(rollback.wasDifferentiatedFromFiles)
+            allEntitiesModified = rollback.allEntitiesWereModified;
+        else
+            markAsUnmodified();
+    }
+    //endregion
+
+    //region Set flags
+    /**
+     * Marks this registry as having been modified as a whole, such that every user and group is considered modified.
+     */
+    protected void markAsModified()
+    {
+        hasBeenDifferentiatedFromFiles = true;
+        allEntitiesModified = true;
+        allContentHashesStale = true;
+    }
+
+    /**
+     * Marks the specified user as having been modified.
+     * @param userId The ID of the user modified.
+     */
+    protected void markUserAsModified(ID userId)
+    {
+        hasBeenDifferentiatedFromFiles = true;
+
+        if(!allEntitiesModified)
+            modifiedUsers.add(userId);
+
+        if(!allContentHashesStale)
+            usersWithStaleContentHashes.add(userId);
+    }
+
+    /**
+     * Marks the specified group as having been modified.
+     * @param groupName The name of the group modified, or "*" for the default permissions.
+     */
+    protected void markGroupAsModified(String groupName)
+    {
+        hasBeenDifferentiatedFromFiles = true;
+
+        if(!allEntitiesModified)
+            modifiedGroups.add(groupName);
+
+        if(!allContentHashesStale)
+            groupsWithStaleContentHashes.add(groupName);
+    }
+
+    /**
+     * Marks the user, group, or default permissions the given permission group object belongs to as having been
+     * modified.
+     * @param permGroup The permission group object modified. If null, only marks the registry as having been modified.
+     */
+    protected void markAsModified(PermissionGroup permGroup)
+    {
+        hasBeenDifferentiatedFromFiles = true;
+
+        if(permGroup == null)
+            return;
+
+        if(permGroup == defaultPermissions)
+            markGroupAsModified("*");
+        else if(assignableGroups.get(permGroup.getName()) == permGroup)
+            markGroupAsModified(permGroup.getName());
+        else
+            markUserAsModified(parseIdFromString.apply(permGroup.getName()));
+    }
+
+    /**
+     * Marks this registry as matching its save files, with no users or groups modified.
+     */
+    protected void markAsUnmodified()
+    {
+        hasBeenDifferentiatedFromFiles = false;
+        allEntitiesModified = false;
+        modifiedUsers.clear();
+        modifiedGroups.clear();
+    }
+
+    /**
+     * Forgets the contents this registry last wrote to its save files, such that they're written on the next save
+     * whether or not they would be written with the same contents. This should be called when the save files may have
+     * been written by anything else, such as when loading from them.
+     */
+    protected void forgetWrittenFileContents()
+    {
+        usersFileHash = null;
+        groupsFileHash = null;
+        usersContentHashAsWritten = null;
+        groupsContentHashAsWritten = null;
+    }
+
+    /**
+     * Gets whether or not any users have been modified since the registry was last saved or loaded.
+     * @return True if any users have been modified since the registry was last saved or loaded. Otherwise, false.
+     */
+    protected boolean haveUsersBeenModified()
+    {
+        applyBackgroundSaveFailure();
+        return allEntitiesModified || !modifiedUsers.isEmpty();
+    }
+
+    /**
+     * Gets whether or not any groups or the default permissions have been modified since the registry was last saved
+     * or loaded.
+     * @return True if any groups or the default permissions have been modified since the registry was last saved or
+     *         loaded. Otherwise, false.
+     */
+    protected boolean haveGroupsBeenModified()
+    {
+        applyBackgroundSaveFailure();
+        return allEntitiesModified || !modifiedGroups.isEmpty();
+    }
+
+    /**
+     * Marks the registry as modified where a background save has failed to be written since this was last called, so
+     * that the contents it failed to write are written by the next save.
+     * @apiNote The failure is recorded by the thread the save was written on, but only applied here, on the thread the
+     *          registry is used from, as the records of what's been modified aren't threadsafe.
+     */
+    private void applyBackgroundSaveFailure()
+    {
+        if(backgroundSaveFailed)
+        {
+            backgroundSaveFailed = false;
+            markAsModified();
+        }
+    }
+    //endregion
+    //endregion
+
+    //region Saving & loading
+    //region Saving
+    /**
+     * Writes reversible string representations of permission group objects to the provided writer object.
+     * @param writer The writer to write to.
+     * @param permGroups The permission groups to write.
+     * @throws IOException If an IO exception is thrown by the provided writer.
+     */
+    protected static void savePerms(BufferedWriter writer, Collection<PermissionGroup> permGroups) throws IOException
+    {
+        Iterator<PermissionGroup> iter = permGroups.stream()
+                                                   .sorted(Comparator.comparing(PermissionGroup::getName))
                                                    .iterator();
 
         PermissionGroup pgprevious;
@@ -2112,7 +3254,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                 writer.write(leaveBlankLine ? "\n\n" : "\n");
             }
 
-            writer.write(pg.toSaveString());
+            pg.writeSaveString(writer);
         }
     }
 
@@ -2146,7 +3288,12 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     }
 
     /**
-     * Writes reversible string representations of the permissions of all users in this registry to the users file.
+     * <p>Writes reversible string representations of the permissions of all users in this registry to the users
+     * file.</p>
+     *
+     * <p>The file is not written if its contents would be the same as this registry last wrote to it. Where the
+     * content hash of the users is the same as when this registry last wrote them, they're not converted to a string
+     * at all.</p>
      * @apiNote Does nothing if no users file location has been provided to the registry.
      * @throws IOException If an IO exception is thrown in the process of writing the file.
      */
@@ -2155,12 +3302,30 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if(usersFilePath == null)
             return;
 
-        try(BufferedWriter writer = Files.newBufferedWriter(usersFilePath))
+        refreshContentHashes();
+        long contentHash = userContentHashes.getHash();
+
+        boolean unchangedSinceWritten = usersContentHashAsWritten != null && usersContentHashAsWritten == contentHash;
+
+        if(unchangedSinceWritten && Files.exists(usersFilePath))
+            return;
+
+        StringWriter sw = new StringWriter();
+
+        try(BufferedWriter writer = new BufferedWriter(sw))
         { saveUsers(writer); }
+
+        writeUsersFile(sw.toString());
+        usersContentHashAsWritten = contentHash;
     }
 
     /**
-     * Writes reversible string representations of the permissions of all groups in this registry to the groups file.
+     * <p>Writes reversible string representations of the permissions of all groups in this registry to the groups
+     * file.</p>
+     *
+     * <p>The file is not written if its contents would be the same as this registry last wrote to it. Where the
+     * content hash of the groups and default permissions is the same as when this registry last wrote them, they're
+     * not converted to a string at all.</p>
      * @apiNote Does nothing if no groups file location has been provided to the registry.
      * @throws IOException If an IO exception is thrown in the process of writing the file.
      */
@@ -2169,10 +3334,41 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if(groupsFilePath == null)
             return;
 
-        try(BufferedWriter writer = Files.newBufferedWriter(groupsFilePath))
+        refreshContentHashes();
+        long contentHash = groupContentHashes.getHash();
+
+        boolean unchangedSinceWritten = groupsContentHashAsWritten != null && groupsContentHashAsWritten == contentHash;
+
+        if(unchangedSinceWritten && Files.exists(groupsFilePath))
+            return;
+
+        StringWriter sw = new StringWriter();
+
+        try(BufferedWriter writer = new BufferedWriter(sw))
         { saveGroups(writer); }
+
+        writeGroupsFile(sw.toString());
+        groupsContentHashAsWritten = contentHash;
     }
 
+    /**
+     * Writes the given save string of this registry's users to the users file, unless it's the same as this registry
+     * last wrote to it.
+     * @param contents The save string to write.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    private void writeUsersFile(String contents) throws IOException
+    { usersFileHash = writeIfChanged(usersFilePath, contents, usersFileHash); }
+
+    /**
+     * Writes the given save string of this registry's groups to the groups file, unless it's the same as this registry
+     * last wrote to it.
+     * @param contents The save string to write.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    private void writeGroupsFile(String contents) throws IOException
+    { groupsFileHash = writeIfChanged(groupsFilePath, contents, groupsFileHash); }
+
     @Override
     public String usersToSaveString()
     {
@@ -2199,16 +3395,304 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         return sw.toString();
     }
 
+    /**
+     * <p>Saves the contents of this registry to the files specified.</p>
+     *
+     * <p>The users file is only written if any users have been modified since the registry was last saved or loaded,
+     * and the groups file only if any groups or the default permissions have been. Neither is written if its contents
+     * would be the same as this registry last wrote to it.</p>
+     * @apiNote Does nothing if no users or groups files have been provided to the registry.
+     * @throws IOException If an IO exception is thrown in the process of writing the save files.
+     */
     @Override
     public void save() throws IOException
     {
-        saveUsers();
-        saveGroups();
-        hasBeenDifferentiatedFromFiles = false;
+        waitForBackgroundSave();
+
+        if(haveUsersBeenModified())
+            saveUsers();
+
+        if(haveGroupsBeenModified())
+            saveGroups();
+
+        markAsUnmodified();
+    }
+
+    /**
+     * Gets a hash of the given contents of a save file.
+     * @param contents The contents of a save file.
+     * @return A SHA-256 hash of the given contents, encoded as UTF-8.
+     */
+    private static byte[] hashOf(String contents)
+    {
+        try
+        { return MessageDigest.getInstance("SHA-256").digest(contents.getBytes(StandardCharsets.UTF_8)); }
+        catch(NoSuchAlgorithmException e)
+        { throw new IllegalStateException("SHA-256 is not supported.", e); }
+    }
+
+    /**
+     * Writes the given contents to the given file, unless the given file exists and the hash of the contents is the
+     * same as the given hash of the contents last written to it.
+     * @param file The file to write to.
+     * @param contents The text to write.
+     * @param previousHash The hash of the contents last written to the file, or null if not known.
+     * @return The hash of the given contents.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    protected static byte[] writeIfChanged(Path file, String contents, byte[] previousHash) throws IOException
+    {
+        byte[] hash = hashOf(contents);
+
+        if(previousHash == null || !MessageDigest.isEqual(hash, previousHash) || !Files.exists(file))
+            writeAtomically(file, contents);
+
+        return hash;
+    }
+
+    /**
+     * Writes the given contents to the given file, by writing them to a temporary file alongside it then moving the
+     * temporary file into its place.
+     * @param file The file to write to.
+     * @param contents The text to write.
+     * @throws IOException If an IO exception is thrown in the process of writing or moving the file.
+     */
+    protected static void writeAtomically(Path file, String contents) throws IOException
+    {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try(BufferedWriter writer = Files.newBufferedWriter(tempFile))
+        { writer.write(contents); }
+
+        replaceWith(file, tempFile);
+    }
+
+    /**
+     * Replaces the given file with the given temporary file, atomically where the file system supports it.
+     * @param file The file to replace.
+     * @param tempFile The file to move into its place.
+     * @throws IOException If an IO exception is thrown in the process of moving the file.
+     */
+    private static void replaceWith(Path file, Path tempFile) throws IOException
+    {
+        try
+        { Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        catch(AtomicMoveNotSupportedException e)
+        { Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING); }
+    }
+
+    /**
+     * <p>Saves a snapshot of the contents of this registry to the given file, in a compact binary format that may be
+     * loaded much faster than the users and groups files. See {@link #loadSnapshot(Path)}.</p>
+     *
+     * <p>This does not affect the users and groups files, or whether the registry is considered to have been modified
+     * since they were last saved or loaded.</p>
+     * @param snapshotFile The file to write the snapshot to.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    public void saveSnapshot(Path snapshotFile) throws IOException
+    {
+        waitForBackgroundSave();
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))
+        { PermissionsSnapshot.write(out, defaultPermissions, assignableGroups.values(), permissionsForUsers.values()); }
+
+        replaceWith(snapshotFile, tempFile);
+    }
+
+    /**
+     * <p>Saves a snapshot of the contents of this registry to the given file, in a binary format that may be queried
+     * directly from the file by a {@link MappedPermissionsRegistry}.</p>
+     *
+     * <p>This does not affect the users and groups files, or whether the registry is considered to have been modified
+     * since they were last saved or loaded.</p>
+     * @param snapshotFile The file to write the snapshot to.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    public void saveMappableSnapshot(Path snapshotFile) throws IOException
+    {
+        waitForBackgroundSave();
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))
+        {
+            MappedPermissionsRegistry.write(out,
+                                            defaultPermissions,
+                                            assignableGroups.values(),
+                                            getUserPermissionsGroups());
+        }
+
+        replaceWith(snapshotFile, tempFile);
+    }
+
+    /**
+     * Gets the executor background saves are written on, creating it if it has not yet been created.
+     * @return The executor background saves are written on.
+     */
+    private static synchronized ExecutorService getBackgroundSaveExecutor()
+    {
+        if(backgroundSaveExecutor == null)
+        {
+            AtomicInteger threadCount = new AtomicInteger();
+
+            backgroundSaveExecutor = Executors.newCachedThreadPool(runnable ->
+            {
+                Thread thread = new Thread(runnable, "permissions-save-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return backgroundSaveExecutor;
+    }
+
+    /**
+     * Starts writing the given background save on the background save executor. Once written, starts writing the
+     * pending background save, if there is one.
+     * @apiNote Must be called while synchronised on {@link #backgroundSaveLock}.
+     * @param save The background save to write.
+     */
+    private void startBackgroundSave(BackgroundSave save)
+    {
+        backgroundSaveInProgress = save;
+
+        getBackgroundSaveExecutor().execute(() ->
+        {
+            Throwable failure = null;
+
+            try
+            {
+                // The content hashes of what's written in the background aren't kept.
+                if(save.usersSaveString != null)
+                {
+                    usersContentHashAsWritten = null;
+                    writeUsersFile(save.usersSaveString);
+                }
+
+                if(save.groupsSaveString != null)
+                {
+                    groupsContentHashAsWritten = null;
+                    writeGroupsFile(save.groupsSaveString);
+                }
+            }
+            catch(Throwable e)
+            {
+                failure = e;
+                backgroundSaveFailed = true;
+            }
+
+            synchronized(backgroundSaveLock)
+            {
+                BackgroundSave next = pendingBackgroundSave;
+                pendingBackgroundSave = null;
+                backgroundSaveInProgress = null;
+
+                if(next != null)
+                    startBackgroundSave(next);
+            }
+
+            if(failure == null)
+                save.completion.complete(null);
+            else
+                save.completion.completeExceptionally(failure);
+        });
+    }
+
+    /**
+     * Waits until any background saves requested have been written, whether successfully or not.
+     */
+    protected void waitForBackgroundSave()
+    {
+        CompletableFuture<Void> lastSave;
+
+        synchronized(backgroundSaveLock)
+        {
+            lastSave = pendingBackgroundSave    != null ? pendingBackgroundSave.completion
+                     : backgroundSaveInProgress != null ? backgroundSaveInProgress.completion
+                     :                                    null;
+        }
+
+        if(lastSave != null)
+            lastSave.handle((result, exception) -> null).join();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The contents are captured by converting the users and groups modified since the registry was last saved or
+     * loaded to save strings on the calling thread, before this returns. This takes as long as converting them would
+     * for {@link #save()} - only writing the files is done in the background.</p>
+     *
+     * <p>Where writing the files fails, the registry is considered to have been modified since it was last saved,
+     * such that the contents are written again by the next save.</p>
+     * @return A future that completes once the contents of the registry as of this call have been written, or that
+     *         completes exceptionally with the IO exception thrown in the process of writing the save files.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    {
+        if(usersFilePath == null && groupsFilePath == null)
+            return CompletableFuture.completedFuture(null);
+
+        String usersSaveString = (usersFilePath == null || !haveUsersBeenModified()) ? null : usersToSaveString();
+        String groupsSaveString = (groupsFilePath == null || !haveGroupsBeenModified()) ? null : groupsToSaveString();
+        markAsUnmodified();
+
+        synchronized(backgroundSaveLock)
+        {
+            if(backgroundSaveInProgress == null)
+            {
+                BackgroundSave save = new BackgroundSave(usersSaveString, groupsSaveString, new CompletableFuture<>());
+                startBackgroundSave(save);
+                return save.completion;
+            }
+
+            if(pendingBackgroundSave == null)
+            {
+                pendingBackgroundSave = new BackgroundSave(usersSaveString, groupsSaveString, new CompletableFuture<>());
+                return pendingBackgroundSave.completion;
+            }
+
+            // Replaces the pending save, as this one's contents are more recent. Both are completed by the same write.
+            // Where a file wasn't modified since the pending save's contents were captured, those are still current.
+            BackgroundSave replaced = pendingBackgroundSave;
+
+            pendingBackgroundSave = new BackgroundSave(
+                    usersSaveString  != null ? usersSaveString  : replaced.usersSaveString,
+                    groupsSaveString != null ? groupsSaveString : replaced.groupsSaveString,
+                    replaced.completion);
+
+            return replaced.completion;
+        }
     }
     //endregion
 
     //region Loading
+    /**
+     * <p>Sets whether or not the users file is parsed across multiple threads when the registry is loaded.</p>
+     *
+     * <p>Where it is, the users file is read into memory in full, split into chunks at the lines naming users, and
+     * each chunk is parsed on the {@link ForkJoinPool#commonPool() common fork-join pool}. The users parsed are then
+     * registered in the order they appear in the file, with the groups they reference resolved against the groups
+     * already loaded. The result is the same as loading the file on a single thread.</p>
+     *
+     * <p>The functions given to the registry for converting user IDs to and from strings must be safe to call from
+     * multiple threads at once where users are loaded in parallel.</p>
+     *
+     * <p>Users parsed in parallel are registered directly, rather than by getting or creating each user's permission
+     * group, so subclasses that override how users' permission groups are created aren't used for users loaded in
+     * parallel. Subclasses that override {@link #loadUsers()} may not support loading users in parallel, such as
+     * {@link LazyLoadingPermissionsRegistry}, which throws where this is set.</p>
+     *
+     * <p>Users are not loaded in parallel by default.</p>
+     * @param loadsUsersInParallel Whether or not to parse the users file across multiple threads.
+     * @throws UnsupportedOperationException If loadsUsersInParallel is true and this registry doesn't support loading
+     *                                       users in parallel.
+     */
+    public void setLoadsUsersInParallel(boolean loadsUsersInParallel)
+    { this.loadsUsersInParallel = loadsUsersInParallel; }
+
     /**
      * Reads lines from the reader provided, parses them into permission group objects or permissions for those groups,
      * and records the information parsed.
@@ -2225,6 +3709,7 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
             throws IOException
     {
         PermissionGroup currentPermGroup = null;
+        PermissionSet.BulkSetter currentPermSetter = null;
         markAsModified();
 
         for(String line; (line = reader.readLine()) != null;)
@@ -2248,12 +3733,15 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
                 }
 
                 try
-                { currentPermGroup.addPermissionWhileDeIndenting(line); }
+                { currentPermSetter.setWhileDeIndenting(line); }
                 catch(ParseException e)
                 { throw new InvalidPermissionException(line, e); }
             }
             else if(!(line.trim().isEmpty()))
+            {
                 currentPermGroup = createEntityFromHeader.apply(line);
+                currentPermSetter = currentPermGroup.permissionSet.newBulkSetter();
+            }
         }
     }
 
@@ -2268,6 +3756,17 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     private void loadUsers(PermissionsLineReader reader) throws IOException
     { loadPerms(reader, this::getUserPermissionsGroupFromSaveString, false); }
 
+    /**
+     * <p>Reads users and their permissions, in the registry's save string format, from the provided reader.</p>
+     *
+     * <p>Does not clear registered users first.</p>
+     * @param reader The reader to read from.
+     * @throws IOException If an IO exception was thrown while reading from the provided reader.
+     * @throws InvalidGroupNameException If any of the groups assigned to users have invalid names.
+     */
+    protected void loadUsers(Reader reader) throws IOException
+    { loadUsers(new PermissionsLineReader(reader)); }
+
     /**
      * <p>Reads groups and their permissions from the provided reader.</p>
      *
@@ -2293,6 +3792,12 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         if((usersFilePath == null) || (!Files.isReadable(usersFilePath)) || (Files.isDirectory(usersFilePath)))
             return;
 
+        if(loadsUsersInParallel)
+        {
+            loadUsersInParallel();
+            return;
+        }
+
         try(PermissionsLineReader reader = new PermissionsLineReader(Files.newBufferedReader(usersFilePath)))
         { loadUsers(reader); }
     }
@@ -2315,9 +3820,231 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
         { loadGroups(reader); }
     }
 
+    /**
+     * <p>Reads the users file into memory, parses the users in it across multiple threads, and loads them into the
+     * registry.</p>
+     *
+     * <p>See {@link #setLoadsUsersInParallel(boolean)}.</p>
+     *
+     * <p>Does not clear registered users first.</p>
+     * @throws IOException If an IO exception was thrown while reading the users file, or if it isn't valid UTF-8.
+     * @throws InvalidGroupNameException If any of the groups assigned to users have invalid names.
+     */
+    private void loadUsersInParallel() throws IOException
+    {
+        CharBuffer decoded = StandardCharsets.UTF_8.newDecoder()
+                                                   .decode(ByteBuffer.wrap(Files.readAllBytes(usersFilePath)));
+
+        char[] chars = decoded.array();
+        int start = decoded.arrayOffset() + decoded.position();
+        int end = start + decoded.remaining();
+        int chunkSize = Math.max(minParallelLoadChunkSize,
+                                 (end - start) / (ForkJoinPool.getCommonPoolParallelism() * 4 + 1));
+
+        List<CompletableFuture<List<ParsedUserBlock>>> chunks = new ArrayList<>();
+
+        for(int chunkStart = start, chunkEnd; chunkStart < end; chunkStart = chunkEnd)
+        {
+            chunkEnd = (end - chunkStart <= chunkSize)
+                               ? end
+                               : getNextHeaderPosition(chars, getNextLinePosition(chars, chunkStart + chunkSize, end), end);
+
+            int thisChunkStart = chunkStart, thisChunkEnd = chunkEnd;
+
+            chunks.add(CompletableFuture.supplyAsync(() ->
+            {
+                try
+                { return parseUserBlocks(chars, thisChunkStart, thisChunkEnd); }
+                catch(IOException e)
+                { throw new UncheckedIOException(e); }
+            }, ForkJoinPool.commonPool()));
+        }
+
+        markAsModified();
+
+        for(CompletableFuture<List<ParsedUserBlock>> chunk : chunks)
+        {
+            List<ParsedUserBlock> blocks;
+
+            try
+            { blocks = chunk.join(); }
+            catch(CompletionException e)
+            {
+                Throwable cause = e.getCause();
+
+                if(cause instanceof UncheckedIOException)
+                    throw ((UncheckedIOException)cause).getCause();
+
+                if(cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+
+                if(cause instanceof Error)
+                    throw (Error)cause;
+
+                throw e;
+            }
+
+            for(ParsedUserBlock block : blocks)
+                registerParsedUserBlock(block, chars);
+        }
+    }
+
+    /**
+     * Parses the blocks of users in the given range of the given text, without registering them.
+     * @param chars The text being loaded, in the registry's save string format.
+     * @param start The position of the first character to parse. This should be at the start of a line.
+     * @param end The position after the last character to parse. This should be at the start of a line, or the end of
+     *            the text.
+     * @return The users parsed from the given range, in the order they appear.
+     * @throws IOException If an IO exception was thrown while reading the given text.
+     * @throws InvalidPermissionException If any of the permissions in the given range could not be parsed.
+     */
+    private List<ParsedUserBlock> parseUserBlocks(char[] chars, int start, int end) throws IOException
+    {
+        List<ParsedUserBlock> result = new ArrayList<>();
+
+        // Any lines before the first header aren't part of any user's block, and are ignored.
+        for(int blockStart = getNextHeaderPosition(chars, start, end), blockEnd; blockStart < end; blockStart = blockEnd)
+        {
+            blockEnd = getNextHeaderPosition(chars, getNextLinePosition(chars, blockStart, end), end);
+            result.add(parseUserBlock(chars, blockStart, blockEnd));
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses a single user's block, without registering the user.
+     * @param chars The text being loaded, in the registry's save string format.
+     * @param start The position of the first character of the block, at the start of the line naming the user.
+     * @param end The position after the last character of the block.
+     * @return The parsed block.
+     * @throws IOException If an IO exception was thrown while reading the given text.
+     * @throws InvalidPermissionException If any of the permissions in the block could not be parsed.
+     */
+    private ParsedUserBlock parseUserBlock(char[] chars, int start, int end) throws IOException
+    {
+        PermissionsLineReader reader = new PermissionsLineReader(new CharArrayReader(chars, start, end - start),
+                                                                 end - start);
+
+        String header = reader.readLine();
+        int groupPrefixPosition = header.lastIndexOf('#');
+        List<String> groupNames = new ArrayList<>();
+
+        String userIdString = groupPrefixPosition < 0
+                                      ? header.trim()
+                                      : header.substring(0, groupPrefixPosition).trim();
+
+        if(groupPrefixPosition >= 0)
+        {
+            String groupName = header.substring(groupPrefixPosition + 1).trim();
+
+            if(!groupName.isEmpty())
+                groupNames.add(groupName);
+        }
+
+        ID userId = parseIdFromString.apply(userIdString);
+        PermissionGroup permGroup = new PermissionGroup(convertIdToString.apply(userId), defaultPermissions);
+        PermissionSet.BulkSetter permSetter = permGroup.permissionSet.newBulkSetter();
+
+        for(String line; (line = reader.readLine()) != null;)
+        {
+            // The only line in a block not starting with a space is its header - any others are blank.
+            if(!line.startsWith(" "))
+                continue;
+
+            line = line.trim();
+
+            if(line.startsWith("#"))
+            {
+                groupNames.add(line.substring(1).trim());
+                continue;
+            }
+
+            try
+            { permSetter.setWhileDeIndenting(line); }
+            catch(ParseException e)
+            { throw new InvalidPermissionException(line, e); }
+        }
+
+        return new ParsedUserBlock(userId, permGroup, groupNames, start, end);
+    }
+
+    /**
+     * <p>Registers a user parsed by {@link #parseUserBlock(char[], int, int)}, and assigns it the groups it references,
+     * creating any that don't yet exist.</p>
+     *
+     * <p>Where the user is already registered, (including where they appear earlier in the same file) the block is
+     * instead loaded into the existing user, as it would be when loading on a single thread.</p>
+     * @param block The parsed block.
+     * @param chars The text the block was parsed from.
+     * @throws IOException If an IO exception was thrown while re-reading the block.
+     * @throws InvalidGroupNameException If any of the groups assigned to the user have invalid names.
+     */
+    private void registerParsedUserBlock(ParsedUserBlock block, char[] chars) throws IOException
+    {
+        if(permissionsForUsers.putIfAbsent(block.userId, block.permissions) != null)
+        {
+            loadUsers(new PermissionsLineReader(new CharArrayReader(chars, block.start, block.end - block.start),
+                                                block.end - block.start));
+
+            return;
+        }
+
+        markUserAsModified(block.userId);
+
+        for(String groupName : block.groupNames)
+            block.permissions.addPermissionGroup(getGroupPermissionsGroupOrNew(groupName));
+    }
+
+    /**
+     * Gets the position of the start of the line after the one containing the given position.
+     * @param chars The text to search.
+     * @param position The position in the line to find the next line after.
+     * @param end The position after the last character of the text to search.
+     * @return The position of the start of the next line, or the end position if there is no next line.
+     */
+    private static int getNextLinePosition(char[] chars, int position, int end)
+    {
+        while(position < end && chars[position] != '\n')
+            position++;
+
+        return Math.min(position + 1, end);
+    }
+
+    /**
+     * Gets the position of the start of the next header, (the first line of a user's or group's block, which isn't
+     * indented or blank) starting from the given position.
+     * @param chars The text to search.
+     * @param position The position to search from. This should be at the start of a line.
+     * @param end The position after the last character of the text to search.
+     * @return The position of the start of the next header, or the end position if there are no more headers.
+     */
+    private static int getNextHeaderPosition(char[] chars, int position, int end)
+    {
+        for(int lineStart = position; lineStart < end; lineStart++)
+        {
+            boolean isBlank = true;
+            position = lineStart;
+
+            for(; position < end && chars[position] != '\n'; position++)
+                if(chars[position] > ' ')
+                    isBlank = false;
+
+            if(!isBlank && chars[lineStart] != ' ')
+                return lineStart;
+
+            lineStart = position;
+        }
+
+        return end;
+    }
+
     @Override
     public void loadUsersFromSaveString(String saveString) throws IOException
     {
+        recordWholeRegistryForRollback();
+
         try(PermissionsLineReader reader = new PermissionsLineReader(new BufferedReader(new StringReader(saveString))))
         { loadUsers(reader); }
     }
@@ -2325,10 +4052,39 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     @Override
     public void loadGroupsFromSaveString(String saveString) throws IOException
     {
+        recordWholeRegistryForRollback();
+
         try(PermissionsLineReader reader = new PermissionsLineReader(new BufferedReader(new StringReader(saveString))))
         { loadGroups(reader); }
     }
 
+    /**
+     * <p>Clears the registry and loads a snapshot of its contents, as saved by {@link #saveSnapshot(Path)}.</p>
+     *
+     * <p>As the snapshot may differ from the users and groups files, the registry is considered to have been modified
+     * since they were last saved or loaded.</p>
+     * @param snapshotFile The file to read the snapshot from.
+     * @throws IOException If an IO exception was thrown while reading the file, or if the file does not contain a
+     *                     snapshot in a supported format.
+     */
+    public void loadSnapshot(Path snapshotFile) throws IOException
+    {
+        waitForBackgroundSave();
+        recordWholeRegistryForRollback();
+        clear();
+
+        try(InputStream in = new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))
+        {
+            PermissionsSnapshot.read(in,
+                                     defaultPermissions,
+                                     this::getGroupPermissionsGroupOrNew,
+                                     idAsString -> getUserPermissionsGroupOrNew(parseIdFromString.apply(idAsString)));
+        }
+
+        markAsModified();
+        forgetWrittenFileContents();
+    }
+
     /**
      * <p>Clears the registry and loads information from the users and groups files.</p>
      *
@@ -2340,10 +4096,14 @@ public class GroupMapPermissionsRegistry<ID extends Comparable<? super ID>> impl
     @Override
     public void load() throws IOException
     {
+        waitForBackgroundSave();
+        backgroundSaveFailed = false;
+        recordWholeRegistryForRollback();
         clear();
         loadGroups();
         loadUsers();
-        hasBeenDifferentiatedFromFiles = false;
+        markAsUnmodified();
+        forgetWrittenFileContents();
     }
     //endregion
     //endregion
@@ -0,0 +1,79 @@
+package scot.massie.lib.permissions;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * <p>A {@link ReplicationChannel} connecting a leader and a follower in the same process.</p>
+ *
+ * <p>Messages sent from one end are passed to the receiver of the other end on the thread sending them, before
+ * {@link #send(ReplicationMessage)} returns. Messages sent while the other end has no receiver are dropped.</p>
+ */
+public final class InProcessReplicationChannel implements ReplicationChannel
+{
+    //region Instance fields
+    /**
+     * The other end of this channel.
+     */
+    private final InProcessReplicationChannel otherEnd;
+
+    /**
+     * The receiver of messages sent to this end of the channel. Null where none has been set.
+     */
+    private volatile Consumer<ReplicationMessage> receiver = null;
+
+    /**
+     * Whether or not this end of the channel has been closed.
+     */
+    private volatile boolean closed = false;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new in-process replication channel, along with its other end, accessible through
+     * {@link #getOtherEnd()}.
+     */
+    public InProcessReplicationChannel()
+    { this.otherEnd = new InProcessReplicationChannel(this); }
+
+    /**
+     * Creates the other end of an in-process replication channel.
+     * @param otherEnd The end of the channel the one being created is the other end of.
+     */
+    private InProcessReplicationChannel(InProcessReplicationChannel otherEnd)
+    { this.otherEnd = otherEnd; }
+    //endregion
+
+    //region Methods
+    /**
+     * Gets the other end of this channel.
+     * @return The end of this channel messages sent from this end are passed to.
+     */
+    public InProcessReplicationChannel getOtherEnd()
+    { return otherEnd; }
+
+    /**
+     * {@inheritDoc}
+     * @throws IOException If either end of this channel has been closed.
+     */
+    @Override
+    public void send(ReplicationMessage message) throws IOException
+    {
+        if(closed || otherEnd.closed)
+            throw new IOException("The replication channel has been closed.");
+
+        Consumer<ReplicationMessage> otherReceiver = otherEnd.receiver;
+
+        if(otherReceiver != null)
+            otherReceiver.accept(message);
+    }
+
+    @Override
+    public void setReceiver(Consumer<ReplicationMessage> receiver)
+    { this.receiver = receiver; }
+
+    @Override
+    public void close()
+    { closed = true; }
+    //endregion
+}
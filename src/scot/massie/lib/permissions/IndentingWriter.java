@@ -0,0 +1,119 @@
+package scot.massie.lib.permissions;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>Writer that writes to another writer, indenting each line written to it.</p>
+ *
+ * <p>Lines are indented as they would be by replacing the regex {@code (?m)^(?=.+)} with the indentation - that is,
+ * the indentation is written before the first character of each line that isn't empty, where any of the characters
+ * Java's regexes consider line terminators ends a line. As the indentation is written as the text is, the text doesn't
+ * need to be built up as a string first.</p>
+ */
+final class IndentingWriter extends Writer
+{
+    /**
+     * Creates a new indenting writer.
+     * @param destination The writer to write the indented text to.
+     * @param indentation The text to write at the start of each line that isn't empty.
+     */
+    IndentingWriter(Writer destination, String indentation)
+    {
+        this.destination = destination;
+        this.indentation = indentation;
+    }
+
+    /**
+     * The writer indented text is written to.
+     */
+    private final Writer destination;
+
+    /**
+     * The text written at the start of each line that isn't empty.
+     */
+    private final String indentation;
+
+    /**
+     * Whether or not the next character written is at the start of a line.
+     */
+    private boolean atLineStart = true;
+
+    /**
+     * Checks whether the given character ends a line, as considered by Java's regexes.
+     * @param c The character to check.
+     * @return True if the given character is a line terminator. Otherwise, false.
+     */
+    private static boolean isLineTerminator(char c)
+    { return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029'; }
+
+    @Override
+    public void write(int c) throws IOException
+    {
+        if(isLineTerminator((char)c))
+            atLineStart = true;
+        else if(atLineStart)
+        {
+            destination.write(indentation);
+            atLineStart = false;
+        }
+
+        destination.write(c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException
+    {
+        int end = off + len;
+        int runStart = off;
+
+        for(int i = off; i < end; i++)
+        {
+            if(isLineTerminator(cbuf[i]))
+                atLineStart = true;
+            else if(atLineStart)
+            {
+                destination.write(cbuf, runStart, i - runStart);
+                destination.write(indentation);
+                runStart = i;
+                atLineStart = false;
+            }
+        }
+
+        destination.write(cbuf, runStart, end - runStart);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException
+    {
+        int end = off + len;
+        int runStart = off;
+
+        for(int i = off; i < end; i++)
+        {
+            if(isLineTerminator(str.charAt(i)))
+                atLineStart = true;
+            else if(atLineStart)
+            {
+                destination.write(str, runStart, i - runStart);
+                destination.write(indentation);
+                runStart = i;
+                atLineStart = false;
+            }
+        }
+
+        destination.write(str, runStart, end - runStart);
+    }
+
+    @Override
+    public void flush() throws IOException
+    { destination.flush(); }
+
+    /**
+     * Flushes this writer. The writer written to is not closed, as it's assumed to have further text written to it.
+     * @throws IOException If an IO exception is thrown by the writer written to.
+     */
+    @Override
+    public void close() throws IOException
+    { flush(); }
+}
@@ -0,0 +1,1269 @@
+package scot.massie.lib.permissions;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * <p>A {@link GroupMapPermissionsRegistry} that records every modification made to it in a journal file, so that
+ * modifications persist without rewriting the users and groups files.</p>
+ *
+ * <p>Each modification is appended to the journal as a single line once it has been made. Rather than the journal
+ * being synced to disk after every modification, it's synced once a given number of modifications have been recorded
+ * since it was last synced, or once a given amount of time has passed since a modification was recorded, whichever
+ * comes first. Modifications made in a batch are recorded together once the batch has been applied, and not at all if
+ * it fails.</p>
+ *
+ * <p>Loading reads the users and groups files as normal, then reapplies the modifications recorded in the journal.
+ * Saving writes the users and groups files as normal, then discards the journal, as its modifications are then
+ * reflected in the files. Saving in the background does this without blocking modifications, which are recorded to a
+ * new journal while the files are written.</p>
+ *
+ * <p>Operations whose effects cannot be recorded compactly, such as absorbing another registry, cause the registry to
+ * be saved.</p>
+ * @apiNote Where a modification throws an exception, it is not recorded, even if it partially modified the registry.
+ * @apiNote The journal should be closed by calling {@link #close()} once the registry is no longer needed, so that any
+ *          modifications not yet synced to disk are synced.
+ * @see GroupMapPermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class JournalingPermissionsRegistry<ID extends Comparable<? super ID>>
+        extends GroupMapPermissionsRegistry<ID>
+        implements Closeable
+{
+    /*
+
+    Journal format: Each record is a single line, consisting of a record type followed by the record's arguments, all
+    separated by tabs. Backslashes, tabs, carriage returns, and newlines in arguments are escaped with backslashes.
+    Records of a batch are enclosed in "BB" and "BE" records, and are only applied on replay where both are present.
+
+    Records are expected to be safe to replay on a registry that already reflects them, as where the registry was saved
+    but the journal not yet discarded.
+
+     */
+
+    //region Instance fields
+    /**
+     * The default maximum time, in milliseconds, between a modification being recorded and the journal being synced to
+     * disk.
+     */
+    public static final long defaultSyncIntervalMillis = 50;
+
+    /**
+     * The default number of modifications that may be recorded before the journal is synced to disk.
+     */
+    public static final int defaultSyncEveryRecords = 256;
+
+    /**
+     * The executor the journals of all registries are periodically synced on. This is created when first needed.
+     */
+    private static ScheduledExecutorService syncExecutor = null;
+
+    /**
+     * The filepath of the journal. Null if modifications are not recorded.
+     */
+    protected final Path journalFilePath;
+
+    /**
+     * The filepath the journal is moved to while it's being discarded, until the users and groups files have been saved.
+     * Null if modifications are not recorded.
+     */
+    protected final Path journalBeingDiscardedFilePath;
+
+    /**
+     * The number of modifications that may be recorded before the journal is synced to disk. Where this is 0 or less,
+     * the journal is not synced based on the number of modifications recorded.
+     */
+    protected final int syncEveryRecords;
+
+    /**
+     * Lock for accessing the journal file.
+     */
+    private final Object journalLock = new Object();
+
+    /**
+     * The channel of the journal file, where it's currently open. Null otherwise.
+     */
+    private FileChannel journalChannel = null;
+
+    /**
+     * The writer records are written to, writing to {@link #journalChannel}. Null where the journal file is not open.
+     */
+    private BufferedWriter journalWriter = null;
+
+    /**
+     * The number of records written since the journal was last synced to disk.
+     */
+    private int recordsSinceSync = 0;
+
+    /**
+     * Where the journal failed to be synced to disk in the background, the exception thrown. This is thrown when the
+     * next record is written. Null otherwise.
+     */
+    private IOException backgroundSyncFailure = null;
+
+    /**
+     * The periodic task syncing the journal to disk. Null where the journal isn't synced periodically.
+     */
+    private final ScheduledFuture<?> periodicSync;
+
+    /**
+     * The number of times the journal has been moved to be discarded. Where the journal is moved to be discarded again
+     * before it's discarded, it may not be discarded until the registry is saved again.
+     */
+    private long journalsMovedToBeDiscarded = 0;
+
+    /**
+     * The number of operations currently being performed that record themselves. Operations performed as part of
+     * another are not recorded separately.
+     */
+    private int recordingOperationDepth = 0;
+
+    /**
+     * Whether or not modifications are currently prevented from being recorded, such as while being loaded.
+     */
+    private boolean recordingSuspended = false;
+
+    /**
+     * Where a batch is being performed, the records of the modifications made in it so far. Null otherwise.
+     */
+    private List<String> batchRecords = null;
+
+    /**
+     * Whether or not the batch being performed includes an operation that cannot be recorded, such that the registry
+     * should be saved once the batch has been applied.
+     */
+    private boolean batchRequiresSave = false;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new journaling permissions registry.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param journalFile The filepath of the journal modifications are recorded to. If null, modifications are not
+     *                    recorded.
+     * @param syncIntervalMillis The maximum time, in milliseconds, between a modification being recorded and the
+     *                           journal being synced to disk. Where this is 0 or less, the journal is not synced
+     *                           periodically.
+     * @param syncEveryRecords The number of modifications that may be recorded before the journal is synced to disk.
+     *                         Where this is 0 or less, the journal is not synced based on the number of modifications
+     *                         recorded.
+     */
+    public JournalingPermissionsRegistry(Function<ID, String> idToString,
+                                         Function<String, ID> idFromString,
+                                         Path usersFile,
+                                         Path groupsFile,
+                                         Path journalFile,
+                                         long syncIntervalMillis,
+                                         int syncEveryRecords)
+    {
+        super(idToString, idFromString, usersFile, groupsFile);
+        this.journalFilePath = journalFile;
+        this.journalBeingDiscardedFilePath = journalFile == null
+                                                     ? null
+                                                     : journalFile.resolveSibling(journalFile.getFileName() + ".old");
+        this.syncEveryRecords = syncEveryRecords;
+
+        this.periodicSync = (journalFile == null || syncIntervalMillis <= 0)
+                                    ? null
+                                    : getSyncExecutor().scheduleWithFixedDelay(this::syncJournalInBackground,
+                                                                               syncIntervalMillis,
+                                                                               syncIntervalMillis,
+                                                                               TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new journaling permissions registry, syncing the journal to disk every
+     * {@link #defaultSyncEveryRecords} modifications or {@link #defaultSyncIntervalMillis} milliseconds.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param journalFile The filepath of the journal modifications are recorded to. If null, modifications are not
+     *                    recorded.
+     */
+    public JournalingPermissionsRegistry(Function<ID, String> idToString,
+                                         Function<String, ID> idFromString,
+                                         Path usersFile,
+                                         Path groupsFile,
+                                         Path journalFile)
+    {
+        this(idToString, idFromString, usersFile, groupsFile, journalFile, defaultSyncIntervalMillis,
+             defaultSyncEveryRecords);
+    }
+
+    /**
+     * Gets the executor journals are periodically synced on, creating it if it has not yet been created.
+     * @return The executor journals are periodically synced on.
+     */
+    private static synchronized ScheduledExecutorService getSyncExecutor()
+    {
+        if(syncExecutor == null)
+        {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "permissions-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return syncExecutor;
+    }
+    //endregion
+
+    //region Methods
+    //region Journal
+    //region Encoding
+    /**
+     * Escapes an argument of a record, such that it contains no tabs or newlines.
+     * @param argument The argument to escape.
+     * @return The escaped argument.
+     */
+    private static String escape(String argument)
+    {
+        StringBuilder sb = new StringBuilder(argument.length());
+
+        for(int i = 0; i < argument.length(); i++)
+        {
+            char c = argument.charAt(i);
+
+            switch(c)
+            {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t");  break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                default:   sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Reverses {@link #escape(String)}.
+     * @param argument The escaped argument.
+     * @return The argument, unescaped.
+     */
+    private static String unescape(String argument)
+    {
+        if(argument.indexOf('\\') < 0)
+            return argument;
+
+        StringBuilder sb = new StringBuilder(argument.length());
+
+        for(int i = 0; i < argument.length(); i++)
+        {
+            char c = argument.charAt(i);
+
+            if(c != '\\' || i + 1 >= argument.length())
+            {
+                sb.append(c);
+                continue;
+            }
+
+            char escaped = argument.charAt(++i);
+
+            switch(escaped)
+            {
+                case 't': sb.append('\t'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                default:  sb.append(escaped);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Creates a record line.
+     * @param recordType The type of the record.
+     * @param arguments The record's arguments.
+     * @return The record as a line of the journal, including the terminating newline.
+     */
+    private static String toRecord(String recordType, Collection<String> arguments)
+    {
+        StringBuilder sb = new StringBuilder(recordType);
+
+        for(String argument : arguments)
+            sb.append('\t').append(escape(argument));
+
+        return sb.append('\n').toString();
+    }
+
+    /**
+     * Creates a record line.
+     * @param recordType The type of the record.
+     * @param arguments The record's arguments.
+     * @return The record as a line of the journal, including the terminating newline.
+     */
+    static String toRecord(String recordType, String... arguments)
+    { return toRecord(recordType, Arrays.asList(arguments)); }
+
+    /**
+     * Creates a record line with a leading argument followed by a list of further arguments.
+     * @param recordType The type of the record.
+     * @param firstArgument The record's first argument.
+     * @param otherArguments The record's other arguments.
+     * @return The record as a line of the journal, including the terminating newline.
+     */
+    private static String toRecord(String recordType, String firstArgument, Collection<String> otherArguments)
+    {
+        List<String> arguments = new ArrayList<>(otherArguments.size() + 1);
+        arguments.add(firstArgument);
+        arguments.addAll(otherArguments);
+        return toRecord(recordType, arguments);
+    }
+    //endregion
+
+    //region Writing
+    /**
+     * Performs an operation, recording it in the journal once performed, unless it's being performed as part of another
+     * operation. Where the operation throws an exception, it's not recorded, unless failed modifications are
+     * {@link #failedModificationsAreUnrecordable() unrecordable}.
+     * @param record Supplier of the operation's record. This is only called where the operation is to be recorded.
+     * @param operation The operation to perform.
+     * @param <T> The type of the operation's result.
+     * @return The operation's result.
+     */
+    private <T> T recorded(Supplier<String> record, Supplier<T> operation)
+    {
+        T result;
+        recordingOperationDepth++;
+
+        try
+        { result = operation.get(); }
+        catch(RuntimeException | Error e)
+        {
+            recordingOperationDepth--;
+            operationFailed(e);
+            throw e;
+        }
+
+        recordingOperationDepth--;
+
+        if(recordingOperationDepth == 0 && isRecording())
+            record(record.get());
+
+        return result;
+    }
+
+    /**
+     * Performs an operation, recording it in the journal once performed, unless it's being performed as part of another
+     * operation.
+     * @param record Supplier of the operation's record. This is only called where the operation is to be recorded.
+     * @param operation The operation to perform.
+     */
+    private void recordedAction(Supplier<String> record, Runnable operation)
+    { recorded(record, () -> { operation.run(); return null; }); }
+
+    /**
+     * Performs an operation that can't be recorded in the journal, then saves the registry so that its effects
+     * persist. Where the operation is performed in a batch, the registry is saved once the batch has been applied.
+     * @param operation The operation to perform.
+     */
+    private void unrecordable(Runnable operation)
+    {
+        recordingOperationDepth++;
+
+        try
+        { operation.run(); }
+        catch(RuntimeException | Error e)
+        {
+            recordingOperationDepth--;
+            operationFailed(e);
+            throw e;
+        }
+
+        recordingOperationDepth--;
+        unrecordableOperationPerformed();
+    }
+
+    /**
+     * Handles an operation having thrown an exception. Where failed modifications are
+     * {@link #failedModificationsAreUnrecordable() unrecordable}, the operation is handled as an operation that can't
+     * be recorded, as it may have partially modified the registry. Otherwise, it's not recorded.
+     * @param exception The exception the operation threw. Any exception thrown while handling the operation is added
+     *                  to it as a suppressed exception.
+     */
+    private void operationFailed(Throwable exception)
+    {
+        if(!failedModificationsAreUnrecordable())
+            return;
+
+        try
+        { unrecordableOperationPerformed(); }
+        catch(RuntimeException e)
+        { exception.addSuppressed(e); }
+    }
+
+    /**
+     * Handles an operation that can't be recorded in the journal having been performed, saving the registry so that
+     * its effects persist, unless it was performed as part of another operation. Where the operation was performed in
+     * a batch, the registry is saved once the batch has been applied.
+     */
+    private void unrecordableOperationPerformed()
+    {
+        if(recordingOperationDepth != 0 || !isRecording())
+            return;
+
+        if(batchRecords != null)
+        {
+            batchRequiresSave = true;
+            return;
+        }
+
+        unrecordableModificationMade();
+    }
+
+    /**
+     * Gets whether or not modifications to this registry are currently recorded.
+     * @return True if modifications are currently recorded. Otherwise, false.
+     */
+    private boolean isRecording()
+    { return recordsModifications() && !recordingSuspended; }
+
+    /**
+     * Gets whether or not modifications to this registry are recorded at all, other than while recording is suspended.
+     * @return True if modifications are recorded. Otherwise, false.
+     */
+    boolean recordsModifications()
+    { return journalFilePath != null; }
+
+    /**
+     * Gets whether or not a modification that throws an exception is handled as a modification that can't be recorded,
+     * as it may have partially modified the registry. Otherwise, modifications that throw are not recorded at all.
+     * @return True if modifications that throw are handled as modifications that can't be recorded. Otherwise, false.
+     */
+    boolean failedModificationsAreUnrecordable()
+    { return false; }
+
+    /**
+     * Handles the records of modifications that have been made, writing them to the journal. Where the records are of
+     * modifications made in a batch, they're enclosed in "BB" and "BE" records.
+     * @param records The records of the modifications made, in the order they were made.
+     * @throws UncheckedIOException If an IO exception was thrown while writing to the journal.
+     */
+    void recordsMade(List<String> records)
+    {
+        if(journalFilePath != null)
+            writeRecords(records);
+    }
+
+    /**
+     * Handles a modification having been made that can't be recorded, saving the registry so that its effects persist.
+     * @throws UncheckedIOException If an IO exception was thrown while saving the registry.
+     */
+    void unrecordableModificationMade()
+    {
+        if(journalFilePath == null)
+            return;
+
+        try
+        { save(); }
+        catch(IOException e)
+        { throw new UncheckedIOException(e); }
+    }
+
+    /**
+     * Writes the given record to the journal, or where a batch is being performed, holds it to be written once the
+     * batch has been applied.
+     * @param record The record to write.
+     * @throws UncheckedIOException If an IO exception was thrown while writing to the journal.
+     */
+    private void record(String record)
+    {
+        if(!isRecording())
+            return;
+
+        if(batchRecords != null)
+            batchRecords.add(record);
+        else
+            recordsMade(Collections.singletonList(record));
+    }
+
+    /**
+     * Writes the given records to the journal, syncing it to disk where enough records have been written since it was
+     * last synced.
+     * @param records The records to write.
+     * @throws UncheckedIOException If an IO exception was thrown while writing to the journal.
+     */
+    private void writeRecords(List<String> records)
+    {
+        synchronized(journalLock)
+        {
+            try
+            {
+                if(backgroundSyncFailure != null)
+                {
+                    IOException failure = backgroundSyncFailure;
+                    backgroundSyncFailure = null;
+                    throw failure;
+                }
+
+                if(journalWriter == null)
+                {
+                    journalChannel = FileChannel.open(journalFilePath, StandardOpenOption.CREATE,
+                                                                       StandardOpenOption.WRITE,
+                                                                       StandardOpenOption.APPEND);
+
+                    journalWriter = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(journalChannel),
+                                                                              StandardCharsets.UTF_8));
+                }
+
+                for(String record : records)
+                    journalWriter.write(record);
+
+                recordsSinceSync += records.size();
+
+                if(syncEveryRecords > 0 && recordsSinceSync >= syncEveryRecords)
+                    syncJournal();
+            }
+            catch(IOException e)
+            { throw new UncheckedIOException(e); }
+        }
+    }
+
+    /**
+     * Flushes any records written to the journal to disk.
+     * @apiNote Must be called while synchronised on {@link #journalLock}.
+     * @throws IOException If an IO exception was thrown while flushing the journal.
+     */
+    private void syncJournal() throws IOException
+    {
+        if(journalWriter == null)
+            return;
+
+        journalWriter.flush();
+        journalChannel.force(false);
+        recordsSinceSync = 0;
+    }
+
+    /**
+     * Flushes any records written to the journal to disk, where any have been written since it was last synced. Where
+     * this fails, the failure is thrown when the next record is written.
+     */
+    private void syncJournalInBackground()
+    {
+        synchronized(journalLock)
+        {
+            if(recordsSinceSync == 0)
+                return;
+
+            try
+            { syncJournal(); }
+            catch(IOException e)
+            { backgroundSyncFailure = e; }
+        }
+    }
+
+    /**
+     * Flushes any modifications recorded to the journal to disk, rather than waiting until the journal is next synced.
+     * @throws IOException If an IO exception was thrown while flushing the journal.
+     */
+    public void flushJournal() throws IOException
+    {
+        synchronized(journalLock)
+        { syncJournal(); }
+    }
+
+    /**
+     * Syncs and closes the journal file, where it's open. It's reopened when a record is next written.
+     * @apiNote Must be called while synchronised on {@link #journalLock}.
+     * @throws IOException If an IO exception was thrown while flushing or closing the journal.
+     */
+    private void closeJournalFile() throws IOException
+    {
+        if(journalWriter == null)
+            return;
+
+        try
+        { syncJournal(); }
+        finally
+        {
+            journalWriter.close();
+            journalWriter = null;
+            journalChannel = null;
+        }
+    }
+
+    /**
+     * Syncs and closes the journal, and stops it from being periodically synced.
+     * @throws IOException If an IO exception was thrown while flushing or closing the journal.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(periodicSync != null)
+            periodicSync.cancel(false);
+
+        synchronized(journalLock)
+        { closeJournalFile(); }
+    }
+    //endregion
+
+    //region Discarding
+    /**
+     * Moves the journal to be discarded once the registry has been saved, such that further records are written to a
+     * new journal. Where a journal already exists to be discarded, from a save that hasn't yet finished or failed, the
+     * journal is appended to it.
+     * @return A number identifying this move, to be passed to {@link #discardMovedJournal(long)} once the registry has
+     *         been saved.
+     * @throws IOException If an IO exception was thrown while moving the journal.
+     */
+    private long moveJournalToBeDiscarded() throws IOException
+    {
+        synchronized(journalLock)
+        {
+            closeJournalFile();
+
+            if(Files.exists(journalFilePath))
+            {
+                if(Files.exists(journalBeingDiscardedFilePath))
+                {
+                    try(FileChannel source = FileChannel.open(journalFilePath, StandardOpenOption.READ);
+                        FileChannel target = FileChannel.open(journalBeingDiscardedFilePath, StandardOpenOption.WRITE,
+                                                                                             StandardOpenOption.APPEND))
+                    {
+                        for(long position = 0, size = source.size(); position < size;)
+                            position += source.transferTo(position, size - position, target);
+
+                        target.force(false);
+                    }
+
+                    Files.delete(journalFilePath);
+                }
+                else
+                    Files.move(journalFilePath, journalBeingDiscardedFilePath, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            return ++journalsMovedToBeDiscarded;
+        }
+    }
+
+    /**
+     * Discards the journal moved to be discarded, unless another journal has been moved to be discarded since, as the
+     * records of that may not yet be reflected in the users and groups files.
+     * @param moveNumber The number returned by {@link #moveJournalToBeDiscarded()} when the journal was moved.
+     * @throws IOException If an IO exception was thrown while deleting the journal.
+     */
+    private void discardMovedJournal(long moveNumber) throws IOException
+    {
+        synchronized(journalLock)
+        {
+            if(moveNumber == journalsMovedToBeDiscarded)
+                Files.deleteIfExists(journalBeingDiscardedFilePath);
+        }
+    }
+    //endregion
+
+    //region Replaying
+    /**
+     * Applies the records in the given journal file to this registry. Where the file ends with an incomplete record or
+     * an incomplete batch, these are ignored.
+     * @param journalFile The journal file to read.
+     * @throws IOException If an IO exception was thrown while reading the file.
+     */
+    private void replay(Path journalFile) throws IOException
+    {
+        if(Files.isRegularFile(journalFile))
+            replayRecords(new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Applies the given records to this registry. Where the records end with an incomplete record or an incomplete
+     * batch, these are ignored.
+     * @param contents The records, as they would appear in a journal.
+     * @throws IOException If an IO exception was thrown while loading a save string a record contains.
+     */
+    void replayRecords(String contents) throws IOException
+    {
+        List<String[]> batch = null;
+
+        for(int lineStart = 0, lineEnd; (lineEnd = contents.indexOf('\n', lineStart)) >= 0; lineStart = lineEnd + 1)
+        {
+            String[] record = contents.substring(lineStart, lineEnd).split("\t", -1);
+
+            for(int i = 1; i < record.length; i++)
+                record[i] = unescape(record[i]);
+
+            switch(record[0])
+            {
+                case "BB": batch = new ArrayList<>(); break;
+                case "BE":
+                {
+                    if(batch != null)
+                        for(String[] batchedRecord : batch)
+                            apply(batchedRecord);
+
+                    batch = null;
+                    break;
+                }
+                default:
+                {
+                    if(batch != null)
+                        batch.add(record);
+                    else
+                        apply(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a single record to this registry.
+     * @param record The record, split into its type followed by its unescaped arguments.
+     * @throws IOException If an IO exception was thrown while loading a save string the record contains.
+     */
+    private void apply(String[] record) throws IOException
+    {
+        List<String> rest = Arrays.asList(record).subList(Math.min(2, record.length), record.length);
+        List<String> all = Arrays.asList(record).subList(1, record.length);
+
+        switch(record[0])
+        {
+            case "NU":  getUserPermissionsGroupOrNew(parseIdFromString.apply(record[1])); break;
+            case "NG":  getGroupPermissionsGroupOrNew(record[1]); break;
+            case "GP":  getGroupPermissionsGroupOrNew(record[1], record[2]); break;
+
+            case "AUP": assignUserPermissions(parseIdFromString.apply(record[1]), rest); break;
+            case "AGP": assignGroupPermissions(record[1], rest); break;
+            case "ADP": assignDefaultPermissions(all); break;
+            case "RUP": revokeUserPermission(parseIdFromString.apply(record[1]), record[2]); break;
+            case "RGP": revokeGroupPermission(record[1], record[2]); break;
+            case "RDP": revokeDefaultPermission(record[1]); break;
+            case "XUP": revokeAllUserPermissions(parseIdFromString.apply(record[1])); break;
+            case "XGP": revokeAllGroupPermissions(record[1]); break;
+            case "XDP": revokeAllDefaultPermissions(); break;
+
+            case "AUG": assignGroupsToUser(parseIdFromString.apply(record[1]), rest); break;
+            case "AGG": assignGroupsToGroup(record[1], rest); break;
+            case "ADG": assignDefaultGroups(all); break;
+            case "RUG": revokeGroupFromUser(parseIdFromString.apply(record[1]), record[2]); break;
+            case "RGG": revokeGroupFromGroup(record[1], record[2]); break;
+            case "RDG": revokeDefaultGroup(record[1]); break;
+            case "XUG": revokeAllGroupsFromUser(parseIdFromString.apply(record[1])); break;
+            case "XGG": revokeAllGroupsFromGroup(record[1]); break;
+            case "XDG": revokeAllDefaultGroups(); break;
+
+            case "CL":  clear(); break;
+            case "CU":  clearUsers(); break;
+            case "CUS": clearUsers(all.stream().map(parseIdFromString).collect(Collectors.toList())); break;
+            case "CG":  clearGroups(); break;
+            case "CGS": clearGroups(all); break;
+            case "CD":  clearDefaults(); break;
+            case "PR":  prune(); break;
+            case "PRS": prune(all); break;
+
+            case "LU":  loadUsersFromSaveString(record[1]); break;
+            case "LG":  loadGroupsFromSaveString(record[1]); break;
+
+            default: throw new IllegalStateException("Unrecognised journal record type: " + record[0]);
+        }
+    }
+    //endregion
+    //endregion
+
+    //region PermissionsRegistry implementation
+    //region PermissionGroups
+    @Override
+    PermissionGroup getGroupPermissionsGroupOrNew(String groupName)
+    { return recorded(() -> toRecord("NG", groupName), () -> super.getGroupPermissionsGroupOrNew(groupName)); }
+
+    @Override
+    PermissionGroup getGroupPermissionsGroupOrNew(String groupName, long priority)
+    {
+        return recorded(() -> toRecord("GP", groupName, Long.toString(priority)),
+                        () -> super.getGroupPermissionsGroupOrNew(groupName, priority));
+    }
+
+    @Override
+    PermissionGroup getGroupPermissionsGroupOrNew(String groupName, double priority)
+    {
+        return recorded(() -> toRecord("GP", groupName, Double.toString(priority)),
+                        () -> super.getGroupPermissionsGroupOrNew(groupName, priority));
+    }
+
+    @Override
+    PermissionGroup getUserPermissionsGroupOrNew(ID userId)
+    {
+        return recorded(() -> toRecord("NU", convertIdToString.apply(userId)),
+                        () -> super.getUserPermissionsGroupOrNew(userId));
+    }
+    //endregion
+
+    //region Mutators
+    //region Other registries
+    @Override
+    public void absorb(PermissionsRegistry<ID> other, boolean inParallel)
+    { unrecordable(() -> super.absorb(other, inParallel)); }
+
+    @Override
+    public void removeContentsOf(PermissionsRegistry<ID> other)
+    { unrecordable(() -> super.removeContentsOf(other)); }
+    //endregion
+
+    //region Permissions
+    //region Assign
+    @Override
+    public Permission assignUserPermission(ID userId, String permission)
+    {
+        return recorded(() -> toRecord("AUP", convertIdToString.apply(userId), permission),
+                        () -> super.assignUserPermission(userId, permission));
+    }
+
+    @Override
+    public Permission assignGroupPermission(String groupName, String permission)
+    {
+        return recorded(() -> toRecord("AGP", groupName, permission),
+                        () -> super.assignGroupPermission(groupName, permission));
+    }
+
+    @Override
+    public Permission assignDefaultPermission(String permission)
+    { return recorded(() -> toRecord("ADP", permission), () -> super.assignDefaultPermission(permission)); }
+
+    @Override
+    public void assignUserPermissions(ID userId, List<String> permissions)
+    {
+        recordedAction(() -> toRecord("AUP", convertIdToString.apply(userId), permissions),
+                       () -> super.assignUserPermissions(userId, permissions));
+    }
+
+    @Override
+    public void assignUserPermissions(ID userId, String[] permissions)
+    { assignUserPermissions(userId, Arrays.asList(permissions)); }
+
+    @Override
+    public void assignGroupPermissions(String groupName, List<String> permissions)
+    {
+        recordedAction(() -> toRecord("AGP", groupName, permissions),
+                       () -> super.assignGroupPermissions(groupName, permissions));
+    }
+
+    @Override
+    public void assignGroupPermissions(String groupName, String[] permissions)
+    { assignGroupPermissions(groupName, Arrays.asList(permissions)); }
+
+    @Override
+    public void assignDefaultPermissions(List<String> permissions)
+    { recordedAction(() -> toRecord("ADP", permissions), () -> super.assignDefaultPermissions(permissions)); }
+
+    @Override
+    public void assignDefaultPermissions(String[] permissions)
+    { assignDefaultPermissions(Arrays.asList(permissions)); }
+    //endregion
+
+    //region Revoke
+    @Override
+    public Permission revokeUserPermission(ID userId, String permission)
+    {
+        return recorded(() -> toRecord("RUP", convertIdToString.apply(userId), permission),
+                        () -> super.revokeUserPermission(userId, permission));
+    }
+
+    @Override
+    public Permission revokeGroupPermission(String groupName, String permission)
+    {
+        return recorded(() -> toRecord("RGP", groupName, permission),
+                        () -> super.revokeGroupPermission(groupName, permission));
+    }
+
+    @Override
+    public Permission revokeDefaultPermission(String permission)
+    { return recorded(() -> toRecord("RDP", permission), () -> super.revokeDefaultPermission(permission)); }
+
+    @Override
+    public void revokeAllUserPermissions(ID userId)
+    {
+        recordedAction(() -> toRecord("XUP", convertIdToString.apply(userId)),
+                       () -> super.revokeAllUserPermissions(userId));
+    }
+
+    @Override
+    public void revokeAllGroupPermissions(String groupName)
+    { recordedAction(() -> toRecord("XGP", groupName), () -> super.revokeAllGroupPermissions(groupName)); }
+
+    @Override
+    public void revokeAllDefaultPermissions()
+    { recordedAction(() -> toRecord("XDP"), super::revokeAllDefaultPermissions); }
+    //endregion
+    //endregion
+
+    //region Groups
+    //region Assign
+    @Override
+    public void assignGroupToUser(ID userId, String groupNameBeingAssigned)
+    {
+        recordedAction(() -> toRecord("AUG", convertIdToString.apply(userId), groupNameBeingAssigned),
+                       () -> super.assignGroupToUser(userId, groupNameBeingAssigned));
+    }
+
+    @Override
+    public void assignGroupToGroup(String groupName, String groupNameBeingAssigned)
+    {
+        recordedAction(() -> toRecord("AGG", groupName, groupNameBeingAssigned),
+                       () -> super.assignGroupToGroup(groupName, groupNameBeingAssigned));
+    }
+
+    @Override
+    public void assignDefaultGroup(String groupNameBeingAssigned)
+    {
+        recordedAction(() -> toRecord("ADG", groupNameBeingAssigned),
+                       () -> super.assignDefaultGroup(groupNameBeingAssigned));
+    }
+
+    @Override
+    public void assignGroupsToUser(ID userId, List<String> groupNamesBeingAssigned)
+    {
+        recordedAction(() -> toRecord("AUG", convertIdToString.apply(userId), groupNamesBeingAssigned),
+                       () -> super.assignGroupsToUser(userId, groupNamesBeingAssigned));
+    }
+
+    @Override
+    public void assignGroupsToUser(ID userId, String[] groupNamesBeingAssigned)
+    { assignGroupsToUser(userId, Arrays.asList(groupNamesBeingAssigned)); }
+
+    @Override
+    public void assignGroupsToGroup(String groupName, List<String> groupNamesBeingAssigned)
+    {
+        recordedAction(() -> toRecord("AGG", groupName, groupNamesBeingAssigned),
+                       () -> super.assignGroupsToGroup(groupName, groupNamesBeingAssigned));
+    }
+
+    @Override
+    public void assignGroupsToGroup(String groupName, String[] groupNamesBeingAssigned)
+    { assignGroupsToGroup(groupName, Arrays.asList(groupNamesBeingAssigned)); }
+
+    @Override
+    public void assignDefaultGroups(List<String> groupNamesBeingAssigned)
+    {
+        recordedAction(() -> toRecord("ADG", groupNamesBeingAssigned),
+                       () -> super.assignDefaultGroups(groupNamesBeingAssigned));
+    }
+
+    @Override
+    public void assignDefaultGroups(String[] groupNamesBeingAssigned)
+    { assignDefaultGroups(Arrays.asList(groupNamesBeingAssigned)); }
+    //endregion
+
+    //region Revoke
+    @Override
+    public boolean revokeGroupFromUser(ID userId, String groupNameBeingRevoked)
+    {
+        return recorded(() -> toRecord("RUG", convertIdToString.apply(userId), groupNameBeingRevoked),
+                        () -> super.revokeGroupFromUser(userId, groupNameBeingRevoked));
+    }
+
+    @Override
+    public boolean revokeGroupFromGroup(String groupName, String groupNameBeingRevoked)
+    {
+        return recorded(() -> toRecord("RGG", groupName, groupNameBeingRevoked),
+                        () -> super.revokeGroupFromGroup(groupName, groupNameBeingRevoked));
+    }
+
+    @Override
+    public boolean revokeDefaultGroup(String groupNameBeingRevoked)
+    {
+        return recorded(() -> toRecord("RDG", groupNameBeingRevoked),
+                        () -> super.revokeDefaultGroup(groupNameBeingRevoked));
+    }
+
+    @Override
+    public void revokeAllGroupsFromUser(ID userId)
+    {
+        recordedAction(() -> toRecord("XUG", convertIdToString.apply(userId)),
+                       () -> super.revokeAllGroupsFromUser(userId));
+    }
+
+    @Override
+    public void revokeAllGroupsFromGroup(String groupName)
+    { recordedAction(() -> toRecord("XGG", groupName), () -> super.revokeAllGroupsFromGroup(groupName)); }
+
+    @Override
+    public void revokeAllDefaultGroups()
+    { recordedAction(() -> toRecord("XDG"), super::revokeAllDefaultGroups); }
+    //endregion
+    //endregion
+
+    //region Clear
+    @Override
+    public void clear()
+    { recordedAction(() -> toRecord("CL"), super::clear); }
+
+    @Override
+    public void clearUsers()
+    { recordedAction(() -> toRecord("CU"), super::clearUsers); }
+
+    @Override
+    public void clearUsers(Collection<ID> userIds)
+    {
+        recordedAction(() -> toRecord("CUS", userIds.stream().map(convertIdToString).collect(Collectors.toList())),
+                       () -> super.clearUsers(userIds));
+    }
+
+    @Override
+    public void clearUsers(ID[] userIds)
+    { clearUsers(Arrays.asList(userIds)); }
+
+    @Override
+    public void clearUser(ID userId)
+    { recordedAction(() -> toRecord("CUS", convertIdToString.apply(userId)), () -> super.clearUser(userId)); }
+
+    @Override
+    public void clearGroups()
+    { recordedAction(() -> toRecord("CG"), super::clearGroups); }
+
+    @Override
+    public void clearGroups(Collection<String> groupNames)
+    { recordedAction(() -> toRecord("CGS", groupNames), () -> super.clearGroups(groupNames)); }
+
+    @Override
+    public void clearGroups(String[] groupNames)
+    { clearGroups(Arrays.asList(groupNames)); }
+
+    @Override
+    public void clearGroup(String groupName)
+    { recordedAction(() -> toRecord("CGS", groupName), () -> super.clearGroup(groupName)); }
+
+    @Override
+    public void clearDefaults()
+    { recordedAction(() -> toRecord("CD"), super::clearDefaults); }
+
+    @Override
+    public void prune()
+    { recordedAction(() -> toRecord("PR"), super::prune); }
+
+    @Override
+    public void prune(Collection<String> groupNames)
+    { recordedAction(() -> toRecord("PRS", groupNames), () -> super.prune(groupNames)); }
+    //endregion
+
+    //region Batch
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The modifications made in the batch are recorded together once the batch has been applied, such that where
+     * the journal is replayed, either all of them or none of them are reapplied.</p>
+     */
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        if(batchRecords != null)
+        {
+            super.batch(transaction);
+            return;
+        }
+
+        batchRecords = new ArrayList<>();
+        batchRequiresSave = false;
+        List<String> records = batchRecords;
+
+        try
+        { super.batch(transaction); }
+        finally
+        { batchRecords = null; }
+
+        if(batchRequiresSave)
+        {
+            unrecordableModificationMade();
+            return;
+        }
+
+        if(records.isEmpty() || !isRecording())
+            return;
+
+        records.add(0, toRecord("BB"));
+        records.add(toRecord("BE"));
+        recordsMade(records);
+    }
+    //endregion
+    //endregion
+
+    //region Saving & loading
+    /**
+     * Saves the contents of this registry to the users and groups files, then discards the journal, as the
+     * modifications recorded in it are then reflected in the users and groups files.
+     * @throws IOException If an IO exception is thrown in the process of writing the save files or discarding the
+     *                     journal.
+     */
+    @Override
+    public void save() throws IOException
+    {
+        if(journalFilePath == null)
+        {
+            super.save();
+            return;
+        }
+
+        long moveNumber = moveJournalToBeDiscarded();
+        super.save();
+        discardMovedJournal(moveNumber);
+    }
+
+    /**
+     * <p>Saves the contents of this registry to the users and groups files, writing the files on a background thread,
+     * then discards the journal.</p>
+     *
+     * <p>Modifications made while the files are being written are recorded in a new journal, which is kept.</p>
+     * @return A future that completes once the contents of the registry as of this call have been written and the
+     *         journal discarded, or that completes exceptionally with the IO exception thrown in the process.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    {
+        if(journalFilePath == null)
+            return super.saveInBackground();
+
+        long moveNumber;
+
+        try
+        { moveNumber = moveJournalToBeDiscarded(); }
+        catch(IOException e)
+        {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        super.saveInBackground().whenComplete((r, exception) ->
+        {
+            if(exception != null)
+            {
+                result.completeExceptionally(exception instanceof CompletionException ? exception.getCause()
+                                                                                      : exception);
+                return;
+            }
+
+            try
+            {
+                discardMovedJournal(moveNumber);
+                result.complete(null);
+            }
+            catch(IOException e)
+            { result.completeExceptionally(e); }
+        });
+
+        return result;
+    }
+
+    @Override
+    public void loadUsersFromSaveString(String saveString) throws IOException
+    {
+        recordingOperationDepth++;
+
+        try
+        { super.loadUsersFromSaveString(saveString); }
+        finally
+        { recordingOperationDepth--; }
+
+        if(recordingOperationDepth == 0)
+            record(toRecord("LU", saveString));
+    }
+
+    @Override
+    public void loadGroupsFromSaveString(String saveString) throws IOException
+    {
+        recordingOperationDepth++;
+
+        try
+        { super.loadGroupsFromSaveString(saveString); }
+        finally
+        { recordingOperationDepth--; }
+
+        if(recordingOperationDepth == 0)
+            record(toRecord("LG", saveString));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>As the snapshot replaces the contents of the registry, the registry is then saved, discarding the journal.</p>
+     * @param snapshotFile The file to read the snapshot from.
+     * @throws IOException If an IO exception was thrown while reading the file or saving the registry, or if the file
+     *                     does not contain a snapshot in a supported format.
+     */
+    @Override
+    public void loadSnapshot(Path snapshotFile) throws IOException
+    {
+        try
+        {
+            unrecordable(() ->
+            {
+                try
+                { super.loadSnapshot(snapshotFile); }
+                catch(IOException e)
+                { throw new UncheckedIOException(e); }
+            });
+        }
+        catch(UncheckedIOException e)
+        { throw e.getCause(); }
+    }
+
+    /**
+     * <p>Clears the registry and loads information from the users and groups files, then reapplies the modifications
+     * recorded in the journal.</p>
+     *
+     * <p>Where a journal moved to be discarded was not discarded, such as where saving failed, its modifications are
+     * reapplied before those of the current journal.</p>
+     * @throws IOException If an IO exception was thrown while reading from the users, groups, or journal files.
+     * @throws InvalidGroupNameException If any of the groups loaded or assigned to any group or user have invalid
+     *                                   names.
+     */
+    @Override
+    public void load() throws IOException
+    {
+        boolean wasRecordingSuspended = recordingSuspended;
+        recordingSuspended = true;
+
+        try
+        {
+            super.load();
+
+            if(journalFilePath != null)
+            {
+                synchronized(journalLock)
+                { closeJournalFile(); }
+
+                replay(journalBeingDiscardedFilePath);
+                replay(journalFilePath);
+            }
+        }
+        finally
+        { recordingSuspended = wasRecordingSuspended; }
+    }
+    //endregion
+    //endregion
+    //endregion
+}
@@ -0,0 +1,742 @@
+package scot.massie.lib.permissions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link GroupMapPermissionsRegistry} that loads users from the users file only as they're needed.</p>
+ *
+ * <p>Rather than parsing the whole users file, loading scans it once to record where in the file each user's block of
+ * permissions is, and each user's block is only parsed the first time that user is queried or modified. Where more than
+ * the maximum number of users are loaded at once, the users accessed least recently are unloaded again, being held as
+ * their save strings until next needed.</p>
+ *
+ * <p>Operations that have to consider every user, such as removing or pruning groups, load all users first.</p>
+ *
+ * <p>Users not loaded are included in {@link #getContentHash()} and {@link #diff(PermissionsRegistry)} without being
+ * loaded. Where a user's content hash isn't known, their block is parsed once to hash it.</p>
+ * @apiNote As querying a user may load or unload users, this registry is not safe for concurrent reads. It should be
+ *          wrapped in a {@link scot.massie.lib.permissions.decorators.ThreadsafePermissionsRegistry} where accessed
+ *          from multiple threads.
+ * @apiNote The users file should not be modified externally between loading and saving this registry, as users not yet
+ *          loaded are read from it at the positions recorded when it was loaded.
+ * @see GroupMapPermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class LazyLoadingPermissionsRegistry<ID extends Comparable<? super ID>> extends GroupMapPermissionsRegistry<ID>
+{
+    //region Inner classes
+    /**
+     * The record of a user that is not currently loaded. This is either the location of the user's block in the users
+     * file, or the user's save string where the user has been unloaded since the file was last read or written.
+     */
+    private static final class UnloadedUser
+    {
+        /**
+         * Creates a new record of a user whose block is in the users file.
+         * @param offset The position, in bytes, of the start of the user's block in the users file.
+         * @param length The length, in bytes, of the user's block in the users file.
+         */
+        UnloadedUser(long offset, int length)
+        {
+            this.offset = offset;
+            this.length = length;
+            this.saveString = null;
+        }
+
+        /**
+         * Creates a new record of a user held as their save string.
+         * @param saveString The user's save string.
+         */
+        UnloadedUser(String saveString)
+        {
+            this.offset = -1;
+            this.length = -1;
+            this.saveString = saveString;
+        }
+
+        /**
+         * The position, in bytes, of the start of the user's block in the users file. -1 if the user is held as a save
+         * string.
+         */
+        final long offset;
+
+        /**
+         * The length, in bytes, of the user's block in the users file. -1 if the user is held as a save string.
+         */
+        final int length;
+
+        /**
+         * The user's save string, or null if the user is to be read from the users file.
+         */
+        final String saveString;
+
+        /**
+         * The content hash the user would have were they loaded, or null if it's not yet known. See
+         * {@link PermissionGroup#getContentHash()}.
+         */
+        Long contentHash = null;
+    }
+    //endregion
+
+    //region Instance fields
+    /**
+     * The default maximum number of users that may be loaded at once.
+     */
+    public static final int defaultMaxLoadedUsers = 10000;
+
+    /**
+     * The maximum number of users that may be loaded at once before the least recently accessed are unloaded.
+     */
+    protected final int maxLoadedUsers;
+
+    /**
+     * The records of users in this registry that are not currently loaded, mapped against their IDs. A user is never
+     * both loaded and in this map.
+     */
+    private final Map<ID, UnloadedUser> unloadedUsers = new HashMap<>();
+
+    /**
+     * Whether or not users are currently prevented from being unloaded.
+     */
+    private boolean unloadingSuspended = false;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new lazy-loading permissions registry.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param maxLoadedUsers The maximum number of users that may be loaded at once.
+     */
+    public LazyLoadingPermissionsRegistry(Function<ID, String> idToString,
+                                          Function<String, ID> idFromString,
+                                          Path usersFile,
+                                          Path groupsFile,
+                                          int maxLoadedUsers)
+    {
+        // Access-ordered, so the least recently accessed users come first.
+        super(new LinkedHashMap<>(16, 0.75f, true), new PermissionGroup("*"), idToString, idFromString, usersFile,
+              groupsFile);
+
+        if(maxLoadedUsers < 1)
+            throw new IllegalArgumentException("maxLoadedUsers must be at least 1. Was: " + maxLoadedUsers);
+
+        this.maxLoadedUsers = maxLoadedUsers;
+    }
+
+    /**
+     * Creates a new lazy-loading permissions registry, which may have up to {@link #defaultMaxLoadedUsers} users loaded
+     * at once.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public LazyLoadingPermissionsRegistry(Function<ID, String> idToString,
+                                          Function<String, ID> idFromString,
+                                          Path usersFile,
+                                          Path groupsFile)
+    { this(idToString, idFromString, usersFile, groupsFile, defaultMaxLoadedUsers); }
+    //endregion
+
+    //region Methods
+    //region Loading and unloading users
+    /**
+     * Gets the number of users currently loaded.
+     * @return The number of users currently loaded.
+     */
+    public int getLoadedUserCount()
+    { return permissionsForUsers.size(); }
+
+    /**
+     * Parses the specified user's block, where the user is not currently loaded.
+     * @apiNote Does not unload any other users.
+     * @param userId The ID of the user to load.
+     * @return The permission group object of the loaded user, or null if there was no unloaded user of the given ID.
+     * @throws UncheckedIOException If the user's block could not be read from the users file.
+     */
+    private PermissionGroup loadUser(ID userId)
+    {
+        UnloadedUser unloadedUser = unloadedUsers.remove(userId);
+
+        if(unloadedUser == null)
+            return null;
+
+        boolean wasModified = hasBeenDifferentiatedFromFiles;
+        boolean wereAllModified = allEntitiesModified;
+        boolean wasUnloadingSuspended = unloadingSuspended;
+        unloadingSuspended = true;
+
+        try
+        { loadUsers(new StringReader(getSaveString(unloadedUser))); }
+        catch(IOException e)
+        {
+            unloadedUsers.put(userId, unloadedUser);
+            throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            // Loading a user brings it in line with the users file, not away from it.
+            hasBeenDifferentiatedFromFiles = wasModified;
+            allEntitiesModified = wereAllModified;
+            modifiedUsers.remove(userId);
+            unloadingSuspended = wasUnloadingSuspended;
+        }
+
+        return permissionsForUsers.get(userId);
+    }
+
+    /**
+     * Loads all users not currently loaded.
+     * @apiNote Does not unload any users.
+     */
+    protected void loadAllUsers()
+    {
+        if(unloadedUsers.isEmpty())
+            return;
+
+        boolean wasUnloadingSuspended = unloadingSuspended;
+        unloadingSuspended = true;
+
+        try
+        {
+            for(ID userId : new ArrayList<>(unloadedUsers.keySet()))
+                loadUser(userId);
+        }
+        finally
+        { unloadingSuspended = wasUnloadingSuspended; }
+    }
+
+    /**
+     * Unloads the least recently accessed users until no more than the maximum number of users are loaded.
+     * @apiNote Does nothing while a batch is being performed, so that users recorded for rolling back remain loaded.
+     */
+    private void unloadColdUsers()
+    {
+        if(unloadingSuspended || isPerformingBatch())
+            return;
+
+        Iterator<Map.Entry<ID, PermissionGroup>> iter = permissionsForUsers.entrySet().iterator();
+
+        for(int toUnload = permissionsForUsers.size() - maxLoadedUsers; toUnload > 0; toUnload--)
+        {
+            Map.Entry<ID, PermissionGroup> entry = iter.next();
+            PermissionGroup permGroup = entry.getValue();
+            UnloadedUser unloadedUser = new UnloadedUser(permGroup.toSaveString());
+            unloadedUser.contentHash = permGroup.getContentHash();
+            unloadedUsers.put(entry.getKey(), unloadedUser);
+            iter.remove();
+
+            // Stops the unloaded user from listening to the priorities of its groups.
+            permGroup.clearGroups();
+        }
+    }
+
+    /**
+     * Gets the save string of an unloaded user.
+     * @param unloadedUser The record of the unloaded user.
+     * @return The save string of the user, read from the users file where the user is not held as a save string.
+     * @throws IOException If an IO exception was thrown while reading the users file.
+     */
+    private String getSaveString(UnloadedUser unloadedUser) throws IOException
+    {
+        if(unloadedUser.saveString != null)
+            return unloadedUser.saveString;
+
+        ByteBuffer buffer = ByteBuffer.allocate(unloadedUser.length);
+
+        try(FileChannel channel = FileChannel.open(usersFilePath, StandardOpenOption.READ))
+        {
+            while(buffer.hasRemaining())
+                if(channel.read(buffer, unloadedUser.offset + buffer.position()) < 0)
+                    throw new EOFException("The users file ended before the end of a user's block.");
+        }
+
+        String block = new String(buffer.array(), StandardCharsets.UTF_8);
+        int end = block.length();
+
+        while(end > 0 && (block.charAt(end - 1) == '\n' || block.charAt(end - 1) == '\r'))
+            end--;
+
+        return block.substring(0, end);
+    }
+
+    /**
+     * Scans the users file, recording where each user's block starts and ends without parsing any of them.
+     * @throws IOException If an IO exception was thrown while reading the users file.
+     */
+    private void indexUsersFile() throws IOException
+    {
+        try(InputStream in = new BufferedInputStream(Files.newInputStream(usersFilePath)))
+        {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            String blockHeader = null;
+            long blockStart = 0;
+            long position = 0;
+            boolean atLineStart = true;
+            boolean readingHeader = false;
+
+            for(int b; (b = in.read()) != -1; position++)
+            {
+                // Any line not indented and not blank starts a new block.
+                if(atLineStart && b != ' ' && b != '\n' && b != '\r')
+                {
+                    if(blockHeader != null)
+                        indexUser(blockHeader, blockStart, position - blockStart);
+
+                    blockStart = position;
+                    readingHeader = true;
+                    header.reset();
+                }
+
+                atLineStart = (b == '\n');
+
+                if(readingHeader)
+                {
+                    if(atLineStart)
+                    {
+                        blockHeader = new String(header.toByteArray(), StandardCharsets.UTF_8);
+                        readingHeader = false;
+                    }
+                    else
+                        header.write(b);
+                }
+            }
+
+            if(readingHeader)
+                blockHeader = new String(header.toByteArray(), StandardCharsets.UTF_8);
+
+            if(blockHeader != null)
+                indexUser(blockHeader, blockStart, position - blockStart);
+        }
+    }
+
+    /**
+     * Records the location of a user's block in the users file.
+     * @param header The first line of the user's block.
+     * @param offset The position, in bytes, of the start of the user's block.
+     * @param length The length, in bytes, of the user's block.
+     * @throws IOException If an IO exception was thrown while reading the users file.
+     */
+    private void indexUser(String header, long offset, long length) throws IOException
+    {
+        int groupPrefixPosition = header.lastIndexOf('#');
+        String userIdString = groupPrefixPosition < 0 ? header.trim() : header.substring(0, groupPrefixPosition).trim();
+        ID userId = parseIdFromString.apply(userIdString);
+        UnloadedUser location = new UnloadedUser(offset, (int)length);
+
+        if(permissionsForUsers.containsKey(userId))
+        {
+            // The user is already loaded, so the block adds to it, as it would were the users file parsed fully.
+            loadUsers(new StringReader(getSaveString(location)));
+            return;
+        }
+
+        UnloadedUser existing = unloadedUsers.get(userId);
+
+        if(existing != null)
+            location = new UnloadedUser(getSaveString(existing) + "\n" + getSaveString(location));
+
+        unloadedUsers.put(userId, location);
+    }
+    //endregion
+
+    //region Content hashes
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Users not loaded are included without being loaded. The first time the content hash of a user read from the
+     * users file is needed, their block is parsed separately to hash it, and the hash is kept until they're next
+     * loaded.</p>
+     * @return A map of the content hashes of the users not loaded, against their IDs.
+     * @throws UncheckedIOException If the block of a user could not be read from the users file.
+     */
+    @Override
+    protected Map<ID, Long> getContentHashesOfUsersNotInMemory()
+    {
+        Map<ID, Long> result = new HashMap<>();
+        GroupMapPermissionsRegistry<ID> scratch = null;
+
+        for(Map.Entry<ID, UnloadedUser> entry : unloadedUsers.entrySet())
+        {
+            UnloadedUser unloadedUser = entry.getValue();
+
+            if(unloadedUser.contentHash == null)
+            {
+                if(scratch == null)
+                    scratch = new GroupMapPermissionsRegistry<>(convertIdToString, parseIdFromString);
+
+                hashUnloadedUser(entry.getKey(), unloadedUser, scratch);
+            }
+
+            result.put(entry.getKey(), unloadedUser.contentHash);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param userId The ID of the user.
+     * @return The content hash of the user, or null if there's no user with the given ID not loaded.
+     * @throws UncheckedIOException If the block of the user could not be read from the users file.
+     */
+    @Override
+    protected Long getContentHashOfUserNotInMemory(ID userId)
+    {
+        UnloadedUser unloadedUser = unloadedUsers.get(userId);
+
+        if(unloadedUser == null)
+            return null;
+
+        if(unloadedUser.contentHash == null)
+        {
+            GroupMapPermissionsRegistry<ID> scratch
+                    = new GroupMapPermissionsRegistry<>(convertIdToString, parseIdFromString);
+
+            hashUnloadedUser(userId, unloadedUser, scratch);
+        }
+
+        return unloadedUser.contentHash;
+    }
+
+    /**
+     * Records the content hash of an unloaded user, by parsing the user's save string into a separate registry.
+     * @param userId The ID of the user.
+     * @param unloadedUser The record of the unloaded user.
+     * @param scratch The registry to parse the user's save string into. This is cleared afterwards.
+     * @throws UncheckedIOException If the user's block could not be read from the users file.
+     */
+    private void hashUnloadedUser(ID userId, UnloadedUser unloadedUser, GroupMapPermissionsRegistry<ID> scratch)
+    {
+        try
+        { scratch.loadUsersFromSaveString(getSaveString(unloadedUser)); }
+        catch(IOException e)
+        { throw new UncheckedIOException(e); }
+
+        PermissionGroup permGroup = scratch.permissionsForUsers.get(userId);
+        scratch.clear();
+
+        if(permGroup == null)
+        {
+            throw new UncheckedIOException(new IOException("The block of user " + convertIdToString.apply(userId)
+                                                           + " was not where it was recorded to be in the users file. "
+                                                           + "The users file may have been modified externally."));
+        }
+
+        unloadedUser.contentHash = permGroup.getContentHash();
+    }
+    //endregion
+
+    //region PermissionGroups
+    @Override
+    PermissionGroup getUserPermissionsGroup(ID userId)
+    {
+        PermissionGroup permGroup = permissionsForUsers.get(userId);
+
+        if(permGroup != null || !unloadedUsers.containsKey(userId))
+            return permGroup;
+
+        permGroup = loadUser(userId);
+        unloadColdUsers();
+        return permGroup;
+    }
+
+    @Override
+    Collection<PermissionGroup> getUserPermissionsGroups()
+    {
+        loadAllUsers();
+        return super.getUserPermissionsGroups();
+    }
+
+    @Override
+    PermissionGroup getUserPermissionsGroupOrNew(ID userId)
+    {
+        PermissionGroup permGroup = getUserPermissionsGroup(userId);
+
+        if(permGroup != null)
+            return permGroup;
+
+        permGroup = super.getUserPermissionsGroupOrNew(userId);
+        unloadColdUsers();
+        return permGroup;
+    }
+    //endregion
+
+    //region Getters
+    @Override
+    public Collection<ID> getUsers()
+    {
+        Set<ID> users = new HashSet<>(permissionsForUsers.keySet());
+        users.addAll(unloadedUsers.keySet());
+        return users;
+    }
+    //endregion
+
+    //region Clear
+    @Override
+    public void clear()
+    {
+        super.clear();
+        unloadedUsers.clear();
+    }
+
+    @Override
+    public void clearUsers()
+    {
+        super.clearUsers();
+        unloadedUsers.clear();
+    }
+
+    @Override
+    public void clearUsers(Collection<ID> userIds)
+    {
+        super.clearUsers(userIds);
+
+        for(ID userId : userIds)
+            unloadedUsers.remove(userId);
+    }
+
+    @Override
+    public void clearUsers(ID[] userIds)
+    {
+        super.clearUsers(userIds);
+
+        for(ID userId : userIds)
+            unloadedUsers.remove(userId);
+    }
+
+    @Override
+    public void clearUser(ID userId)
+    {
+        super.clearUser(userId);
+        unloadedUsers.remove(userId);
+    }
+
+    // Users have to be loaded before groups are removed, as loading a user referencing a group that doesn't exist
+    // recreates it.
+
+    @Override
+    public void clearGroups()
+    {
+        loadAllUsers();
+        super.clearGroups();
+    }
+
+    @Override
+    public void clearGroups(Collection<String> groupNames)
+    {
+        loadAllUsers();
+        super.clearGroups(groupNames);
+    }
+
+    @Override
+    public void clearGroup(String groupName)
+    {
+        loadAllUsers();
+        super.clearGroup(groupName);
+    }
+
+    @Override
+    public void prune()
+    {
+        loadAllUsers();
+        super.prune();
+    }
+
+    @Override
+    public void prune(Collection<String> groupNames)
+    {
+        loadAllUsers();
+        super.prune(groupNames);
+    }
+    //endregion
+
+    //region Saving
+    /**
+     * Writes the save strings of all users, loaded or not, to the provided writer, in the same format as
+     * {@link GroupMapPermissionsRegistry#saveUsers(BufferedWriter)}. Users not loaded are not parsed.
+     * @param writer The writer to write to.
+     * @param newLocations A map to record the positions of the blocks of users not loaded in what's written, or null
+     *                     if they need not be recorded.
+     * @throws IOException If an IO exception is thrown by the provided writer or while reading the users file.
+     */
+    private void writeUsers(Writer writer, Map<ID, UnloadedUser> newLocations) throws IOException
+    {
+        SortedMap<String, ID> userIdsByString = new TreeMap<>();
+        // Copied rather than read from directly, as getting from an access-ordered map counts as accessing.
+        Map<ID, PermissionGroup> loadedUsers = new HashMap<>(permissionsForUsers);
+
+        for(ID userId : loadedUsers.keySet())
+            userIdsByString.put(convertIdToString.apply(userId), userId);
+
+        for(ID userId : unloadedUsers.keySet())
+            userIdsByString.put(convertIdToString.apply(userId), userId);
+
+        String previousBlock = null;
+        long position = 0;
+
+        for(ID userId : userIdsByString.values())
+        {
+            PermissionGroup permGroup = loadedUsers.get(userId);
+            String block = (permGroup != null) ? (permGroup.toSaveString())
+                                               : (getSaveString(unloadedUsers.get(userId)));
+
+            if(previousBlock != null)
+            {
+                boolean leaveBlankLine = previousBlock.indexOf('\n') >= 0 || block.indexOf('\n') >= 0;
+                writer.write(leaveBlankLine ? "\n\n" : "\n");
+                position += leaveBlankLine ? 2 : 1;
+            }
+
+            int blockLength = block.getBytes(StandardCharsets.UTF_8).length;
+            writer.write(block);
+
+            if(newLocations != null && permGroup == null)
+            {
+                UnloadedUser newLocation = new UnloadedUser(position, blockLength);
+                newLocation.contentHash = unloadedUsers.get(userId).contentHash;
+                newLocations.put(userId, newLocation);
+            }
+
+            position += blockLength;
+            previousBlock = block;
+        }
+    }
+
+    @Override
+    protected void saveUsers(BufferedWriter writer) throws IOException
+    { writeUsers(writer, null); }
+
+    /**
+     * <p>Writes reversible string representations of the permissions of all users in this registry to the users
+     * file.</p>
+     *
+     * <p>As users not loaded are read from the users file as it's written, the users are written to a temporary file
+     * next to the users file, which then replaces it. Users not loaded are then read from their new positions in the
+     * new users file.</p>
+     * @apiNote Does nothing if no users file location has been provided to the registry.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    @Override
+    protected void saveUsers() throws IOException
+    {
+        if(usersFilePath == null)
+            return;
+
+        Path tempFile = usersFilePath.resolveSibling(usersFilePath.getFileName() + ".tmp");
+        Map<ID, UnloadedUser> newLocations = new HashMap<>();
+
+        try(BufferedWriter writer = Files.newBufferedWriter(tempFile))
+        { writeUsers(writer, newLocations); }
+
+        Files.move(tempFile, usersFilePath, StandardCopyOption.REPLACE_EXISTING);
+        unloadedUsers.putAll(newLocations);
+    }
+
+    /**
+     * <p>Saves the contents of this registry to the files specified, on the calling thread.</p>
+     *
+     * <p>As users not loaded are read from the users file, and are read from their positions in the new users file
+     * once it's written, the users file can't be written while this registry is otherwise being accessed. As such, this
+     * is the equivalent of {@link #save()}, returning a future that has already been completed.</p>
+     * @return A future that has already been completed, exceptionally if an IO exception was thrown in the process of
+     *         writing the save files.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        try
+        {
+            save();
+            result.complete(null);
+        }
+        catch(IOException e)
+        { result.completeExceptionally(e); }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>As every user is included in the snapshot, all users are loaded first.</p>
+     * @param snapshotFile The file to write the snapshot to.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    @Override
+    public void saveSnapshot(Path snapshotFile) throws IOException
+    {
+        loadAllUsers();
+        super.saveSnapshot(snapshotFile);
+    }
+    //endregion
+
+    //region Loading
+    /**
+     * <p>Scans the users file, recording the users in it without parsing their permissions. Each user is parsed when
+     * first needed.</p>
+     *
+     * <p>Does nothing if there is no users file specified or if the users file cannot be read.</p>
+     *
+     * <p>Does not clear registered users first.</p>
+     * @throws IOException If an IO exception was thrown while reading the users file.
+     */
+    @Override
+    protected void loadUsers() throws IOException
+    {
+        if((usersFilePath == null) || (!Files.isReadable(usersFilePath)) || (Files.isDirectory(usersFilePath)))
+            return;
+
+        markAsModified();
+        indexUsersFile();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Lazy-loading registries don't parse the users file when loaded, so users can't be loaded in parallel.</p>
+     * @param loadsUsersInParallel Whether or not to parse the users file across multiple threads.
+     * @throws UnsupportedOperationException If loadsUsersInParallel is true.
+     */
+    @Override
+    public void setLoadsUsersInParallel(boolean loadsUsersInParallel)
+    {
+        if(loadsUsersInParallel)
+            throw new UnsupportedOperationException("Lazy-loading permissions registries can't load users in "
+                                                    + "parallel.");
+    }
+    //endregion
+    //endregion
+}
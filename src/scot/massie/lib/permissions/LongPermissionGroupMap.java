@@ -0,0 +1,400 @@
+package scot.massie.lib.permissions;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * <p>A map of permission groups against primitive long keys, stored in open-addressed arrays.</p>
+ *
+ * <p>Lookups by primitive long do not box the key, and entries are stored directly in parallel key and value arrays
+ * rather than in separate entry objects. Collisions are resolved by linear probing, and removals shift later entries of
+ * the same probe sequence back into the freed slot rather than leaving tombstones.</p>
+ *
+ * <p>This implements {@link Map} so that it may be used anywhere any other map of users' permission groups may be, but
+ * the methods inherited from it that take {@link Long} objects box and unbox keys as normal.</p>
+ * @apiNote Null values are not permitted, and the iterators of this map and its views do not support removal.
+ */
+final class LongPermissionGroupMap extends AbstractMap<Long, PermissionGroup>
+{
+    //region Instance fields
+    /**
+     * The proportion of slots that may be filled before the arrays are resized.
+     */
+    private static final double loadFactor = 0.6;
+
+    /**
+     * The keys of the map's entries. A slot is occupied where the value at the same index in {@link #values} is
+     * non-null.
+     */
+    private long[] keys;
+
+    /**
+     * The values of the map's entries. Null where the slot is unoccupied.
+     */
+    private PermissionGroup[] values;
+
+    /**
+     * The number of entries in the map.
+     */
+    private int size = 0;
+
+    /**
+     * The number of entries the map may hold before its arrays are resized.
+     */
+    private int resizeThreshold;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new empty map.
+     */
+    LongPermissionGroupMap()
+    { this(16); }
+
+    /**
+     * Creates a new empty map, with room for the given number of entries before needing to resize.
+     * @param expectedSize The number of entries the map is expected to hold.
+     */
+    LongPermissionGroupMap(int expectedSize)
+    {
+        int capacity = 16;
+
+        while(capacity * loadFactor < expectedSize)
+            capacity <<= 1;
+
+        allocate(capacity);
+    }
+    //endregion
+
+    //region Methods
+    //region Internal
+    /**
+     * Replaces the arrays of this map with empty arrays of the given capacity.
+     * @param capacity The number of slots to allocate. This must be a power of two.
+     */
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new PermissionGroup[capacity];
+        resizeThreshold = (int)(capacity * loadFactor);
+    }
+
+    /**
+     * Gets the slot a given key would be placed in were there no collisions.
+     * @param key The key to get the slot of.
+     * @return The index of the home slot of the given key.
+     */
+    private int homeSlotOf(long key)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * Gets the slot containing the given key.
+     * @param key The key to find the slot of.
+     * @return The index of the slot containing the given key, or -1 if the key is not in this map.
+     */
+    private int slotOf(long key)
+    {
+        int mask = keys.length - 1;
+
+        for(int i = homeSlotOf(key); values[i] != null; i = (i + 1) & mask)
+            if(keys[i] == key)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * Moves all entries into new arrays of the given capacity.
+     * @param newCapacity The number of slots in the new arrays. This must be a power of two.
+     */
+    private void resize(int newCapacity)
+    {
+        long[] oldKeys = keys;
+        PermissionGroup[] oldValues = values;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+
+        for(int i = 0; i < oldValues.length; i++)
+        {
+            if(oldValues[i] == null)
+                continue;
+
+            int j = homeSlotOf(oldKeys[i]);
+
+            while(values[j] != null)
+                j = (j + 1) & mask;
+
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    /**
+     * Empties the given slot, moving back any later entries in the same probe sequence that would otherwise no longer
+     * be reachable from their home slots.
+     * @param slot The index of the slot to empty.
+     */
+    private void removeSlot(int slot)
+    {
+        int mask = keys.length - 1;
+        int gap = slot;
+
+        for(int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask)
+        {
+            int home = homeSlotOf(keys[i]);
+
+            // The entry may fill the gap only where the gap lies between its home slot and where it currently is.
+            if(((i - home) & mask) >= ((i - gap) & mask))
+            {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+
+        values[gap] = null;
+        size--;
+    }
+    //endregion
+
+    //region Primitive access
+    /**
+     * Gets the permission group mapped against the given key.
+     * @param key The key to get the value of.
+     * @return The permission group mapped against the given key, or null if there is none.
+     */
+    public PermissionGroup get(long key)
+    {
+        int slot = slotOf(key);
+        return (slot < 0) ? (null) : (values[slot]);
+    }
+
+    /**
+     * Gets whether or not this map has a value for the given key.
+     * @param key The key to check.
+     * @return True if this map has a value for the given key. Otherwise, false.
+     */
+    public boolean containsKey(long key)
+    { return slotOf(key) >= 0; }
+
+    /**
+     * Maps the given permission group against the given key.
+     * @param key The key to map the permission group against.
+     * @param value The permission group to map.
+     * @return The permission group previously mapped against the given key, or null if there was none.
+     */
+    public PermissionGroup put(long key, PermissionGroup value)
+    {
+        Objects.requireNonNull(value, "value should not be null.");
+        int mask = keys.length - 1;
+        int i = homeSlotOf(key);
+
+        for(; values[i] != null; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                PermissionGroup oldValue = values[i];
+                values[i] = value;
+                return oldValue;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if(++size > resizeThreshold)
+            resize(keys.length << 1);
+
+        return null;
+    }
+
+    /**
+     * Gets the permission group mapped against the given key, creating and mapping one if there is none.
+     * @param key The key to get the value of.
+     * @param mappingFunction The function for creating a permission group for the key where there isn't one.
+     * @return The permission group mapped against the given key, or the newly created one if there was none. If the
+     *         mapping function returns null, null is returned and nothing is mapped.
+     */
+    public PermissionGroup computeIfAbsent(long key, LongFunction<PermissionGroup> mappingFunction)
+    {
+        int slot = slotOf(key);
+
+        if(slot >= 0)
+            return values[slot];
+
+        PermissionGroup value = mappingFunction.apply(key);
+
+        if(value != null)
+            put(key, value);
+
+        return value;
+    }
+
+    /**
+     * Removes the value mapped against the given key.
+     * @param key The key to remove the value of.
+     * @return The permission group that was mapped against the given key, or null if there was none.
+     */
+    public PermissionGroup remove(long key)
+    {
+        int slot = slotOf(key);
+
+        if(slot < 0)
+            return null;
+
+        PermissionGroup oldValue = values[slot];
+        removeSlot(slot);
+        return oldValue;
+    }
+    //endregion
+
+    //region Map implementation
+    @Override
+    public int size()
+    { return size; }
+
+    @Override
+    public boolean isEmpty()
+    { return size == 0; }
+
+    @Override
+    public PermissionGroup get(Object key)
+    { return (key instanceof Long) ? (get(((Long)key).longValue())) : (null); }
+
+    @Override
+    public boolean containsKey(Object key)
+    { return (key instanceof Long) && (containsKey(((Long)key).longValue())); }
+
+    @Override
+    public PermissionGroup put(Long key, PermissionGroup value)
+    { return put(key.longValue(), value); }
+
+    @Override
+    public PermissionGroup remove(Object key)
+    { return (key instanceof Long) ? (remove(((Long)key).longValue())) : (null); }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Iterator over the occupied slots of this map.
+     * @param <T> The type of the elements produced from each slot.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T>
+    {
+        int nextSlot = findOccupiedSlotFrom(0);
+
+        int findOccupiedSlotFrom(int slot)
+        {
+            while(slot < values.length && values[slot] == null)
+                slot++;
+
+            return slot;
+        }
+
+        abstract T getFromSlot(int slot);
+
+        @Override
+        public boolean hasNext()
+        { return nextSlot < values.length; }
+
+        @Override
+        public T next()
+        {
+            if(nextSlot >= values.length)
+                throw new NoSuchElementException();
+
+            T result = getFromSlot(nextSlot);
+            nextSlot = findOccupiedSlotFrom(nextSlot + 1);
+            return result;
+        }
+    }
+
+    @Override
+    public Set<Entry<Long, PermissionGroup>> entrySet()
+    {
+        return new AbstractSet<Entry<Long, PermissionGroup>>()
+        {
+            @Override
+            public Iterator<Entry<Long, PermissionGroup>> iterator()
+            {
+                return new SlotIterator<Entry<Long, PermissionGroup>>()
+                {
+                    @Override
+                    Entry<Long, PermissionGroup> getFromSlot(int slot)
+                    { return new SimpleImmutableEntry<>(keys[slot], values[slot]); }
+                };
+            }
+
+            @Override
+            public int size()
+            { return size; }
+        };
+    }
+
+    @Override
+    public Set<Long> keySet()
+    {
+        return new AbstractSet<Long>()
+        {
+            @Override
+            public Iterator<Long> iterator()
+            {
+                return new SlotIterator<Long>()
+                {
+                    @Override
+                    Long getFromSlot(int slot)
+                    { return keys[slot]; }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o)
+            { return containsKey(o); }
+
+            @Override
+            public int size()
+            { return size; }
+        };
+    }
+
+    @Override
+    public Collection<PermissionGroup> values()
+    {
+        return new AbstractCollection<PermissionGroup>()
+        {
+            @Override
+            public Iterator<PermissionGroup> iterator()
+            {
+                return new SlotIterator<PermissionGroup>()
+                {
+                    @Override
+                    PermissionGroup getFromSlot(int slot)
+                    { return values[slot]; }
+                };
+            }
+
+            @Override
+            public int size()
+            { return size; }
+        };
+    }
+    //endregion
+    //endregion
+}
@@ -0,0 +1,240 @@
+package scot.massie.lib.permissions;
+
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.nio.file.Path;
+
+/**
+ * <p>A {@link GroupMapPermissionsRegistry} for users identified by 64-bit numbers.</p>
+ *
+ * <p>In addition to the standard methods, which take {@link Long} user IDs, this provides overloads of the user-scoped
+ * methods most frequently called that take primitive {@code long} user IDs, which do not box the ID. Users are stored in
+ * an open-addressed map keyed by primitive longs rather than in a {@link java.util.HashMap}, so user lookups neither box
+ * the ID nor go through separate entry objects.</p>
+ *
+ * <p>User IDs are saved in their decimal string form.</p>
+ * @apiNote Varargs overloads are not provided with primitive long user IDs, as they would be ambiguous with the
+ *          inherited overloads taking {@link Long} user IDs.
+ * @see GroupMapPermissionsRegistry
+ */
+public class LongPermissionsRegistry extends GroupMapPermissionsRegistry<Long>
+{
+    //region Instance fields
+    /**
+     * The permission groups for users, mapped against the IDs of the users they're permissions for. This is the same
+     * map as {@link #permissionsForUsers}, typed to allow access by primitive long.
+     */
+    protected final LongPermissionGroupMap permissionsForUsersById;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new long-keyed permissions registry, using the given map to store the permission groups of users in.
+     * @param permissionsForUsersById The map to store the permission groups of users in.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    private LongPermissionsRegistry(LongPermissionGroupMap permissionsForUsersById, Path usersFile, Path groupsFile)
+    {
+        super(permissionsForUsersById, new PermissionGroup("*"), id -> Long.toString(id), Long::valueOf, usersFile,
+              groupsFile);
+
+        this.permissionsForUsersById = permissionsForUsersById;
+    }
+
+    /**
+     * Creates a new long-keyed permissions registry with the ability to save and load to and from files.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public LongPermissionsRegistry(Path usersFile, Path groupsFile)
+    { this(new LongPermissionGroupMap(), usersFile, groupsFile); }
+
+    /**
+     * Creates a new long-keyed permissions registry without the ability to save and load to and from files.
+     */
+    public LongPermissionsRegistry()
+    { this(new LongPermissionGroupMap(), null, null); }
+    //endregion
+
+    //region Methods
+    //region Assertions
+    /**
+     * Asserts that the specified user has the given permission.
+     * @see #assertUserHasPermission(Comparable, String)
+     * @param userId The ID of the user to assert has the given permission.
+     * @param permission The permission to assert that the specified user has.
+     * @throws UserMissingPermissionException If the specified user does not have the given permission.
+     */
+    public void assertUserHasPermission(long userId, String permission) throws UserMissingPermissionException
+    {
+        if(!userHasPermission(userId, permission))
+            throw new UserMissingPermissionException(userId, permission);
+    }
+    //endregion
+
+    //region Accessors
+    /**
+     * Gets the status of the specified user's permission.
+     * @see #getUserPermissionStatus(Comparable, String)
+     * @param userId The ID of the user to get the status of the permission of.
+     * @param permission The permission to get the status of.
+     * @return An object representing the status of the specified user's permission.
+     */
+    public PermissionStatus getUserPermissionStatus(long userId, String permission)
+    { return getPermissionStatus(permissionsForUsersById.get(userId), permission, true); }
+
+    /**
+     * Gets whether or not the specified user has the given permission.
+     * @see #userHasPermission(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param permission The permission to check for.
+     * @return True if the specified user has the given permission. Otherwise, false.
+     */
+    public boolean userHasPermission(long userId, String permission)
+    { return hasPermission(permissionsForUsersById.get(userId), permission, true); }
+
+    /**
+     * Gets whether or not the specified user has all of the given permissions.
+     * @see #userHasAllPermissions(Comparable, Iterable)
+     * @param userId The ID of the user to check.
+     * @param permissions The permissions to check for.
+     * @return True if the specified user has all of the given permissions. Otherwise, false.
+     */
+    public boolean userHasAllPermissions(long userId, Iterable<String> permissions)
+    { return hasAllPermissions(permissionsForUsersById.get(userId), permissions, true); }
+
+    /**
+     * Gets whether or not the specified user has any of the given permissions.
+     * @see #userHasAnyPermissions(Comparable, Iterable)
+     * @param userId The ID of the user to check.
+     * @param permissions The permissions to check for.
+     * @return True if the specified user has any of the given permissions. Otherwise, false.
+     */
+    public boolean userHasAnyPermissions(long userId, Iterable<String> permissions)
+    { return hasAnyPermissions(permissionsForUsersById.get(userId), permissions, true); }
+
+    /**
+     * Gets whether or not the specified user has the given permission or any permission under it.
+     * @see #userHasAnySubPermissionOf(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param permission The permission to check for.
+     * @return True if the specified user has the given permission or any permission under it. Otherwise, false.
+     */
+    public boolean userHasAnySubPermissionOf(long userId, String permission)
+    { return hasAnySubPermissionOf(permissionsForUsersById.get(userId), permission, true); }
+
+    /**
+     * Gets the argument of the specified user's most relevant permission to the given permission.
+     * @see #getUserPermissionArg(Comparable, String)
+     * @param userId The ID of the user to get the permission argument of.
+     * @param permission The permission to get the argument of.
+     * @return The argument of the specified user's most relevant permission to the given permission, or null if there
+     *         is none, the user does not have the permission, or the permission has no argument.
+     */
+    public String getUserPermissionArg(long userId, String permission)
+    { return getPermissionArg(permissionsForUsersById.get(userId), permission, true); }
+
+    /**
+     * Gets whether or not the specified user has the specified group, directly or indirectly.
+     * @see #userHasGroup(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param groupName The name of the group to check for.
+     * @return True if the specified user has the specified group. Otherwise, false.
+     */
+    public boolean userHasGroup(long userId, String groupName)
+    { return hasGroup(permissionsForUsersById.get(userId), groupName, true); }
+    //endregion
+
+    //region Mutators
+    /**
+     * Gets the permission group object of the specified user. If the specified user does not currently exist in the
+     * registry, registers it.
+     * @param userId The ID of the user to get the permission group object of.
+     * @return The permission group object of the user of the given ID.
+     */
+    PermissionGroup getUserPermissionsGroupOrNew(long userId)
+    {
+        return permissionsForUsersById.computeIfAbsent(userId, id ->
+        {
+            markUserAsModified(id);
+            return new PermissionGroup(Long.toString(id), defaultPermissions);
+        });
+    }
+
+    /**
+     * Assigns a permission to the specified user.
+     * @see #assignUserPermission(Comparable, String)
+     * @param userId The ID of the user to assign a permission to.
+     * @param permission The permission to assign.
+     * @return A Permission object representing the permission previously assigned at the given permission's path, or
+     *         null if there was none.
+     */
+    public Permission assignUserPermission(long userId, String permission)
+    {
+        if(isPerformingBatch())
+            recordUserForRollback(userId);
+
+        return assignPermission(getUserPermissionsGroupOrNew(userId), permission);
+    }
+
+    /**
+     * Revokes a permission from the specified user.
+     * @see #revokeUserPermission(Comparable, String)
+     * @param userId The ID of the user to revoke a permission from.
+     * @param permission The permission to revoke.
+     * @return A Permission object representing the revoked permission, or null if there was none.
+     */
+    public Permission revokeUserPermission(long userId, String permission)
+    {
+        if(isPerformingBatch())
+            recordUserForRollback(userId);
+
+        return revokePermission(permissionsForUsersById.get(userId), permission);
+    }
+
+    /**
+     * Assigns a group to the specified user.
+     * @see #assignGroupToUser(Comparable, String)
+     * @param userId The ID of the user to assign a group to.
+     * @param groupNameBeingAssigned The name of the group to assign.
+     */
+    public void assignGroupToUser(long userId, String groupNameBeingAssigned)
+    {
+        if(isPerformingBatch())
+            recordUserForRollback(userId);
+
+        assignGroupTo(getUserPermissionsGroupOrNew(userId), groupNameBeingAssigned, false);
+    }
+
+    /**
+     * Revokes a group from the specified user.
+     * @see #revokeGroupFromUser(Comparable, String)
+     * @param userId The ID of the user to revoke a group from.
+     * @param groupNameBeingRevoked The name of the group to revoke.
+     * @return True if the user was modified as a result of this call. Otherwise, false.
+     */
+    public boolean revokeGroupFromUser(long userId, String groupNameBeingRevoked)
+    {
+        if(isPerformingBatch())
+            recordUserForRollback(userId);
+
+        return revokeGroupFrom(permissionsForUsersById.get(userId), groupNameBeingRevoked);
+    }
+
+    /**
+     * Removes all information about the specified user from this registry.
+     * @see #clearUser(Comparable)
+     * @param userId The ID of the user to remove information about.
+     */
+    public void clearUser(long userId)
+    {
+        if(isPerformingBatch())
+            recordUserForRollback(userId);
+
+        permissionsForUsersById.remove(userId);
+        markUserAsModified(userId);
+    }
+    //endregion
+    //endregion
+}
@@ -0,0 +1,931 @@
+package scot.massie.lib.permissions;
+
+import scot.massie.lib.collections.trees.Tree;
+import scot.massie.lib.collections.trees.TreeEntry;
+import scot.massie.lib.permissions.exceptions.GroupMissingPermissionException;
+import scot.massie.lib.permissions.exceptions.PermissionNotDefaultException;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>A read-only view of a permissions registry, answering queries directly from a snapshot file mapped into memory
+ * without reading the permissions in the snapshot into objects.</p>
+ *
+ * <p>Snapshots are written by {@link GroupMapPermissionsRegistry#saveMappableSnapshot(Path)}. Unlike those written by
+ * {@link GroupMapPermissionsRegistry#saveSnapshot(Path)}, they're laid out such that any user, group, or permission
+ * can be found without reading the snapshot from the start. Opening a snapshot reads only its header; the parts of the
+ * snapshot needed to answer each query are read by the operating system as they're accessed, and may be shared with
+ * other processes mapping the same file.</p>
+ *
+ * <p>Queries give the same results as the same queries on the registry the snapshot was written from.</p>
+ * @apiNote As the snapshot is never modified, this may be safely queried from multiple threads at once.
+ * @apiNote Snapshots are limited to 2GB in size.
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public final class MappedPermissionsRegistry<ID extends Comparable<? super ID>>
+{
+    /*
+
+    Snapshot format: All integers are big-endian 32-bit integers, and all offsets are from the start of the file.
+
+    Header: magic number, format version, offset of group table, offset of user table, offset of default permissions
+    record.
+
+    Strings: length in bytes, followed by the string encoded as UTF-8. Each distinct string is written once, and
+    referred to by its offset.
+
+    Tables: number of records, followed by the offset of each record, ordered by the record's name, as compared by
+    utf8Order.
+
+    Records (users, groups, and the default permissions): offset of name, offset of the root node of the exact
+    permission tree, (or -1 if empty) offset of the root node of the descendant permission tree, (or -1 if empty) number
+    of referenced groups, followed by the indices in the group table of each referenced group, in the order they're
+    referenced in.
+
+    Tree nodes: flags byte, offset of permission argument (or -1 if none), number of children, followed by the offset of
+    each child's path segment and the offset of the child, ordered by the segment, as compared by utf8Order.
+
+     */
+
+    //region Constants
+    /**
+     * The number every mappable snapshot starts with, being "PRMM" in ASCII.
+     */
+    static final int magicNumber = 0x50524D4D;
+
+    /**
+     * The version of the format written.
+     */
+    static final int formatVersion = 1;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    private static final int headerSize = 5 * 4;
+
+    /**
+     * Flag indicating that a tree node contains a permission.
+     */
+    private static final int hasPermissionFlag = 1;
+
+    /**
+     * Flag indicating that a tree node's permission permits, rather than negates.
+     */
+    private static final int permitsFlag = 2;
+
+    /**
+     * Flag indicating that a tree node's permission is indirect.
+     */
+    private static final int indirectFlag = 4;
+
+    /**
+     * Comparator that orders strings by the order of their UTF-8 encodings, as compared byte-by-byte without sign.
+     */
+    static final Comparator<String> utf8Order = (a, b) ->
+    {
+        for(int i = 0, j = 0; i < a.length() && j < b.length();)
+        {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+
+            if(ca != cb)
+                return Integer.compare(ca, cb);
+
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+
+        return Integer.compare(a.codePointCount(0, a.length()), b.codePointCount(0, b.length()));
+    };
+    //endregion
+
+    //region Instance fields
+    /**
+     * The mapped snapshot. This is only ever read from with absolute reads, which do not modify the buffer's state.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Converter for converting user IDs into a string form.
+     */
+    private final Function<ID, String> convertIdToString;
+
+    /**
+     * The offset of the group table.
+     */
+    private final int groupTableOffset;
+
+    /**
+     * The offset of the user table.
+     */
+    private final int userTableOffset;
+
+    /**
+     * The offset of the record of the default permissions.
+     */
+    private final int defaultRecordOffset;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Opens a snapshot written by {@link GroupMapPermissionsRegistry#saveMappableSnapshot(Path)}.
+     * @param idToString The conversion for turning a user ID into a string representation of it, as used by the
+     *                   registry the snapshot was written from.
+     * @param snapshotFile The snapshot file.
+     * @throws IOException If an IO exception was thrown while mapping the file, or if the file does not contain a
+     *                     snapshot in a supported format.
+     */
+    public MappedPermissionsRegistry(Function<ID, String> idToString, Path snapshotFile) throws IOException
+    {
+        MappedByteBuffer mapped;
+
+        try(FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ))
+        { mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); }
+
+        this.buffer = mapped;
+        this.convertIdToString = idToString;
+
+        if(buffer.capacity() < headerSize || buffer.getInt(0) != magicNumber)
+            throw new IOException("Not a mappable permissions snapshot.");
+
+        int version = buffer.getInt(4);
+
+        if(version != formatVersion)
+            throw new IOException("Unsupported mappable permissions snapshot version: " + version);
+
+        this.groupTableOffset = buffer.getInt(8);
+        this.userTableOffset = buffer.getInt(12);
+        this.defaultRecordOffset = buffer.getInt(16);
+    }
+    //endregion
+
+    //region Methods
+    //region Writing
+    /**
+     * Writes a mappable snapshot of the given permission groups to the given stream.
+     * @param out The stream to write to. This is not closed.
+     * @param defaultPermissions The default permissions.
+     * @param groups The permission groups of the groups.
+     * @param users The permission groups of the users, named as their user IDs as strings.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    static void write(OutputStream out,
+                      PermissionGroup defaultPermissions,
+                      Collection<PermissionGroup> groups,
+                      Collection<PermissionGroup> users)
+            throws IOException
+    {
+        SnapshotWriter writer = new SnapshotWriter(groups);
+        int defaultRecord = writer.writeRecord(defaultPermissions);
+        int[] groupRecords = new int[writer.sortedGroups.size()];
+        List<PermissionGroup> sortedUsers = sortedByName(users);
+        int[] userRecords = new int[sortedUsers.size()];
+
+        for(int i = 0; i < groupRecords.length; i++)
+            groupRecords[i] = writer.writeRecord(writer.sortedGroups.get(i));
+
+        for(int i = 0; i < userRecords.length; i++)
+            userRecords[i] = writer.writeRecord(sortedUsers.get(i));
+
+        int groupTable = writer.writeTable(groupRecords);
+        int userTable = writer.writeTable(userRecords);
+
+        byte[] bytes = writer.bytes.toByteArray();
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        header.putInt(0, magicNumber);
+        header.putInt(4, formatVersion);
+        header.putInt(8, groupTable);
+        header.putInt(12, userTable);
+        header.putInt(16, defaultRecord);
+        out.write(bytes);
+    }
+
+    /**
+     * Gets the given permission groups, sorted by name, as compared by {@link #utf8Order}.
+     * @param permissionGroups The permission groups to sort.
+     * @return A new list containing the given permission groups, sorted by name.
+     */
+    private static List<PermissionGroup> sortedByName(Collection<PermissionGroup> permissionGroups)
+    {
+        return permissionGroups.stream()
+                               .sorted(Comparator.comparing(PermissionGroup::getName, utf8Order))
+                               .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes the parts of a mappable snapshot, keeping track of the offsets of what's been written.
+     */
+    private static final class SnapshotWriter
+    {
+        /**
+         * A node of a permission tree to be written.
+         */
+        private static final class Node
+        {
+            /**
+             * The permission at this node, or null if there is none.
+             */
+            Permission permission = null;
+
+            /**
+             * The children of this node, mapped against their path segments.
+             */
+            final Map<String, Node> children = new TreeMap<>(utf8Order);
+        }
+
+        /**
+         * Creates a new snapshot writer, with space left for the header.
+         * @param groups The permission groups of the groups to be written.
+         */
+        SnapshotWriter(Collection<PermissionGroup> groups)
+        {
+            this.sortedGroups = sortedByName(groups);
+
+            for(int i = 0; i < sortedGroups.size(); i++)
+                groupIndices.put(sortedGroups.get(i), i);
+
+            bytes.write(new byte[headerSize], 0, headerSize);
+        }
+
+        /**
+         * The bytes written so far.
+         */
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Stream for writing to {@link #bytes}.
+         */
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        /**
+         * The groups to be written, in the order of the group table.
+         */
+        final List<PermissionGroup> sortedGroups;
+
+        /**
+         * The indices in the group table of the groups to be written.
+         */
+        final Map<PermissionGroup, Integer> groupIndices = new HashMap<>();
+
+        /**
+         * The offsets of the strings written so far.
+         */
+        final Map<String, Integer> stringOffsets = new HashMap<>();
+
+        /**
+         * Writes the given string, unless it's already been written.
+         * @param s The string to write.
+         * @return The offset of the string.
+         * @throws IOException If an IO exception was thrown while writing.
+         */
+        int writeString(String s) throws IOException
+        {
+            Integer offset = stringOffsets.get(s);
+
+            if(offset != null)
+                return offset;
+
+            offset = bytes.size();
+            byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(encoded.length);
+            out.write(encoded);
+            stringOffsets.put(s, offset);
+            return offset;
+        }
+
+        /**
+         * Writes a permission tree.
+         * @param tree The tree to write.
+         * @return The offset of the tree's root node, or -1 if the tree is empty.
+         * @throws IOException If an IO exception was thrown while writing.
+         */
+        int writeTree(Tree<String, Permission> tree) throws IOException
+        {
+            Collection<TreeEntry<String, Permission>> entries = tree.getEntries();
+
+            if(entries.isEmpty())
+                return -1;
+
+            Node root = new Node();
+
+            for(TreeEntry<String, Permission> entry : entries)
+            {
+                Node node = root;
+
+                for(String segment : entry.getPath().getNodes())
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+
+                node.permission = entry.getItem();
+            }
+
+            return writeNode(root);
+        }
+
+        /**
+         * Writes a node of a permission tree, after writing its children.
+         * @param node The node to write.
+         * @return The offset of the node.
+         * @throws IOException If an IO exception was thrown while writing.
+         */
+        int writeNode(Node node) throws IOException
+        {
+            int[] segmentOffsets = new int[node.children.size()];
+            int[] childOffsets = new int[node.children.size()];
+            int i = 0;
+
+            for(Map.Entry<String, Node> child : node.children.entrySet())
+            {
+                segmentOffsets[i] = writeString(child.getKey());
+                childOffsets[i++] = writeNode(child.getValue());
+            }
+
+            Permission permission = node.permission;
+            int argOffset = (permission != null && permission.hasArg()) ? writeString(permission.getArg()) : -1;
+            int offset = bytes.size();
+
+            out.writeByte(permission == null ? 0 : hasPermissionFlag
+                                                   | (permission.permits()    ? permitsFlag  : 0)
+                                                   | (permission.isIndirect() ? indirectFlag : 0));
+            out.writeInt(argOffset);
+            out.writeInt(childOffsets.length);
+
+            for(int j = 0; j < childOffsets.length; j++)
+            {
+                out.writeInt(segmentOffsets[j]);
+                out.writeInt(childOffsets[j]);
+            }
+
+            return offset;
+        }
+
+        /**
+         * Writes the record of a user, group, or the default permissions.
+         * @param permissionGroup The permission group of the user, group, or default permissions.
+         * @return The offset of the record.
+         * @throws IOException If an IO exception was thrown while writing.
+         */
+        int writeRecord(PermissionGroup permissionGroup) throws IOException
+        {
+            int nameOffset = writeString(permissionGroup.getName());
+            int exactRoot = writeTree(permissionGroup.permissionSet.exactPermissionTree);
+            int descendantRoot = writeTree(permissionGroup.permissionSet.descendantPermissionTree);
+            int offset = bytes.size();
+
+            out.writeInt(nameOffset);
+            out.writeInt(exactRoot);
+            out.writeInt(descendantRoot);
+            out.writeInt(permissionGroup.referencedGroups.size());
+
+            for(PermissionGroup referencedGroup : permissionGroup.referencedGroups)
+            {
+                Integer index = groupIndices.get(referencedGroup);
+
+                if(index == null)
+                    throw new IllegalStateException("Group referenced that isn't in the registry: "
+                                                    + referencedGroup.getName());
+
+                out.writeInt(index);
+            }
+
+            return offset;
+        }
+
+        /**
+         * Writes a table of records.
+         * @param recordOffsets The offsets of the records, in order.
+         * @return The offset of the table.
+         * @throws IOException If an IO exception was thrown while writing.
+         */
+        int writeTable(int[] recordOffsets) throws IOException
+        {
+            int offset = bytes.size();
+            out.writeInt(recordOffsets.length);
+
+            for(int recordOffset : recordOffsets)
+                out.writeInt(recordOffset);
+
+            return offset;
+        }
+    }
+    //endregion
+
+    //region Reading
+    //region Strings
+    /**
+     * Compares the given bytes to the string at the given offset.
+     * @param bytes The bytes to compare, being a string encoded as UTF-8.
+     * @param stringOffset The offset of the string.
+     * @return A negative number if the given bytes come before the string, a positive number if they come after it, or
+     *         0 if they're the same.
+     */
+    private int compareToString(byte[] bytes, int stringOffset)
+    {
+        int length = buffer.getInt(stringOffset);
+        int start = stringOffset + 4;
+
+        for(int i = 0, limit = Math.min(bytes.length, length); i < limit; i++)
+        {
+            int comparison = Integer.compare(bytes[i] & 0xFF, buffer.get(start + i) & 0xFF);
+
+            if(comparison != 0)
+                return comparison;
+        }
+
+        return Integer.compare(bytes.length, length);
+    }
+
+    /**
+     * Reads the string at the given offset.
+     * @param stringOffset The offset of the string.
+     * @return The string at the given offset.
+     */
+    private String readString(int stringOffset)
+    {
+        byte[] bytes = new byte[buffer.getInt(stringOffset)];
+
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(stringOffset + 4 + i);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the nodes of a permission path as UTF-8.
+     * @param permission The permission path.
+     * @return The nodes of the given path, each encoded as UTF-8.
+     */
+    private static byte[][] encodePath(String permission)
+    {
+        String[] nodes = PermissionSet.splitPath(permission);
+        byte[][] encoded = new byte[nodes.length][];
+
+        for(int i = 0; i < nodes.length; i++)
+            encoded[i] = nodes[i].getBytes(StandardCharsets.UTF_8);
+
+        return encoded;
+    }
+    //endregion
+
+    //region Records
+    /**
+     * Finds the record with the given name in the table at the given offset.
+     * @param tableOffset The offset of the table.
+     * @param name The name of the record to find.
+     * @return The offset of the record, or -1 if there is no record in the table by the given name.
+     */
+    private int findRecord(int tableOffset, String name)
+    {
+        byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = buffer.getInt(tableOffset) - 1;
+
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int recordOffset = buffer.getInt(tableOffset + 4 + middle * 4);
+            int comparison = compareToString(encodedName, buffer.getInt(recordOffset));
+
+            if(comparison == 0)
+                return recordOffset;
+
+            if(comparison < 0)
+                high = middle - 1;
+            else
+                low = middle + 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the record of the given user.
+     * @param userId The ID of the user.
+     * @return The offset of the user's record, or -1 if the user is not in the snapshot.
+     */
+    private int getUserRecord(ID userId)
+    { return findRecord(userTableOffset, convertIdToString.apply(userId)); }
+
+    /**
+     * Gets the record of the given group. Where the group is specified as "*", this is taken to mean the default
+     * permissions.
+     * @param groupName The name of the group.
+     * @return The offset of the group's record, or the default permissions' record if the group is specified as "*",
+     *         or -1 if the group is not in the snapshot.
+     */
+    private int getGroupRecord(String groupName)
+    { return "*".equals(groupName) ? defaultRecordOffset : findRecord(groupTableOffset, groupName); }
+
+    /**
+     * Gets the record of the group at the given index of the group table.
+     * @param index The index in the group table.
+     * @return The offset of the group's record.
+     */
+    private int getGroupRecordAt(int index)
+    { return buffer.getInt(groupTableOffset + 4 + index * 4); }
+    //endregion
+
+    //region Trees
+    /**
+     * Gets the child of the given tree node with the given path segment.
+     * @param nodeOffset The offset of the node.
+     * @param segment The path segment, encoded as UTF-8.
+     * @return The offset of the child, or -1 if the node has no such child.
+     */
+    private int getChild(int nodeOffset, byte[] segment)
+    {
+        int childrenOffset = nodeOffset + 9;
+        int low = 0;
+        int high = buffer.getInt(nodeOffset + 5) - 1;
+
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int comparison = compareToString(segment, buffer.getInt(childrenOffset + middle * 8));
+
+            if(comparison == 0)
+                return buffer.getInt(childrenOffset + middle * 8 + 4);
+
+            if(comparison < 0)
+                high = middle - 1;
+            else
+                low = middle + 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets whether or not the given tree node contains a permission.
+     * @param nodeOffset The offset of the node.
+     * @return True if the node contains a permission. Otherwise, false.
+     */
+    private boolean nodeHasPermission(int nodeOffset)
+    { return (buffer.get(nodeOffset) & hasPermissionFlag) != 0; }
+
+    /**
+     * Gets the node containing the permission in the given record's own permissions most relevant to the given path,
+     * as {@link PermissionSet#getMostRelevantPermission(List)} would.
+     * @param recordOffset The offset of the record.
+     * @param path The permission path, with each node encoded as UTF-8.
+     * @return The offset of the node containing the most relevant permission, or -1 if none is relevant.
+     */
+    private int getMostRelevantPermissionDirectly(int recordOffset, byte[][] path)
+    {
+        int node = buffer.getInt(recordOffset + 4);
+
+        for(int i = 0; i < path.length && node >= 0; i++)
+            node = getChild(node, path[i]);
+
+        if(node >= 0 && nodeHasPermission(node))
+            return node;
+
+        int mostRelevant = -1;
+        node = buffer.getInt(recordOffset + 8);
+
+        for(int i = 0; i < path.length && node >= 0; i++)
+        {
+            if(nodeHasPermission(node))
+                mostRelevant = node;
+
+            node = getChild(node, path[i]);
+        }
+
+        return mostRelevant;
+    }
+
+    /**
+     * Gets the node containing the permission most relevant to the given path, as
+     * {@link PermissionGroup#getMostRelevantPermission(List)} would.
+     * @param recordOffset The offset of the record of the user, group, or default permissions.
+     * @param path The permission path, with each node encoded as UTF-8.
+     * @param deferToDefault Whether or not to check the default permissions where the record and the groups it
+     *                       references do not contain a relevant permission. This is true for users.
+     * @return The offset of the node containing the most relevant permission, or -1 if none is relevant.
+     */
+    private int getMostRelevantPermission(int recordOffset, byte[][] path, boolean deferToDefault)
+    {
+        int node = getMostRelevantPermissionDirectly(recordOffset, path);
+
+        if(node >= 0)
+            return node;
+
+        for(int i = 0, count = buffer.getInt(recordOffset + 12); i < count; i++)
+        {
+            node = getMostRelevantPermission(getGroupRecordAt(buffer.getInt(recordOffset + 16 + i * 4)), path, false);
+
+            if(node >= 0)
+                return node;
+        }
+
+        return deferToDefault ? getMostRelevantPermission(defaultRecordOffset, path, false) : -1;
+    }
+
+    /**
+     * Gets the status of the given permission for the given record.
+     * @param recordOffset The offset of the record, or -1 if there is no record.
+     * @param permission The permission to get the status of.
+     * @param deferToDefault Whether or not the record is of a user, and should defer to the default permissions.
+     * @return The status of the given permission.
+     */
+    private PermissionStatus getPermissionStatus(int recordOffset, String permission, boolean deferToDefault)
+    {
+        if(recordOffset < 0)
+        {
+            if(!deferToDefault)
+                return new PermissionStatus(permission, false, null);
+
+            recordOffset = defaultRecordOffset;
+            deferToDefault = false;
+        }
+
+        int node = getMostRelevantPermission(recordOffset, encodePath(permission), deferToDefault);
+
+        if(node < 0)
+            return new PermissionStatus(permission, false, null);
+
+        int argOffset = buffer.getInt(node + 1);
+
+        return new PermissionStatus(permission,
+                                    (buffer.get(node) & permitsFlag) != 0,
+                                    argOffset < 0 ? null : readString(argOffset));
+    }
+    //endregion
+
+    //region Groups
+    /**
+     * Gets whether or not the given record references the given group, directly or indirectly, as
+     * {@link PermissionGroup#hasGroup(String)} would.
+     * @param recordOffset The offset of the record.
+     * @param groupName The name of the group, encoded as UTF-8.
+     * @param deferToDefault Whether or not the record is of a user, and should defer to the default permissions.
+     * @return True if the record references the given group. Otherwise, false.
+     */
+    private boolean hasGroup(int recordOffset, byte[] groupName, boolean deferToDefault)
+    {
+        for(int i = 0, count = buffer.getInt(recordOffset + 12); i < count; i++)
+        {
+            int groupRecord = getGroupRecordAt(buffer.getInt(recordOffset + 16 + i * 4));
+
+            if(compareToString(groupName, buffer.getInt(groupRecord)) == 0 || hasGroup(groupRecord, groupName, false))
+                return true;
+        }
+
+        return deferToDefault && hasGroup(defaultRecordOffset, groupName, false);
+    }
+
+    /**
+     * Gets whether or not the given record references the given group, directly or indirectly.
+     * @param recordOffset The offset of the record, or -1 if there is no record.
+     * @param groupName The name of the group.
+     * @param deferToDefault Whether or not the record is of a user, and should defer to the default permissions.
+     * @return True if the record references the given group. Otherwise, false.
+     */
+    private boolean hasGroup(int recordOffset, String groupName, boolean deferToDefault)
+    {
+        if(recordOffset < 0)
+        {
+            if(!deferToDefault)
+                return false;
+
+            recordOffset = defaultRecordOffset;
+            deferToDefault = false;
+        }
+
+        // Every permission group falls back to a default permission group named "*".
+        if("*".equals(groupName))
+            return true;
+
+        return hasGroup(recordOffset, groupName.getBytes(StandardCharsets.UTF_8), deferToDefault);
+    }
+    //endregion
+    //endregion
+
+    //region Queries
+    //region Assertions
+    /**
+     * Asserts that the specified user has the given permission.
+     * @see #userHasPermission(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param permission The permission to check for.
+     * @throws UserMissingPermissionException If the user does not have the given permission.
+     */
+    public void assertUserHasPermission(ID userId, String permission) throws UserMissingPermissionException
+    {
+        if(!userHasPermission(userId, permission))
+            throw new UserMissingPermissionException(userId, permission);
+    }
+
+    /**
+     * Asserts that the specified group has the given permission.
+     * @see #groupHasPermission(String, String)
+     * @param groupName The name of the group to check.
+     * @param permission The permission to check for.
+     * @throws GroupMissingPermissionException If the group does not have the given permission.
+     */
+    public void assertGroupHasPermission(String groupName, String permission) throws GroupMissingPermissionException
+    {
+        if(!groupHasPermission(groupName, permission))
+            throw new GroupMissingPermissionException(groupName, permission);
+    }
+
+    /**
+     * Asserts that the given permission is a default permission.
+     * @see #isDefaultPermission(String)
+     * @param permission The permission to check for.
+     * @throws PermissionNotDefaultException If the given permission is not a default permission.
+     */
+    public void assertIsDefaultPermission(String permission) throws PermissionNotDefaultException
+    {
+        if(!isDefaultPermission(permission))
+            throw new PermissionNotDefaultException(permission);
+    }
+    //endregion
+
+    //region Permission statuses
+    /**
+     * Gets the status of the given permission for the specified user.
+     * @see PermissionsRegistry#getUserPermissionStatus(Comparable, String)
+     * @param userId The ID of the user to get the status of the permission for.
+     * @param permission The permission to get the status of.
+     * @return The status of the given permission for the specified user.
+     */
+    public PermissionStatus getUserPermissionStatus(ID userId, String permission)
+    {
+        Objects.requireNonNull(permission, "permission should not be null.");
+        return getPermissionStatus(getUserRecord(userId), permission, true);
+    }
+
+    /**
+     * Gets the status of the given permission for the specified group.
+     * @see PermissionsRegistry#getGroupPermissionStatus(String, String)
+     * @param groupName The name of the group to get the status of the permission for.
+     * @param permission The permission to get the status of.
+     * @return The status of the given permission for the specified group.
+     */
+    public PermissionStatus getGroupPermissionStatus(String groupName, String permission)
+    {
+        Objects.requireNonNull(permission, "permission should not be null.");
+        return getPermissionStatus(getGroupRecord(groupName), permission, false);
+    }
+
+    /**
+     * Gets the status of the given permission in the default permissions.
+     * @see PermissionsRegistry#getDefaultPermissionStatus(String)
+     * @param permission The permission to get the status of.
+     * @return The status of the given permission in the default permissions.
+     */
+    public PermissionStatus getDefaultPermissionStatus(String permission)
+    {
+        Objects.requireNonNull(permission, "permission should not be null.");
+        return getPermissionStatus(defaultRecordOffset, permission, false);
+    }
+    //endregion
+
+    //region Has
+    /**
+     * Checks whether the specified user has the given permission.
+     * @see PermissionsRegistry#userHasPermission(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param permission The permission to check for.
+     * @return True if the user has the given permission. Otherwise, false.
+     */
+    public boolean userHasPermission(ID userId, String permission)
+    { return getUserPermissionStatus(userId, permission).hasPermission(); }
+
+    /**
+     * Checks whether the specified group has the given permission.
+     * @see PermissionsRegistry#groupHasPermission(String, String)
+     * @param groupName The name of the group to check.
+     * @param permission The permission to check for.
+     * @return True if the group has the given permission. Otherwise, false.
+     */
+    public boolean groupHasPermission(String groupName, String permission)
+    { return getGroupPermissionStatus(groupName, permission).hasPermission(); }
+
+    /**
+     * Checks whether the given permission is a default permission.
+     * @see PermissionsRegistry#isDefaultPermission(String)
+     * @param permission The permission to check for.
+     * @return True if the given permission is a default permission. Otherwise, false.
+     */
+    public boolean isDefaultPermission(String permission)
+    { return getDefaultPermissionStatus(permission).hasPermission(); }
+    //endregion
+
+    //region Args
+    /**
+     * Gets the permission argument of the given permission for the specified user.
+     * @see PermissionsRegistry#getUserPermissionArg(Comparable, String)
+     * @param userId The ID of the user to get the permission argument for.
+     * @param permission The permission to get the permission argument of.
+     * @return The permission argument of the most relevant permission to the given one, or null if there is none.
+     */
+    public String getUserPermissionArg(ID userId, String permission)
+    { return getUserPermissionStatus(userId, permission).getPermissionArg(); }
+
+    /**
+     * Gets the permission argument of the given permission for the specified group.
+     * @see PermissionsRegistry#getGroupPermissionArg(String, String)
+     * @param groupName The name of the group to get the permission argument for.
+     * @param permission The permission to get the permission argument of.
+     * @return The permission argument of the most relevant permission to the given one, or null if there is none.
+     */
+    public String getGroupPermissionArg(String groupName, String permission)
+    { return getGroupPermissionStatus(groupName, permission).getPermissionArg(); }
+
+    /**
+     * Gets the permission argument of the given permission in the default permissions.
+     * @see PermissionsRegistry#getDefaultPermissionArg(String)
+     * @param permission The permission to get the permission argument of.
+     * @return The permission argument of the most relevant permission to the given one, or null if there is none.
+     */
+    public String getDefaultPermissionArg(String permission)
+    { return getDefaultPermissionStatus(permission).getPermissionArg(); }
+    //endregion
+
+    //region Groups
+    /**
+     * Checks whether the specified user has the specified group, directly or indirectly.
+     * @see PermissionsRegistry#userHasGroup(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param groupName The name of the group to check for.
+     * @return True if the user has the specified group. Otherwise, false.
+     */
+    public boolean userHasGroup(ID userId, String groupName)
+    {
+        Objects.requireNonNull(groupName, "groupName should not be null.");
+        return hasGroup(getUserRecord(userId), groupName, true);
+    }
+
+    /**
+     * Checks whether the specified group extends from the other specified group, directly or indirectly.
+     * @see PermissionsRegistry#groupExtendsFromGroup(String, String)
+     * @param groupName The name of the group to check.
+     * @param superGroupName The name of the group to check for.
+     * @return True if the group extends from the other group. Otherwise, false.
+     */
+    public boolean groupExtendsFromGroup(String groupName, String superGroupName)
+    {
+        Objects.requireNonNull(superGroupName, "superGroupName should not be null.");
+        return hasGroup(getGroupRecord(groupName), superGroupName, false);
+    }
+
+    /**
+     * Checks whether the specified group is a default group, directly or indirectly.
+     * @see PermissionsRegistry#isDefaultGroup(String)
+     * @param groupName The name of the group to check for.
+     * @return True if the group is a default group. Otherwise, false.
+     */
+    public boolean isDefaultGroup(String groupName)
+    {
+        Objects.requireNonNull(groupName, "groupName should not be null.");
+        return hasGroup(defaultRecordOffset, groupName, false);
+    }
+    //endregion
+
+    //region Members
+    /**
+     * Gets the names of all groups in the snapshot.
+     * @return A list of the names of all groups in the snapshot, ordered by name.
+     */
+    public List<String> getGroupNames()
+    {
+        int count = buffer.getInt(groupTableOffset);
+        List<String> result = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++)
+            result.add(readString(buffer.getInt(getGroupRecordAt(i))));
+
+        return result;
+    }
+
+    /**
+     * Gets the number of users in the snapshot.
+     * @return The number of users in the snapshot.
+     */
+    public int getUserCount()
+    { return buffer.getInt(userTableOffset); }
+    //endregion
+    //endregion
+    //endregion
+}
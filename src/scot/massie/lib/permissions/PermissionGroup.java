@@ -7,6 +7,10 @@ import scot.massie.lib.events.InvokableEvent;
 import scot.massie.lib.events.SetEvent;
 import scot.massie.lib.events.args.predefined.ValueReassignedEventArgs;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -550,6 +554,28 @@ public class PermissionGroup
      */
     public List<String> getPermissionsAsStrings(boolean includeArgs)
     { return permissionSet.getPermissionsAsStrings(includeArgs); }
+
+    /**
+     * <p>Gets a hash of the contents of this permission group - its permissions, its priority, and the names of the
+     * groups it references.</p>
+     *
+     * <p>This does not include the name of this permission group, or the contents of any referenced or default groups.
+     * Two permission groups with the same contents have the same hash. See {@link PermissionSet#getContentHash()}.</p>
+     * @return A hash of the contents of this permission group.
+     */
+    public long getContentHash()
+    {
+        long h = permissionSet.getContentHash();
+        h = PermissionSet.mixHash(h + (priorityIsLong ? priorityAsLong : Double.doubleToLongBits(priority)));
+        h = PermissionSet.mixHash(h + (priorityIsLong ? 1 : 2));
+        long referencedGroupsHash = 0;
+
+        // Referenced groups are summed, as the order they're in follows from their priorities.
+        for(PermissionGroup referencedGroup : referencedGroups)
+            referencedGroupsHash += PermissionSet.hashOfString(referencedGroup.name);
+
+        return PermissionSet.mixHash(h + referencedGroupsHash);
+    }
     //endregion
 
     //region State
@@ -771,18 +797,53 @@ public class PermissionGroup
      */
     public String toSaveString()
     {
-        StringBuilder result = new StringBuilder((priority == 0) ? (name) : (name + ": " + getPriorityAsString()));
+        StringWriter writer = new StringWriter();
+
+        try
+        { writeSaveString(writer); }
+        catch(IOException e)
+        { throw new UncheckedIOException("StringWriter threw an IO exception.", e); }
+
+        return writer.toString();
+    }
+
+    /**
+     * <p>Writes the string representation of this permission group, as given by {@link #toSaveString()}, to the given
+     * writer.</p>
+     *
+     * <p>The header, referenced groups, and permissions are written directly to the writer, with the permissions
+     * indented as they're written, without building the string representation first.</p>
+     * @param writer The writer to write to.
+     * @throws IOException If an IO exception is thrown by the given writer.
+     */
+    public void writeSaveString(Writer writer) throws IOException
+    {
+        writer.write(name);
+
+        if(priority != 0)
+        {
+            writer.write(": ");
+            writer.write(getPriorityAsString());
+        }
 
         if(containsOnlyAGroup())
-            return result.append(" #").append(referencedGroups.get(0).getName()).toString();
+        {
+            writer.write(" #");
+            writer.write(referencedGroups.get(0).getName());
+            return;
+        }
 
         for(PermissionGroup permGroup : referencedGroups)
-            result.append("\n    #").append(permGroup.getName());
+        {
+            writer.write("\n    #");
+            writer.write(permGroup.getName());
+        }
 
         if(permissionSet.hasAny())
-            result.append("\n").append(permissionSet.toSaveString().replaceAll("(?m)^(?=.+)", "    "));
-
-        return result.toString();
+        {
+            writer.write('\n');
+            permissionSet.writeSaveString(new IndentingWriter(writer, "    "));
+        }
     }
 
     @Override public String toString()
@@ -7,10 +7,15 @@ import scot.massie.lib.collections.trees.TreeEntry;
 import scot.massie.lib.collections.trees.TreePath;
 import scot.massie.lib.utils.wrappers.MutableWrapper;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -23,6 +28,49 @@ import java.util.stream.Stream;
 public final class PermissionSet
 {
     //region Inner classes
+    /**
+     * <p>Sets permissions in a permission set, from lines of a block of the registry's save string format, one line at
+     * a time.</p>
+     *
+     * <p>Each permission is parsed and set as it would be by {@link #setWhileDeIndenting(String)}. Where consecutive
+     * permissions' paths start with the same nodes, as they do in save strings, where permissions are sorted by path,
+     * the nodes of the previous permission's path are reused rather than being created again for each permission.</p>
+     */
+    public final class BulkSetter
+    {
+        /**
+         * Creates a new bulk setter, setting permissions in the containing permission set.
+         */
+        BulkSetter()
+        { }
+
+        /**
+         * The nodes of the path of the permission last set by this, or an empty array if none have been.
+         */
+        private String[] previousPath = new String[0];
+
+        /**
+         * Parses the provided permission as a string and adds it to the permission set, as described in
+         * {@link PermissionSet#setWhileDeIndenting(String)}.
+         * @param permissionAsString The permission formatted as a string.
+         * @return The permission object previously set at the given path, or null if there was none.
+         * @throws ParseException If the provided string is not parsable as a permission.
+         */
+        public Permission setWhileDeIndenting(String permissionAsString) throws ParseException
+        {
+            Objects.requireNonNull(permissionAsString, "permissionAsString must not be null.");
+            permissionAsString = deIndent(permissionAsString);
+            int colonPosition = permissionAsString.indexOf(':');
+
+            String permWithoutArg = (colonPosition < 0) ? (permissionAsString.trim())
+                                                        : (permissionAsString.substring(0, colonPosition).trim());
+
+            String permArg = (colonPosition < 0) ? (null) : (permissionAsString.substring(colonPosition + 1).trim());
+            Permission perm = createPermissionFromString(permWithoutArg, permArg);
+            return storePermission(perm, permissionAsString, permWithoutArg, this);
+        }
+    }
+
     /**
      * <p>A pairing of a permission with the path leading to that permission.</p>
      *
@@ -86,7 +134,7 @@ public final class PermissionSet
      * <p>Where one path is shorter than another but paths are both the same up to that point, the shorter path is
      * considered to come first.</p>
      */
-    private static final Comparator<List<String>> PATH_COMPARATOR = (a, b) ->
+    static final Comparator<List<String>> PATH_COMPARATOR = (a, b) ->
     {
         for(int i = 0; i < a.size(); i++)
         {
@@ -122,6 +170,15 @@ public final class PermissionSet
      * <p>Permission paths are the paths to the permission in this tree or {@link #exactPermissionTree}.</p>
      */
     final Tree<String, Permission> descendantPermissionTree = new RecursiveTree<>();
+
+    /**
+     * <p>The hash of the permissions directly in this set. See {@link #getContentHash()}.</p>
+     *
+     * <p>This is the sum of the hashes of each permission set directly, (as opposed to those in
+     * {@link #descendantPermissionTree} only as a consequence of permissions in {@link #exactPermissionTree}) so that
+     * it may be updated as permissions are set and removed without regard to the order they were set in.</p>
+     */
+    private long contentHash = 0;
     //endregion
 
     //region Methods
@@ -137,6 +194,79 @@ public final class PermissionSet
     static String[] splitPath(String permissionPath)
     { return permissionPath.split("\\.", -1); }
 
+    /**
+     * Splits a permission path into an array of strings, as {@link #splitPath(String)} does, using the given nodes
+     * rather than new strings for any nodes equal to the node at the same position in the given nodes.
+     * @param permissionPath The path to split.
+     * @param reusableNodes The nodes to reuse where equal, such as those of the previous path split.
+     * @return An array of strings, where each string is a substring of the given path as delimited by full stops, ('.')
+     *         ordered by their order in the given string.
+     */
+    static String[] splitPath(String permissionPath, String[] reusableNodes)
+    {
+        int nodeCount = 1;
+
+        for(int i = permissionPath.indexOf('.'); i >= 0; i = permissionPath.indexOf('.', i + 1))
+            nodeCount++;
+
+        String[] nodes = new String[nodeCount];
+
+        for(int i = 0, nodeStart = 0; i < nodeCount; i++)
+        {
+            int nodeEnd = permissionPath.indexOf('.', nodeStart);
+
+            if(nodeEnd < 0)
+                nodeEnd = permissionPath.length();
+
+            int nodeLength = nodeEnd - nodeStart;
+
+            nodes[i] = (i < reusableNodes.length
+                        && reusableNodes[i].length() == nodeLength
+                        && permissionPath.regionMatches(nodeStart, reusableNodes[i], 0, nodeLength))
+                               ? (reusableNodes[i])
+                               : (permissionPath.substring(nodeStart, nodeEnd));
+
+            nodeStart = nodeEnd + 1;
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Removes four spaces from the start of each line of the given string that starts with four spaces, as replacing
+     * the regex {@code (?m)^ {4}} with an empty string would.
+     * @param s The string to deïndent.
+     * @return The given string, with four spaces removed from the start of each line that starts with them.
+     */
+    static String deIndent(String s)
+    {
+        StringBuilder result = null;
+        int copiedUpTo = 0;
+
+        for(int lineStart = 0; lineStart < s.length(); )
+        {
+            if(s.startsWith("    ", lineStart))
+            {
+                if(result == null)
+                    result = new StringBuilder(s.length());
+
+                result.append(s, copiedUpTo, lineStart);
+                copiedUpTo = lineStart + 4;
+            }
+
+            // Line terminators as recognised by Java's regexes. A "\r\n" pair is skipped over as two terminators, but
+            // the position between them can't start with spaces anyway.
+            int i = lineStart;
+
+            while(i < s.length() && "\n\r\u0085\u2028\u2029".indexOf(s.charAt(i)) < 0)
+                i++;
+
+            lineStart = i + 1;
+        }
+
+        return (result == null) ? (s) : (result.append(s, copiedUpTo, s.length()).toString());
+    }
+
     /**
      * Creates a string representation of a permission and its path, without the permission argument.
      * @param path The permission path.
@@ -178,6 +308,104 @@ public final class PermissionSet
      */
     static String applyPermissionToPathString(String path, Permission perm, boolean includeArg)
     { return includeArg ? applyPermissionToPathString(path, perm) : applyPermissionToPathStringWithoutArg(path, perm); }
+
+    /**
+     * Writes a string representation of a permission and its path, including the argument if applicable, as given by
+     * {@link #applyPermissionToPathString(String, Permission)}, to the given writer.
+     * @param writer The writer to write to.
+     * @param path The permission path, as a list of nodes. An empty list is written as "*".
+     * @param forDescendants Whether or not the permission applies to the descendants of the path, rather than to the
+     *                       path itself. Where it does, the path is followed by ".*".
+     * @param perm The permission.
+     * @throws IOException If an IO exception is thrown by the given writer.
+     */
+    static void writePermissionWithPath(Writer writer, List<String> path, boolean forDescendants, Permission perm)
+            throws IOException
+    {
+        if(perm.negates())
+            writer.write('-');
+
+        if(path.isEmpty())
+            writer.write('*');
+        else
+        {
+            writer.write(path.get(0));
+
+            for(int i = 1; i < path.size(); i++)
+            {
+                writer.write('.');
+                writer.write(path.get(i));
+            }
+        }
+
+        if(forDescendants)
+            writer.write(".*");
+
+        if(perm.hasArg())
+        {
+            String arg = perm.getArg();
+
+            if(arg.indexOf('\n') < 0)
+            {
+                writer.write(": ");
+                writer.write(arg);
+            }
+            else
+            {
+                writer.write(":\n");
+                new IndentingWriter(writer, "    ").write(arg);
+            }
+        }
+    }
+    //endregion
+
+    //region Content hashing
+    /**
+     * Mixes the bits of the given hash, such that similar inputs produce dissimilar outputs.
+     * @param h The hash to mix.
+     * @return The mixed hash.
+     */
+    static long mixHash(long h)
+    {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Gets a 64-bit hash of the given string. Unlike {@link String#hashCode()}, short strings differing only slightly
+     * don't tend to share hashes.
+     * @param s The string to hash.
+     * @return A hash of the given string.
+     */
+    static long hashOfString(String s)
+    {
+        long h = 0xCBF29CE484222325L ^ s.length();
+
+        for(int i = 0; i < s.length(); i++)
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+
+        return mixHash(h);
+    }
+
+    /**
+     * Gets the hash of a permission set directly at a given path, as counted towards the content hash of a permission
+     * set.
+     * @param path The nodes of the path the permission is at.
+     * @param forDescendants Whether the permission is set for the descendants of the path, rather than the path itself.
+     * @param permission The permission at the path.
+     * @return A hash of the permission at the given path.
+     */
+    private static long hashOfPermissionAt(String[] path, boolean forDescendants, Permission permission)
+    {
+        long h = forDescendants ? 0x9E3779B97F4A7C15L : 0x632BE59BD9B4E019L;
+
+        for(String node : path)
+            h = mixHash(h + hashOfString(node));
+
+        h = mixHash(h + (permission.permits ? 1 : 2));
+        return mixHash(h + (permission.argument == null ? 0 : hashOfString(permission.argument)));
+    }
     //endregion
     //endregion
 
@@ -199,6 +427,17 @@ public final class PermissionSet
         return exactPermissionTree                  .isEmpty()
             && descendantPermissionTree             .isEmpty();
     }
+
+    /**
+     * <p>Gets a hash of the permissions in this set, including their arguments.</p>
+     *
+     * <p>Two permission sets containing the same permissions have the same hash, regardless of the order they were set
+     * in. The hash is kept up to date as permissions are set and removed, so getting it doesn't require going through
+     * the permissions.</p>
+     * @return A hash of the contents of this permission set.
+     */
+    public long getContentHash()
+    { return contentHash; }
     //endregion
 
     //region Getters
@@ -626,34 +865,43 @@ public final class PermissionSet
 
     //region Conversion to strings
     /**
-     * <p>Gets a string representation of the permission at the given path.</p>
+     * <p>Writes a string representation of the permission at the given path to the given writer.</p>
      *
-     * <p>Whether the permission at the given path needs to be represented by multiple lines, these will be concatenated
-     * into the result.</p>
-     * @param permPath The path to get a string representation of the permission at.
-     * @return A string representation of the permission at the given path.
+     * <p>Where the permission at the given path needs to be represented by multiple lines, these are separated by a
+     * newline. No newline is written after the last line.</p>
+     * @param writer The writer to write to.
+     * @param permPath The path to write a string representation of the permission at.
+     * @throws IOException If an IO exception is thrown by the given writer.
      */
-    private String getSaveStringForPermission(List<String> permPath)
+    private void writeSaveStringForPermission(Writer writer, List<String> permPath) throws IOException
     {
-        String[] lines = getSaveStringLinesForPermission(permPath);
+        TreePath<String> pPath = new TreePath<>(permPath);
+        Permission forExact = exactPermissionTree.getAtOrNull(pPath);
+        Permission forDescendants = descendantPermissionTree.getAtOrNull(pPath);
 
-        return lines.length == 0 ? ""
-             : lines.length == 1 ? lines[0]
-             :                     lines[0] + "\n" + lines[1];
-    }
+        if(forExact == null)
+        {
+            if(forDescendants != null)
+                writePermissionWithPath(writer, permPath, true, forDescendants);
 
-    /**
-     * <p>Gets a string representation or string representations of the permission at a given path.</p>
-     *
-     * <p>Each member of the returned array is a savestring line. (ignoring the multi-line permission arguments.) Some
-     * permissions may result in multiple lines needing to be used to represent it, such as where a path is allowed,
-     * but anything underneath it (starting with it, but not equal to it) is negated.</p>
-     * @param permPath The path of the permission to get a string representation or string representations of.
-     * @return An array containing one or two strings, which are string representations of the permission at the given
-     *         path.
-     */
-    private String[] getSaveStringLinesForPermission(List<String> permPath)
-    { return getSaveStringLinesForPermission(permPath, true); }
+            return;
+        }
+
+        if(forDescendants == null)
+        {
+            throw new UnsupportedOperationException("Currently no syntax for permissions not including descendants."
+                                                    + "\nPath: " + ((permPath.isEmpty()) ? ("*")
+                                                                                         : (String.join(".", permPath))));
+        }
+
+        writePermissionWithPath(writer, permPath, false, forExact);
+
+        if(!forDescendants.isIndirect())
+        {
+            writer.write('\n');
+            writePermissionWithPath(writer, permPath, true, forDescendants);
+        }
+    }
 
     /**
      * <p>Gets a string representation or string representations of the permission at a given path.</p>
@@ -760,13 +1008,31 @@ public final class PermissionSet
      * @return A string representation of this permission set.
      */
     public String toSaveString()
+    {
+        StringWriter writer = new StringWriter();
+
+        try
+        { writeSaveString(writer); }
+        catch(IOException e)
+        { throw new UncheckedIOException("StringWriter threw an IO exception.", e); }
+
+        return writer.toString();
+    }
+
+    /**
+     * <p>Writes the string representation of this permission set, as given by {@link #toSaveString()}, to the given
+     * writer.</p>
+     *
+     * <p>Each line is written directly to the writer, without building the string representation first.</p>
+     * @param writer The writer to write to.
+     * @throws IOException If an IO exception is thrown by the given writer.
+     */
+    public void writeSaveString(Writer writer) throws IOException
     {
         // TO DO: Rewrite this so the paths of exactPaths and descPaths are concatted together, sorted, then stringified
         //        using which of those two collections they came from. Don't need to worry about distinctness/splitting
         //        them into separate paths as both collections contain only direct permissions.
 
-        StringBuilder sb = new StringBuilder();
-
         Stream<List<String>> exactPaths = exactPermissionTree
                 .getEntries()
                 .stream()
@@ -777,12 +1043,21 @@ public final class PermissionSet
                 .stream()
                 .map(x -> x.getPath().getNodes());
 
-        Stream.concat(exactPaths, descPaths)
-              .distinct()
-              .sorted(PATH_COMPARATOR)
-              .forEachOrdered(path -> sb.append(getSaveStringForPermission(path)).append("\n"));
+        Iterator<List<String>> paths = Stream.concat(exactPaths, descPaths)
+                                             .distinct()
+                                             .sorted(PATH_COMPARATOR)
+                                             .iterator();
+
+        if(!paths.hasNext())
+            return;
+
+        writeSaveStringForPermission(writer, paths.next());
 
-        return sb.length() == 0 ? sb.toString() : sb.substring(0, sb.length() - 1);
+        while(paths.hasNext())
+        {
+            writer.write('\n');
+            writeSaveStringForPermission(writer, paths.next());
+        }
     }
     //endregion
     //endregion
@@ -829,9 +1104,17 @@ public final class PermissionSet
     public Permission setWhileDeIndenting(String permissionAsString) throws ParseException
     {
         Objects.requireNonNull(permissionAsString, "permissionAsString must not be null.");
-        return set(permissionAsString.replaceAll("(?m)^ {4}", ""));
+        return set(deIndent(permissionAsString));
     }
 
+    /**
+     * Gets a new {@link BulkSetter} for setting permissions in this permission set from the lines of a block of the
+     * registry's save string format.
+     * @return A new bulk setter for this permission set.
+     */
+    public BulkSetter newBulkSetter()
+    { return new BulkSetter(); }
+
     /**
      * <p>Creates a permission object from a path, and argument if applicable.</p>
      *
@@ -861,6 +1144,23 @@ public final class PermissionSet
      */
     Permission storePermission(Permission permission, String permissionAsString, String pathAsString)
             throws ParseException
+    { return storePermission(permission, permissionAsString, pathAsString, null); }
+
+    /**
+     * Stores a given permission object in the permission set at the given path.
+     * @param permission The permission to store.
+     * @param permissionAsString The original string representation of the permission being stored.
+     * @param pathAsString The path at which the permission is being stored.
+     * @param bulkSetter The bulk setter storing the permission, whose previous path's nodes may be reused, or null if
+     *                   the permission isn't being stored by a bulk setter.
+     * @return The permission object previously set at the given path, or null if there was none.
+     * @throws ParseException If the provided string is not parsable as a permission.
+     */
+    private Permission storePermission(Permission permission,
+                                       String permissionAsString,
+                                       String pathAsString,
+                                       BulkSetter bulkSetter)
+            throws ParseException
     {
         if(pathAsString.startsWith("-"))
             pathAsString = pathAsString.substring(1);
@@ -870,6 +1170,7 @@ public final class PermissionSet
             Permission oldValue = exactPermissionTree.setRootItem(permission);
             descendantPermissionTree.setRootItemIf(permission.indirectly(),
                                                    (p, perm) -> (perm == null) || (perm.isIndirect()));
+            updateContentHash(new String[0], false, oldValue, permission);
             return oldValue;
         }
 
@@ -895,7 +1196,14 @@ public final class PermissionSet
                 permissionAsString.indexOf("-", permission.negates() ? 1 : 0)
             );
 
-        TreePath<String> path = new TreePath<>(splitPath(pathAsString));
+        String[] nodes;
+
+        if(bulkSetter == null)
+            nodes = splitPath(pathAsString);
+        else
+            nodes = bulkSetter.previousPath = splitPath(pathAsString, bulkSetter.previousPath);
+
+        TreePath<String> path = new TreePath<>(nodes);
         Permission oldValue;
 
         if(!isWildcard)
@@ -906,8 +1214,89 @@ public final class PermissionSet
         else // if isWildcard
             oldValue = descendantPermissionTree.setAt(path, permission);
 
+        updateContentHash(nodes, isWildcard, oldValue, permission);
         return oldValue;
     }
+
+    /**
+     * <p>Sets all permissions set directly in another permission set in this one, as though each were set with
+     * {@link #set(String)}.</p>
+     *
+     * <p>Permission objects are copied from the other permission set's trees into this one's at the same paths,
+     * rather than being converted to strings and parsed back.</p>
+     * @param other The permission set to copy permissions from. This is not modified.
+     */
+    public void setAll(PermissionSet other)
+    {
+        if(other == this)
+            return;
+
+        for(TreeEntry<String, Permission> entry : other.exactPermissionTree.getEntries())
+        {
+            TreePath<String> path = entry.getPath();
+            String[] nodes = path.getNodes().toArray(new String[0]);
+            Permission permission = entry.getItem();
+            Permission oldValue;
+
+            if(nodes.length == 0)
+            {
+                oldValue = exactPermissionTree.setRootItem(permission);
+                descendantPermissionTree.setRootItemIf(permission.indirectly(),
+                                                       (p, perm) -> (perm == null) || (perm.isIndirect()));
+            }
+            else
+            {
+                oldValue = exactPermissionTree.setAt(path, permission);
+                descendantPermissionTree.setAtIf(path, permission.indirectly(),
+                                                 (tp, p) -> (p == null) || (p.isIndirect()));
+            }
+
+            updateContentHash(nodes, false, oldValue, permission);
+        }
+
+        Predicate<TreeEntry<String, Permission>> isSetDirectly = x -> !x.getItem().isIndirect();
+
+        for(TreeEntry<String, Permission> entry : other.descendantPermissionTree.getEntriesWhere(isSetDirectly))
+        {
+            Permission oldValue = descendantPermissionTree.setAt(entry.getPath(), entry.getItem());
+            updateContentHash(entry.getPath().getNodes().toArray(new String[0]), true, oldValue, entry.getItem());
+        }
+    }
+
+    /**
+     * Updates the content hash of this permission set to reflect a permission having been replaced.
+     * @param path The nodes of the path the permission is at.
+     * @param forDescendants Whether the permission is set for the descendants of the path, rather than the path itself.
+     * @param oldPermission The permission previously at the path, or null if there was none.
+     * @param newPermission The permission now at the path, or null if there is none.
+     */
+    private void updateContentHash(String[] path,
+                                   boolean forDescendants,
+                                   Permission oldPermission,
+                                   Permission newPermission)
+    {
+        // Permissions in the descendant tree only as a consequence of permissions in the exact tree aren't counted.
+        if(oldPermission != null && !oldPermission.isIndirect())
+            contentHash -= hashOfPermissionAt(path, forDescendants, oldPermission);
+
+        if(newPermission != null && !newPermission.isIndirect())
+            contentHash += hashOfPermissionAt(path, forDescendants, newPermission);
+    }
+
+    /**
+     * Recalculates the content hash of this permission set from the permissions in its trees, for where permissions
+     * have been stored in the trees directly rather than through this permission set's setters.
+     */
+    void recalculateContentHash()
+    {
+        contentHash = 0;
+
+        for(TreeEntry<String, Permission> entry : exactPermissionTree.getEntries())
+            updateContentHash(entry.getPath().getNodes().toArray(new String[0]), false, null, entry.getItem());
+
+        for(TreeEntry<String, Permission> entry : descendantPermissionTree.getEntries())
+            updateContentHash(entry.getPath().getNodes().toArray(new String[0]), true, null, entry.getItem());
+    }
     //endregion
 
     //region remove
@@ -939,35 +1328,87 @@ public final class PermissionSet
             isForWildcard = true;
         }
 
-        TreePath<String> path = new TreePath<>(splitPath(permissionAsString));
+        String[] nodes = splitPath(permissionAsString);
+        TreePath<String> path = new TreePath<>(nodes);
+        return !isForWildcard ? removeExact(nodes, path) : removeForDescendants(nodes, path);
+    }
 
-        if(!isForWildcard)
-        {
-            Permission permissionThatWasThere = exactPermissionTree.clearAt(path);
+    /**
+     * Removes the permission set for exactly the given path, along with the permission it indirectly sets for the
+     * path's descendants.
+     * @param nodes The nodes of the path.
+     * @param path The path, as a tree path.
+     * @return The permission object that was at the given path in the permission set, or null if there was none.
+     */
+    private Permission removeExact(String[] nodes, TreePath<String> path)
+    {
+        Permission permissionThatWasThere = exactPermissionTree.clearAt(path);
 
-            if(permissionThatWasThere != null)
-            {
-                Permission descendantPerm = descendantPermissionTree.getAtOrNull(path);
+        if(permissionThatWasThere != null)
+        {
+            Permission descendantPerm = descendantPermissionTree.getAtOrNull(path);
 
-                if(descendantPerm != null && descendantPerm.isIndirect())
-                    descendantPermissionTree.clearAt(path);
-            }
+            if(descendantPerm != null && descendantPerm.isIndirect())
+                descendantPermissionTree.clearAt(path);
 
-            return permissionThatWasThere;
+            updateContentHash(nodes, false, permissionThatWasThere, null);
         }
-        else
+
+        return permissionThatWasThere;
+    }
+
+    /**
+     * Removes the permission set directly for the descendants of the given path.
+     * @param nodes The nodes of the path.
+     * @param path The path, as a tree path.
+     * @return The permission object that was set for the descendants of the given path, or null if there was none.
+     */
+    private Permission removeForDescendants(String[] nodes, TreePath<String> path)
+    {
+        MutableWrapper<Boolean> removedFlag = new MutableWrapper<>(false);
+
+        Permission permissionThatWasThere = descendantPermissionTree.clearAtIf(path, (xpath, xperm) ->
         {
-            MutableWrapper<Boolean> removedFlag = new MutableWrapper<>(false);
+            boolean isDirect = !xperm.isIndirect();
+            removedFlag.set(isDirect);
+            return isDirect;
+        });
 
-            Permission permissionThatWasThere = descendantPermissionTree.clearAtIf(path, (xpath, xperm) ->
-            {
-                boolean isDirect = !xperm.isIndirect();
-                removedFlag.set(isDirect);
-                return isDirect;
-            });
+        if(!removedFlag.get())
+            return null;
+
+        updateContentHash(nodes, true, permissionThatWasThere, null);
+        return permissionThatWasThere;
+    }
+
+    /**
+     * <p>Removes from this permission set every permission at a path another permission set has a permission set at
+     * directly, as though each were removed with {@link #remove(String)}.</p>
+     *
+     * <p>The paths are taken from the other permission set's trees, rather than permissions being converted to strings
+     * and parsed back.</p>
+     * @param other The permission set whose permissions' paths should be removed from this one. This is not modified.
+     */
+    public void removeAll(PermissionSet other)
+    {
+        // Copied, in case the other permission set is this one.
+        List<TreeEntry<String, Permission>> exactEntries = new ArrayList<>(other.exactPermissionTree.getEntries());
+        List<TreeEntry<String, Permission>> descendantEntries
+                = new ArrayList<>(other.descendantPermissionTree.getEntriesWhere(x -> !x.getItem().isIndirect()));
 
-            return removedFlag.get() ? permissionThatWasThere : null;
+        for(TreeEntry<String, Permission> entry : exactEntries)
+        {
+            TreePath<String> path = entry.getPath();
+            String[] nodes = path.getNodes().toArray(new String[0]);
+
+            if(nodes.length == 0)
+                remove("*");
+            else
+                removeExact(nodes, path);
         }
+
+        for(TreeEntry<String, Permission> entry : descendantEntries)
+            removeForDescendants(entry.getPath().getNodes().toArray(new String[0]), entry.getPath());
     }
     //endregion
 
@@ -979,6 +1420,7 @@ public final class PermissionSet
     {
         exactPermissionTree.clear();
         descendantPermissionTree.clear();
+        contentHash = 0;
     }
     //endregion
     //endregion
@@ -9,6 +9,8 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -1468,6 +1470,26 @@ public interface PermissionsRegistry<ID extends Comparable<? super ID>>
      */
     void prune(Collection<String> groupNames);
     //endregion
+
+    //region Batches
+    /**
+     * <p>Performs a number of operations on this registry as a single batch.</p>
+     *
+     * <p>The provided transaction is passed a registry to perform its operations through. The batch is applied
+     * atomically - where the transaction throws an exception, any changes it made to the registry are rolled back and
+     * the exception is rethrown.</p>
+     *
+     * <p>Where this registry is decorated with additional behaviour - e.g. locking, caching, or events - that behaviour
+     * is applied once for the batch as a whole rather than once for each operation in it. e.g. the lock is acquired
+     * once, the cache is invalidated once, and one event is fired.</p>
+     *
+     * <p>Batches may be nested - a batch started within another batch is considered part of the outer batch.</p>
+     * @apiNote Operations in the transaction should be performed through the registry passed into it, not through this
+     *          registry directly.
+     * @param transaction The operations to perform as a single batch.
+     */
+    void batch(Consumer<PermissionsRegistry<ID>> transaction);
+    //endregion
     //endregion
 
     //region Saving & loading
@@ -1494,6 +1516,22 @@ public interface PermissionsRegistry<ID extends Comparable<? super ID>>
      * @throws IOException If an IO exception is thrown in the process of writing the save files.
      */
     void save() throws IOException;
+
+    /**
+     * <p>Saves the contents of this registry to the files specified, writing the files on a background thread.</p>
+     *
+     * <p>The contents saved are those of the registry at the time this is called. Writing the files does not prevent
+     * the registry from being accessed or modified.</p>
+     *
+     * <p>Files are written to temporary files first, then moved into place, so that the save files are never left
+     * partly written. Where this is called again while files are still being written, the files are written again
+     * once the current write finishes, with the contents as of the most recent call - multiple calls made during a
+     * write result in only one further write.</p>
+     * @apiNote Does nothing if no users or groups files have been provided to the registry.
+     * @return A future that completes once the contents of the registry as of this call have been written, or that
+     *         completes exceptionally with the IO exception thrown in the process of writing the save files.
+     */
+    CompletableFuture<Void> saveInBackground();
     //endregion
 
     //region Loading
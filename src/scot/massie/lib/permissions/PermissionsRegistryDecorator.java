@@ -9,6 +9,8 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -593,6 +595,10 @@ public class PermissionsRegistryDecorator<ID extends Comparable<? super ID>> imp
     public void prune(Collection<String> groupNames)
     { inner.prune(groupNames); }
 
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    { inner.batch(transaction); }
+
     @Override
     public String usersToSaveString()
     { return inner.usersToSaveString(); }
@@ -605,6 +611,10 @@ public class PermissionsRegistryDecorator<ID extends Comparable<? super ID>> imp
     public void save() throws IOException
     { inner.save(); }
 
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    { return inner.saveInBackground(); }
+
     @Override
     public void loadUsersFromSaveString(String saveString) throws IOException
     { inner.loadUsersFromSaveString(saveString); }
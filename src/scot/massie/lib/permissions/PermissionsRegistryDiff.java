@@ -0,0 +1,159 @@
+package scot.massie.lib.permissions;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * <p>The differences between the contents of two permissions registries, as found by
+ * {@link GroupMapPermissionsRegistry#diff(PermissionsRegistry)}.</p>
+ *
+ * <p>Differences are described as going from the registry the diff was gotten from to the other registry - users and
+ * groups "added" are those only in the other registry, and users and groups "removed" are those only in the registry
+ * the diff was gotten from.</p>
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public final class PermissionsRegistryDiff<ID extends Comparable<? super ID>>
+{
+    //region Instance fields
+    /**
+     * The IDs of users only in the other registry.
+     */
+    private final Set<ID> usersAdded;
+
+    /**
+     * The IDs of users only in the registry the diff was gotten from.
+     */
+    private final Set<ID> usersRemoved;
+
+    /**
+     * The IDs of users in both registries, with different permissions or groups.
+     */
+    private final Set<ID> usersChanged;
+
+    /**
+     * The names of groups only in the other registry.
+     */
+    private final Set<String> groupsAdded;
+
+    /**
+     * The names of groups only in the registry the diff was gotten from.
+     */
+    private final Set<String> groupsRemoved;
+
+    /**
+     * The names of groups in both registries, with different permissions, groups, or priorities.
+     */
+    private final Set<String> groupsChanged;
+
+    /**
+     * Whether or not the default permissions differ between the registries.
+     */
+    private final boolean defaultsChanged;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new registry diff.
+     * @param usersAdded The IDs of users only in the other registry.
+     * @param usersRemoved The IDs of users only in the registry the diff was gotten from.
+     * @param usersChanged The IDs of users in both registries, with different permissions or groups.
+     * @param groupsAdded The names of groups only in the other registry.
+     * @param groupsRemoved The names of groups only in the registry the diff was gotten from.
+     * @param groupsChanged The names of groups in both registries, with different permissions, groups, or priorities.
+     * @param defaultsChanged Whether or not the default permissions differ between the registries.
+     */
+    PermissionsRegistryDiff(Set<ID> usersAdded,
+                            Set<ID> usersRemoved,
+                            Set<ID> usersChanged,
+                            Set<String> groupsAdded,
+                            Set<String> groupsRemoved,
+                            Set<String> groupsChanged,
+                            boolean defaultsChanged)
+    {
+        this.usersAdded = Collections.unmodifiableSet(usersAdded);
+        this.usersRemoved = Collections.unmodifiableSet(usersRemoved);
+        this.usersChanged = Collections.unmodifiableSet(usersChanged);
+        this.groupsAdded = Collections.unmodifiableSet(groupsAdded);
+        this.groupsRemoved = Collections.unmodifiableSet(groupsRemoved);
+        this.groupsChanged = Collections.unmodifiableSet(groupsChanged);
+        this.defaultsChanged = defaultsChanged;
+    }
+    //endregion
+
+    //region Methods
+    /**
+     * Gets whether or not the registries had the same contents.
+     * @return True if no users, groups, or default permissions differ between the registries. Otherwise, false.
+     */
+    public boolean isEmpty()
+    {
+        return usersAdded.isEmpty() && usersRemoved.isEmpty() && usersChanged.isEmpty()
+            && groupsAdded.isEmpty() && groupsRemoved.isEmpty() && groupsChanged.isEmpty()
+            && !defaultsChanged;
+    }
+
+    /**
+     * Gets the IDs of users only in the other registry.
+     * @return An unmodifiable set of the IDs of users in the other registry but not the one the diff was gotten from.
+     */
+    public Set<ID> getUsersAdded()
+    { return usersAdded; }
+
+    /**
+     * Gets the IDs of users only in the registry the diff was gotten from.
+     * @return An unmodifiable set of the IDs of users in the registry the diff was gotten from but not the other one.
+     */
+    public Set<ID> getUsersRemoved()
+    { return usersRemoved; }
+
+    /**
+     * Gets the IDs of users in both registries, whose permissions or groups differ between them.
+     * @return An unmodifiable set of the IDs of users in both registries, with different contents in each.
+     */
+    public Set<ID> getUsersChanged()
+    { return usersChanged; }
+
+    /**
+     * Gets the names of groups only in the other registry.
+     * @return An unmodifiable set of the names of groups in the other registry but not the one the diff was gotten
+     *         from.
+     */
+    public Set<String> getGroupsAdded()
+    { return groupsAdded; }
+
+    /**
+     * Gets the names of groups only in the registry the diff was gotten from.
+     * @return An unmodifiable set of the names of groups in the registry the diff was gotten from but not the other
+     *         one.
+     */
+    public Set<String> getGroupsRemoved()
+    { return groupsRemoved; }
+
+    /**
+     * Gets the names of groups in both registries, whose permissions, groups, or priorities differ between them.
+     * @return An unmodifiable set of the names of groups in both registries, with different contents in each.
+     */
+    public Set<String> getGroupsChanged()
+    { return groupsChanged; }
+
+    /**
+     * Gets whether or not the default permissions differ between the registries.
+     * @return True if the default permissions or the groups they reference differ between the registries. Otherwise,
+     *         false.
+     */
+    public boolean haveDefaultsChanged()
+    { return defaultsChanged; }
+
+    @Override
+    public String toString()
+    {
+        return "users added: "        + usersAdded
+             + ", users removed: "    + usersRemoved
+             + ", users changed: "    + usersChanged
+             + ", groups added: "     + groupsAdded
+             + ", groups removed: "   + groupsRemoved
+             + ", groups changed: "   + groupsChanged
+             + ", defaults changed: " + defaultsChanged;
+    }
+    //endregion
+}
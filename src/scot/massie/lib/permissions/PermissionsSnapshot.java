@@ -0,0 +1,526 @@
+package scot.massie.lib.permissions;
+
+import scot.massie.lib.collections.trees.Tree;
+import scot.massie.lib.collections.trees.TreeEntry;
+import scot.massie.lib.collections.trees.TreePath;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Reads and writes the contents of a permissions registry in a compact binary format, which may be read much faster
+ * than the registry's text save format, as no permission needs to be parsed.</p>
+ *
+ * <p>The format consists of:</p>
+ * <ul>
+ *     <li><p>A header, consisting of {@link #magicNumber} and {@link #formatVersion}.</p></li>
+ *     <li><p>A dictionary of names, being every permission path segment, group name, and user ID as a string, each
+ *     written once. Everywhere else in the format, these are referred to by their index in the dictionary.</p></li>
+ *     <li><p>A dictionary of permission arguments, written and referred to in the same way.</p></li>
+ *     <li><p>The groups, each consisting of its name, its priority, and its permissions.</p></li>
+ *     <li><p>The default permissions.</p></li>
+ *     <li><p>The groups referenced by each group and by the default permissions, as lists of indices into the groups
+ *     as written.</p></li>
+ *     <li><p>The users, each consisting of their ID as a string, their permissions, and the groups they reference.</p>
+ *     </li>
+ * </ul>
+ *
+ * <p>Permissions are written as the entries of the trees of a {@link PermissionSet}, in the order the tree would be
+ * walked in. Each entry's path is written as the number of segments it shares with the previous entry's path,
+ * followed by only the segments that differ.</p>
+ *
+ * <p>Integers other than those in the header are written as variable-length integers, using seven bits per byte, with
+ * the highest bit set on all bytes but the last.</p>
+ */
+final class PermissionsSnapshot
+{
+    //region Constants
+    /**
+     * The number every snapshot starts with, being "PRMS" in ASCII.
+     */
+    static final int magicNumber = 0x50524D53;
+
+    /**
+     * The version of the format written.
+     */
+    static final int formatVersion = 1;
+
+    /**
+     * Flag indicating that a permission permits, rather than negates.
+     */
+    private static final int permitsFlag = 1;
+
+    /**
+     * Flag indicating that a permission is indirect.
+     */
+    private static final int indirectFlag = 2;
+
+    /**
+     * Flag indicating that a permission has an argument, which follows the flags.
+     */
+    private static final int hasArgFlag = 4;
+    //endregion
+
+    private PermissionsSnapshot()
+    { }
+
+    //region Methods
+    //region Writing
+    /**
+     * Writes a snapshot of the given permission groups to the given stream.
+     * @param outputStream The stream to write to. This is not closed.
+     * @param defaultPermissions The default permissions.
+     * @param groups The permission groups of the groups.
+     * @param users The permission groups of the users, named as their user IDs as strings.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    static void write(OutputStream outputStream,
+                      PermissionGroup defaultPermissions,
+                      Collection<PermissionGroup> groups,
+                      Collection<PermissionGroup> users)
+            throws IOException
+    {
+        List<PermissionGroup> sortedGroups = sortedByName(groups);
+        List<PermissionGroup> sortedUsers = sortedByName(users);
+        Map<String, Integer> names = new LinkedHashMap<>();
+        Map<String, Integer> args = new LinkedHashMap<>();
+        Map<PermissionGroup, Integer> groupIndices = new HashMap<>();
+
+        for(PermissionGroup group : sortedGroups)
+        {
+            groupIndices.put(group, groupIndices.size());
+            names.putIfAbsent(group.getName(), names.size());
+            addToDictionaries(group.permissionSet, names, args);
+        }
+
+        addToDictionaries(defaultPermissions.permissionSet, names, args);
+
+        for(PermissionGroup user : sortedUsers)
+        {
+            names.putIfAbsent(user.getName(), names.size());
+            addToDictionaries(user.permissionSet, names, args);
+        }
+
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(magicNumber);
+        out.writeInt(formatVersion);
+        writeDictionary(out, names);
+        writeDictionary(out, args);
+        writeVarInt(out, sortedGroups.size());
+
+        for(PermissionGroup group : sortedGroups)
+        {
+            writeVarInt(out, names.get(group.getName()));
+            PermissionGroup.Priority priority = group.getPriorityAsObject();
+            out.writeBoolean(priority.isLong());
+
+            if(priority.isLong())
+                out.writeLong(priority.asLong());
+            else
+                out.writeDouble(priority.asDouble());
+
+            writePermissionSet(out, group.permissionSet, names, args);
+        }
+
+        writePermissionSet(out, defaultPermissions.permissionSet, names, args);
+
+        for(PermissionGroup group : sortedGroups)
+            writeReferencedGroups(out, group, groupIndices);
+
+        writeReferencedGroups(out, defaultPermissions, groupIndices);
+        writeVarInt(out, sortedUsers.size());
+
+        for(PermissionGroup user : sortedUsers)
+        {
+            writeVarInt(out, names.get(user.getName()));
+            writePermissionSet(out, user.permissionSet, names, args);
+            writeReferencedGroups(out, user, groupIndices);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Gets the given permission groups, sorted by name.
+     * @param permissionGroups The permission groups to sort.
+     * @return A new list containing the given permission groups, sorted by name.
+     */
+    private static List<PermissionGroup> sortedByName(Collection<PermissionGroup> permissionGroups)
+    {
+        return permissionGroups.stream()
+                               .sorted(Comparator.comparing(PermissionGroup::getName))
+                               .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the entries of the given permission tree, in the order the tree would be walked in.
+     * @param tree The tree to get the entries of.
+     * @return A list of the entries of the given tree, ordered by path.
+     */
+    private static List<TreeEntry<String, Permission>> getOrderedEntries(Tree<String, Permission> tree)
+    {
+        List<TreeEntry<String, Permission>> entries = new ArrayList<>(tree.getEntries());
+        entries.sort((a, b) -> PermissionSet.PATH_COMPARATOR.compare(a.getPath().getNodes(), b.getPath().getNodes()));
+        return entries;
+    }
+
+    /**
+     * Adds the path segments and arguments of the permissions in the given permission set to the given dictionaries.
+     * @param permissionSet The permission set to add the contents of.
+     * @param names The dictionary of names.
+     * @param args The dictionary of permission arguments.
+     */
+    private static void addToDictionaries(PermissionSet permissionSet,
+                                          Map<String, Integer> names,
+                                          Map<String, Integer> args)
+    {
+        for(Tree<String, Permission> tree : getTrees(permissionSet))
+        {
+            for(TreeEntry<String, Permission> entry : tree.getEntries())
+            {
+                for(String node : entry.getPath().getNodes())
+                    names.putIfAbsent(node, names.size());
+
+                if(entry.getItem().hasArg())
+                    args.putIfAbsent(entry.getItem().getArg(), args.size());
+            }
+        }
+    }
+
+    /**
+     * Gets the trees of the given permission set, in the order they're written in.
+     * @param permissionSet The permission set to get the trees of.
+     * @return A list of the trees of the given permission set.
+     */
+    private static List<Tree<String, Permission>> getTrees(PermissionSet permissionSet)
+    {
+        List<Tree<String, Permission>> trees = new ArrayList<>(2);
+        trees.add(permissionSet.exactPermissionTree);
+        trees.add(permissionSet.descendantPermissionTree);
+        return trees;
+    }
+
+    /**
+     * Writes a dictionary, as the number of strings in it followed by each string in order of index.
+     * @param out The stream to write to.
+     * @param dictionary The dictionary to write, mapping strings to their indices.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    private static void writeDictionary(DataOutputStream out, Map<String, Integer> dictionary) throws IOException
+    {
+        writeVarInt(out, dictionary.size());
+
+        for(String s : dictionary.keySet())
+        {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes the permissions of a permission set, as each of its trees.
+     * @param out The stream to write to.
+     * @param permissionSet The permission set to write.
+     * @param names The dictionary of names.
+     * @param args The dictionary of permission arguments.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    private static void writePermissionSet(DataOutputStream out,
+                                           PermissionSet permissionSet,
+                                           Map<String, Integer> names,
+                                           Map<String, Integer> args)
+            throws IOException
+    {
+        for(Tree<String, Permission> tree : getTrees(permissionSet))
+        {
+            List<TreeEntry<String, Permission>> entries = getOrderedEntries(tree);
+            List<String> previousPath = new ArrayList<>();
+            writeVarInt(out, entries.size());
+
+            for(TreeEntry<String, Permission> entry : entries)
+            {
+                List<String> path = entry.getPath().getNodes();
+                int sharedSegments = 0;
+
+                while(sharedSegments < path.size()
+                      && sharedSegments < previousPath.size()
+                      && path.get(sharedSegments).equals(previousPath.get(sharedSegments)))
+                { sharedSegments++; }
+
+                writeVarInt(out, sharedSegments);
+                writeVarInt(out, path.size() - sharedSegments);
+
+                for(int i = sharedSegments; i < path.size(); i++)
+                    writeVarInt(out, names.get(path.get(i)));
+
+                Permission permission = entry.getItem();
+                int flags = (permission.permits()    ? permitsFlag  : 0)
+                          | (permission.isIndirect() ? indirectFlag : 0)
+                          | (permission.hasArg()     ? hasArgFlag   : 0);
+
+                out.writeByte(flags);
+
+                if(permission.hasArg())
+                    writeVarInt(out, args.get(permission.getArg()));
+
+                previousPath = path;
+            }
+        }
+    }
+
+    /**
+     * Writes the groups referenced by a permission group, as the number of groups followed by each group's index.
+     * @param out The stream to write to.
+     * @param permissionGroup The permission group to write the referenced groups of.
+     * @param groupIndices The indices of the groups as written.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    private static void writeReferencedGroups(DataOutputStream out,
+                                              PermissionGroup permissionGroup,
+                                              Map<PermissionGroup, Integer> groupIndices)
+            throws IOException
+    {
+        List<PermissionGroup> referencedGroups = permissionGroup.referencedGroups;
+        writeVarInt(out, referencedGroups.size());
+
+        for(PermissionGroup referencedGroup : referencedGroups)
+        {
+            Integer index = groupIndices.get(referencedGroup);
+
+            if(index == null)
+                throw new IllegalStateException("Group referenced that isn't in the registry: "
+                                                + referencedGroup.getName());
+
+            writeVarInt(out, index);
+        }
+    }
+
+    /**
+     * Writes a non-negative integer as a variable-length integer.
+     * @param out The stream to write to.
+     * @param value The integer to write.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException
+    {
+        while((value & ~0x7F) != 0)
+        {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+    //endregion
+
+    //region Reading
+    /**
+     * Reads a snapshot from the given stream, creating the groups and users it contains and adding their permissions
+     * and referenced groups to them.
+     * @param inputStream The stream to read from. This is not closed.
+     * @param defaultPermissions The default permissions to add the default permissions read to.
+     * @param getGroup Function for getting the permission group of a group with the given name and priority, creating
+     *                 it if it doesn't exist.
+     * @param getUser Function for getting the permission group of a user with the given ID as a string, creating it if
+     *                it doesn't exist.
+     * @throws IOException If an IO exception was thrown by the given stream, or if the stream does not contain a
+     *                     snapshot in a supported format.
+     */
+    static void read(InputStream inputStream,
+                     PermissionGroup defaultPermissions,
+                     BiFunction<String, PermissionGroup.Priority, PermissionGroup> getGroup,
+                     Function<String, PermissionGroup> getUser)
+            throws IOException
+    {
+        DataInputStream in = new DataInputStream(inputStream);
+
+        if(in.readInt() != magicNumber)
+            throw new IOException("Not a permissions snapshot.");
+
+        int version = in.readInt();
+
+        if(version != formatVersion)
+            throw new IOException("Unsupported permissions snapshot version: " + version);
+
+        String[] names = readDictionary(in);
+        String[] args = readDictionary(in);
+        PermissionGroup[] groups = new PermissionGroup[readVarInt(in)];
+
+        for(int i = 0; i < groups.length; i++)
+        {
+            String name = names[readIndex(in, names.length)];
+            boolean priorityIsLong = in.readBoolean();
+            PermissionGroup.Priority priority;
+
+            if(priorityIsLong)
+            {
+                long asLong = in.readLong();
+                priority = new PermissionGroup.Priority(asLong, asLong, true);
+            }
+            else
+            {
+                double asDouble = in.readDouble();
+                priority = new PermissionGroup.Priority(asDouble, (long)asDouble, false);
+            }
+
+            groups[i] = getGroup.apply(name, priority);
+            readPermissionSet(in, groups[i].permissionSet, names, args);
+        }
+
+        readPermissionSet(in, defaultPermissions.permissionSet, names, args);
+
+        for(PermissionGroup group : groups)
+            readReferencedGroups(in, group, groups);
+
+        readReferencedGroups(in, defaultPermissions, groups);
+
+        for(int i = 0, userCount = readVarInt(in); i < userCount; i++)
+        {
+            PermissionGroup user = getUser.apply(names[readIndex(in, names.length)]);
+            readPermissionSet(in, user.permissionSet, names, args);
+            readReferencedGroups(in, user, groups);
+        }
+    }
+
+    /**
+     * Reads a dictionary written by {@link #writeDictionary(DataOutputStream, Map)}.
+     * @param in The stream to read from.
+     * @return An array of the strings in the dictionary, in order of index.
+     * @throws IOException If an IO exception was thrown by the given stream.
+     */
+    private static String[] readDictionary(DataInputStream in) throws IOException
+    {
+        String[] dictionary = new String[readVarInt(in)];
+        byte[] buffer = new byte[64];
+
+        for(int i = 0; i < dictionary.length; i++)
+        {
+            int length = readVarInt(in);
+
+            if(buffer.length < length)
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+
+            in.readFully(buffer, 0, length);
+            dictionary[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * Reads the permissions of a permission set written by
+     * {@link #writePermissionSet(DataOutputStream, PermissionSet, Map, Map)} into the given permission set.
+     * @param in The stream to read from.
+     * @param permissionSet The permission set to add the permissions read to.
+     * @param names The dictionary of names.
+     * @param args The dictionary of permission arguments.
+     * @throws IOException If an IO exception was thrown by the given stream, or if the permissions are malformed.
+     */
+    private static void readPermissionSet(DataInputStream in,
+                                          PermissionSet permissionSet,
+                                          String[] names,
+                                          String[] args)
+            throws IOException
+    {
+        for(Tree<String, Permission> tree : getTrees(permissionSet))
+        {
+            List<String> path = new ArrayList<>();
+
+            for(int i = 0, entryCount = readVarInt(in); i < entryCount; i++)
+            {
+                int sharedSegments = readVarInt(in);
+
+                if(sharedSegments > path.size())
+                    throw new IOException("Malformed permissions snapshot: invalid path.");
+
+                path.subList(sharedSegments, path.size()).clear();
+
+                for(int j = 0, newSegments = readVarInt(in); j < newSegments; j++)
+                    path.add(names[readIndex(in, names.length)]);
+
+                int flags = in.readUnsignedByte();
+                String arg = (flags & hasArgFlag) != 0 ? args[readIndex(in, args.length)] : null;
+
+                Permission permission = new Permission((flags & permitsFlag) != 0, arg, (flags & indirectFlag) != 0);
+
+                if(path.isEmpty())
+                    tree.setRootItem(permission);
+                else
+                    tree.setAt(new TreePath<>(path), permission);
+            }
+        }
+
+        permissionSet.recalculateContentHash();
+    }
+
+    /**
+     * Reads the groups referenced by a permission group written by
+     * {@link #writeReferencedGroups(DataOutputStream, PermissionGroup, Map)}, and adds them to the permission group.
+     * @param in The stream to read from.
+     * @param permissionGroup The permission group to add the referenced groups to.
+     * @param groups The groups read, in the order they were written.
+     * @throws IOException If an IO exception was thrown by the given stream, or if the group indices are malformed.
+     */
+    private static void readReferencedGroups(DataInputStream in, PermissionGroup permissionGroup, PermissionGroup[] groups)
+            throws IOException
+    {
+        for(int i = 0, groupCount = readVarInt(in); i < groupCount; i++)
+            permissionGroup.addPermissionGroup(groups[readIndex(in, groups.length)]);
+    }
+
+    /**
+     * Reads an index into an array of the given length.
+     * @param in The stream to read from.
+     * @param length The length of the array the index is into.
+     * @return The index read.
+     * @throws IOException If an IO exception was thrown by the given stream, or if the index is out of bounds.
+     */
+    private static int readIndex(DataInputStream in, int length) throws IOException
+    {
+        int index = readVarInt(in);
+
+        if(index >= length)
+            throw new IOException("Malformed permissions snapshot: index " + index + " out of bounds.");
+
+        return index;
+    }
+
+    /**
+     * Reads a variable-length integer written by {@link #writeVarInt(DataOutputStream, int)}.
+     * @param in The stream to read from.
+     * @return The integer read.
+     * @throws IOException If an IO exception was thrown by the given stream, or if the integer is malformed.
+     */
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        int result = 0;
+
+        for(int shift = 0; shift < 32; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+
+            if((b & 0x80) == 0)
+                return result;
+        }
+
+        throw new IOException("Malformed permissions snapshot: invalid integer.");
+    }
+    //endregion
+    //endregion
+}
@@ -0,0 +1,271 @@
+package scot.massie.lib.permissions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link JournalingPermissionsRegistry} that follows a {@link ReplicatingPermissionsRegistry}, applying the
+ * modifications made to it as they're received over a {@link ReplicationChannel}.</p>
+ *
+ * <p>Messages from the leader are applied in order of their sequence numbers, each as a single batch. Where a message
+ * is received out of order, or from a leader other than the one last followed, the follower requests to catch up, and
+ * ignores further messages until it receives the messages it missed or a snapshot of the leader's contents.</p>
+ *
+ * <p>Where a journal file is given, the modifications applied are recorded to it, as with any journaling registry.</p>
+ * @apiNote Messages are applied on the thread they're received on, while synchronised on the registry. Where the
+ *          registry is also accessed from other threads, it should be synchronised on, such as by accessing it through
+ *          a {@link scot.massie.lib.permissions.decorators.ThreadsafePermissionsRegistry}.
+ * @apiNote Modifications may still be made to the follower directly, but are not replicated to the leader, and are
+ *          overwritten where the follower catches up from a snapshot.
+ * @see ReplicatingPermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class ReplicaPermissionsRegistry<ID extends Comparable<? super ID>> extends JournalingPermissionsRegistry<ID>
+{
+    //region Instance fields
+    /**
+     * Lock held while applying messages from the leader, and while accessing the follower's position in the leader's
+     * sequence of messages.
+     */
+    private final Object replicationLock = new Object();
+
+    /**
+     * This registry's end of the channel to the leader being followed. Null where no leader is being followed.
+     */
+    private ReplicationChannel channel = null;
+
+    /**
+     * The ID of the leader the last message applied was from. 0 where no messages have been applied.
+     */
+    private long leaderId = 0;
+
+    /**
+     * The sequence number of the last message applied.
+     */
+    private long lastAppliedSequenceNumber = 0;
+
+    /**
+     * Whether or not a request to catch up has been sent, and not yet answered by a message that could be applied.
+     */
+    private boolean awaitingCatchUp = false;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new replica permissions registry.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param journalFile The filepath of the journal modifications are recorded to. If null, modifications are not
+     *                    recorded.
+     */
+    public ReplicaPermissionsRegistry(Function<ID, String> idToString,
+                                      Function<String, ID> idFromString,
+                                      Path usersFile,
+                                      Path groupsFile,
+                                      Path journalFile)
+    { super(idToString, idFromString, usersFile, groupsFile, journalFile); }
+
+    /**
+     * Creates a new replica permissions registry without any save files or journal.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    public ReplicaPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
+    { super(idToString, idFromString, null, null, null, 0, 0); }
+    //endregion
+
+    //region Methods
+    //region Following
+    /**
+     * Starts following the leader at the other end of the given channel, requesting to catch up with it. Where another
+     * leader was being followed, it stops being followed.
+     * @param channel This registry's end of the channel to the leader.
+     * @throws IOException If the request to catch up could not be sent.
+     */
+    public void follow(ReplicationChannel channel) throws IOException
+    {
+        stopFollowing();
+
+        synchronized(replicationLock)
+        { this.channel = channel; }
+
+        channel.setReceiver(this::receiveFromLeader);
+        requestCatchUp();
+    }
+
+    /**
+     * Stops following the leader currently being followed. The channel to it is not closed. Does nothing if no leader
+     * is being followed.
+     */
+    public void stopFollowing()
+    {
+        ReplicationChannel oldChannel;
+
+        synchronized(replicationLock)
+        {
+            oldChannel = channel;
+            channel = null;
+        }
+
+        if(oldChannel != null)
+            oldChannel.setReceiver(null);
+    }
+
+    /**
+     * Requests the messages the leader has sent since the last message applied, or a snapshot of its contents where
+     * it no longer has them. Messages received from the leader are ignored until one that can be applied is received.
+     * @throws IOException If the request could not be sent.
+     * @throws IllegalStateException If no leader is being followed.
+     */
+    public void requestCatchUp() throws IOException
+    {
+        ReplicationChannel currentChannel;
+        ReplicationMessage request;
+
+        synchronized(replicationLock)
+        {
+            if(channel == null)
+                throw new IllegalStateException("No leader is being followed.");
+
+            currentChannel = channel;
+            awaitingCatchUp = true;
+            request = new ReplicationMessage(ReplicationMessage.Type.CATCH_UP_REQUEST,
+                                             leaderId,
+                                             lastAppliedSequenceNumber,
+                                             "");
+        }
+
+        currentChannel.send(request);
+    }
+
+    /**
+     * Gets the ID of the leader the last message applied was from.
+     * @return The ID of the leader last followed, or 0 where no messages have been applied.
+     */
+    public long getLeaderId()
+    {
+        synchronized(replicationLock)
+        { return leaderId; }
+    }
+
+    /**
+     * Gets the sequence number of the last message applied.
+     * @return The sequence number of the last message from the leader applied to this registry, or 0 where no messages
+     *         have been applied.
+     */
+    public long getLastAppliedSequenceNumber()
+    {
+        synchronized(replicationLock)
+        { return lastAppliedSequenceNumber; }
+    }
+    //endregion
+
+    //region Applying
+    /**
+     * Handles a message received from the leader, applying it where it's the next message in sequence or a snapshot,
+     * and requesting to catch up where messages have been missed or a message could not be applied.
+     * @param message The message received.
+     */
+    private void receiveFromLeader(ReplicationMessage message)
+    {
+        boolean shouldCatchUp = false;
+
+        synchronized(this)
+        {
+            synchronized(replicationLock)
+            {
+                boolean fromCurrentLeader = message.getLeaderId() == leaderId;
+                long sequenceNumber = message.getSequenceNumber();
+
+                switch(message.getType())
+                {
+                    case MODIFICATIONS:
+                    {
+                        if(fromCurrentLeader && sequenceNumber <= lastAppliedSequenceNumber)
+                            return;
+
+                        if(!fromCurrentLeader || sequenceNumber != lastAppliedSequenceNumber + 1)
+                        {
+                            shouldCatchUp = !awaitingCatchUp;
+                            break;
+                        }
+
+                        shouldCatchUp = !tryApply(message);
+                        break;
+                    }
+                    case SNAPSHOT:
+                    {
+                        if(fromCurrentLeader && sequenceNumber <= lastAppliedSequenceNumber)
+                            return;
+
+                        // A snapshot answering a request to catch up isn't requested again where it can't be applied,
+                        // as it would likely fail again. The next message from the leader prompts another request.
+                        boolean answersCatchUp = awaitingCatchUp;
+                        shouldCatchUp = !tryApply(message) && !answersCatchUp;
+                        break;
+                    }
+                    default:
+                        return;
+                }
+            }
+        }
+
+        if(shouldCatchUp)
+        {
+            try
+            { requestCatchUp(); }
+            catch(IOException | IllegalStateException e)
+            { onApplyFailed(message, e); }
+        }
+    }
+
+    /**
+     * Applies a message from the leader as a single batch, updating this registry's position in the leader's sequence
+     * of messages. Where the message could not be applied, this registry's position is forgotten, such that it next
+     * catches up from a snapshot.
+     * @apiNote Must be called while synchronised on {@link #replicationLock}.
+     * @param message The message to apply.
+     * @return True if the message was applied. Otherwise, false.
+     */
+    private boolean tryApply(ReplicationMessage message)
+    {
+        try
+        {
+            batch(reg ->
+            {
+                try
+                { replayRecords(message.getRecords()); }
+                catch(IOException e)
+                { throw new UncheckedIOException(e); }
+            });
+        }
+        catch(RuntimeException e)
+        {
+            leaderId = 0;
+            lastAppliedSequenceNumber = 0;
+            awaitingCatchUp = false;
+            onApplyFailed(message, e);
+            return false;
+        }
+
+        leaderId = message.getLeaderId();
+        lastAppliedSequenceNumber = message.getSequenceNumber();
+        awaitingCatchUp = false;
+        return true;
+    }
+
+    /**
+     * Called where a message from the leader could not be applied, or where a request to catch up could not be sent.
+     * @apiNote Does nothing by default. This may be overridden to handle failures to replicate.
+     * @param message The message that was being handled.
+     * @param exception The exception that was thrown.
+     */
+    protected void onApplyFailed(ReplicationMessage message, Exception exception)
+    { }
+    //endregion
+    //endregion
+}
@@ -0,0 +1,373 @@
+package scot.massie.lib.permissions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link JournalingPermissionsRegistry} that replicates the modifications made to it to
+ * {@link ReplicaPermissionsRegistry followers}, connected to it over {@link ReplicationChannel replication
+ * channels}.</p>
+ *
+ * <p>Each modification, or batch of modifications, is sent to every follower as it's recorded, in a message with a
+ * sequence number one greater than that of the message sent before it. The most recent messages are kept in a backlog,
+ * such that a follower that has missed messages, such as where it was disconnected, can catch up by being resent the
+ * messages it missed. Where a follower has missed messages no longer in the backlog, or is following for the first
+ * time, it catches up from a snapshot of the registry's contents instead.</p>
+ *
+ * <p>Operations whose effects cannot be recorded compactly, such as absorbing another registry or loading, cause a
+ * snapshot to be sent to all followers. So do modifications that throw an exception, as they may have partially
+ * modified the registry.</p>
+ *
+ * <p>Where a journal file is given, modifications are also recorded to it, as with any journaling registry.</p>
+ * @apiNote Followers should be added with {@link #addFollower(ReplicationChannel)} before they start following, so
+ *          that the request to catch up they send when they start following is received.
+ * @apiNote Requests to catch up are handled on the thread they're received on, while synchronised on the registry.
+ *          Where the registry is modified from other threads, it should be synchronised on, such as by accessing it
+ *          through a {@link scot.massie.lib.permissions.decorators.ThreadsafePermissionsRegistry}.
+ * @see ReplicaPermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class ReplicatingPermissionsRegistry<ID extends Comparable<? super ID>>
+        extends JournalingPermissionsRegistry<ID>
+{
+    //region Instance fields
+    /**
+     * The default number of messages kept for followers to catch up from.
+     */
+    public static final int defaultBacklogSize = 1024;
+
+    /**
+     * The ID of this leader, distinguishing the messages it sends from those of other leaders, or of this registry in
+     * another process. This is never 0.
+     */
+    protected final long leaderId;
+
+    /**
+     * The number of messages kept for followers to catch up from. Where this is 0 or less, followers that have missed
+     * messages always catch up from a snapshot.
+     */
+    protected final int backlogSize;
+
+    /**
+     * Lock held while sending messages to followers, such that they're sent in order.
+     */
+    private final Object replicationLock = new Object();
+
+    /**
+     * The channels to the followers of this registry.
+     */
+    private final List<ReplicationChannel> followers = new ArrayList<>();
+
+    /**
+     * The sequence number of the last message sent to followers.
+     */
+    private long lastSequenceNumber = 0;
+
+    /**
+     * The most recent messages sent to followers, in the order they were sent.
+     */
+    private final ArrayDeque<ReplicationMessage> backlog = new ArrayDeque<>();
+
+    /**
+     * The sequence number of the message sent directly before the first message in the backlog. Followers that have
+     * applied this message or any later one can catch up from the backlog.
+     */
+    private long backlogStart = 0;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new replicating permissions registry.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param journalFile The filepath of the journal modifications are recorded to. If null, modifications are not
+     *                    recorded to a journal, but are still replicated.
+     * @param syncIntervalMillis The maximum time, in milliseconds, between a modification being recorded and the
+     *                           journal being synced to disk. Where this is 0 or less, the journal is not synced
+     *                           periodically.
+     * @param syncEveryRecords The number of modifications that may be recorded before the journal is synced to disk.
+     *                         Where this is 0 or less, the journal is not synced based on the number of modifications
+     *                         recorded.
+     * @param backlogSize The number of messages kept for followers to catch up from. Where this is 0 or less,
+     *                    followers that have missed messages always catch up from a snapshot.
+     */
+    public ReplicatingPermissionsRegistry(Function<ID, String> idToString,
+                                          Function<String, ID> idFromString,
+                                          Path usersFile,
+                                          Path groupsFile,
+                                          Path journalFile,
+                                          long syncIntervalMillis,
+                                          int syncEveryRecords,
+                                          int backlogSize)
+    {
+        super(idToString, idFromString, usersFile, groupsFile, journalFile, syncIntervalMillis, syncEveryRecords);
+        this.backlogSize = backlogSize;
+
+        long id;
+
+        do
+        { id = ThreadLocalRandom.current().nextLong(); }
+        while(id == 0);
+
+        this.leaderId = id;
+    }
+
+    /**
+     * Creates a new replicating permissions registry, keeping the last {@link #defaultBacklogSize} messages for
+     * followers to catch up from.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param journalFile The filepath of the journal modifications are recorded to. If null, modifications are not
+     *                    recorded to a journal, but are still replicated.
+     */
+    public ReplicatingPermissionsRegistry(Function<ID, String> idToString,
+                                          Function<String, ID> idFromString,
+                                          Path usersFile,
+                                          Path groupsFile,
+                                          Path journalFile)
+    {
+        this(idToString, idFromString, usersFile, groupsFile, journalFile, defaultSyncIntervalMillis,
+             defaultSyncEveryRecords, defaultBacklogSize);
+    }
+
+    /**
+     * Creates a new replicating permissions registry without any save files or journal, keeping the last
+     * {@link #defaultBacklogSize} messages for followers to catch up from.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    public ReplicatingPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
+    { this(idToString, idFromString, null, null, null, 0, 0, defaultBacklogSize); }
+    //endregion
+
+    //region Methods
+    //region Followers
+    /**
+     * Adds a follower of this registry, which will be sent modifications made to this registry from now on, and the
+     * messages it requests to catch up.
+     * @param channel This registry's end of the channel to the follower.
+     */
+    public void addFollower(ReplicationChannel channel)
+    {
+        synchronized(replicationLock)
+        { followers.add(channel); }
+
+        channel.setReceiver(message -> receiveFromFollower(channel, message));
+    }
+
+    /**
+     * Removes a follower of this registry, such that it's no longer sent modifications. The channel to it is not
+     * closed.
+     * @param channel This registry's end of the channel to the follower.
+     */
+    public void removeFollower(ReplicationChannel channel)
+    {
+        synchronized(replicationLock)
+        { followers.remove(channel); }
+
+        channel.setReceiver(null);
+    }
+
+    /**
+     * Gets the number of followers this registry currently has.
+     * @return The number of followers of this registry.
+     */
+    public int getFollowerCount()
+    {
+        synchronized(replicationLock)
+        { return followers.size(); }
+    }
+
+    /**
+     * Gets the ID of this registry as a leader, which distinguishes the messages it sends from those of other leaders.
+     * @return The ID of this leader.
+     */
+    public long getLeaderId()
+    { return leaderId; }
+
+    /**
+     * Gets the sequence number of the last message sent to followers.
+     * @return The sequence number of the last message sent, or 0 if none have been sent.
+     */
+    public long getLastSequenceNumber()
+    {
+        synchronized(replicationLock)
+        { return lastSequenceNumber; }
+    }
+    //endregion
+
+    //region Sending
+    /**
+     * Creates records that replace the contents of a registry with the contents of this one.
+     * @return Records that, applied to a registry, clear it and load the contents of this registry into it, as a single
+     *         batch.
+     */
+    private String getSnapshotRecords()
+    {
+        return toRecord("BB")
+             + toRecord("CL")
+             + toRecord("LG", groupsToSaveString())
+             + toRecord("LU", usersToSaveString())
+             + toRecord("BE");
+    }
+
+    /**
+     * Sends a new message to all followers, with the next sequence number, and adds it to the backlog. Where the
+     * message is a snapshot, the messages in the backlog are discarded, as followers that have missed them would catch
+     * up from the snapshot.
+     * @param type The type of the message.
+     * @param records The records of the message.
+     */
+    private void publish(ReplicationMessage.Type type, String records)
+    {
+        synchronized(replicationLock)
+        {
+            ReplicationMessage message = new ReplicationMessage(type, leaderId, ++lastSequenceNumber, records);
+
+            if(type == ReplicationMessage.Type.SNAPSHOT)
+            {
+                backlog.clear();
+                backlogStart = message.getSequenceNumber();
+            }
+            else
+            {
+                backlog.addLast(message);
+
+                while(backlog.size() > Math.max(backlogSize, 0))
+                    backlogStart = backlog.removeFirst().getSequenceNumber();
+            }
+
+            for(ReplicationChannel follower : new ArrayList<>(followers))
+                sendToFollower(follower, message);
+        }
+    }
+
+    /**
+     * Sends a message to a follower. Where the message could not be sent, the follower is removed, as it will have
+     * missed the message.
+     * @apiNote Must be called while synchronised on {@link #replicationLock}.
+     * @param follower The channel to the follower.
+     * @param message The message to send.
+     * @return True if the message was sent. Otherwise, false.
+     */
+    private boolean sendToFollower(ReplicationChannel follower, ReplicationMessage message)
+    {
+        try
+        {
+            follower.send(message);
+            return true;
+        }
+        catch(IOException e)
+        {
+            followers.remove(follower);
+            return false;
+        }
+    }
+
+    /**
+     * Handles a message received from a follower, sending it the messages it has missed where it requests to catch
+     * up. Where the follower is following another leader or has missed messages no longer in the backlog, it's sent a
+     * snapshot instead. This is synchronised on the registry, as the snapshot is of its contents.
+     * @param follower The channel to the follower.
+     * @param message The message received.
+     */
+    private void receiveFromFollower(ReplicationChannel follower, ReplicationMessage message)
+    {
+        if(message.getType() != ReplicationMessage.Type.CATCH_UP_REQUEST)
+            return;
+
+        synchronized(this)
+        {
+            synchronized(replicationLock)
+            {
+                long lastApplied = message.getSequenceNumber();
+
+                if(   message.getLeaderId() == leaderId
+                   && lastApplied >= backlogStart
+                   && lastApplied <= lastSequenceNumber)
+                {
+                    for(ReplicationMessage missed : backlog)
+                        if(missed.getSequenceNumber() > lastApplied && !sendToFollower(follower, missed))
+                            break;
+
+                    return;
+                }
+
+                sendToFollower(follower, new ReplicationMessage(ReplicationMessage.Type.SNAPSHOT,
+                                                                leaderId,
+                                                                lastSequenceNumber,
+                                                                getSnapshotRecords()));
+            }
+        }
+    }
+    //endregion
+
+    //region Journaling
+    @Override
+    boolean recordsModifications()
+    { return true; }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Modifications that throw are handled as modifications that can't be recorded, such that followers are sent a
+     * snapshot, and don't diverge from this registry where the modification partially modified it.</p>
+     * @return True.
+     */
+    @Override
+    boolean failedModificationsAreUnrecordable()
+    { return true; }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The records are then sent to followers.</p>
+     * @param records The records of the modifications made, in the order they were made.
+     */
+    @Override
+    void recordsMade(List<String> records)
+    {
+        super.recordsMade(records);
+        publish(ReplicationMessage.Type.MODIFICATIONS, String.join("", records));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A snapshot of the registry is then sent to followers.</p>
+     */
+    @Override
+    void unrecordableModificationMade()
+    {
+        super.unrecordableModificationMade();
+        publish(ReplicationMessage.Type.SNAPSHOT, getSnapshotRecords());
+    }
+    //endregion
+
+    //region Saving & loading
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A snapshot of the registry is then sent to followers.</p>
+     * @throws IOException If an IO exception was thrown while reading from the users, groups, or journal files.
+     * @throws InvalidGroupNameException If any of the groups loaded or assigned to any group or user have invalid
+     *                                   names.
+     */
+    @Override
+    public void load() throws IOException
+    {
+        super.load();
+        publish(ReplicationMessage.Type.SNAPSHOT, getSnapshotRecords());
+    }
+    //endregion
+    //endregion
+}
@@ -0,0 +1,33 @@
+package scot.massie.lib.permissions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * <p>One end of a connection between a {@link ReplicatingPermissionsRegistry} and a
+ * {@link ReplicaPermissionsRegistry}, over which {@link ReplicationMessage replication messages} are sent in both
+ * directions.</p>
+ *
+ * <p>Implementations are expected to deliver messages sent from one end to the receiver of the other end reliably and
+ * in the order they were sent. Where messages may be lost, such as where the connection is dropped and reopened, the
+ * follower catches up once it next receives a message from the leader.</p>
+ * @see InProcessReplicationChannel
+ * @see StreamReplicationChannel
+ */
+public interface ReplicationChannel extends Closeable
+{
+    /**
+     * Sends a message to the other end of this channel.
+     * @param message The message to send.
+     * @throws IOException If the message could not be sent.
+     */
+    void send(ReplicationMessage message) throws IOException;
+
+    /**
+     * Sets the receiver messages sent from the other end of this channel are passed to. Messages may be passed to it
+     * on any thread.
+     * @param receiver The receiver of messages sent to this end of the channel.
+     */
+    void setReceiver(Consumer<ReplicationMessage> receiver);
+}
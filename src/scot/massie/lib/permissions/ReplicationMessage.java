@@ -0,0 +1,168 @@
+package scot.massie.lib.permissions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>A message sent between a {@link ReplicatingPermissionsRegistry} and the {@link ReplicaPermissionsRegistry}
+ * instances following it, over a {@link ReplicationChannel}.</p>
+ *
+ * <p>Messages sent by the leader carry the leader's ID and a sequence number, such that followers can apply them in
+ * order and tell when they've missed any. Modifications and snapshots are carried as records, in the same format as
+ * the journal of a {@link JournalingPermissionsRegistry}.</p>
+ */
+public final class ReplicationMessage
+{
+    /**
+     * The types of replication messages.
+     */
+    public enum Type
+    {
+        /**
+         * Sent by the leader, containing the records of modifications made to it since the message with the previous
+         * sequence number.
+         */
+        MODIFICATIONS,
+
+        /**
+         * Sent by the leader, containing records that replace the contents of a follower with the contents of the
+         * leader as of the message's sequence number.
+         */
+        SNAPSHOT,
+
+        /**
+         * Sent by a follower, requesting the messages sent by the leader since the message's sequence number, or a
+         * snapshot where the leader no longer has them. The message's leader ID is the ID of the leader the follower
+         * last applied a message from, or 0 where it has not applied any.
+         */
+        CATCH_UP_REQUEST
+    }
+
+    //region Instance fields
+    /**
+     * The type of this message.
+     */
+    private final Type type;
+
+    /**
+     * The ID of the leader this message is from, or where this is a catch-up request, the ID of the leader the
+     * follower last applied a message from.
+     */
+    private final long leaderId;
+
+    /**
+     * The sequence number of this message, or where this is a catch-up request, the sequence number of the last
+     * message the follower applied.
+     */
+    private final long sequenceNumber;
+
+    /**
+     * The records this message contains. Empty for catch-up requests.
+     */
+    private final String records;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new replication message.
+     * @param type The type of the message.
+     * @param leaderId The ID of the leader the message is from, or where this is a catch-up request, the ID of the
+     *                 leader the follower last applied a message from.
+     * @param sequenceNumber The sequence number of the message, or where this is a catch-up request, the sequence
+     *                       number of the last message the follower applied.
+     * @param records The records the message contains.
+     */
+    public ReplicationMessage(Type type, long leaderId, long sequenceNumber, String records)
+    {
+        this.type = type;
+        this.leaderId = leaderId;
+        this.sequenceNumber = sequenceNumber;
+        this.records = records;
+    }
+    //endregion
+
+    //region Methods
+    //region Getters
+    /**
+     * Gets the type of this message.
+     * @return The type of this message.
+     */
+    public Type getType()
+    { return type; }
+
+    /**
+     * Gets the ID of the leader this message is from, or where this is a catch-up request, the ID of the leader the
+     * follower last applied a message from.
+     * @return The leader ID of this message.
+     */
+    public long getLeaderId()
+    { return leaderId; }
+
+    /**
+     * Gets the sequence number of this message, or where this is a catch-up request, the sequence number of the last
+     * message the follower applied.
+     * @return The sequence number of this message.
+     */
+    public long getSequenceNumber()
+    { return sequenceNumber; }
+
+    /**
+     * Gets the records this message contains.
+     * @return The records of this message, in the format of a journal. Empty for catch-up requests.
+     */
+    public String getRecords()
+    { return records; }
+    //endregion
+
+    //region Serialisation
+    /**
+     * Writes this message to the given output, in a form that may be read back with
+     * {@link #readFrom(DataInput)}.
+     * @param output The output to write this message to.
+     * @throws IOException If an IO exception was thrown while writing to the output.
+     */
+    public void writeTo(DataOutput output) throws IOException
+    {
+        byte[] recordBytes = records.getBytes(StandardCharsets.UTF_8);
+        output.writeByte(type.ordinal());
+        output.writeLong(leaderId);
+        output.writeLong(sequenceNumber);
+        output.writeInt(recordBytes.length);
+        output.write(recordBytes);
+    }
+
+    /**
+     * Reads a message written with {@link #writeTo(DataOutput)} from the given input.
+     * @param input The input to read a message from.
+     * @return The message read.
+     * @throws IOException If an IO exception was thrown while reading from the input, or if it does not contain a
+     *                     valid message.
+     */
+    public static ReplicationMessage readFrom(DataInput input) throws IOException
+    {
+        int typeOrdinal = input.readUnsignedByte();
+
+        if(typeOrdinal >= Type.values().length)
+            throw new IOException("Unrecognised replication message type: " + typeOrdinal);
+
+        long leaderId = input.readLong();
+        long sequenceNumber = input.readLong();
+        int recordsLength = input.readInt();
+
+        if(recordsLength < 0)
+            throw new IOException("Invalid replication message length: " + recordsLength);
+
+        byte[] recordBytes = new byte[recordsLength];
+        input.readFully(recordBytes);
+        return new ReplicationMessage(Type.values()[typeOrdinal], leaderId, sequenceNumber,
+                                      new String(recordBytes, StandardCharsets.UTF_8));
+    }
+    //endregion
+
+    @Override
+    public String toString()
+    { return type + " #" + sequenceNumber + " (leader " + Long.toHexString(leaderId) + ")"; }
+    //endregion
+}
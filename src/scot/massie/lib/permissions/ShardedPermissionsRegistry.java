@@ -0,0 +1,1474 @@
+package scot.massie.lib.permissions;
+
+import scot.massie.lib.permissions.decorators.CachedPermissionsRegistry;
+import scot.massie.lib.permissions.exceptions.GroupMissingPermissionException;
+import scot.massie.lib.permissions.exceptions.PermissionNotDefaultException;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link PermissionsRegistry} that partitions its users across a number of independent shards, which share one set
+ * of groups and default permissions.</p>
+ *
+ * <p>Each user is held by the shard their ID's hash places them in. Each shard has its own lock, its own cache of
+ * query results, and its own record of whether it has been modified since it was last saved or loaded. Queries and
+ * modifications of users in different shards may proceed in parallel, and modifying a user only invalidates the cached
+ * results of their shard.</p>
+ *
+ * <p>Groups and the default permissions are held once, and are guarded by a read/write lock. Querying or modifying a
+ * user holds the read lock, so any number may happen at once. Modifying groups or the default permissions, and
+ * assigning groups to or revoking groups from users, holds the write lock, and so happens alone. These also invalidate
+ * the cached results of every shard, as they may affect any user.</p>
+ *
+ * <p>Each shard saves its users to its own file, named after the users file with the index of the shard appended. (e.g.
+ * "users.txt.0") Saving writes the files of modified shards concurrently, and skips shards that haven't been
+ * modified.</p>
+ * @see GroupMapPermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class ShardedPermissionsRegistry<ID extends Comparable<? super ID>> implements PermissionsRegistry<ID>
+{
+    //region Inner classes
+    /**
+     * An operation on a permissions registry, which may throw a checked exception.
+     * @param <ID> The type of the unique identifier used to represent users.
+     * @param <T> The type of the result of the operation.
+     * @param <E> The type of the exception the operation may throw.
+     */
+    @FunctionalInterface
+    private interface RegistryOperation<ID extends Comparable<? super ID>, T, E extends Exception>
+    { T perform(PermissionsRegistry<ID> registry) throws E; }
+
+    /**
+     * An operation on the registry as a whole, which may throw a checked exception.
+     * @param <E> The type of the exception the operation may throw.
+     */
+    @FunctionalInterface
+    private interface ExclusiveOperation<E extends Exception>
+    { void perform() throws E; }
+
+    /**
+     * One partition of the users of this registry.
+     */
+    private final class Shard
+    {
+        /**
+         * Creates a new empty shard.
+         * @param usersFile The file to save the users of this shard to, or null if the shard does not save to a file.
+         */
+        Shard(Path usersFile)
+        {
+            registry = new GroupMapPermissionsRegistry<>(new HashMap<>(),
+                                                         groups.assignableGroups,
+                                                         groups.defaultPermissions,
+                                                         convertIdToString,
+                                                         parseIdFromString,
+                                                         usersFile,
+                                                         null);
+
+            cached = new CachedPermissionsRegistry<>(registry);
+        }
+
+        /**
+         * The registry holding this shard's users. This shares its groups and default permissions with
+         * {@link #groups}.
+         */
+        final GroupMapPermissionsRegistry<ID> registry;
+
+        /**
+         * Caching decorator of {@link #registry}. Operations on this shard's users should go through this.
+         */
+        final CachedPermissionsRegistry<ID> cached;
+
+        /**
+         * Removes all users from this shard. Where a batch is being performed, the users are removed individually, so
+         * that they're individually recorded to be restored should the batch fail.
+         */
+        void clearUsers()
+        {
+            if(registry.isPerformingBatch())
+                cached.clearUsers(new ArrayList<>(registry.getUsers()));
+            else
+                cached.clearUsers();
+        }
+    }
+
+    /**
+     * The registry holding the groups and default permissions shared by all shards. It holds no users itself, but
+     * operations on it that need to consider users consider the users of all shards.
+     */
+    private final class GroupLayer extends GroupMapPermissionsRegistry<ID>
+    {
+        /**
+         * Creates a new group layer.
+         * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+         * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+         * @param groupsFile The filepath of the groups permissions save file.
+         */
+        GroupLayer(Function<ID, String> idToString, Function<String, ID> idFromString, Path groupsFile)
+        {
+            super(Collections.emptyMap(), new HashMap<>(), new PermissionGroup("*"), idToString, idFromString, null,
+                  groupsFile);
+        }
+
+        @Override
+        Collection<PermissionGroup> getUserPermissionsGroups()
+        {
+            List<PermissionGroup> users = new ArrayList<>();
+
+            for(Shard shard : shards)
+                users.addAll(shard.registry.getUserPermissionsGroups());
+
+            return users;
+        }
+
+        @Override
+        protected void recordWholeRegistryForRollback()
+        {
+            // Restoring this layer as a whole replaces the group objects users reference, so every user has to be
+            // restored too.
+            if(isPerformingBatch())
+                for(Shard shard : shards)
+                    for(ID userId : shard.registry.getUsers())
+                        shard.registry.recordUserForRollback(userId);
+
+            super.recordWholeRegistryForRollback();
+        }
+
+        /**
+         * Marks the specified user as having been modified in the shard they belong in, as this layer holds no users
+         * itself.
+         * @param userId The ID of the user modified.
+         */
+        @Override
+        protected void markUserAsModified(ID userId)
+        { getShard(userId).registry.markUserAsModified(userId); }
+    }
+    //endregion
+
+    //region Instance fields
+    /**
+     * The number of shards used where none is specified.
+     */
+    public static final int defaultShardCount = 16;
+
+    /**
+     * The conversion for turning a user ID into a reversible string representation of it.
+     */
+    protected final Function<ID, String> convertIdToString;
+
+    /**
+     * The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    protected final Function<String, ID> parseIdFromString;
+
+    /**
+     * The filepath the files of the shards are named after. Null if this registry does not save to files.
+     */
+    protected final Path usersFilePath;
+
+    /**
+     * The groups and default permissions shared by all shards.
+     */
+    private final GroupLayer groups;
+
+    /**
+     * The shards users are partitioned across.
+     */
+    private final List<Shard> shards;
+
+    /**
+     * The lock guarding the groups and default permissions. Every operation holds this, at least for reading.
+     */
+    private final ReentrantReadWriteLock groupsLock = new ReentrantReadWriteLock();
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new sharded permissions registry with the ability to save and load to and from files.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath the users files of the shards are named after.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param shardCount The number of shards to partition users across.
+     */
+    public ShardedPermissionsRegistry(Function<ID, String> idToString,
+                                      Function<String, ID> idFromString,
+                                      Path usersFile,
+                                      Path groupsFile,
+                                      int shardCount)
+    {
+        if(shardCount < 1)
+            throw new IllegalArgumentException("shardCount must be at least 1. Was: " + shardCount);
+
+        this.convertIdToString = idToString;
+        this.parseIdFromString = idFromString;
+        this.usersFilePath = usersFile;
+        this.groups = new GroupLayer(idToString, idFromString, groupsFile);
+        this.shards = new ArrayList<>(shardCount);
+
+        for(int i = 0; i < shardCount; i++)
+            shards.add(new Shard(getShardUsersFilePath(i)));
+    }
+
+    /**
+     * Creates a new sharded permissions registry with the ability to save and load to and from files, with
+     * {@link #defaultShardCount} shards.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath the users files of the shards are named after.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public ShardedPermissionsRegistry(Function<ID, String> idToString,
+                                      Function<String, ID> idFromString,
+                                      Path usersFile,
+                                      Path groupsFile)
+    { this(idToString, idFromString, usersFile, groupsFile, defaultShardCount); }
+
+    /**
+     * Creates a new sharded permissions registry without the ability to save and load to and from files.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param shardCount The number of shards to partition users across.
+     */
+    public ShardedPermissionsRegistry(Function<ID, String> idToString,
+                                      Function<String, ID> idFromString,
+                                      int shardCount)
+    { this(idToString, idFromString, null, null, shardCount); }
+
+    /**
+     * Creates a new sharded permissions registry without the ability to save and load to and from files, with
+     * {@link #defaultShardCount} shards.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    public ShardedPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
+    { this(idToString, idFromString, null, null, defaultShardCount); }
+    //endregion
+
+    //region Methods
+    //region Shards
+    /**
+     * Gets the number of shards users are partitioned across.
+     * @return The number of shards in this registry.
+     */
+    public int getShardCount()
+    { return shards.size(); }
+
+    /**
+     * Gets the index of the shard holding the specified user.
+     * @param userId The ID of the user.
+     * @return The index of the shard the specified user is held in, from 0 to one less than the number of shards.
+     */
+    public int getShardIndexOf(ID userId)
+    {
+        int hash = userId.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % shards.size();
+    }
+
+    /**
+     * Gets the shard holding the specified user.
+     * @param userId The ID of the user.
+     * @return The shard the specified user is held in.
+     */
+    private Shard getShard(ID userId)
+    { return shards.get(getShardIndexOf(userId)); }
+
+    /**
+     * Gets the filepath of the users file of the shard at the given index.
+     * @param shardIndex The index of the shard.
+     * @return The filepath of the users file of the shard at the given index, or null if this registry does not save
+     *         to files.
+     */
+    private Path getShardUsersFilePath(int shardIndex)
+    {
+        return (usersFilePath == null) ? (null)
+                                       : (usersFilePath.resolveSibling(usersFilePath.getFileName() + "." + shardIndex));
+    }
+
+    /**
+     * Gets the permission group object of the specified user, registering the user in their shard if they're not
+     * already.
+     * @param userId The ID of the user to get the permission group object of.
+     * @return The permission group object of the user of the given ID.
+     */
+    PermissionGroup getUserPermissionsGroupOrNew(ID userId)
+    {
+        return onShardOfWithGroups(userId, s ->
+        {
+            Shard shard = getShard(userId);
+            shard.cached.invalidateCache();
+            return shard.registry.getUserPermissionsGroupOrNew(userId);
+        });
+    }
+
+    /**
+     * Gets the permission group object of the specified group, creating it if it doesn't already exist.
+     * @param groupName The name of the group to get the permission group object of.
+     * @return The permission group object of the group of the given name.
+     */
+    PermissionGroup getGroupPermissionsGroupOrNew(String groupName)
+    { return modifyingGroups(g -> g.getGroupPermissionsGroupOrNew(groupName)); }
+
+    /**
+     * Gets the permission group object of the specified group, creating it if it doesn't already exist. Where it
+     * already exists, reassigns its priority to the one given.
+     * @param groupName The name of the group to get the permission group object of.
+     * @param priority The priority the group should have.
+     * @return The permission group object of the group of the given name.
+     */
+    PermissionGroup getGroupPermissionsGroupOrNew(String groupName, long priority)
+    { return modifyingGroups(g -> g.getGroupPermissionsGroupOrNew(groupName, priority)); }
+
+    /**
+     * Gets the permission group object of the specified group, creating it if it doesn't already exist. Where it
+     * already exists, reassigns its priority to the one given.
+     * @param groupName The name of the group to get the permission group object of.
+     * @param priority The priority the group should have.
+     * @return The permission group object of the group of the given name.
+     */
+    PermissionGroup getGroupPermissionsGroupOrNew(String groupName, double priority)
+    { return modifyingGroups(g -> g.getGroupPermissionsGroupOrNew(groupName, priority)); }
+
+    /**
+     * Clears the cached results of all shards.
+     */
+    private void invalidateCaches()
+    {
+        for(Shard shard : shards)
+            shard.cached.invalidateCache();
+    }
+    //endregion
+
+    //region Locking
+    /**
+     * Performs an operation on the shard of the specified user. This may run in parallel with operations on any shard,
+     * including the same one, but not with modifications to groups.
+     * @param userId The ID of the user to perform the operation on the shard of.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @param <E> The type of the exception the operation may throw.
+     * @return The result of the operation.
+     * @throws E If the operation throws it.
+     */
+    private <T, E extends Exception> T onShardOf(ID userId, RegistryOperation<ID, T, E> operation) throws E
+    {
+        Shard shard = getShard(userId);
+        groupsLock.readLock().lock();
+
+        try
+        {
+            synchronized(shard)
+            { return operation.perform(shard.cached); }
+        }
+        finally
+        { groupsLock.readLock().unlock(); }
+    }
+
+    /**
+     * Performs an operation on the shard of the specified user that modifies the groups of users. This cannot run in
+     * parallel with any other operation.
+     * @param userId The ID of the user to perform the operation on the shard of.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @return The result of the operation.
+     */
+    private <T> T onShardOfWithGroups(ID userId, Function<PermissionsRegistry<ID>, T> operation)
+    {
+        // Assigning and revoking groups registers and deregisters listeners on the shared group objects.
+        Shard shard = getShard(userId);
+        groupsLock.writeLock().lock();
+
+        try
+        { return operation.apply(shard.cached); }
+        finally
+        { groupsLock.writeLock().unlock(); }
+    }
+
+    /**
+     * Performs an operation reading the groups or default permissions. This may run in parallel with operations on any
+     * shard, but not with modifications to groups.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @param <E> The type of the exception the operation may throw.
+     * @return The result of the operation.
+     * @throws E If the operation throws it.
+     */
+    private <T, E extends Exception> T onGroups(RegistryOperation<ID, T, E> operation) throws E
+    {
+        groupsLock.readLock().lock();
+
+        try
+        { return operation.perform(groups); }
+        finally
+        { groupsLock.readLock().unlock(); }
+    }
+
+    /**
+     * Performs an operation modifying the groups or default permissions, and clears the cached results of all shards.
+     * This cannot run in parallel with any other operation.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @return The result of the operation.
+     */
+    private <T> T modifyingGroups(Function<GroupLayer, T> operation)
+    {
+        groupsLock.writeLock().lock();
+
+        try
+        { return operation.apply(groups); }
+        finally
+        {
+            invalidateCaches();
+            groupsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Performs an operation with exclusive access to the whole registry. This cannot run in parallel with any other
+     * operation.
+     * @param operation The operation to perform.
+     * @param <E> The type of the exception the operation may throw.
+     * @throws E If the operation throws it.
+     */
+    private <E extends Exception> void exclusively(ExclusiveOperation<E> operation) throws E
+    {
+        groupsLock.writeLock().lock();
+
+        try
+        { operation.perform(); }
+        finally
+        { groupsLock.writeLock().unlock(); }
+    }
+    //endregion
+
+    //region PermissionsRegistry implementation
+    //region Assertions
+    //region Permissions
+    //region Has
+    @Override
+    public void assertUserHasPermission(ID userId, String permission) throws UserMissingPermissionException
+    { onShardOf(userId, s -> { s.assertUserHasPermission(userId, permission); return null; }); }
+
+    @Override
+    public void assertGroupHasPermission(String groupName, String permission) throws GroupMissingPermissionException
+    { onGroups(g -> { g.assertGroupHasPermission(groupName, permission); return null; }); }
+
+    @Override
+    public void assertIsDefaultPermission(String permission) throws PermissionNotDefaultException
+    { onGroups(g -> { g.assertIsDefaultPermission(permission); return null; }); }
+    //endregion
+
+    //region Has all
+    @Override
+    public void assertUserHasAllPermissions(ID userId, Iterable<String> permissions)
+            throws UserMissingPermissionException
+    { onShardOf(userId, s -> { s.assertUserHasAllPermissions(userId, permissions); return null; }); }
+
+    @Override
+    public void assertUserHasAllPermissions(ID userId, String... permissions) throws UserMissingPermissionException
+    { onShardOf(userId, s -> { s.assertUserHasAllPermissions(userId, permissions); return null; }); }
+
+    @Override
+    public void assertGroupHasAllPermissions(String groupName, Iterable<String> permissions)
+            throws GroupMissingPermissionException
+    { onGroups(g -> { g.assertGroupHasAllPermissions(groupName, permissions); return null; }); }
+
+    @Override
+    public void assertGroupHasAllPermissions(String groupName, String... permissions)
+            throws GroupMissingPermissionException
+    { onGroups(g -> { g.assertGroupHasAllPermissions(groupName, permissions); return null; }); }
+
+    @Override
+    public void assertAllAreDefaultPermissions(Iterable<String> permissions) throws PermissionNotDefaultException
+    { onGroups(g -> { g.assertAllAreDefaultPermissions(permissions); return null; }); }
+
+    @Override
+    public void assertAllAreDefaultPermissions(String... permissions) throws PermissionNotDefaultException
+    { onGroups(g -> { g.assertAllAreDefaultPermissions(permissions); return null; }); }
+    //endregion
+
+    //region Has any
+    @Override
+    public void assertUserHasAnyPermission(ID userId, Iterable<String> permissions)
+            throws UserMissingPermissionException
+    { onShardOf(userId, s -> { s.assertUserHasAnyPermission(userId, permissions); return null; }); }
+
+    @Override
+    public void assertUserHasAnyPermission(ID userId, String... permissions) throws UserMissingPermissionException
+    { onShardOf(userId, s -> { s.assertUserHasAnyPermission(userId, permissions); return null; }); }
+
+    @Override
+    public void assertGroupHasAnyPermission(String groupName, Iterable<String> permissions)
+            throws GroupMissingPermissionException
+    { onGroups(g -> { g.assertGroupHasAnyPermission(groupName, permissions); return null; }); }
+
+    @Override
+    public void assertGroupHasAnyPermission(String groupName, String... permissions)
+            throws GroupMissingPermissionException
+    { onGroups(g -> { g.assertGroupHasAnyPermission(groupName, permissions); return null; }); }
+
+    @Override
+    public void assertAnyAreDefaultPermission(Iterable<String> permissions) throws PermissionNotDefaultException
+    { onGroups(g -> { g.assertAnyAreDefaultPermission(permissions); return null; }); }
+
+    @Override
+    public void assertAnyAreDefaultPermission(String... permissions) throws PermissionNotDefaultException
+    { onGroups(g -> { g.assertAnyAreDefaultPermission(permissions); return null; }); }
+    //endregion
+    //endregion
+    //endregion
+
+    //region Accessors
+    //region Permission queries
+    //region Get status
+    //region Single
+    @Override
+    public PermissionStatus getUserPermissionStatus(ID userId, String permission)
+    { return onShardOf(userId, s -> s.getUserPermissionStatus(userId, permission)); }
+
+    @Override
+    public PermissionStatus getGroupPermissionStatus(String groupName, String permission)
+    { return onGroups(g -> g.getGroupPermissionStatus(groupName, permission)); }
+
+    @Override
+    public PermissionStatus getDefaultPermissionStatus(String permission)
+    { return onGroups(g -> g.getDefaultPermissionStatus(permission)); }
+    //endregion
+
+    //region Multiple
+    @Override
+    public Map<String, PermissionStatus> getUserPermissionStatuses(ID userId, Iterable<String> permissions)
+    { return onShardOf(userId, s -> s.getUserPermissionStatuses(userId, permissions)); }
+
+    @Override
+    public Map<String, PermissionStatus> getUserPermissionStatuses(ID userId, String... permissions)
+    { return onShardOf(userId, s -> s.getUserPermissionStatuses(userId, permissions)); }
+
+    @Override
+    public Map<String, PermissionStatus> getGroupPermissionStatuses(String groupName, Iterable<String> permissions)
+    { return onGroups(g -> g.getGroupPermissionStatuses(groupName, permissions)); }
+
+    @Override
+    public Map<String, PermissionStatus> getGroupPermissionStatuses(String groupName, String... permissions)
+    { return onGroups(g -> g.getGroupPermissionStatuses(groupName, permissions)); }
+
+    @Override
+    public Map<String, PermissionStatus> getDefaultPermissionStatuses(Iterable<String> permissions)
+    { return onGroups(g -> g.getDefaultPermissionStatuses(permissions)); }
+
+    @Override
+    public Map<String, PermissionStatus> getDefaultPermissionStatuses(String... permissions)
+    { return onGroups(g -> g.getDefaultPermissionStatuses(permissions)); }
+    //endregion
+    //endregion
+
+    //region Has
+    @Override
+    public boolean userHasPermission(ID userId, String permission)
+    { return onShardOf(userId, s -> s.userHasPermission(userId, permission)); }
+
+    @Override
+    public boolean groupHasPermission(String groupName, String permission)
+    { return onGroups(g -> g.groupHasPermission(groupName, permission)); }
+
+    @Override
+    public boolean isDefaultPermission(String permission)
+    { return onGroups(g -> g.isDefaultPermission(permission)); }
+    //endregion
+
+    //region Has all
+    @Override
+    public boolean userHasAllPermissions(ID userId, Iterable<String> permissions)
+    { return onShardOf(userId, s -> s.userHasAllPermissions(userId, permissions)); }
+
+    @Override
+    public boolean userHasAllPermissions(ID userId, String... permissions)
+    { return onShardOf(userId, s -> s.userHasAllPermissions(userId, permissions)); }
+
+    @Override
+    public boolean groupHasAllPermissions(String groupName, Iterable<String> permissions)
+    { return onGroups(g -> g.groupHasAllPermissions(groupName, permissions)); }
+
+    @Override
+    public boolean groupHasAllPermissions(String groupName, String... permissions)
+    { return onGroups(g -> g.groupHasAllPermissions(groupName, permissions)); }
+
+    @Override
+    public boolean areAllDefaultPermissions(Iterable<String> permissions)
+    { return onGroups(g -> g.areAllDefaultPermissions(permissions)); }
+
+    @Override
+    public boolean areAllDefaultPermissions(String... permissions)
+    { return onGroups(g -> g.areAllDefaultPermissions(permissions)); }
+    //endregion
+
+    //region Has any
+    @Override
+    public boolean userHasAnyPermissions(ID userId, Iterable<String> permissions)
+    { return onShardOf(userId, s -> s.userHasAnyPermissions(userId, permissions)); }
+
+    @Override
+    public boolean userHasAnyPermissions(ID userId, String... permissions)
+    { return onShardOf(userId, s -> s.userHasAnyPermissions(userId, permissions)); }
+
+    @Override
+    public boolean groupHasAnyPermissions(String groupName, Iterable<String> permissions)
+    { return onGroups(g -> g.groupHasAnyPermissions(groupName, permissions)); }
+
+    @Override
+    public boolean groupHasAnyPermissions(String groupName, String... permissions)
+    { return onGroups(g -> g.groupHasAnyPermissions(groupName, permissions)); }
+
+    @Override
+    public boolean anyAreDefaultPermissions(Iterable<String> permissions)
+    { return onGroups(g -> g.anyAreDefaultPermissions(permissions)); }
+
+    @Override
+    public boolean anyAreDefaultPermissions(String... permissions)
+    { return onGroups(g -> g.anyAreDefaultPermissions(permissions)); }
+    //endregion
+
+    //region Has any subpermission of
+    @Override
+    public boolean userHasAnySubPermissionOf(ID userId, String permission)
+    { return onShardOf(userId, s -> s.userHasAnySubPermissionOf(userId, permission)); }
+
+    @Override
+    public boolean userHasAnySubPermissionOf(ID userId, Iterable<String> permissions)
+    { return onShardOf(userId, s -> s.userHasAnySubPermissionOf(userId, permissions)); }
+
+    @Override
+    public boolean userHasAnySubPermissionOf(ID userId, String... permissions)
+    { return onShardOf(userId, s -> s.userHasAnySubPermissionOf(userId, permissions)); }
+
+    @Override
+    public boolean groupHasAnySubPermissionOf(String groupId, String permission)
+    { return onGroups(g -> g.groupHasAnySubPermissionOf(groupId, permission)); }
+
+    @Override
+    public boolean groupHasAnySubPermissionOf(String groupId, Iterable<String> permissions)
+    { return onGroups(g -> g.groupHasAnySubPermissionOf(groupId, permissions)); }
+
+    @Override
+    public boolean groupHasAnySubPermissionOf(String groupId, String... permissions)
+    { return onGroups(g -> g.groupHasAnySubPermissionOf(groupId, permissions)); }
+
+    @Override
+    public boolean isOrAnySubPermissionOfIsDefault(String permission)
+    { return onGroups(g -> g.isOrAnySubPermissionOfIsDefault(permission)); }
+
+    @Override
+    public boolean isOrAnySubPermissionOfIsDefault(Iterable<String> permissions)
+    { return onGroups(g -> g.isOrAnySubPermissionOfIsDefault(permissions)); }
+
+    @Override
+    public boolean isOrAnySubPermissionOfIsDefault(String... permissions)
+    { return onGroups(g -> g.isOrAnySubPermissionOfIsDefault(permissions)); }
+    //endregion
+
+    //region Args
+    @Override
+    public String getUserPermissionArg(ID userId, String permission)
+    { return onShardOf(userId, s -> s.getUserPermissionArg(userId, permission)); }
+
+    @Override
+    public String getGroupPermissionArg(String groupId, String permission)
+    { return onGroups(g -> g.getGroupPermissionArg(groupId, permission)); }
+
+    @Override
+    public String getDefaultPermissionArg(String permission)
+    { return onGroups(g -> g.getDefaultPermissionArg(permission)); }
+    //endregion
+    //endregion
+
+    //region Group queries
+    //region Has
+    @Override
+    public boolean userHasGroup(ID userId, String groupName)
+    { return onShardOf(userId, s -> s.userHasGroup(userId, groupName)); }
+
+    @Override
+    public boolean groupExtendsFromGroup(String groupId, String superGroupName)
+    { return onGroups(g -> g.groupExtendsFromGroup(groupId, superGroupName)); }
+
+    @Override
+    public boolean isDefaultGroup(String groupId)
+    { return onGroups(g -> g.isDefaultGroup(groupId)); }
+    //endregion
+
+    //region Has all
+    @Override
+    public boolean userHasAllGroups(ID userId, Iterable<String> groupNames)
+    { return onShardOf(userId, s -> s.userHasAllGroups(userId, groupNames)); }
+
+    @Override
+    public boolean userHasAllGroups(ID userId, String... groupNames)
+    { return onShardOf(userId, s -> s.userHasAllGroups(userId, groupNames)); }
+
+    @Override
+    public boolean groupExtendsFromAllGroups(String groupName, Iterable<String> superGroupNames)
+    { return onGroups(g -> g.groupExtendsFromAllGroups(groupName, superGroupNames)); }
+
+    @Override
+    public boolean groupExtendsFromAllGroups(String groupName, String... superGroupNames)
+    { return onGroups(g -> g.groupExtendsFromAllGroups(groupName, superGroupNames)); }
+
+    @Override
+    public boolean areAllDefaultGroups(Iterable<String> groupNames)
+    { return onGroups(g -> g.areAllDefaultGroups(groupNames)); }
+
+    @Override
+    public boolean areAllDefaultGroups(String... groupNames)
+    { return onGroups(g -> g.areAllDefaultGroups(groupNames)); }
+    //endregion
+
+    //region Has any
+    @Override
+    public boolean userHasAnyGroups(ID userId, Iterable<String> groupNames)
+    { return onShardOf(userId, s -> s.userHasAnyGroups(userId, groupNames)); }
+
+    @Override
+    public boolean userHasAnyGroups(ID userId, String... groupNames)
+    { return onShardOf(userId, s -> s.userHasAnyGroups(userId, groupNames)); }
+
+    @Override
+    public boolean groupExtendsFromAnyGroups(String groupName, Iterable<String> superGroupNames)
+    { return onGroups(g -> g.groupExtendsFromAnyGroups(groupName, superGroupNames)); }
+
+    @Override
+    public boolean groupExtendsFromAnyGroups(String groupName, String... superGroupNames)
+    { return onGroups(g -> g.groupExtendsFromAnyGroups(groupName, superGroupNames)); }
+
+    @Override
+    public boolean anyAreDefaultGroups(Iterable<String> groupNames)
+    { return onGroups(g -> g.anyAreDefaultGroups(groupNames)); }
+
+    @Override
+    public boolean anyAreDefaultGroups(String... groupNames)
+    { return onGroups(g -> g.anyAreDefaultGroups(groupNames)); }
+    //endregion
+    //endregion
+
+    //region State
+    @Override
+    public boolean hasBeenDifferentiatedFromFiles()
+    {
+        groupsLock.readLock().lock();
+
+        try
+        {
+            if(groups.hasBeenDifferentiatedFromFiles())
+                return true;
+
+            for(Shard shard : shards)
+                synchronized(shard)
+                {
+                    if(shard.registry.hasBeenDifferentiatedFromFiles())
+                        return true;
+                }
+
+            return false;
+        }
+        finally
+        { groupsLock.readLock().unlock(); }
+    }
+    //endregion
+
+    //region Getters
+    //region Members
+    @Override
+    public Collection<String> getGroupNames()
+    { return onGroups(PermissionsRegistry::getGroupNames); }
+
+    @Override
+    public Collection<ID> getUsers()
+    {
+        Set<ID> users = new HashSet<>();
+        groupsLock.readLock().lock();
+
+        try
+        {
+            for(Shard shard : shards)
+                synchronized(shard)
+                { users.addAll(shard.registry.getUsers()); }
+        }
+        finally
+        { groupsLock.readLock().unlock(); }
+
+        return users;
+    }
+
+    @Override
+    public Path getUsersFilePath()
+    { return usersFilePath; }
+
+    @Override
+    public Path getGroupsFilePath()
+    { return groups.getGroupsFilePath(); }
+
+    @Override
+    public Function<ID, String> getIdToStringFunction()
+    { return convertIdToString; }
+
+    @Override
+    public Function<String, ID> getIdFromStringFunction()
+    { return parseIdFromString; }
+    //endregion
+
+    //region Group priorities
+    @Override
+    public Double getGroupPriority(String groupName)
+    { return onGroups(g -> g.getGroupPriority(groupName)); }
+
+    @Override
+    public Long getGroupPriorityAsLong(String groupName)
+    { return onGroups(g -> g.getGroupPriorityAsLong(groupName)); }
+
+    @Override
+    public PermissionGroup.Priority getGroupPriorityAsObject(String groupName)
+    { return onGroups(g -> g.getGroupPriorityAsObject(groupName)); }
+    //endregion
+
+    //region Permissions
+    @Override
+    public List<String> getUserPermissions(ID userId)
+    { return onShardOf(userId, s -> s.getUserPermissions(userId)); }
+
+    @Override
+    public List<String> getGroupPermissions(String groupName)
+    { return onGroups(g -> g.getGroupPermissions(groupName)); }
+
+    @Override
+    public List<String> getDefaultPermissions()
+    { return onGroups(PermissionsRegistry::getDefaultPermissions); }
+
+    @Override
+    public List<String> getUserPermissionsWithArgs(ID userId)
+    { return onShardOf(userId, s -> s.getUserPermissionsWithArgs(userId)); }
+
+    @Override
+    public List<String> getGroupPermissionsWithArgs(String groupName)
+    { return onGroups(g -> g.getGroupPermissionsWithArgs(groupName)); }
+
+    @Override
+    public List<String> getDefaultPermissionsWithArgs()
+    { return onGroups(PermissionsRegistry::getDefaultPermissionsWithArgs); }
+    //endregion
+
+    //region All permission statuses
+    @Override
+    public Collection<PermissionStatus> getAllUserPermissionStatuses(ID userId)
+    { return onShardOf(userId, s -> s.getAllUserPermissionStatuses(userId)); }
+
+    @Override
+    public Collection<PermissionStatus> getAllGroupPermissionStatuses(String groupName)
+    { return onGroups(g -> g.getAllGroupPermissionStatuses(groupName)); }
+
+    @Override
+    public Collection<PermissionStatus> getAllDefaultPermissionStatuses()
+    { return onGroups(PermissionsRegistry::getAllDefaultPermissionStatuses); }
+    //endregion
+
+    //region Groups
+    @Override
+    public List<String> getGroupsOfUser(ID userId)
+    { return onShardOf(userId, s -> s.getGroupsOfUser(userId)); }
+
+    @Override
+    public List<String> getGroupsOfGroup(String groupId)
+    { return onGroups(g -> g.getGroupsOfGroup(groupId)); }
+
+    @Override
+    public List<String> getDefaultGroups()
+    { return onGroups(PermissionsRegistry::getDefaultGroups); }
+    //endregion
+    //endregion
+    //endregion
+
+    //region Mutators
+    //region Other registries
+    @Override
+    public void absorb(PermissionsRegistry<ID> other)
+    {
+        exclusively(() ->
+        {
+            modifyingGroups(g ->
+            {
+                for(String groupName : other.getGroupNames())
+                {
+                    // Copy group priorities from other to this if they don't already exist here.
+                    if(!g.assignableGroups.containsKey(groupName))
+                        g.getGroupPermissionsGroupOrNew(groupName, other.getGroupPriorityAsObject(groupName));
+
+                    g.assignGroupPermissions(groupName, other.getGroupPermissionsWithArgs(groupName));
+                    g.assignGroupsToGroup(groupName, other.getGroupsOfGroup(groupName));
+                }
+
+                g.assignDefaultPermissions(other.getDefaultPermissions());
+                g.assignDefaultGroups(other.getDefaultGroups());
+                return null;
+            });
+
+            for(ID user : other.getUsers())
+            {
+                Shard shard = getShard(user);
+                shard.cached.assignUserPermissions(user, other.getUserPermissions(user));
+                shard.cached.assignGroupsToUser(user, other.getGroupsOfUser(user));
+            }
+        });
+    }
+
+    @Override
+    public void removeContentsOf(PermissionsRegistry<ID> other)
+    {
+        exclusively(() ->
+        {
+            for(ID user : other.getUsers())
+                getShard(user).cached.clearUser(user);
+
+            modifyingGroups(g ->
+            {
+                for(String p : other.getDefaultPermissions())
+                    g.revokeDefaultPermission(p);
+
+                for(String groupName : other.getDefaultGroups())
+                    g.revokeDefaultGroup(groupName);
+
+                g.clearGroups(other.getGroupNames());
+                return null;
+            });
+        });
+    }
+    //endregion
+
+    //region Permissions
+    //region Assign
+    //region Single
+    @Override
+    public Permission assignUserPermission(ID userId, String permission)
+    { return onShardOf(userId, s -> s.assignUserPermission(userId, permission)); }
+
+    @Override
+    public Permission assignGroupPermission(String groupId, String permission)
+    { return modifyingGroups(g -> g.assignGroupPermission(groupId, permission)); }
+
+    @Override
+    public Permission assignDefaultPermission(String permission)
+    { return modifyingGroups(g -> g.assignDefaultPermission(permission)); }
+    //endregion
+
+    //region Multiple
+    @Override
+    public void assignUserPermissions(ID userId, List<String> permissions)
+    { onShardOf(userId, s -> { s.assignUserPermissions(userId, permissions); return null; }); }
+
+    @Override
+    public void assignUserPermissions(ID userId, String[] permissions)
+    { onShardOf(userId, s -> { s.assignUserPermissions(userId, permissions); return null; }); }
+
+    @Override
+    public void assignGroupPermissions(String groupName, List<String> permissions)
+    { modifyingGroups(g -> { g.assignGroupPermissions(groupName, permissions); return null; }); }
+
+    @Override
+    public void assignGroupPermissions(String groupName, String[] permissions)
+    { modifyingGroups(g -> { g.assignGroupPermissions(groupName, permissions); return null; }); }
+
+    @Override
+    public void assignDefaultPermissions(List<String> permissions)
+    { modifyingGroups(g -> { g.assignDefaultPermissions(permissions); return null; }); }
+
+    @Override
+    public void assignDefaultPermissions(String[] permissions)
+    { modifyingGroups(g -> { g.assignDefaultPermissions(permissions); return null; }); }
+    //endregion
+    //endregion
+
+    //region Revoke
+    //region Single
+    @Override
+    public Permission revokeUserPermission(ID userId, String permission)
+    { return onShardOf(userId, s -> s.revokeUserPermission(userId, permission)); }
+
+    @Override
+    public Permission revokeGroupPermission(String groupeName, String permission)
+    { return modifyingGroups(g -> g.revokeGroupPermission(groupeName, permission)); }
+
+    @Override
+    public Permission revokeDefaultPermission(String permission)
+    { return modifyingGroups(g -> g.revokeDefaultPermission(permission)); }
+    //endregion
+
+    //region All
+    @Override
+    public void revokeAllUserPermissions(ID userId)
+    { onShardOf(userId, s -> { s.revokeAllUserPermissions(userId); return null; }); }
+
+    @Override
+    public void revokeAllGroupPermissions(String groupName)
+    { modifyingGroups(g -> { g.revokeAllGroupPermissions(groupName); return null; }); }
+
+    @Override
+    public void revokeAllDefaultPermissions()
+    { modifyingGroups(g -> { g.revokeAllDefaultPermissions(); return null; }); }
+    //endregion
+    //endregion
+    //endregion
+
+    //region Groups
+    //region Assign
+    //region Single
+    @Override
+    public void assignGroupToUser(ID userId, String groupNameBeingAssigned)
+    { onShardOfWithGroups(userId, s -> { s.assignGroupToUser(userId, groupNameBeingAssigned); return null; }); }
+
+    @Override
+    public void assignGroupToGroup(String groupName, String groupNameBeingAssigned)
+    { modifyingGroups(g -> { g.assignGroupToGroup(groupName, groupNameBeingAssigned); return null; }); }
+
+    @Override
+    public void assignDefaultGroup(String groupNameBeingAssigned)
+    { modifyingGroups(g -> { g.assignDefaultGroup(groupNameBeingAssigned); return null; }); }
+    //endregion
+
+    //region Multiple
+    @Override
+    public void assignGroupsToUser(ID userId, List<String> groupNamesBeingAssigned)
+    { onShardOfWithGroups(userId, s -> { s.assignGroupsToUser(userId, groupNamesBeingAssigned); return null; }); }
+
+    @Override
+    public void assignGroupsToUser(ID userId, String[] groupNamesBeingAssigned)
+    { onShardOfWithGroups(userId, s -> { s.assignGroupsToUser(userId, groupNamesBeingAssigned); return null; }); }
+
+    @Override
+    public void assignGroupsToGroup(String groupName, List<String> groupNamesBeingAssigned)
+    { modifyingGroups(g -> { g.assignGroupsToGroup(groupName, groupNamesBeingAssigned); return null; }); }
+
+    @Override
+    public void assignGroupsToGroup(String groupName, String[] groupNamesBeingAssigned)
+    { modifyingGroups(g -> { g.assignGroupsToGroup(groupName, groupNamesBeingAssigned); return null; }); }
+
+    @Override
+    public void assignDefaultGroups(List<String> groupNamesBeingAssigned)
+    { modifyingGroups(g -> { g.assignDefaultGroups(groupNamesBeingAssigned); return null; }); }
+
+    @Override
+    public void assignDefaultGroups(String[] groupNamesBeingAssigned)
+    { modifyingGroups(g -> { g.assignDefaultGroups(groupNamesBeingAssigned); return null; }); }
+    //endregion
+    //endregion
+
+    //region Revoke
+    //region Single
+    @Override
+    public boolean revokeGroupFromUser(ID userId, String groupNameBeingRevoked)
+    { return onShardOfWithGroups(userId, s -> s.revokeGroupFromUser(userId, groupNameBeingRevoked)); }
+
+    @Override
+    public boolean revokeGroupFromGroup(String groupName, String groupNameBeingRevoked)
+    { return modifyingGroups(g -> g.revokeGroupFromGroup(groupName, groupNameBeingRevoked)); }
+
+    @Override
+    public boolean revokeDefaultGroup(String groupNameBeingRevoked)
+    { return modifyingGroups(g -> g.revokeDefaultGroup(groupNameBeingRevoked)); }
+    //endregion
+
+    //region All
+    @Override
+    public void revokeAllGroupsFromUser(ID userId)
+    { onShardOfWithGroups(userId, s -> { s.revokeAllGroupsFromUser(userId); return null; }); }
+
+    @Override
+    public void revokeAllGroupsFromGroup(String groupName)
+    { modifyingGroups(g -> { g.revokeAllGroupsFromGroup(groupName); return null; }); }
+
+    @Override
+    public void revokeAllDefaultGroups()
+    { modifyingGroups(g -> { g.revokeAllDefaultGroups(); return null; }); }
+    //endregion
+    //endregion
+    //endregion
+
+    //region Clear
+    @Override
+    public void clear()
+    {
+        exclusively(() ->
+        {
+            // Users are cleared first, as clearing the groups replaces the group objects they reference.
+            for(Shard shard : shards)
+                shard.clearUsers();
+
+            modifyingGroups(g -> { g.clear(); return null; });
+        });
+    }
+
+    @Override
+    public void clearUsers()
+    {
+        exclusively(() ->
+        {
+            for(Shard shard : shards)
+                shard.clearUsers();
+        });
+    }
+
+    @Override
+    public void clearUsers(Collection<ID> userIds)
+    {
+        exclusively(() ->
+        {
+            for(ID userId : userIds)
+                getShard(userId).cached.clearUser(userId);
+        });
+    }
+
+    @Override
+    public void clearUsers(ID[] userIds)
+    {
+        exclusively(() ->
+        {
+            for(ID userId : userIds)
+                getShard(userId).cached.clearUser(userId);
+        });
+    }
+
+    @Override
+    public void clearUser(ID userId)
+    { onShardOf(userId, s -> { s.clearUser(userId); return null; }); }
+
+    @Override
+    public void clearGroups()
+    { modifyingGroups(g -> { g.clearGroups(); return null; }); }
+
+    @Override
+    public void clearGroups(Collection<String> groupNames)
+    { modifyingGroups(g -> { g.clearGroups(groupNames); return null; }); }
+
+    @Override
+    public void clearGroups(String[] groupNames)
+    { modifyingGroups(g -> { g.clearGroups(groupNames); return null; }); }
+
+    @Override
+    public void clearGroup(String groupName)
+    { modifyingGroups(g -> { g.clearGroup(groupName); return null; }); }
+
+    @Override
+    public void clearDefaults()
+    { modifyingGroups(g -> { g.clearDefaults(); return null; }); }
+
+    @Override
+    public void prune()
+    { modifyingGroups(g -> { g.prune(); return null; }); }
+
+    @Override
+    public void prune(Collection<String> groupNames)
+    { modifyingGroups(g -> { g.prune(groupNames); return null; }); }
+    //endregion
+
+    //region Batches
+    /**
+     * {@inheritDoc}
+     * @implNote The transaction has exclusive access to the whole registry while it is performed.
+     */
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        exclusively(() ->
+        {
+            try
+            { batchFromShard(0, transaction); }
+            finally
+            {
+                // Rolling back bypasses the shards' caches.
+                invalidateCaches();
+            }
+        });
+    }
+
+    /**
+     * Performs a transaction within batches of every shard from the given index onwards, and of the groups, such that
+     * should the transaction fail, each is rolled back. The groups are rolled back first, so that users rolled back
+     * afterwards reference the restored groups.
+     * @param shardIndex The index of the first shard to perform the transaction in a batch of.
+     * @param transaction The transaction to perform.
+     */
+    private void batchFromShard(int shardIndex, Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        if(shardIndex == shards.size())
+            groups.batch(g -> transaction.accept(this));
+        else
+            shards.get(shardIndex).registry.batch(s -> batchFromShard(shardIndex + 1, transaction));
+    }
+    //endregion
+    //endregion
+
+    //region Saving & loading
+    //region Saving
+    @Override
+    public String usersToSaveString()
+    {
+        StringWriter sw = new StringWriter();
+
+        exclusively(() ->
+        {
+            try(BufferedWriter writer = new BufferedWriter(sw))
+            { GroupMapPermissionsRegistry.savePerms(writer, groups.getUserPermissionsGroups()); }
+            catch(IOException e)
+            { e.printStackTrace(); }
+        });
+
+        return sw.toString();
+    }
+
+    @Override
+    public String groupsToSaveString()
+    { return onGroups(PermissionsRegistry::groupsToSaveString); }
+
+    /**
+     * <p>Saves the groups to the groups file, and the users of each shard to the shard's own users file.</p>
+     *
+     * <p>The users files of shards are written concurrently. Files of shards that have not been modified since they
+     * were last saved or loaded are not written.</p>
+     * @throws IOException If an IO exception was thrown while writing any of the files.
+     */
+    @Override
+    public void save() throws IOException
+    {
+        groupsLock.readLock().lock();
+
+        try
+        {
+            synchronized(groups)
+            {
+                if(groups.hasBeenDifferentiatedFromFiles())
+                    groups.save();
+            }
+
+            shards.parallelStream().forEach(shard ->
+            {
+                synchronized(shard)
+                {
+                    if(!shard.registry.hasBeenDifferentiatedFromFiles())
+                        return;
+
+                    try
+                    { shard.registry.save(); }
+                    catch(IOException e)
+                    { throw new UncheckedIOException(e); }
+                }
+            });
+
+            deleteFilesOfRemovedShards();
+        }
+        catch(UncheckedIOException e)
+        { throw e.getCause(); }
+        finally
+        { groupsLock.readLock().unlock(); }
+    }
+
+    /**
+     * <p>Saves the groups to the groups file, and the users of each shard to the shard's own users file, writing the
+     * files on background threads.</p>
+     *
+     * <p>The contents of all shards are captured together, while no other operations are being performed on the
+     * registry. Files of shards that have not been modified since they were last saved or loaded are not written.</p>
+     * @return A future that completes once the contents of the registry as of this call have been written, or that
+     *         completes exceptionally with the IO exception thrown in the process of writing any of the files.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    {
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        groupsLock.writeLock().lock();
+
+        try
+        {
+            if(groups.hasBeenDifferentiatedFromFiles())
+                saves.add(groups.saveInBackground());
+
+            for(Shard shard : shards)
+                if(shard.registry.hasBeenDifferentiatedFromFiles())
+                    saves.add(shard.registry.saveInBackground());
+        }
+        finally
+        { groupsLock.writeLock().unlock(); }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])).whenComplete((r, exception) ->
+        {
+            if(exception != null)
+            {
+                result.completeExceptionally(exception instanceof CompletionException ? exception.getCause()
+                                                                                      : exception);
+                return;
+            }
+
+            try
+            {
+                deleteFilesOfRemovedShards();
+                result.complete(null);
+            }
+            catch(IOException e)
+            { result.completeExceptionally(e); }
+        });
+
+        return result;
+    }
+
+    /**
+     * Deletes the users files of any shards beyond the current number of shards, from where the registry was saved
+     * with a larger number of shards.
+     * @throws IOException If an IO exception is thrown in the process of deleting any of the files.
+     */
+    private void deleteFilesOfRemovedShards() throws IOException
+    {
+        if(usersFilePath != null)
+            for(int i = shards.size(); Files.deleteIfExists(getShardUsersFilePath(i)); i++)
+            { }
+    }
+    //endregion
+
+    //region Loading
+    /**
+     * Reads users and their permissions, in the registry's save string format, from the provided reader, loading each
+     * user into the shard they belong in.
+     * @param reader The reader to read from.
+     * @throws IOException If an IO exception was thrown while reading from the provided reader.
+     */
+    private void loadUsersIntoShards(BufferedReader reader) throws IOException
+    {
+        StringBuilder block = new StringBuilder();
+        ID blockUserId = null;
+
+        for(String line; (line = reader.readLine()) != null;)
+        {
+            // Any line not indented and not blank starts a new user's block.
+            if(!line.startsWith(" ") && !line.trim().isEmpty())
+            {
+                if(blockUserId != null)
+                    loadUserIntoShard(blockUserId, block.toString());
+
+                int groupPrefixPosition = line.lastIndexOf('#');
+
+                blockUserId = parseIdFromString.apply(groupPrefixPosition < 0
+                                                              ? line.trim()
+                                                              : line.substring(0, groupPrefixPosition).trim());
+
+                block.setLength(0);
+            }
+
+            block.append(line).append('\n');
+        }
+
+        if(blockUserId != null)
+            loadUserIntoShard(blockUserId, block.toString());
+    }
+
+    /**
+     * Loads a single user's block into the shard they belong in.
+     * @param userId The ID of the user.
+     * @param block The user's block, in the registry's save string format.
+     * @throws IOException If an IO exception was thrown while reading the block.
+     */
+    private void loadUserIntoShard(ID userId, String block) throws IOException
+    {
+        Shard shard = getShard(userId);
+        shard.registry.recordUserForRollback(userId);
+        shard.registry.loadUsers(new StringReader(block));
+        shard.cached.invalidateCache();
+    }
+
+    @Override
+    public void loadUsersFromSaveString(String saveString) throws IOException
+    {
+        exclusively(() ->
+        {
+            try(BufferedReader reader = new BufferedReader(new StringReader(saveString)))
+            { loadUsersIntoShards(reader); }
+        });
+    }
+
+    @Override
+    public void loadGroupsFromSaveString(String saveString) throws IOException
+    {
+        exclusively(() ->
+        {
+            groups.loadGroupsFromSaveString(saveString);
+            invalidateCaches();
+        });
+    }
+
+    /**
+     * <p>Clears the registry and loads the groups from the groups file and the users from the users files of the
+     * shards.</p>
+     *
+     * <p>Users are loaded into the shards they belong in regardless of which shard's file they were read from, so users
+     * files saved with a different number of shards may be loaded.</p>
+     * @throws IOException If an IO exception was thrown while reading from the users or groups files.
+     */
+    @Override
+    public void load() throws IOException
+    {
+        exclusively(() ->
+        {
+            // Users are cleared first, as loading the groups replaces the group objects they reference.
+            for(Shard shard : shards)
+                shard.clearUsers();
+
+            groups.load();
+            invalidateCaches();
+            int filesLoaded = 0;
+
+            if(usersFilePath != null)
+            {
+                for(Path file; Files.isRegularFile(file = getShardUsersFilePath(filesLoaded)); filesLoaded++)
+                {
+                    try(BufferedReader reader = Files.newBufferedReader(file))
+                    { loadUsersIntoShards(reader); }
+                }
+            }
+
+            // Where the files were saved with a different number of shards, they don't match the current shards.
+            boolean shardsMatchFiles = (filesLoaded == 0) || (filesLoaded == shards.size());
+
+            for(Shard shard : shards)
+            {
+                shard.registry.forgetWrittenFileContents();
+
+                if(shardsMatchFiles)
+                    shard.registry.markAsUnmodified();
+                else
+                    shard.registry.markAsModified();
+            }
+        });
+    }
+    //endregion
+    //endregion
+    //endregion
+    //endregion
+}
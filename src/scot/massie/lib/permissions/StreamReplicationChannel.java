@@ -0,0 +1,152 @@
+package scot.massie.lib.permissions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * <p>A {@link ReplicationChannel} over a pair of streams, such as those of a socket or a pipe.</p>
+ *
+ * <p>Messages are written to the output stream as they're sent, and read from the input stream on a daemon thread,
+ * started once a receiver is set, which passes them to the receiver. Reading stops once the input stream ends, or once
+ * an exception is thrown while reading from it. Exceptions thrown by the receiver do not stop reading.</p>
+ */
+public class StreamReplicationChannel implements ReplicationChannel
+{
+    //region Instance fields
+    /**
+     * The stream messages sent to this end of the channel are read from.
+     */
+    private final DataInputStream input;
+
+    /**
+     * The stream messages sent from this end of the channel are written to. Writing is synchronised on this.
+     */
+    private final DataOutputStream output;
+
+    /**
+     * The receiver of messages read from the input stream. Null where none has been set.
+     */
+    private volatile Consumer<ReplicationMessage> receiver = null;
+
+    /**
+     * The thread reading messages from the input stream. Null where it has not yet been started.
+     */
+    private Thread readerThread = null;
+
+    /**
+     * Whether or not this channel has been closed.
+     */
+    private volatile boolean closed = false;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new stream replication channel.
+     * @param input The stream messages sent from the other end of the channel are read from.
+     * @param output The stream messages sent from this end of the channel are written to.
+     */
+    public StreamReplicationChannel(InputStream input, OutputStream output)
+    {
+        this.input = new DataInputStream(new BufferedInputStream(input));
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+    }
+    //endregion
+
+    //region Methods
+    @Override
+    public void send(ReplicationMessage message) throws IOException
+    {
+        synchronized(output)
+        {
+            message.writeTo(output);
+            output.flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Messages are passed to the receiver on the thread reading from the input stream, which is started when a
+     * receiver is first set.</p>
+     * @param receiver The receiver of messages sent to this end of the channel.
+     */
+    @Override
+    public synchronized void setReceiver(Consumer<ReplicationMessage> receiver)
+    {
+        this.receiver = receiver;
+
+        if(readerThread != null || closed)
+            return;
+
+        readerThread = new Thread(this::readMessages, "permissions-replication-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Reads messages from the input stream and passes them to the receiver, until the input stream ends or an
+     * exception is thrown while reading from it.
+     */
+    private void readMessages()
+    {
+        try
+        {
+            while(!closed)
+            {
+                ReplicationMessage message = ReplicationMessage.readFrom(input);
+                Consumer<ReplicationMessage> currentReceiver = receiver;
+
+                if(currentReceiver == null)
+                    continue;
+
+                try
+                { currentReceiver.accept(message); }
+                catch(RuntimeException e)
+                { onFailure(e); }
+            }
+        }
+        catch(EOFException e)
+        { /* The other end of the channel has been closed. */ }
+        catch(IOException e)
+        {
+            if(!closed)
+                onFailure(e);
+        }
+    }
+
+    /**
+     * Called where an exception is thrown by the receiver while handling a message, or while reading messages from the
+     * input stream, other than by the input stream ending or this channel being closed. Where the exception was thrown
+     * while reading, reading stops after this is called.
+     * @apiNote Does nothing by default. This may be overridden to handle failures to receive messages.
+     * @param exception The exception that was thrown.
+     */
+    protected void onFailure(Exception exception)
+    { }
+
+    /**
+     * Closes this channel, and the input and output streams it's over.
+     * @throws IOException If an IO exception was thrown while closing either stream.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+
+        try
+        {
+            synchronized(output)
+            { output.close(); }
+        }
+        finally
+        { input.close(); }
+    }
+    //endregion
+}
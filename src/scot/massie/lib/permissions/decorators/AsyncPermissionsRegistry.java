@@ -0,0 +1,612 @@
+package scot.massie.lib.permissions.decorators;
+
+import scot.massie.lib.permissions.Permission;
+import scot.massie.lib.permissions.PermissionStatus;
+import scot.massie.lib.permissions.PermissionsRegistry;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>Provides asynchronous access to a {@link PermissionsRegistry}, with methods returning {@link CompletableFuture}s
+ * rather than blocking the calling thread.</p>
+ *
+ * <p>Every operation, including saving and loading, is performed on the executor this was created with. By default,
+ * this is a shared pool of daemon threads, created as needed and reused.</p>
+ *
+ * <p>Modifications of the same user are performed one after another, in the order they were requested. Modifications
+ * not of a single user, such as of groups or of the default permissions, are likewise performed one after another in
+ * the order they were requested. Operations on the registry as a whole - clearing, batches, saving, and loading - are
+ * performed after all modifications requested before them, and before any requested after them.</p>
+ *
+ * <p>Queries are not ordered with respect to modifications. To query the registry after a modification has been made,
+ * the query should be requested once the modification's future has completed.</p>
+ * @apiNote As operations are performed on multiple threads at once, the wrapped registry must be safe to access from
+ *          multiple threads, such as a {@link ThreadsafePermissionsRegistry} or a
+ *          {@link scot.massie.lib.permissions.ShardedPermissionsRegistry}.
+ * @see PermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class AsyncPermissionsRegistry<ID extends Comparable<? super ID>>
+{
+    //region Inner classes
+    /**
+     * An operation on a permissions registry, which may throw a checked exception.
+     * @param <ID> The type of the unique identifier used to represent users.
+     * @param <T> The type of the result of the operation.
+     */
+    @FunctionalInterface
+    private interface RegistryOperation<ID extends Comparable<? super ID>, T>
+    { T perform(PermissionsRegistry<ID> registry) throws Exception; }
+    //endregion
+
+    //region Instance fields
+    /**
+     * The executor operations are performed on where none is specified. This is created when first needed.
+     */
+    private static ExecutorService defaultExecutor = null;
+
+    /**
+     * The registry operations are performed on.
+     */
+    protected final PermissionsRegistry<ID> inner;
+
+    /**
+     * The executor operations are performed on.
+     */
+    protected final Executor executor;
+
+    /**
+     * Lock for ordering modifications.
+     */
+    private final Object orderingLock = new Object();
+
+    /**
+     * The most recently requested modification of each user with a modification yet to complete.
+     */
+    private final Map<ID, CompletableFuture<?>> lastUserModifications = new HashMap<>();
+
+    /**
+     * The most recently requested modification not of a single user.
+     */
+    private CompletableFuture<?> lastRegistryModification = CompletableFuture.completedFuture(null);
+
+    /**
+     * The most recently requested operation on the registry as a whole.
+     */
+    private CompletableFuture<?> lastWholeRegistryOperation = CompletableFuture.completedFuture(null);
+    //endregion
+
+    //region Initialisation
+    /**
+     * Provides asynchronous access to the given permissions registry, performing operations on the given executor.
+     * @param inner The wrapped permissions registry. This must be safe to access from multiple threads.
+     * @param executor The executor to perform operations on.
+     */
+    public AsyncPermissionsRegistry(PermissionsRegistry<ID> inner, Executor executor)
+    {
+        this.inner = inner;
+        this.executor = executor;
+    }
+
+    /**
+     * Provides asynchronous access to the given permissions registry, performing operations on a shared pool of daemon
+     * threads.
+     * @param inner The wrapped permissions registry. This must be safe to access from multiple threads.
+     */
+    public AsyncPermissionsRegistry(PermissionsRegistry<ID> inner)
+    { this(inner, getDefaultExecutor()); }
+
+    /**
+     * Creates a new asynchronous permissions registry, with the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link ThreadsafePermissionsRegistry} created with the given arguments into
+     * {@link #AsyncPermissionsRegistry(PermissionsRegistry)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public AsyncPermissionsRegistry(Function<ID, String> idToString,
+                                    Function<String, ID> idFromString,
+                                    Path usersFile,
+                                    Path groupsFile)
+    { this(new ThreadsafePermissionsRegistry<>(idToString, idFromString, usersFile, groupsFile)); }
+
+    /**
+     * Creates a new asynchronous permissions registry, without the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link ThreadsafePermissionsRegistry} created with the given arguments into
+     * {@link #AsyncPermissionsRegistry(PermissionsRegistry)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    public AsyncPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
+    { this(new ThreadsafePermissionsRegistry<>(idToString, idFromString)); }
+
+    /**
+     * Gets the shared executor used where none is specified, creating it if it has not yet been created.
+     * @return The default executor.
+     */
+    private static synchronized ExecutorService getDefaultExecutor()
+    {
+        if(defaultExecutor == null)
+        {
+            AtomicInteger threadCount = new AtomicInteger();
+
+            defaultExecutor = Executors.newCachedThreadPool(runnable ->
+            {
+                Thread thread = new Thread(runnable, "permissions-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return defaultExecutor;
+    }
+    //endregion
+
+    //region Methods
+    //region Scheduling
+    /**
+     * Performs an operation on the wrapped registry, wrapping any checked exception thrown in a
+     * {@link CompletionException}.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @return The result of the operation.
+     */
+    private <T> T perform(RegistryOperation<ID, T> operation)
+    {
+        try
+        { return operation.perform(inner); }
+        catch(RuntimeException e)
+        { throw e; }
+        catch(Exception e)
+        { throw new CompletionException(e); }
+    }
+
+    /**
+     * Performs an operation after another, whether or not the other completed successfully.
+     * @param previous The future of the operation to perform this operation after.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @return A future of the operation's result.
+     */
+    private <T> CompletableFuture<T> after(CompletableFuture<?> previous, RegistryOperation<ID, T> operation)
+    { return previous.handleAsync((previousResult, previousException) -> perform(operation), executor); }
+
+    /**
+     * Performs a query on the wrapped registry. This is not ordered with respect to any other operation.
+     * @param operation The query to perform.
+     * @param <T> The type of the result of the query.
+     * @return A future of the query's result.
+     */
+    private <T> CompletableFuture<T> querying(RegistryOperation<ID, T> operation)
+    {
+        return CompletableFuture.supplyAsync(() -> perform(operation), executor);
+    }
+
+    /**
+     * Performs a modification of the specified user on the wrapped registry, after all previously requested
+     * modifications of the same user and operations on the registry as a whole.
+     * @param userId The ID of the user being modified.
+     * @param operation The modification to perform.
+     * @param <T> The type of the result of the modification.
+     * @return A future of the modification's result.
+     */
+    private <T> CompletableFuture<T> modifyingUser(ID userId, RegistryOperation<ID, T> operation)
+    {
+        synchronized(orderingLock)
+        {
+            CompletableFuture<?> previous = lastUserModifications.getOrDefault(userId, lastWholeRegistryOperation);
+            CompletableFuture<T> next = after(previous, operation);
+            lastUserModifications.put(userId, next);
+
+            next.whenComplete((result, exception) ->
+            {
+                synchronized(orderingLock)
+                { lastUserModifications.remove(userId, next); }
+            });
+
+            return next;
+        }
+    }
+
+    /**
+     * Performs a modification, not of a single user, on the wrapped registry, after all previously requested
+     * modifications not of a single user and operations on the registry as a whole.
+     * @param operation The modification to perform.
+     * @param <T> The type of the result of the modification.
+     * @return A future of the modification's result.
+     */
+    private <T> CompletableFuture<T> modifyingRegistry(RegistryOperation<ID, T> operation)
+    {
+        synchronized(orderingLock)
+        {
+            CompletableFuture<T> next = after(lastRegistryModification, operation);
+            lastRegistryModification = next;
+            return next;
+        }
+    }
+
+    /**
+     * Performs an operation on the wrapped registry as a whole, after all previously requested modifications, and
+     * before any modifications requested after it.
+     * @param operation The operation to perform.
+     * @param <T> The type of the result of the operation.
+     * @return A future of the operation's result.
+     */
+    private <T> CompletableFuture<T> onWholeRegistry(RegistryOperation<ID, T> operation)
+    {
+        synchronized(orderingLock)
+        {
+            List<CompletableFuture<?>> previous = new ArrayList<>(lastUserModifications.values());
+            previous.add(lastRegistryModification);
+            previous.add(lastWholeRegistryOperation);
+
+            // Failures of previous operations are ignored, as with modifications after other modifications.
+            CompletableFuture<?>[] previousIgnoringFailures
+                    = previous.stream().map(x -> x.handle((result, exception) -> null)).toArray(CompletableFuture[]::new);
+
+            CompletableFuture<T> next = after(CompletableFuture.allOf(previousIgnoringFailures), operation);
+            lastUserModifications.clear();
+            lastRegistryModification = next;
+            lastWholeRegistryOperation = next;
+            return next;
+        }
+    }
+    //endregion
+
+    //region Accessors
+    /**
+     * Gets the permissions registry operations are performed on.
+     * @return The wrapped permissions registry.
+     */
+    public PermissionsRegistry<ID> getInner()
+    { return inner; }
+
+    /**
+     * Gets the executor operations are performed on.
+     * @return The executor operations are performed on.
+     */
+    public Executor getExecutor()
+    { return executor; }
+    //endregion
+
+    //region Queries
+    /**
+     * Performs an arbitrary query on the wrapped registry.
+     * @param query The query to perform, with the wrapped registry passed in.
+     * @param <T> The type of the result of the query.
+     * @return A future of the query's result.
+     */
+    public <T> CompletableFuture<T> query(Function<PermissionsRegistry<ID>, T> query)
+    { return querying(query::apply); }
+
+    /**
+     * Asserts that the specified user has the given permission.
+     * @see PermissionsRegistry#assertUserHasPermission(Comparable, String)
+     * @param userId The ID of the user to assert has the given permission.
+     * @param permission The permission to assert that the specified user has.
+     * @return A future that completes exceptionally with a
+     *         {@link scot.massie.lib.permissions.exceptions.UserMissingPermissionException} if the specified user does
+     *         not have the given permission.
+     */
+    public CompletableFuture<Void> assertUserHasPermission(ID userId, String permission)
+    { return querying(r -> { r.assertUserHasPermission(userId, permission); return null; }); }
+
+    /**
+     * Asserts that the specified group has the given permission.
+     * @see PermissionsRegistry#assertGroupHasPermission(String, String)
+     * @param groupName The name of the group to assert has the given permission.
+     * @param permission The permission to assert that the specified group has.
+     * @return A future that completes exceptionally with a
+     *         {@link scot.massie.lib.permissions.exceptions.GroupMissingPermissionException} if the specified group
+     *         does not have the given permission.
+     */
+    public CompletableFuture<Void> assertGroupHasPermission(String groupName, String permission)
+    { return querying(r -> { r.assertGroupHasPermission(groupName, permission); return null; }); }
+
+    /**
+     * Gets the status of the specified user's permission.
+     * @see PermissionsRegistry#getUserPermissionStatus(Comparable, String)
+     * @param userId The ID of the user to get the status of the permission of.
+     * @param permission The permission to get the status of.
+     * @return A future of an object representing the status of the specified user's permission.
+     */
+    public CompletableFuture<PermissionStatus> getUserPermissionStatus(ID userId, String permission)
+    { return querying(r -> r.getUserPermissionStatus(userId, permission)); }
+
+    /**
+     * Gets whether or not the specified user has the given permission.
+     * @see PermissionsRegistry#userHasPermission(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param permission The permission to check for.
+     * @return A future of whether or not the specified user has the given permission.
+     */
+    public CompletableFuture<Boolean> userHasPermission(ID userId, String permission)
+    { return querying(r -> r.userHasPermission(userId, permission)); }
+
+    /**
+     * Gets whether or not the specified user has all of the given permissions.
+     * @see PermissionsRegistry#userHasAllPermissions(Comparable, Iterable)
+     * @param userId The ID of the user to check.
+     * @param permissions The permissions to check for.
+     * @return A future of whether or not the specified user has all of the given permissions.
+     */
+    public CompletableFuture<Boolean> userHasAllPermissions(ID userId, Iterable<String> permissions)
+    { return querying(r -> r.userHasAllPermissions(userId, permissions)); }
+
+    /**
+     * Gets whether or not the specified user has any of the given permissions.
+     * @see PermissionsRegistry#userHasAnyPermissions(Comparable, Iterable)
+     * @param userId The ID of the user to check.
+     * @param permissions The permissions to check for.
+     * @return A future of whether or not the specified user has any of the given permissions.
+     */
+    public CompletableFuture<Boolean> userHasAnyPermissions(ID userId, Iterable<String> permissions)
+    { return querying(r -> r.userHasAnyPermissions(userId, permissions)); }
+
+    /**
+     * Gets whether or not the specified user has the given permission or any permission under it.
+     * @see PermissionsRegistry#userHasAnySubPermissionOf(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param permission The permission to check for.
+     * @return A future of whether or not the specified user has the given permission or any permission under it.
+     */
+    public CompletableFuture<Boolean> userHasAnySubPermissionOf(ID userId, String permission)
+    { return querying(r -> r.userHasAnySubPermissionOf(userId, permission)); }
+
+    /**
+     * Gets the argument of the specified user's most relevant permission to the given permission.
+     * @see PermissionsRegistry#getUserPermissionArg(Comparable, String)
+     * @param userId The ID of the user to get the permission argument of.
+     * @param permission The permission to get the argument of.
+     * @return A future of the argument of the specified user's most relevant permission to the given permission, or
+     *         of null if there is none.
+     */
+    public CompletableFuture<String> getUserPermissionArg(ID userId, String permission)
+    { return querying(r -> r.getUserPermissionArg(userId, permission)); }
+
+    /**
+     * Gets whether or not the specified user has the specified group, directly or indirectly.
+     * @see PermissionsRegistry#userHasGroup(Comparable, String)
+     * @param userId The ID of the user to check.
+     * @param groupName The name of the group to check for.
+     * @return A future of whether or not the specified user has the specified group.
+     */
+    public CompletableFuture<Boolean> userHasGroup(ID userId, String groupName)
+    { return querying(r -> r.userHasGroup(userId, groupName)); }
+
+    /**
+     * Gets whether or not the specified group has the given permission.
+     * @see PermissionsRegistry#groupHasPermission(String, String)
+     * @param groupName The name of the group to check.
+     * @param permission The permission to check for.
+     * @return A future of whether or not the specified group has the given permission.
+     */
+    public CompletableFuture<Boolean> groupHasPermission(String groupName, String permission)
+    { return querying(r -> r.groupHasPermission(groupName, permission)); }
+
+    /**
+     * Gets whether or not the given permission is a default permission.
+     * @see PermissionsRegistry#isDefaultPermission(String)
+     * @param permission The permission to check for.
+     * @return A future of whether or not the given permission is a default permission.
+     */
+    public CompletableFuture<Boolean> isDefaultPermission(String permission)
+    { return querying(r -> r.isDefaultPermission(permission)); }
+    //endregion
+
+    //region Modifications
+    //region Users
+    /**
+     * Performs an arbitrary modification of the specified user, after any previously requested modifications of them.
+     * @param userId The ID of the user being modified.
+     * @param modification The modification to perform, with the wrapped registry passed in. This should only modify the
+     *                     specified user.
+     * @param <T> The type of the result of the modification.
+     * @return A future of the modification's result.
+     */
+    public <T> CompletableFuture<T> modifyUser(ID userId, Function<PermissionsRegistry<ID>, T> modification)
+    { return modifyingUser(userId, modification::apply); }
+
+    /**
+     * Assigns a permission to the specified user.
+     * @see PermissionsRegistry#assignUserPermission(Comparable, String)
+     * @param userId The ID of the user to assign a permission to.
+     * @param permission The permission to assign.
+     * @return A future of the permission previously assigned at the given permission's path, or of null if there was
+     *         none.
+     */
+    public CompletableFuture<Permission> assignUserPermission(ID userId, String permission)
+    { return modifyingUser(userId, r -> r.assignUserPermission(userId, permission)); }
+
+    /**
+     * Revokes a permission from the specified user.
+     * @see PermissionsRegistry#revokeUserPermission(Comparable, String)
+     * @param userId The ID of the user to revoke a permission from.
+     * @param permission The permission to revoke.
+     * @return A future of the revoked permission, or of null if there was none.
+     */
+    public CompletableFuture<Permission> revokeUserPermission(ID userId, String permission)
+    { return modifyingUser(userId, r -> r.revokeUserPermission(userId, permission)); }
+
+    /**
+     * Assigns a group to the specified user.
+     * @see PermissionsRegistry#assignGroupToUser(Comparable, String)
+     * @param userId The ID of the user to assign a group to.
+     * @param groupNameBeingAssigned The name of the group to assign.
+     * @return A future that completes once the group has been assigned.
+     */
+    public CompletableFuture<Void> assignGroupToUser(ID userId, String groupNameBeingAssigned)
+    { return modifyingUser(userId, r -> { r.assignGroupToUser(userId, groupNameBeingAssigned); return null; }); }
+
+    /**
+     * Revokes a group from the specified user.
+     * @see PermissionsRegistry#revokeGroupFromUser(Comparable, String)
+     * @param userId The ID of the user to revoke a group from.
+     * @param groupNameBeingRevoked The name of the group to revoke.
+     * @return A future of whether or not the user was modified as a result.
+     */
+    public CompletableFuture<Boolean> revokeGroupFromUser(ID userId, String groupNameBeingRevoked)
+    { return modifyingUser(userId, r -> r.revokeGroupFromUser(userId, groupNameBeingRevoked)); }
+
+    /**
+     * Removes all information about the specified user.
+     * @see PermissionsRegistry#clearUser(Comparable)
+     * @param userId The ID of the user to remove information about.
+     * @return A future that completes once the user has been removed.
+     */
+    public CompletableFuture<Void> clearUser(ID userId)
+    { return modifyingUser(userId, r -> { r.clearUser(userId); return null; }); }
+    //endregion
+
+    //region Groups and defaults
+    /**
+     * Performs an arbitrary modification not of a single user, after any previously requested modifications not of a
+     * single user.
+     * @param modification The modification to perform, with the wrapped registry passed in.
+     * @param <T> The type of the result of the modification.
+     * @return A future of the modification's result.
+     */
+    public <T> CompletableFuture<T> modify(Function<PermissionsRegistry<ID>, T> modification)
+    { return modifyingRegistry(modification::apply); }
+
+    /**
+     * Assigns a permission to the specified group.
+     * @see PermissionsRegistry#assignGroupPermission(String, String)
+     * @param groupName The name of the group to assign a permission to.
+     * @param permission The permission to assign.
+     * @return A future of the permission previously assigned at the given permission's path, or of null if there was
+     *         none.
+     */
+    public CompletableFuture<Permission> assignGroupPermission(String groupName, String permission)
+    { return modifyingRegistry(r -> r.assignGroupPermission(groupName, permission)); }
+
+    /**
+     * Revokes a permission from the specified group.
+     * @see PermissionsRegistry#revokeGroupPermission(String, String)
+     * @param groupName The name of the group to revoke a permission from.
+     * @param permission The permission to revoke.
+     * @return A future of the revoked permission, or of null if there was none.
+     */
+    public CompletableFuture<Permission> revokeGroupPermission(String groupName, String permission)
+    { return modifyingRegistry(r -> r.revokeGroupPermission(groupName, permission)); }
+
+    /**
+     * Assigns a default permission.
+     * @see PermissionsRegistry#assignDefaultPermission(String)
+     * @param permission The permission to assign.
+     * @return A future of the permission previously assigned at the given permission's path, or of null if there was
+     *         none.
+     */
+    public CompletableFuture<Permission> assignDefaultPermission(String permission)
+    { return modifyingRegistry(r -> r.assignDefaultPermission(permission)); }
+
+    /**
+     * Revokes a default permission.
+     * @see PermissionsRegistry#revokeDefaultPermission(String)
+     * @param permission The permission to revoke.
+     * @return A future of the revoked permission, or of null if there was none.
+     */
+    public CompletableFuture<Permission> revokeDefaultPermission(String permission)
+    { return modifyingRegistry(r -> r.revokeDefaultPermission(permission)); }
+
+    /**
+     * Assigns a group to the specified group.
+     * @see PermissionsRegistry#assignGroupToGroup(String, String)
+     * @param groupName The name of the group to assign a group to.
+     * @param groupNameBeingAssigned The name of the group to assign.
+     * @return A future that completes once the group has been assigned.
+     */
+    public CompletableFuture<Void> assignGroupToGroup(String groupName, String groupNameBeingAssigned)
+    { return modifyingRegistry(r -> { r.assignGroupToGroup(groupName, groupNameBeingAssigned); return null; }); }
+
+    /**
+     * Revokes a group from the specified group.
+     * @see PermissionsRegistry#revokeGroupFromGroup(String, String)
+     * @param groupName The name of the group to revoke a group from.
+     * @param groupNameBeingRevoked The name of the group to revoke.
+     * @return A future of whether or not the group was modified as a result.
+     */
+    public CompletableFuture<Boolean> revokeGroupFromGroup(String groupName, String groupNameBeingRevoked)
+    { return modifyingRegistry(r -> r.revokeGroupFromGroup(groupName, groupNameBeingRevoked)); }
+
+    /**
+     * Assigns a default group.
+     * @see PermissionsRegistry#assignDefaultGroup(String)
+     * @param groupNameBeingAssigned The name of the group to assign.
+     * @return A future that completes once the group has been assigned.
+     */
+    public CompletableFuture<Void> assignDefaultGroup(String groupNameBeingAssigned)
+    { return modifyingRegistry(r -> { r.assignDefaultGroup(groupNameBeingAssigned); return null; }); }
+
+    /**
+     * Revokes a default group.
+     * @see PermissionsRegistry#revokeDefaultGroup(String)
+     * @param groupNameBeingRevoked The name of the group to revoke.
+     * @return A future of whether or not the default permissions were modified as a result.
+     */
+    public CompletableFuture<Boolean> revokeDefaultGroup(String groupNameBeingRevoked)
+    { return modifyingRegistry(r -> r.revokeDefaultGroup(groupNameBeingRevoked)); }
+
+    /**
+     * Removes all information about the specified group.
+     * @see PermissionsRegistry#clearGroup(String)
+     * @param groupName The name of the group to remove information about.
+     * @return A future that completes once the group has been removed.
+     */
+    public CompletableFuture<Void> clearGroup(String groupName)
+    { return modifyingRegistry(r -> { r.clearGroup(groupName); return null; }); }
+    //endregion
+
+    //region Whole registry
+    /**
+     * Removes all information from the registry, after all previously requested modifications.
+     * @see PermissionsRegistry#clear()
+     * @return A future that completes once the registry has been cleared.
+     */
+    public CompletableFuture<Void> clear()
+    { return onWholeRegistry(r -> { r.clear(); return null; }); }
+
+    /**
+     * Performs a batch of modifications on the registry, after all previously requested modifications.
+     * @see PermissionsRegistry#batch(Consumer)
+     * @param transaction The modifications to perform, with the registry to perform them on passed in.
+     * @return A future that completes once the batch has been applied, or that completes exceptionally with the
+     *         exception that caused the batch to be rolled back.
+     */
+    public CompletableFuture<Void> batch(Consumer<PermissionsRegistry<ID>> transaction)
+    { return onWholeRegistry(r -> { r.batch(transaction); return null; }); }
+
+    /**
+     * Saves the registry, after all previously requested modifications.
+     * @see PermissionsRegistry#save()
+     * @return A future that completes once the registry has been saved, or that completes exceptionally with the
+     *         {@link java.io.IOException} thrown while saving.
+     */
+    public CompletableFuture<Void> save()
+    { return onWholeRegistry(r -> { r.save(); return null; }); }
+
+    /**
+     * Loads the registry, after all previously requested modifications.
+     * @see PermissionsRegistry#load()
+     * @return A future that completes once the registry has been loaded, or that completes exceptionally with the
+     *         {@link java.io.IOException} thrown while loading.
+     */
+    public CompletableFuture<Void> load()
+    { return onWholeRegistry(r -> { r.load(); return null; }); }
+    //endregion
+    //endregion
+    //endregion
+}
@@ -0,0 +1,62 @@
+package scot.massie.lib.permissions.decorators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The policies a {@link CachedPermissionsRegistry} may use to decide which cached results to discard once a cache is
+ * full.
+ */
+public enum CacheEvictionPolicy
+{
+    /**
+     * Discards the result that was least recently accessed. This suits workloads where the same users and permissions
+     * are checked in bursts, but lets a scan over many rarely-checked keys push out frequently-checked ones.
+     */
+    LEAST_RECENTLY_USED
+    {
+        @Override
+        <K, V> Map<K, V> newMap(int capacity, BiConsumer<? super K, ? super V> onEvicted)
+        {
+            return new LinkedHashMap<K, V>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+                {
+                    if(size() <= capacity)
+                        return false;
+
+                    onEvicted.accept(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+            };
+        }
+    },
+
+    /**
+     * <p>Keeps recently added results in a small window, and only admits results leaving that window into the rest of
+     * the cache where they've been accessed more often than the result they would replace. How often keys are accessed
+     * is estimated in a small, periodically aged, frequency sketch, which also remembers keys no longer cached.</p>
+     *
+     * <p>This suits workloads where some users and permissions are checked far more often than others, as rarely
+     * checked keys do not displace frequently checked ones.</p>
+     */
+    TINY_LFU
+    {
+        @Override
+        <K, V> Map<K, V> newMap(int capacity, BiConsumer<? super K, ? super V> onEvicted)
+        { return new TinyLfuMap<>(capacity, onEvicted); }
+    };
+
+    /**
+     * Creates a new map that holds at most the given number of entries, evicting entries according to this policy.
+     * @param capacity The maximum number of entries the map may hold.
+     * @param onEvicted The action to perform with the key and value of each entry the map evicts, as it's evicted.
+     *                  This is not called for entries removed from the map by other means.
+     * @param <K> The type of the keys of the map.
+     * @param <V> The type of the values of the map.
+     * @return A new, empty map.
+     */
+    abstract <K, V> Map<K, V> newMap(int capacity, BiConsumer<? super K, ? super V> onEvicted);
+}
@@ -0,0 +1,154 @@
+package scot.massie.lib.permissions.decorators;
+
+/**
+ * <p>A snapshot of the statistics of a cache of a {@link CachedPermissionsRegistry}, as at the time it was taken.</p>
+ *
+ * <p>Counts are since the registry was created. Results discarded to make room for others are counted as evictions,
+ * and results discarded because the registry was modified are counted as invalidations.</p>
+ */
+public final class CacheStats
+{
+    /**
+     * The number of times a result was returned from the cache.
+     */
+    private final long hitCount;
+
+    /**
+     * The number of times a result was computed by the contained registry, as it wasn't in the cache.
+     */
+    private final long missCount;
+
+    /**
+     * The number of results discarded from the cache to make room for other results.
+     */
+    private final long evictionCount;
+
+    /**
+     * The number of results discarded from the cache because the registry was modified.
+     */
+    private final long invalidationCount;
+
+    /**
+     * The total time spent computing results that weren't in the cache, in nanoseconds.
+     */
+    private final long totalLoadTimeNanos;
+
+    /**
+     * The number of results in the cache.
+     */
+    private final int size;
+
+    /**
+     * Creates a new snapshot of the statistics of a cache.
+     * @param hitCount The number of times a result was returned from the cache.
+     * @param missCount The number of times a result was computed, as it wasn't in the cache.
+     * @param evictionCount The number of results discarded from the cache to make room for other results.
+     * @param invalidationCount The number of results discarded from the cache because the registry was modified.
+     * @param totalLoadTimeNanos The total time spent computing results that weren't in the cache, in nanoseconds.
+     * @param size The number of results in the cache.
+     */
+    public CacheStats(long hitCount,
+                      long missCount,
+                      long evictionCount,
+                      long invalidationCount,
+                      long totalLoadTimeNanos,
+                      int size)
+    {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+        this.totalLoadTimeNanos = totalLoadTimeNanos;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of times a result was returned from the cache.
+     * @return The number of cache hits.
+     */
+    public long getHitCount()
+    { return hitCount; }
+
+    /**
+     * Gets the number of times a result was computed by the contained registry, as it wasn't in the cache.
+     * @return The number of cache misses.
+     */
+    public long getMissCount()
+    { return missCount; }
+
+    /**
+     * Gets the number of times a result was requested from the cache.
+     * @return The number of cache hits and misses.
+     */
+    public long getRequestCount()
+    { return hitCount + missCount; }
+
+    /**
+     * Gets the proportion of requests that were returned from the cache.
+     * @return The number of cache hits divided by the number of requests, or 0 if there have been no requests.
+     */
+    public double getHitRate()
+    {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 0 : (double)hitCount / requestCount;
+    }
+
+    /**
+     * Gets the number of results discarded from the cache to make room for other results.
+     * @return The number of cache evictions.
+     */
+    public long getEvictionCount()
+    { return evictionCount; }
+
+    /**
+     * Gets the number of results discarded from the cache because the registry was modified.
+     * @return The number of results invalidated.
+     */
+    public long getInvalidationCount()
+    { return invalidationCount; }
+
+    /**
+     * Gets the total time spent computing results that weren't in the cache.
+     * @return The total time spent on cache misses, in nanoseconds.
+     */
+    public long getTotalLoadTimeNanos()
+    { return totalLoadTimeNanos; }
+
+    /**
+     * Gets the average time spent computing a result that wasn't in the cache.
+     * @return The average time spent on a cache miss, in nanoseconds, or 0 if there have been no misses.
+     */
+    public double getAverageLoadTimeNanos()
+    { return missCount == 0 ? 0 : (double)totalLoadTimeNanos / missCount; }
+
+    /**
+     * Gets the number of results in the cache.
+     * @return The size of the cache.
+     */
+    public int getSize()
+    { return size; }
+
+    /**
+     * Combines these statistics with those of another cache, such as to get the statistics of multiple caches as a
+     * whole.
+     * @param other The statistics of the other cache.
+     * @return A new snapshot, where each count is the sum of the count in this and in the given snapshot.
+     */
+    public CacheStats plus(CacheStats other)
+    {
+        return new CacheStats(hitCount + other.hitCount,
+                              missCount + other.missCount,
+                              evictionCount + other.evictionCount,
+                              invalidationCount + other.invalidationCount,
+                              totalLoadTimeNanos + other.totalLoadTimeNanos,
+                              size + other.size);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "hits: " + hitCount + ", misses: " + missCount + ", evictions: " + evictionCount
+               + ", invalidations: " + invalidationCount + ", total load time: " + totalLoadTimeNanos + "ns"
+               + ", size: " + size;
+    }
+}
@@ -1,6 +1,5 @@
 package scot.massie.lib.permissions.decorators;
 
-import scot.massie.lib.collections.maps.EvictingHashMap;
 import scot.massie.lib.events.InvokableEvent;
 import scot.massie.lib.events.SetEvent;
 import scot.massie.lib.events.args.EventArgs;
@@ -9,20 +8,48 @@ import scot.massie.lib.permissions.Permission;
 import scot.massie.lib.permissions.PermissionStatus;
 import scot.massie.lib.permissions.PermissionsRegistry;
 import scot.massie.lib.permissions.PermissionsRegistryDecorator;
-
+import scot.massie.lib.permissions.exceptions.GroupMissingPermissionException;
+import scot.massie.lib.permissions.exceptions.PermissionNotDefaultException;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * <p>A {@link PermissionsRegistry} decorator that stores the results of accessor calls and returning stored results
  * from accessor calls where applicable, only refreshing stored results when the contents changes.</p>
+ *
+ * <p>Statistics of each accessor's cache can be got with {@link #getCacheStats()}, or monitored over JMX once
+ * {@link #registerMXBean(String)} has been called.</p>
  * @see PermissionsRegistry
  * @apiNote This assumes that the contents of the contained permissions registry is static when not calling any of the
  *          standard permissions registry mutators, and that the contained registry is not mutated from outwith this
@@ -32,21 +59,81 @@ import java.util.function.Function;
  */
 public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>> extends PermissionsRegistryDecorator<ID>
 {
-    // NOTE: Assertions are not cached.
+    // NOTE: Assertions and queries of multiple permissions or groups are not cached themselves, but are resolved one
+    //       permission or group at a time through the caches of the single-permission and single-group accessors.
 
     //region Subclasses
 
+    /**
+     * The statistics shared by the caches for single and dual-argument accessors.
+     */
+    private abstract class AccessorCache
+    {
+        /**
+         * The name of the accessor whose results this cache stores.
+         */
+        final String name;
+
+        /**
+         * The number of times a result was returned from this cache.
+         */
+        long hitCount = 0;
+
+        /**
+         * The number of times a result was computed, as it wasn't in this cache.
+         */
+        long missCount = 0;
+
+        /**
+         * The number of results discarded from this cache to make room for other results.
+         */
+        long evictionCount = 0;
+
+        /**
+         * The number of results discarded from this cache because the registry was modified.
+         */
+        long invalidationCount = 0;
+
+        /**
+         * The total time spent computing results that weren't in this cache, in nanoseconds.
+         */
+        long totalLoadTimeNanos = 0;
+
+        /**
+         * Creates a new cache, and registers it such that it's included in {@link #getCacheStats()}.
+         * @param name The name of the accessor whose results this cache stores.
+         */
+        AccessorCache(String name)
+        {
+            this.name = name;
+            allCaches.add(this);
+        }
+
+        /**
+         * Gets the number of results this cache currently stores.
+         * @return The size of this cache.
+         */
+        abstract int size();
+
+        /**
+         * Gets a snapshot of the statistics of this cache.
+         * @return A new snapshot of this cache's statistics.
+         */
+        CacheStats getStats()
+        { return new CacheStats(hitCount, missCount, evictionCount, invalidationCount, totalLoadTimeNanos, size()); }
+    }
+
     /**
      * Cache for single-argument accessors. This encapsulates a function and stores the result when queried.
      * @param <TArg> The argument type.
      * @param <TResult> The type returned.
      */
-    private class Cache<TArg, TResult>
+    private class Cache<TArg, TResult> extends AccessorCache
     {
         /**
          * The map of cached results against the single argument passed in.
          */
-        EvictingHashMap<TArg, TResult> cachedValues = null;
+        Map<TArg, TResult> cachedValues = null;
 
         /**
          * The encapsulated function.
@@ -55,10 +142,12 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
 
         /**
          * Creates a new cache.
+         * @param name The name of the accessor whose results this cache stores.
          * @param function The function that this cache should call and cache the result of.
          */
-        public Cache(Function<TArg, TResult> function)
+        public Cache(String name, Function<TArg, TResult> function)
         {
+            super(name);
             this.resultGetter = function;
             cacheInvalidated.register(this::invalidate);
         }
@@ -73,21 +162,42 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
         public TResult get(TArg arg)
         {
             if(cachedValues == null)
+                cachedValues = evictionPolicy.newMap(cacheSize, (evictedArg, evictedResult) -> evictionCount++);
+
+            TResult result = cachedValues.get(arg);
+
+            if(result != null)
             {
-                cachedValues = new EvictingHashMap<>(cacheSize);
-                TResult result = resultGetter.apply(arg);
-                cachedValues.put(arg, result);
+                hitCount++;
                 return result;
             }
 
-            return cachedValues.computeIfAbsent(arg, x -> resultGetter.apply(x));
+            missCount++;
+            long loadStart = System.nanoTime();
+            result = resultGetter.apply(arg);
+            totalLoadTimeNanos += System.nanoTime() - loadStart;
+
+            if(result != null)
+                cachedValues.put(arg, result);
+
+            return result;
+        }
+
+        @Override
+        int size()
+        {
+            Map<TArg, TResult> values = cachedValues;
+            return values == null ? 0 : values.size();
         }
 
         /**
          * Wipes the stored results of this cache.
          */
         public void invalidate()
-        { cachedValues = null; }
+        {
+            invalidationCount += size();
+            cachedValues = null;
+        }
     }
 
     /**
@@ -96,12 +206,18 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
      * @param <TArg2> The second argument type.
      * @param <TResult> The type returned.
      */
-    private class BiCache<TArg1, TArg2, TResult>
+    private class BiCache<TArg1, TArg2, TResult> extends AccessorCache
     {
         /**
-         * The map of cached results against the single argument passed in.
+         * The map of maps of cached results against the second argument passed in, against the first argument passed
+         * in.
          */
-        EvictingHashMap<TArg1, EvictingHashMap<TArg2, TResult>> cachedValues = null;
+        Map<TArg1, Map<TArg2, TResult>> cachedValues = null;
+
+        /**
+         * The number of results stored across all of the maps of cached results.
+         */
+        int storedCount = 0;
 
         /**
          * The encapsulated function.
@@ -110,10 +226,12 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
 
         /**
          * Creates a new cache.
+         * @param name The name of the accessor whose results this cache stores.
          * @param function The function that this cache should call and cache the result of.
          */
-        public BiCache(BiFunction<TArg1, TArg2, TResult> function)
+        public BiCache(String name, BiFunction<TArg1, TArg2, TResult> function)
         {
+            super(name);
             this.resultGetter = function;
             cacheInvalidated.register(this::invalidate);
         }
@@ -129,30 +247,291 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
         public TResult get(TArg1 arg1, TArg2 arg2)
         {
             if(cachedValues == null)
+                cachedValues = evictionPolicy.newMap(cacheSize, (evictedArg1, evictedResults) ->
+                {
+                    evictionCount += evictedResults.size();
+                    storedCount -= evictedResults.size();
+                });
+
+            Map<TArg2, TResult> arg1Map = cachedValues.get(arg1);
+            boolean arg1MapIsStored = true;
+
+            if(arg1Map == null)
             {
-                cachedValues                            = new EvictingHashMap<>(cacheSize);
-                EvictingHashMap<TArg2, TResult> arg1Map = new EvictingHashMap<>(cacheSize);
-                TResult result                          = resultGetter.apply(arg1, arg2);
+                arg1Map = evictionPolicy.newMap(innerCacheSize, (evictedArg2, evictedResult) ->
+                {
+                    evictionCount++;
+                    storedCount--;
+                });
 
+                int firstArgCountBefore = cachedValues.size();
                 cachedValues.put(arg1, arg1Map);
-                arg1Map.put(arg2, result);
+
+                // Results for another first arg were discarded to make room, and may have been for this one.
+                if(cachedValues.size() <= firstArgCountBefore)
+                    arg1MapIsStored = cachedValues.containsKey(arg1);
+            }
+
+            TResult result = arg1Map.get(arg2);
+
+            if(result != null)
+            {
+                hitCount++;
+                return result;
+            }
+
+            missCount++;
+            long loadStart = System.nanoTime();
+            result = resultGetter.apply(arg1, arg2);
+            totalLoadTimeNanos += System.nanoTime() - loadStart;
+
+            if(result == null)
+                return null;
+
+            if(!arg1MapIsStored)
+            {
+                evictionCount++;
                 return result;
             }
 
-            return cachedValues.computeIfAbsent(arg1, x -> new EvictingHashMap<>())
-                               .computeIfAbsent(arg2, x -> resultGetter.apply(arg1, arg2));
+            storedCount++;
+            arg1Map.put(arg2, result);
+            return result;
+        }
+
+        @Override
+        int size()
+        { return storedCount; }
+
+        /**
+         * Gets the first arguments this cache currently stores results for.
+         * @return A list of the first arguments this cache stores results for. This is a copy, and may be modified.
+         */
+        public List<TArg1> getCachedFirstArgs()
+        { return cachedValues == null ? new ArrayList<>() : new ArrayList<>(cachedValues.keySet()); }
+
+        /**
+         * Gets the pairs of arguments this cache currently stores results for.
+         * @return A list of the pairs of arguments this cache stores results for, ordered as the cache's maps iterate
+         *         over them. This is a copy, and may be modified.
+         */
+        public List<Map.Entry<TArg1, TArg2>> getCachedArgs()
+        {
+            List<Map.Entry<TArg1, TArg2>> result = new ArrayList<>();
+
+            if(cachedValues != null)
+                for(Map.Entry<TArg1, Map<TArg2, TResult>> arg1Entry : cachedValues.entrySet())
+                    for(TArg2 arg2 : arg1Entry.getValue().keySet())
+                        result.add(new AbstractMap.SimpleImmutableEntry<>(arg1Entry.getKey(), arg2));
+
+            return result;
         }
 
         /**
          * Wipes the stored results of this cache.
          */
         public void invalidate()
-        { cachedValues = null; }
+        {
+            invalidationCount += storedCount;
+            storedCount = 0;
+            cachedValues = null;
+        }
+
+        /**
+         * Wipes the stored results of this cache for the given first arguments.
+         * @param arg1s The first arguments to wipe the stored results for.
+         */
+        public void invalidateFor(Collection<? extends TArg1> arg1s)
+        {
+            if(cachedValues == null)
+                return;
+
+            for(TArg1 arg1 : arg1s)
+            {
+                Map<TArg2, TResult> removed = cachedValues.remove(arg1);
+
+                if(removed != null)
+                {
+                    invalidationCount += removed.size();
+                    storedCount -= removed.size();
+                }
+            }
+        }
+    }
+
+    /**
+     * The first arguments of the cached results that depend on the contents of some groups, found before the groups
+     * are modified, such that those results can be invalidated afterwards.
+     */
+    private final class GroupDependents
+    {
+        /**
+         * Whether or not the default permissions depend on the groups, in which case every cached result does.
+         */
+        final boolean includesDefaults;
+
+        /**
+         * The names of the groups whose cached results depend on the groups, including the groups themselves.
+         */
+        final Set<String> groupNames;
+
+        /**
+         * The IDs of the users whose cached results depend on the groups.
+         */
+        final Set<ID> userIds;
+
+        /**
+         * Creates a new record of the cached results that depend on some groups.
+         * @param includesDefaults Whether or not the default permissions depend on the groups.
+         * @param groupNames The names of the groups whose cached results depend on the groups.
+         * @param userIds The IDs of the users whose cached results depend on the groups.
+         */
+        GroupDependents(boolean includesDefaults, Set<String> groupNames, Set<ID> userIds)
+        {
+            this.includesDefaults = includesDefaults;
+            this.groupNames = groupNames;
+            this.userIds = userIds;
+        }
+
+        /**
+         * Wipes the cached results that depend on the groups.
+         */
+        void invalidate()
+        {
+            if(includesDefaults)
+            {
+                invalidateCache();
+                return;
+            }
+
+            for(BiCache<String, ?, ?> cache : groupCaches)
+                cache.invalidateFor(groupNames);
+
+            for(BiCache<ID, ?, ?> cache : userCaches)
+                cache.invalidateFor(userIds);
+        }
+    }
+
+    /**
+     * <p>Exposes the statistics of this registry's caches over JMX.</p>
+     *
+     * <p>As this is called from JMX's threads, it synchronises on the registry while reading the caches, as
+     * {@link ThreadsafePermissionsRegistry} does when the registry is wrapped in one.</p>
+     */
+    private final class StatsMXBean implements CachedPermissionsRegistryMXBean
+    {
+        /**
+         * Gets the statistics of all of this registry's caches as a whole.
+         * @return A new snapshot, where each count is the total across all caches.
+         */
+        CacheStats getTotalStats()
+        {
+            CacheStats total = new CacheStats(0, 0, 0, 0, 0, 0);
+
+            synchronized(CachedPermissionsRegistry.this)
+            {
+                for(AccessorCache cache : allCaches)
+                    total = total.plus(cache.getStats());
+            }
+
+            return total;
+        }
+
+        @Override
+        public Map<String, CacheStats> getCacheStats()
+        {
+            synchronized(CachedPermissionsRegistry.this)
+            { return CachedPermissionsRegistry.this.getCacheStats(); }
+        }
+
+        @Override
+        public long getHitCount()
+        { return getTotalStats().getHitCount(); }
+
+        @Override
+        public long getMissCount()
+        { return getTotalStats().getMissCount(); }
+
+        @Override
+        public double getHitRate()
+        { return getTotalStats().getHitRate(); }
+
+        @Override
+        public long getEvictionCount()
+        { return getTotalStats().getEvictionCount(); }
+
+        @Override
+        public long getInvalidationCount()
+        { return getTotalStats().getInvalidationCount(); }
+
+        @Override
+        public long getTotalLoadTimeNanos()
+        { return getTotalStats().getTotalLoadTimeNanos(); }
+
+        @Override
+        public int getSize()
+        { return getTotalStats().getSize(); }
     }
     //endregion
 
     //region Instance variables
-    private final int cacheSize = 20;
+    /**
+     * The default maximum number of results each single-argument cache holds, and the default maximum number of first
+     * arguments, (such as users) each dual-argument cache holds results for.
+     */
+    public static final int defaultCacheSize = 1000;
+
+    /**
+     * The default maximum number of results each dual-argument cache holds for each first argument.
+     */
+    public static final int defaultInnerCacheSize = 50;
+
+    /**
+     * The default policy used to decide which results to discard once a cache is full.
+     */
+    public static final CacheEvictionPolicy defaultEvictionPolicy = CacheEvictionPolicy.LEAST_RECENTLY_USED;
+
+    /**
+     * The maximum number of results each single-argument cache holds, and the maximum number of first arguments each
+     * dual-argument cache holds results for.
+     */
+    private final int cacheSize;
+
+    /**
+     * The maximum number of results each dual-argument cache holds for each first argument.
+     */
+    private final int innerCacheSize;
+
+    /**
+     * The policy used to decide which results to discard once a cache is full.
+     */
+    private final CacheEvictionPolicy evictionPolicy;
+
+    /**
+     * The JMX domain of the object names {@link #registerMXBean(String)} registers this registry's statistics under.
+     */
+    public static final String mxBeanDomain = "scot.massie.lib.permissions";
+
+    /**
+     * The executor access profiles are saved periodically and caches are warmed up on, for all registries. This is
+     * created when first needed.
+     */
+    private static ScheduledExecutorService accessProfileExecutor = null;
+
+    /**
+     * The caches of all accessors, in the order they were created.
+     */
+    private final List<AccessorCache> allCaches = new ArrayList<>();
+
+    /**
+     * The caches of accessors whose first argument is a user ID.
+     */
+    private final List<BiCache<ID, ?, ?>> userCaches = new ArrayList<>();
+
+    /**
+     * The caches of accessors whose first argument is a group name.
+     */
+    private final List<BiCache<String, ?, ?>> groupCaches = new ArrayList<>();
     //endregion
 
     //region Events
@@ -164,6 +543,31 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region initialisation
+    /**
+     * Creates a new cached permissions registry, with the ability to save to/load from files. This is the equivalent of
+     * passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments into
+     * {@link #CachedPermissionsRegistry(PermissionsRegistry, int, int, CacheEvictionPolicy)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param cacheSize The maximum number of results each single-argument cache holds, and the maximum number of first
+     *                  arguments, (such as users) each dual-argument cache holds results for.
+     * @param innerCacheSize The maximum number of results each dual-argument cache holds for each first argument.
+     * @param evictionPolicy The policy used to decide which results to discard once a cache is full.
+     */
+    public CachedPermissionsRegistry(Function<ID, String> idToString,
+                                     Function<String, ID> idFromString,
+                                     Path usersFile,
+                                     Path groupsFile,
+                                     int cacheSize,
+                                     int innerCacheSize,
+                                     CacheEvictionPolicy evictionPolicy)
+    {
+        this(new GroupMapPermissionsRegistry<>(idToString, idFromString, usersFile, groupsFile),
+             cacheSize, innerCacheSize, evictionPolicy);
+    }
+
     /**
      * Creates a new cached permissions registry, with the ability to save to/load from files. This is the equivalent of
      * passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments into
@@ -177,7 +581,7 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
                                      Function<String, ID> idFromString,
                                      Path usersFile,
                                      Path groupsFile)
-    { super(idToString, idFromString, usersFile, groupsFile); }
+    { this(new GroupMapPermissionsRegistry<>(idToString, idFromString, usersFile, groupsFile)); }
 
     /**
      * Creates a new cached permissions registry, without the ability to save to/load from files. This is the equivalent
@@ -187,29 +591,501 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
      * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
      */
     public CachedPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
-    { super(idToString, idFromString); }
+    { this(new GroupMapPermissionsRegistry<>(idToString, idFromString)); }
 
     /**
      * Wraps an existing permissions registry in a cached permissions registry, providing access to it that caches
      * accessor call results.
      * @param inner The wrapped permissions registry.
+     * @param cacheSize The maximum number of results each single-argument cache holds, and the maximum number of first
+     *                  arguments, (such as users) each dual-argument cache holds results for.
+     * @param innerCacheSize The maximum number of results each dual-argument cache holds for each first argument.
+     * @param evictionPolicy The policy used to decide which results to discard once a cache is full.
+     */
+    public CachedPermissionsRegistry(PermissionsRegistry<ID> inner,
+                                     int cacheSize,
+                                     int innerCacheSize,
+                                     CacheEvictionPolicy evictionPolicy)
+    {
+        super(inner);
+
+        if(cacheSize < 1)
+            throw new IllegalArgumentException("cacheSize must be at least 1. Was: " + cacheSize);
+
+        if(innerCacheSize < 1)
+            throw new IllegalArgumentException("innerCacheSize must be at least 1. Was: " + innerCacheSize);
+
+        this.cacheSize = cacheSize;
+        this.innerCacheSize = innerCacheSize;
+        this.evictionPolicy = Objects.requireNonNull(evictionPolicy, "evictionPolicy must not be null.");
+    }
+
+    /**
+     * Wraps an existing permissions registry in a cached permissions registry, providing access to it that caches
+     * accessor call results, using {@link #defaultCacheSize}, {@link #defaultInnerCacheSize}, and
+     * {@link #defaultEvictionPolicy}.
+     * @param inner The wrapped permissions registry.
      */
     public CachedPermissionsRegistry(PermissionsRegistry<ID> inner)
-    { super(inner); }
+    { this(inner, defaultCacheSize, defaultInnerCacheSize, defaultEvictionPolicy); }
+
+    /**
+     * Gets the executor access profiles are saved periodically and caches are warmed up on, creating it if it has not
+     * yet been created.
+     * @return The executor access profiles are saved and caches are warmed up on.
+     */
+    private static synchronized ScheduledExecutorService getAccessProfileExecutor()
+    {
+        if(accessProfileExecutor == null)
+        {
+            accessProfileExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "permissions-cache-profile");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return accessProfileExecutor;
+    }
     //endregion
 
     //region methods
 
+    /**
+     * Creates a new cache for an accessor whose first argument is a user ID, which is invalidated for a user where that
+     * user is modified.
+     * @param name The name of the accessor.
+     * @param function The accessor.
+     * @param <TArg2> The type of the accessor's second argument.
+     * @param <TResult> The type returned by the accessor.
+     * @return A new cache.
+     */
+    private <TArg2, TResult> BiCache<ID, TArg2, TResult> newUserCache(String name,
+                                                                      BiFunction<ID, TArg2, TResult> function)
+    {
+        BiCache<ID, TArg2, TResult> cache = new BiCache<>(name, function);
+        userCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Creates a new cache for an accessor whose first argument is a group name, which is invalidated for a group where
+     * that group, or any group it extends from, is modified.
+     * @param name The name of the accessor.
+     * @param function The accessor.
+     * @param <TArg2> The type of the accessor's second argument.
+     * @param <TResult> The type returned by the accessor.
+     * @return A new cache.
+     */
+    private <TArg2, TResult> BiCache<String, TArg2, TResult> newGroupCache(String name,
+                                                                           BiFunction<String, TArg2, TResult> function)
+    {
+        BiCache<String, TArg2, TResult> cache = new BiCache<>(name, function);
+        groupCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Gets the statistics of each of this registry's caches, such as to tell how often results are returned from them
+     * and whether they're large enough to hold the results used.
+     * @return A map of snapshots of the statistics of each cache, against the name of the accessor whose results the
+     *         cache stores. This is unmodifiable, and is not updated as the caches are used.
+     */
+    public Map<String, CacheStats> getCacheStats()
+    {
+        Map<String, CacheStats> result = new LinkedHashMap<>();
+
+        for(AccessorCache cache : allCaches)
+            result.put(cache.name, cache.getStats());
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Registers an MXBean exposing the statistics of this registry's caches with the platform MBean server, under the
+     * domain {@link #mxBeanDomain}.
+     * @apiNote The MXBean synchronises on this registry while reading the caches, as
+     *          {@link ThreadsafePermissionsRegistry} does when this registry is wrapped in one. Where this registry is
+     *          used from multiple threads without being wrapped in one, its statistics read over JMX may be
+     *          inconsistent.
+     * @param name The name to register the MXBean under, distinguishing this registry from any others registered.
+     * @return The object name the MXBean was registered under, which may be passed to the platform MBean server to
+     *         unregister it.
+     * @throws JMException If an MXBean is already registered under the given name, or it couldn't otherwise be
+     *                     registered.
+     */
+    public ObjectName registerMXBean(String name) throws JMException
+    {
+        ObjectName objectName
+                = new ObjectName(mxBeanDomain + ":type=CachedPermissionsRegistry,name=" + ObjectName.quote(name));
+
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new StatsMXBean(), objectName);
+        return objectName;
+    }
+
     /**
      * Deletes the caches for all accessors of this permissions registry.
      */
     public void invalidateCache()
     { cacheInvalidated.invoke(null); }
 
+    /**
+     * Deletes the cached results of accessors for the given users.
+     * @param userIds The IDs of the users to delete the cached results for.
+     */
+    private void invalidateCacheForUsers(Collection<ID> userIds)
+    {
+        for(BiCache<ID, ?, ?> cache : userCaches)
+            cache.invalidateFor(userIds);
+    }
+
+    /**
+     * Deletes the cached results of accessors for the given user.
+     * @param userId The ID of the user to delete the cached results for.
+     */
+    public void invalidateCacheForUser(ID userId)
+    { invalidateCacheForUsers(Collections.singletonList(userId)); }
+
+    /**
+     * Deletes the cached results of accessors that depend on the given group - those for the group, for groups that
+     * extend from it, and for users that have it. Where the default permissions have the group, this deletes the caches
+     * for all accessors.
+     * @param groupName The name of the group to delete the dependent cached results of.
+     */
+    public void invalidateCacheForGroup(String groupName)
+    { getCachedDependentsOf(Collections.singletonList(groupName)).invalidate(); }
+
+    /**
+     * Finds the first arguments of the cached results that depend on the given groups, according to the groups the
+     * users and groups cached results are stored for currently have. This should be called before the groups are
+     * modified, as modifying them may change which groups and users have them.
+     * @param groupNames The names of the groups.
+     * @return The first arguments of the cached results that depend on the given groups.
+     */
+    private GroupDependents getCachedDependentsOf(Collection<String> groupNames)
+    {
+        for(String groupName : groupNames)
+            if(inner.isDefaultGroup(groupName))
+                return new GroupDependents(true, Collections.emptySet(), Collections.emptySet());
+
+        Set<String> dependentGroupNames = new HashSet<>(groupNames);
+        Set<String> checkedGroupNames = new HashSet<>(groupNames);
+        Set<ID> dependentUserIds = new HashSet<>();
+        Set<ID> checkedUserIds = new HashSet<>();
+
+        for(BiCache<String, ?, ?> cache : groupCaches)
+            for(String groupName : cache.getCachedFirstArgs())
+                if(checkedGroupNames.add(groupName) && inner.groupExtendsFromAnyGroups(groupName, groupNames))
+                    dependentGroupNames.add(groupName);
+
+        for(BiCache<ID, ?, ?> cache : userCaches)
+            for(ID userId : cache.getCachedFirstArgs())
+                if(checkedUserIds.add(userId) && inner.userHasAnyGroups(userId, groupNames))
+                    dependentUserIds.add(userId);
+
+        return new GroupDependents(false, dependentGroupNames, dependentUserIds);
+    }
+
+    //region Access profile
+    /*
+
+    Access profile format: Each line is a single cached result's arguments - a record type of "U" for a user or "G" for
+    a group, followed by the user's ID as a string or the group's name, then the permission, all separated by tabs.
+    Results whose arguments contain tabs or line breaks are not recorded.
+
+     */
+
+    /**
+     * <p>Saves the arguments of the results of {@link #userHasPermission(Comparable, String)} and
+     * {@link #groupHasPermission(String, String)} currently cached to the given file, replacing it, such that they can
+     * be computed again with {@link #warmUpFromAccessProfile(Path)} after a restart, before they're next requested.</p>
+     *
+     * <p>As the caches keep the results most worth keeping, this is a profile of the most frequently or recently
+     * checked permissions, no larger than the caches.</p>
+     * @apiNote This synchronises on this registry while reading the caches, as {@link ThreadsafePermissionsRegistry}
+     *          does when this registry is wrapped in one.
+     * @param file The file to save the access profile to.
+     * @throws IOException If an IO exception is thrown in the process of writing the file.
+     */
+    public void saveAccessProfile(Path file) throws IOException
+    {
+        List<Map.Entry<ID, String>> userArgs;
+        List<Map.Entry<String, String>> groupArgs;
+
+        synchronized(this)
+        {
+            userArgs = uHasPermissionCache.getCachedArgs();
+            groupArgs = gHasPermissionCache.getCachedArgs();
+        }
+
+        Function<ID, String> idToString = getIdToStringFunction();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try(BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))
+        {
+            for(Map.Entry<ID, String> args : userArgs)
+                writeAccessProfileLine(writer, "U", idToString.apply(args.getKey()), args.getValue());
+
+            for(Map.Entry<String, String> args : groupArgs)
+                writeAccessProfileLine(writer, "G", args.getKey(), args.getValue());
+        }
+
+        try
+        { Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        catch(AtomicMoveNotSupportedException e)
+        { Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING); }
+    }
+
+    /**
+     * Writes a line of an access profile, where its arguments don't contain tabs or line breaks.
+     * @param writer The writer to write the line to.
+     * @param recordType The type of the line's record.
+     * @param firstArg The first argument of the cached result.
+     * @param permission The permission of the cached result.
+     * @throws IOException If an IO exception is thrown in the process of writing the line.
+     */
+    private static void writeAccessProfileLine(BufferedWriter writer,
+                                               String recordType,
+                                               String firstArg,
+                                               String permission)
+            throws IOException
+    {
+        if(!isAccessProfileArg(firstArg) || !isAccessProfileArg(permission))
+            return;
+
+        writer.write(recordType + "\t" + firstArg + "\t" + permission);
+        writer.newLine();
+    }
+
+    /**
+     * Gets whether or not a string may be recorded as an argument in an access profile.
+     * @param arg The string.
+     * @return True if the string is not null and contains no tabs or line breaks. Otherwise, false.
+     */
+    private static boolean isAccessProfileArg(String arg)
+    { return arg != null && arg.indexOf('\t') < 0 && arg.indexOf('\n') < 0 && arg.indexOf('\r') < 0; }
+
+    /**
+     * Saves the access profile of this registry to the given file periodically, in the background. Where saving it
+     * fails, it's attempted again at the next interval.
+     * @see #saveAccessProfile(Path)
+     * @apiNote Each save synchronises on this registry while reading the caches, as
+     *          {@link ThreadsafePermissionsRegistry} does when this registry is wrapped in one. Where this registry is
+     *          used without being synchronised on, saves may fail or record an inconsistent access profile.
+     * @param file The file to save the access profile to.
+     * @param intervalMillis The time between saves, in milliseconds.
+     * @return The periodic task, which may be cancelled to stop saving the access profile.
+     */
+    public ScheduledFuture<?> saveAccessProfilePeriodically(Path file, long intervalMillis)
+    {
+        return getAccessProfileExecutor().scheduleWithFixedDelay(() ->
+        {
+            // Any exception thrown out of the task would stop it from being run again.
+            try
+            { saveAccessProfile(file); }
+            catch(IOException | RuntimeException ignored)
+            { }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Computes and caches the results recorded in the given access profile, as saved by
+     * {@link #saveAccessProfile(Path)}, in the background. This should be called after the registry has been loaded,
+     * as loading it invalidates the caches.</p>
+     *
+     * <p>Each result is computed while synchronised on this registry, such that requests may be served between them.
+     * Results for users and groups that no longer exist are computed as normal. Lines that aren't recognised, such as
+     * where their user IDs can't be parsed, are skipped.</p>
+     * @apiNote Where this registry is used while being warmed up, it should be used through a
+     *          {@link ThreadsafePermissionsRegistry}, which synchronises on this registry, or otherwise only while
+     *          synchronised on it.
+     * @param file The file the access profile was saved to. Where this doesn't exist, nothing is warmed up.
+     * @return A future that completes once all of the results in the access profile have been cached, or that
+     *         completes exceptionally with the exception thrown in the process of reading the file.
+     */
+    public CompletableFuture<Void> warmUpFromAccessProfile(Path file)
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        getAccessProfileExecutor().execute(() ->
+        {
+            try
+            {
+                warmUpFromAccessProfileNow(file);
+                result.complete(null);
+            }
+            catch(IOException | RuntimeException e)
+            { result.completeExceptionally(e); }
+        });
+
+        return result;
+    }
+
+    /**
+     * Computes and caches the results recorded in the given access profile, on the current thread.
+     * @see #warmUpFromAccessProfile(Path)
+     * @param file The file the access profile was saved to. Where this doesn't exist, nothing is warmed up.
+     * @throws IOException If an IO exception is thrown in the process of reading the file.
+     */
+    private void warmUpFromAccessProfileNow(Path file) throws IOException
+    {
+        if(!Files.isReadable(file) || Files.isDirectory(file))
+            return;
+
+        Function<String, ID> idFromString = getIdFromStringFunction();
+
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            for(String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                String[] parts = line.split("\t", -1);
+
+                if(parts.length != 3)
+                    continue;
+
+                synchronized(this)
+                {
+                    // Lines that can't be warmed up, such as where their user IDs are no longer valid, are skipped.
+                    try
+                    {
+                        if(parts[0].equals("U"))
+                            userHasPermission(idFromString.apply(parts[1]), parts[2]);
+                        else if(parts[0].equals("G"))
+                            groupHasPermission(parts[1], parts[2]);
+                    }
+                    catch(RuntimeException ignored)
+                    { }
+                }
+            }
+        }
+    }
+    //endregion
+
     //region PermissionRegistry methods
+    //region Assertions
+    @Override
+    public void assertUserHasPermission(ID userId, String permission) throws UserMissingPermissionException
+    {
+        if(!userHasPermission(userId, permission))
+            throw new UserMissingPermissionException(userId, permission);
+    }
+
+    @Override
+    public void assertGroupHasPermission(String groupName, String permission) throws GroupMissingPermissionException
+    {
+        if(!groupHasPermission(groupName, permission))
+            throw new GroupMissingPermissionException(groupName, permission);
+    }
+
+    @Override
+    public void assertIsDefaultPermission(String permission) throws PermissionNotDefaultException
+    {
+        if(!isDefaultPermission(permission))
+            throw new PermissionNotDefaultException(permission);
+    }
+
+    @Override
+    public void assertUserHasAllPermissions(ID userId, Iterable<String> permissions)
+            throws UserMissingPermissionException
+    {
+        List<String> permissionsMissing = new ArrayList<>();
+
+        for(String perm : permissions)
+            if(!userHasPermission(userId, perm))
+                permissionsMissing.add(perm);
+
+        if(!permissionsMissing.isEmpty())
+            throw new UserMissingPermissionException(userId, permissionsMissing);
+    }
+
+    @Override
+    public void assertUserHasAllPermissions(ID userId, String... permissions)
+            throws UserMissingPermissionException
+    { assertUserHasAllPermissions(userId, Arrays.asList(permissions)); }
+
+    @Override
+    public void assertGroupHasAllPermissions(String groupName, Iterable<String> permissions)
+            throws GroupMissingPermissionException
+    {
+        List<String> permissionsMissing = new ArrayList<>();
+
+        for(String perm : permissions)
+            if(!groupHasPermission(groupName, perm))
+                permissionsMissing.add(perm);
+
+        if(!permissionsMissing.isEmpty())
+            throw new GroupMissingPermissionException(groupName, permissionsMissing);
+    }
+
+    @Override
+    public void assertGroupHasAllPermissions(String groupName, String... permissions)
+            throws GroupMissingPermissionException
+    { assertGroupHasAllPermissions(groupName, Arrays.asList(permissions)); }
+
+    @Override
+    public void assertAllAreDefaultPermissions(Iterable<String> permissions)
+            throws PermissionNotDefaultException
+    {
+        List<String> permissionsMissing = new ArrayList<>();
+
+        for(String perm : permissions)
+            if(!isDefaultPermission(perm))
+                permissionsMissing.add(perm);
+
+        if(!permissionsMissing.isEmpty())
+            throw new PermissionNotDefaultException(permissionsMissing);
+    }
+
+    @Override
+    public void assertAllAreDefaultPermissions(String... permissions)
+            throws PermissionNotDefaultException
+    { assertAllAreDefaultPermissions(Arrays.asList(permissions)); }
+
+    @Override
+    public void assertUserHasAnyPermission(ID userId, Iterable<String> permissions)
+            throws UserMissingPermissionException
+    {
+        if(!userHasAnyPermissions(userId, permissions))
+            throw new UserMissingPermissionException(userId, permissions, true);
+    }
+
+    @Override
+    public void assertUserHasAnyPermission(ID userId, String... permissions)
+            throws UserMissingPermissionException
+    { assertUserHasAnyPermission(userId, Arrays.asList(permissions)); }
+
+    @Override
+    public void assertGroupHasAnyPermission(String groupName, Iterable<String> permissions)
+            throws GroupMissingPermissionException
+    {
+        if(!groupHasAnyPermissions(groupName, permissions))
+            throw new GroupMissingPermissionException(groupName, permissions, true);
+    }
+
+    @Override
+    public void assertGroupHasAnyPermission(String groupName, String... permissions)
+            throws GroupMissingPermissionException
+    { assertGroupHasAnyPermission(groupName, Arrays.asList(permissions)); }
+
+    @Override
+    public void assertAnyAreDefaultPermission(Iterable<String> permissions)
+            throws PermissionNotDefaultException
+    {
+        if(!anyAreDefaultPermissions(permissions))
+            throw new PermissionNotDefaultException(permissions, true);
+    }
+
+    @Override
+    public void assertAnyAreDefaultPermission(String... permissions)
+            throws PermissionNotDefaultException
+    { assertAnyAreDefaultPermission(Arrays.asList(permissions)); }
+    //endregion
+
     //region Accessors
     //region getUserPermissionStatus(ID userId, String permission) { ... }
-    private final BiCache<ID, String, PermissionStatus> uPStatusCache = new BiCache<>(inner::getUserPermissionStatus);
+    private final BiCache<ID, String, PermissionStatus> uPStatusCache
+            = newUserCache("getUserPermissionStatus", inner::getUserPermissionStatus);
 
     @Override
     public PermissionStatus getUserPermissionStatus(ID userId, String permission)
@@ -217,7 +1093,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getGroupPermissionStatus(String groupName, String permission) { ... }
-    private final BiCache<String, String, PermissionStatus> gPStatusCache = new BiCache<>(inner::getGroupPermissionStatus);
+    private final BiCache<String, String, PermissionStatus> gPStatusCache
+            = newGroupCache("getGroupPermissionStatus", inner::getGroupPermissionStatus);
 
     @Override
     public PermissionStatus getGroupPermissionStatus(String groupName, String permission)
@@ -225,7 +1102,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getDefaultPermissionStatus(String permission) { ... }
-    private final Cache<String, PermissionStatus> dPStatusCache = new Cache<>(inner::getDefaultPermissionStatus);
+    private final Cache<String, PermissionStatus> dPStatusCache
+            = new Cache<>("getDefaultPermissionStatus", inner::getDefaultPermissionStatus);
 
     @Override
     public PermissionStatus getDefaultPermissionStatus(String permission)
@@ -233,12 +1111,16 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getUserPermissionStatuses(ID userId, Iterable<String> permissions)
-    private final BiCache<ID, Iterable<String>, Map<String, PermissionStatus>> uPStatusesCache
-            = new BiCache<>((a, b) -> Collections.unmodifiableMap(inner.getUserPermissionStatuses(a, b)));
-
     @Override
     public Map<String, PermissionStatus> getUserPermissionStatuses(ID userId, Iterable<String> permissions)
-    { return uPStatusesCache.get(userId, permissions); }
+    {
+        Map<String, PermissionStatus> result = new HashMap<>();
+
+        for(String permission : permissions)
+            result.put(permission, getUserPermissionStatus(userId, permission));
+
+        return result;
+    }
 
     @Override
     public Map<String, PermissionStatus> getUserPermissionStatuses(ID userId, String... permissions)
@@ -246,12 +1128,16 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getGroupPermissionStatuses(String groupName, Iterable<String> permissions)
-    private final BiCache<String, Iterable<String>, Map<String, PermissionStatus>> gPStatusesCache
-            = new BiCache<>((a, b) -> Collections.unmodifiableMap(inner.getGroupPermissionStatuses(a, b)));
-
     @Override
     public Map<String, PermissionStatus> getGroupPermissionStatuses(String groupName, Iterable<String> permissions)
-    { return gPStatusesCache.get(groupName, permissions); }
+    {
+        Map<String, PermissionStatus> result = new HashMap<>();
+
+        for(String permission : permissions)
+            result.put(permission, getGroupPermissionStatus(groupName, permission));
+
+        return result;
+    }
 
     @Override
     public Map<String, PermissionStatus> getGroupPermissionStatuses(String groupName, String... permissions)
@@ -259,12 +1145,16 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getDefaultPermissionStatuses(Iterable<String> permissions)
-    private final Cache<Iterable<String>, Map<String, PermissionStatus>> dPStatusesCache
-            = new Cache<>(x -> Collections.unmodifiableMap(inner.getDefaultPermissionStatuses(x)));
-
     @Override
     public Map<String, PermissionStatus> getDefaultPermissionStatuses(Iterable<String> permissions)
-    { return dPStatusesCache.get(permissions); }
+    {
+        Map<String, PermissionStatus> result = new HashMap<>();
+
+        for(String permission : permissions)
+            result.put(permission, getDefaultPermissionStatus(permission));
+
+        return result;
+    }
 
     @Override
     public Map<String, PermissionStatus> getDefaultPermissionStatuses(String... permissions)
@@ -272,7 +1162,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region boolean userHasPermission(ID userId, String permission)
-    private final BiCache<ID, String, Boolean> uHasPermissionCache = new BiCache<>(inner::userHasPermission);
+    private final BiCache<ID, String, Boolean> uHasPermissionCache
+            = newUserCache("userHasPermission", inner::userHasPermission);
 
     @Override
     public boolean userHasPermission(ID userId, String permission)
@@ -280,7 +1171,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupHasPermission(String groupName, String permission)
-    private final BiCache<String, String, Boolean> gHasPermissionCache = new BiCache<>(inner::groupHasPermission);
+    private final BiCache<String, String, Boolean> gHasPermissionCache
+            = newGroupCache("groupHasPermission", inner::groupHasPermission);
 
     @Override
     public boolean groupHasPermission(String groupName, String permission)
@@ -288,7 +1180,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region isDefaultPermission(String permission)
-    private final Cache<String, Boolean> dHasPermissionCache = new Cache<>(inner::isDefaultPermission);
+    private final Cache<String, Boolean> dHasPermissionCache
+            = new Cache<>("isDefaultPermission", inner::isDefaultPermission);
 
     @Override
     public boolean isDefaultPermission(String permission)
@@ -296,11 +1189,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasAllPermissions(ID userId, Iterable<String> permissions)
-    private final BiCache<ID, Iterable<String>, Boolean> uHasAllPermsCache = new BiCache<>(inner::userHasAllPermissions);
-
     @Override
     public boolean userHasAllPermissions(ID userId, Iterable<String> permissions)
-    { return uHasAllPermsCache.get(userId, permissions); }
+    {
+        for(String permission : permissions)
+            if(!userHasPermission(userId, permission))
+                return false;
+
+        return true;
+    }
 
     @Override
     public boolean userHasAllPermissions(ID userId, String... permissions)
@@ -308,11 +1205,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupHasAllPermissions(String groupName, Iterable<String> permissions)
-    private final BiCache<String, Iterable<String>, Boolean> gHasAllPermsCache = new BiCache<>(inner::groupHasAllPermissions);
-
     @Override
     public boolean groupHasAllPermissions(String groupName, Iterable<String> permissions)
-    { return gHasAllPermsCache.get(groupName, permissions); }
+    {
+        for(String permission : permissions)
+            if(!groupHasPermission(groupName, permission))
+                return false;
+
+        return true;
+    }
 
     @Override
     public boolean groupHasAllPermissions(String groupName, String... permissions)
@@ -320,11 +1221,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region areAllDefaultPermissions(Iterable<String> permissions)
-    private final Cache<Iterable<String>, Boolean> dHasAllPermsCache = new Cache<>(inner::areAllDefaultPermissions);
-
     @Override
     public boolean areAllDefaultPermissions(Iterable<String> permissions)
-    { return dHasAllPermsCache.get(permissions); }
+    {
+        for(String permission : permissions)
+            if(!isDefaultPermission(permission))
+                return false;
+
+        return true;
+    }
 
     @Override
     public boolean areAllDefaultPermissions(String... permissions)
@@ -332,11 +1237,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasAnyPermissions(ID userId, Iterable<String> permissions)
-    private final BiCache<ID, Iterable<String>, Boolean> uHasAnyPermsCache = new BiCache<>(inner::userHasAnyPermissions);
-
     @Override
     public boolean userHasAnyPermissions(ID userId, Iterable<String> permissions)
-    { return uHasAnyPermsCache.get(userId, permissions); }
+    {
+        for(String permission : permissions)
+            if(userHasPermission(userId, permission))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean userHasAnyPermissions(ID userId, String... permissions)
@@ -344,11 +1253,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupHasAnyPermissions(String groupName, Iterable<String> permissions)
-    private final BiCache<String, Iterable<String>, Boolean> gHasAnyPermsCache = new BiCache<>(inner::groupHasAnyPermissions);
-
     @Override
     public boolean groupHasAnyPermissions(String groupName, Iterable<String> permissions)
-    { return gHasAnyPermsCache.get(groupName, permissions); }
+    {
+        for(String permission : permissions)
+            if(groupHasPermission(groupName, permission))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean groupHasAnyPermissions(String groupName, String... permissions)
@@ -356,11 +1269,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region anyAreDefaultPermissions(Iterable<String> permissions)
-    private final Cache<Iterable<String>, Boolean> dHasAnyPermsCache = new Cache<>(inner::anyAreDefaultPermissions);
-
     @Override
     public boolean anyAreDefaultPermissions(Iterable<String> permissions)
-    { return dHasAnyPermsCache.get(permissions); }
+    {
+        for(String permission : permissions)
+            if(isDefaultPermission(permission))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean anyAreDefaultPermissions(String... permissions)
@@ -368,7 +1285,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasAnySubPermissionOf(ID userId, String permission)
-    private final BiCache<ID, String, Boolean> uHasAnySubPermsOfCache = new BiCache<>(inner::userHasAnySubPermissionOf);
+    private final BiCache<ID, String, Boolean> uHasAnySubPermsOfCache
+            = newUserCache("userHasAnySubPermissionOf", inner::userHasAnySubPermissionOf);
 
     @Override
     public boolean userHasAnySubPermissionOf(ID userId, String permission)
@@ -376,11 +1294,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasAnySubPermissionOf(ID userId, Iterable<String> permissions)
-    private final BiCache<ID, Iterable<String>, Boolean> uHasAnySubPermsOfMultipleCache = new BiCache<>(inner::userHasAnySubPermissionOf);
-
     @Override
     public boolean userHasAnySubPermissionOf(ID userId, Iterable<String> permissions)
-    { return uHasAnySubPermsOfMultipleCache.get(userId, permissions); }
+    {
+        for(String permission : permissions)
+            if(userHasAnySubPermissionOf(userId, permission))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean userHasAnySubPermissionOf(ID userId, String... permissions)
@@ -388,7 +1310,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupHasAnySubPermissionOf(String groupId, String permission)
-    private final BiCache<String, String, Boolean> gHasAnySubPermsOfCache = new BiCache<>(inner::groupHasAnySubPermissionOf);
+    private final BiCache<String, String, Boolean> gHasAnySubPermsOfCache
+            = newGroupCache("groupHasAnySubPermissionOf", inner::groupHasAnySubPermissionOf);
 
     @Override
     public boolean groupHasAnySubPermissionOf(String groupId, String permission)
@@ -396,11 +1319,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupHasAnySubPermissionOf(String groupId, Iterable<String> permissions)
-    private final BiCache<String, Iterable<String>, Boolean> gHasAnySubPermsOfMultipleCache = new BiCache<>(inner::groupHasAnySubPermissionOf);
-
     @Override
     public boolean groupHasAnySubPermissionOf(String groupId, Iterable<String> permissions)
-    { return gHasAnySubPermsOfMultipleCache.get(groupId, permissions); }
+    {
+        for(String permission : permissions)
+            if(groupHasAnySubPermissionOf(groupId, permission))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean groupHasAnySubPermissionOf(String groupId, String... permissions)
@@ -408,7 +1335,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region isOrAnySubPermissionOfIsDefault(String permission)
-    private final Cache<String, Boolean> dHasAnySubPermsOfCache = new Cache<>(inner::isOrAnySubPermissionOfIsDefault);
+    private final Cache<String, Boolean> dHasAnySubPermsOfCache
+            = new Cache<>("isOrAnySubPermissionOfIsDefault", inner::isOrAnySubPermissionOfIsDefault);
 
     @Override
     public boolean isOrAnySubPermissionOfIsDefault(String permission)
@@ -416,11 +1344,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region isOrAnySubPermissionOfIsDefault(Iterable<String> permissions)
-    private final Cache<Iterable<String>, Boolean> dHasAnySubPermsOfMultipleCache = new Cache<>(inner::isOrAnySubPermissionOfIsDefault);
-
     @Override
     public boolean isOrAnySubPermissionOfIsDefault(Iterable<String> permissions)
-    { return dHasAnySubPermsOfMultipleCache.get(permissions); }
+    {
+        for(String permission : permissions)
+            if(isOrAnySubPermissionOfIsDefault(permission))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean isOrAnySubPermissionOfIsDefault(String... permissions)
@@ -428,7 +1360,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getUserPermissionArg(ID userId, String permission)
-    private final BiCache<ID, String, String> uPArgCache = new BiCache<>(inner::getUserPermissionArg);
+    private final BiCache<ID, String, String> uPArgCache
+            = newUserCache("getUserPermissionArg", inner::getUserPermissionArg);
 
     @Override
     public String getUserPermissionArg(ID userId, String permission)
@@ -436,7 +1369,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getGroupPermissionArg(String groupId, String permission)
-    private final BiCache<String, String, String> gPArgCache = new BiCache<>(inner::getGroupPermissionArg);
+    private final BiCache<String, String, String> gPArgCache
+            = newGroupCache("getGroupPermissionArg", inner::getGroupPermissionArg);
 
     @Override
     public String getGroupPermissionArg(String groupId, String permission)
@@ -444,7 +1378,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region getDefaultPermissionArg(String permission)
-    private final Cache<String, String> dPArgCache = new Cache<>(inner::getDefaultPermissionArg);
+    private final Cache<String, String> dPArgCache
+            = new Cache<>("getDefaultPermissionArg", inner::getDefaultPermissionArg);
 
     @Override
     public String getDefaultPermissionArg(String permission)
@@ -452,7 +1387,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasGroup(ID userId, String groupName)
-    private final BiCache<ID, String, Boolean> uHasGroupCache = new BiCache<>(inner::userHasGroup);
+    private final BiCache<ID, String, Boolean> uHasGroupCache
+            = newUserCache("userHasGroup", inner::userHasGroup);
 
     @Override
     public boolean userHasGroup(ID userId, String groupName)
@@ -460,7 +1396,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupExtendsFromGroup(String groupId, String superGroupName)
-    private final BiCache<String, String, Boolean> gHasGroupCache = new BiCache<>(inner::groupExtendsFromGroup);
+    private final BiCache<String, String, Boolean> gHasGroupCache
+            = newGroupCache("groupExtendsFromGroup", inner::groupExtendsFromGroup);
 
     @Override
     public boolean groupExtendsFromGroup(String groupId, String superGroupName)
@@ -468,7 +1405,8 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region isDefaultGroup(String groupId)
-    private final Cache<String, Boolean> dHasGroupCache = new Cache<>(inner::isDefaultGroup);
+    private final Cache<String, Boolean> dHasGroupCache
+            = new Cache<>("isDefaultGroup", inner::isDefaultGroup);
 
     @Override
     public boolean isDefaultGroup(String groupId)
@@ -476,11 +1414,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasAllGroups(ID userId, Iterable<String> groupNames)
-    private final BiCache<ID, Iterable<String>, Boolean> uHasAllGroupsCache = new BiCache<>(inner::userHasAllGroups);
-
     @Override
     public boolean userHasAllGroups(ID userId, Iterable<String> groupNames)
-    { return uHasAllGroupsCache.get(userId, groupNames); }
+    {
+        for(String groupName : groupNames)
+            if(!userHasGroup(userId, groupName))
+                return false;
+
+        return true;
+    }
 
     @Override
     public boolean userHasAllGroups(ID userId, String... groupNames)
@@ -488,11 +1430,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupExtendsFromAllGroups(String groupName, Iterable<String> superGroupNames)
-    private final BiCache<String, Iterable<String>, Boolean> gHasAllGroupsCache = new BiCache<>(inner::groupExtendsFromAllGroups);
-
     @Override
     public boolean groupExtendsFromAllGroups(String groupName, Iterable<String> superGroupNames)
-    { return gHasAllGroupsCache.get(groupName, superGroupNames); }
+    {
+        for(String superGroupName : superGroupNames)
+            if(!groupExtendsFromGroup(groupName, superGroupName))
+                return false;
+
+        return true;
+    }
 
     @Override
     public boolean groupExtendsFromAllGroups(String groupName, String... superGroupNames)
@@ -500,11 +1446,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region areAllDefaultGroups(Iterable<String> groupNames)
-    private final Cache<Iterable<String>, Boolean> dHasAllGroupsCache = new Cache<>(inner::areAllDefaultGroups);
-
     @Override
     public boolean areAllDefaultGroups(Iterable<String> groupNames)
-    { return dHasAllGroupsCache.get(groupNames); }
+    {
+        for(String groupName : groupNames)
+            if(!isDefaultGroup(groupName))
+                return false;
+
+        return true;
+    }
 
     @Override
     public boolean areAllDefaultGroups(String... groupNames)
@@ -512,11 +1462,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region userHasAnyGroups(ID userId, Iterable<String> groupNames)
-    private final BiCache<ID, Iterable<String>, Boolean> uHasAnyGroupsCache = new BiCache<>(inner::userHasAnyGroups);
-
     @Override
     public boolean userHasAnyGroups(ID userId, Iterable<String> groupNames)
-    { return uHasAnyGroupsCache.get(userId, groupNames); }
+    {
+        for(String groupName : groupNames)
+            if(userHasGroup(userId, groupName))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean userHasAnyGroups(ID userId, String... groupNames)
@@ -524,11 +1478,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region groupExtendsFromAnyGroups(String groupName, Iterable<String> superGroupNames)
-    private final BiCache<String, Iterable<String>, Boolean> gHasAnyGroupsCache = new BiCache<>(inner::groupExtendsFromAnyGroups);
-
     @Override
     public boolean groupExtendsFromAnyGroups(String groupName, Iterable<String> superGroupNames)
-    { return gHasAnyGroupsCache.get(groupName, superGroupNames); }
+    {
+        for(String superGroupName : superGroupNames)
+            if(groupExtendsFromGroup(groupName, superGroupName))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean groupExtendsFromAnyGroups(String groupName, String... superGroupNames)
@@ -536,11 +1494,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region anyAreDefaultGroups(Iterable<String> groupNames)
-    private final Cache<Iterable<String>, Boolean> dHasAnyGroupsCache = new Cache<>(inner::anyAreDefaultGroups);
-
     @Override
     public boolean anyAreDefaultGroups(Iterable<String> groupNames)
-    { return dHasAnyGroupsCache.get(groupNames); }
+    {
+        for(String groupName : groupNames)
+            if(isDefaultGroup(groupName))
+                return true;
+
+        return false;
+    }
 
     @Override
     public boolean anyAreDefaultGroups(String... groupNames)
@@ -549,6 +1511,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     //endregion
 
     //region Mutators
+    /*
+
+    Modifications of a user only invalidate the cached results for that user. Modifications of a group invalidate the
+    cached results for that group, the groups that extend from it, and the users that have it, as found before the
+    modification. Where the default permissions have the group, or where the default permissions are modified, all
+    cached results are invalidated.
+
+     */
+
     @Override
     public void absorb(PermissionsRegistry<ID> other)
     {
@@ -567,15 +1538,16 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public Permission assignUserPermission(ID userId, String permission)
     {
         Permission result = super.assignUserPermission(userId, permission);
-        invalidateCache();
+        invalidateCacheForUser(userId);
         return result;
     }
 
     @Override
     public Permission assignGroupPermission(String groupId, String permission)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupId));
         Permission result = super.assignGroupPermission(groupId, permission);
-        invalidateCache();
+        dependents.invalidate();
         return result;
     }
 
@@ -591,28 +1563,30 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public void assignUserPermissions(ID userId, List<String> permissions)
     {
         super.assignUserPermissions(userId, permissions);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void assignUserPermissions(ID userId, String[] permissions)
     {
         super.assignUserPermissions(userId, permissions);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void assignGroupPermissions(String groupName, List<String> permissions)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.assignGroupPermissions(groupName, permissions);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
     public void assignGroupPermissions(String groupName, String[] permissions)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.assignGroupPermissions(groupName, permissions);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
@@ -633,15 +1607,16 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public Permission revokeUserPermission(ID userId, String permission)
     {
         Permission result = super.revokeUserPermission(userId, permission);
-        invalidateCache();
+        invalidateCacheForUser(userId);
         return result;
     }
 
     @Override
     public Permission revokeGroupPermission(String groupeName, String permission)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupeName));
         Permission result = super.revokeGroupPermission(groupeName, permission);
-        invalidateCache();
+        dependents.invalidate();
         return result;
     }
 
@@ -657,14 +1632,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public void revokeAllUserPermissions(ID userId)
     {
         super.revokeAllUserPermissions(userId);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void revokeAllGroupPermissions(String groupName)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.revokeAllGroupPermissions(groupName);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
@@ -678,14 +1654,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public void assignGroupToUser(ID userId, String groupNameBeingAssigned)
     {
         super.assignGroupToUser(userId, groupNameBeingAssigned);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void assignGroupToGroup(String groupName, String groupNameBeingAssigned)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.assignGroupToGroup(groupName, groupNameBeingAssigned);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
@@ -699,28 +1676,30 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public void assignGroupsToUser(ID userId, List<String> groupNamesBeingAssigned)
     {
         super.assignGroupsToUser(userId, groupNamesBeingAssigned);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void assignGroupsToUser(ID userId, String[] groupNamesBeingAssigned)
     {
         super.assignGroupsToUser(userId, groupNamesBeingAssigned);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void assignGroupsToGroup(String groupName, List<String> groupNamesBeingAssigned)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.assignGroupsToGroup(groupName, groupNamesBeingAssigned);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
     public void assignGroupsToGroup(String groupName, String[] groupNamesBeingAssigned)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.assignGroupsToGroup(groupName, groupNamesBeingAssigned);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
@@ -741,15 +1720,16 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public boolean revokeGroupFromUser(ID userId, String groupNameBeingRevoked)
     {
         boolean result = super.revokeGroupFromUser(userId, groupNameBeingRevoked);
-        invalidateCache();
+        invalidateCacheForUser(userId);
         return result;
     }
 
     @Override
     public boolean revokeGroupFromGroup(String groupName, String groupNameBeingRevoked)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         boolean result = super.revokeGroupFromGroup(groupName, groupNameBeingRevoked);
-        invalidateCache();
+        dependents.invalidate();
         return result;
     }
 
@@ -765,14 +1745,15 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public void revokeAllGroupsFromUser(ID userId)
     {
         super.revokeAllGroupsFromUser(userId);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
     public void revokeAllGroupsFromGroup(String groupName)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.revokeAllGroupsFromGroup(groupName);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
@@ -800,21 +1781,21 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     public void clearUsers(Collection<ID> userIds)
     {
         super.clearUsers(userIds);
-        invalidateCache();
+        invalidateCacheForUsers(userIds);
     }
 
     @Override
     public void clearUsers(ID[] userIds)
     {
         super.clearUsers(userIds);
-        invalidateCache();
+        invalidateCacheForUsers(Arrays.asList(userIds));
     }
 
     @Override
     public void clearUser(ID userId)
     {
         super.clearUser(userId);
-        invalidateCache();
+        invalidateCacheForUser(userId);
     }
 
     @Override
@@ -827,22 +1808,25 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
     @Override
     public void clearGroups(Collection<String> groupNames)
     {
+        GroupDependents dependents = getCachedDependentsOf(groupNames);
         super.clearGroups(groupNames);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
     public void clearGroups(String[] groupNames)
     {
+        GroupDependents dependents = getCachedDependentsOf(Arrays.asList(groupNames));
         super.clearGroups(groupNames);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
     public void clearGroup(String groupName)
     {
+        GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
         super.clearGroup(groupName);
-        invalidateCache();
+        dependents.invalidate();
     }
 
     @Override
@@ -852,6 +1836,13 @@ public final class CachedPermissionsRegistry<ID extends Comparable<? super ID>>
         invalidateCache();
     }
 
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        super.batch(transaction);
+        invalidateCache();
+    }
+
     @Override
     public void load() throws IOException
     {
@@ -0,0 +1,63 @@
+package scot.massie.lib.permissions.decorators;
+
+import java.util.Map;
+
+/**
+ * <p>Management interface exposing the statistics of the caches of a {@link CachedPermissionsRegistry} over JMX, as
+ * registered by {@link CachedPermissionsRegistry#registerMXBean(String)}.</p>
+ *
+ * <p>Totals are across all of the registry's caches. Statistics are read while synchronised on the registry, as
+ * {@link ThreadsafePermissionsRegistry} does when the registry is wrapped in one, such that each is a consistent
+ * snapshot of the caches. Where the registry is used from multiple threads without being synchronised on, statistics
+ * may be inconsistent.</p>
+ */
+public interface CachedPermissionsRegistryMXBean
+{
+    /**
+     * Gets the statistics of each of the registry's caches.
+     * @return A map of the statistics of each cache, against the name of the accessor whose results the cache stores.
+     */
+    Map<String, CacheStats> getCacheStats();
+
+    /**
+     * Gets the total number of times a result was returned from a cache.
+     * @return The total number of cache hits.
+     */
+    long getHitCount();
+
+    /**
+     * Gets the total number of times a result was computed by the contained registry, as it wasn't in a cache.
+     * @return The total number of cache misses.
+     */
+    long getMissCount();
+
+    /**
+     * Gets the proportion of all requests that were returned from a cache.
+     * @return The total number of cache hits divided by the total number of requests, or 0 if there have been none.
+     */
+    double getHitRate();
+
+    /**
+     * Gets the total number of results discarded from caches to make room for other results.
+     * @return The total number of cache evictions.
+     */
+    long getEvictionCount();
+
+    /**
+     * Gets the total number of results discarded from caches because the registry was modified.
+     * @return The total number of results invalidated.
+     */
+    long getInvalidationCount();
+
+    /**
+     * Gets the total time spent computing results that weren't in a cache.
+     * @return The total time spent on cache misses, in nanoseconds.
+     */
+    long getTotalLoadTimeNanos();
+
+    /**
+     * Gets the total number of results in the registry's caches.
+     * @return The total size of the caches.
+     */
+    int getSize();
+}
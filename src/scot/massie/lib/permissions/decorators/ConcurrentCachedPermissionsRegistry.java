@@ -0,0 +1,1048 @@
+package scot.massie.lib.permissions.decorators;
+
+import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
+import scot.massie.lib.permissions.Permission;
+import scot.massie.lib.permissions.PermissionStatus;
+import scot.massie.lib.permissions.PermissionsRegistry;
+import scot.massie.lib.permissions.exceptions.GroupMissingPermissionException;
+import scot.massie.lib.permissions.exceptions.PermissionNotDefaultException;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link ThreadsafePermissionsRegistry} that stores the results of accessor calls, such that they can be returned
+ * again without locking.</p>
+ *
+ * <p>Where a result is stored, it's returned without synchronising on the registry. Where it's not, it's computed from
+ * the contained registry while synchronised on it, once, with any other threads requesting the same result at the same
+ * time waiting for it to be computed rather than computing it again.</p>
+ *
+ * <p>Stored results are invalidated as in {@link CachedPermissionsRegistry} - modifying a user invalidates the results
+ * for that user, modifying a group invalidates the results for that group, the groups that extend from it, and the
+ * users that have it, and other modifications invalidate all results. Results are stored in maps that invalidation
+ * detaches from the cache rather than clears, and a result is added to its map before it starts being computed, such
+ * that a result computed from the registry's contents before a modification is never stored where it can be returned
+ * after the modification has been invalidated.</p>
+ *
+ * <p>Once a cache holds more than its maximum number of results, arbitrary results are discarded, rather than the least
+ * recently used, as tracking usage would require locking.</p>
+ * @see CachedPermissionsRegistry
+ * @apiNote As with {@link CachedPermissionsRegistry}, this assumes that the contained registry is not mutated from
+ *          outwith this decorator.
+ * @apiNote Accessors not listed here, such as those checking multiple permissions at once, are not cached, and are
+ *          synchronised on the registry as with {@link ThreadsafePermissionsRegistry}. Assertions of single permissions
+ *          are resolved through the cached accessors.
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public final class ConcurrentCachedPermissionsRegistry<ID extends Comparable<? super ID>>
+        extends ThreadsafePermissionsRegistry<ID>
+{
+    //region Subclasses
+    /**
+     * Cache for single-argument accessors. This encapsulates a function and stores the result when queried.
+     * @param <TArg> The argument type.
+     * @param <TResult> The type returned.
+     */
+    private final class Cache<TArg, TResult>
+    {
+        /**
+         * The map of cached results, or of results being computed, against the single argument passed in. Replaced
+         * with a new map when invalidated.
+         */
+        volatile ConcurrentHashMap<TArg, FutureTask<TResult>> cachedValues = new ConcurrentHashMap<>();
+
+        /**
+         * The encapsulated function.
+         */
+        final Function<TArg, TResult> resultGetter;
+
+        /**
+         * Creates a new cache.
+         * @param function The function that this cache should call and cache the result of.
+         */
+        Cache(Function<TArg, TResult> function)
+        {
+            this.resultGetter = function;
+            allCaches.add(this::invalidate);
+        }
+
+        /**
+         * Gets the result of the encapsulated function, from this cache where it has been stored, or by calling the
+         * encapsulated function and storing the result.
+         * @param arg The arg to pass into the encapsulated function.
+         * @return The result of calling the encapsulated function with the given argument.
+         */
+        TResult get(TArg arg)
+        { return getOrCompute(cachedValues, arg, () -> resultGetter.apply(arg), cacheSize); }
+
+        /**
+         * Wipes the stored results of this cache.
+         */
+        void invalidate()
+        { cachedValues = new ConcurrentHashMap<>(); }
+    }
+
+    /**
+     * Cache for dual-argument accessors. This encapsulates a function and stores the result when queried.
+     * @param <TArg1> The first argument type.
+     * @param <TArg2> The second argument type.
+     * @param <TResult> The type returned.
+     */
+    private final class BiCache<TArg1, TArg2, TResult>
+    {
+        /**
+         * The map of maps of cached results, or of results being computed, against the second argument passed in,
+         * against the first argument passed in. Replaced with a new map when invalidated.
+         */
+        volatile ConcurrentHashMap<TArg1, ConcurrentHashMap<TArg2, FutureTask<TResult>>> cachedValues
+                = new ConcurrentHashMap<>();
+
+        /**
+         * The encapsulated function.
+         */
+        final BiFunction<TArg1, TArg2, TResult> resultGetter;
+
+        /**
+         * Creates a new cache.
+         * @param function The function that this cache should call and cache the result of.
+         */
+        BiCache(BiFunction<TArg1, TArg2, TResult> function)
+        {
+            this.resultGetter = function;
+            allCaches.add(this::invalidate);
+        }
+
+        /**
+         * Gets the result of the encapsulated function, from this cache where it has been stored, or by calling the
+         * encapsulated function and storing the result.
+         * @param arg1 The first arg to pass into the encapsulated function.
+         * @param arg2 The second arg to pass into the encapsulated function.
+         * @return The result of calling the encapsulated function with the given arguments.
+         */
+        TResult get(TArg1 arg1, TArg2 arg2)
+        {
+            ConcurrentHashMap<TArg1, ConcurrentHashMap<TArg2, FutureTask<TResult>>> values = cachedValues;
+            ConcurrentHashMap<TArg2, FutureTask<TResult>> arg1Values = values.get(arg1);
+
+            if(arg1Values == null)
+            {
+                arg1Values = values.computeIfAbsent(arg1, x -> new ConcurrentHashMap<>());
+                evictIfFull(values, arg1, cacheSize);
+            }
+
+            return getOrCompute(arg1Values, arg2, () -> resultGetter.apply(arg1, arg2), innerCacheSize);
+        }
+
+        /**
+         * Gets the first arguments this cache currently stores results for, or is computing results for.
+         * @return A list of the first arguments this cache stores results for. This is a copy, and may be modified.
+         */
+        List<TArg1> getCachedFirstArgs()
+        { return new ArrayList<>(cachedValues.keySet()); }
+
+        /**
+         * Wipes the stored results of this cache.
+         */
+        void invalidate()
+        { cachedValues = new ConcurrentHashMap<>(); }
+
+        /**
+         * Wipes the stored results of this cache for the given first arguments.
+         * @param arg1s The first arguments to wipe the stored results for.
+         */
+        void invalidateFor(Collection<? extends TArg1> arg1s)
+        {
+            ConcurrentHashMap<TArg1, ConcurrentHashMap<TArg2, FutureTask<TResult>>> values = cachedValues;
+
+            for(TArg1 arg1 : arg1s)
+                values.remove(arg1);
+        }
+    }
+
+    /**
+     * The first arguments of the cached results that depend on the contents of some groups, found before the groups
+     * are modified, such that those results can be invalidated afterwards.
+     */
+    private final class GroupDependents
+    {
+        /**
+         * Whether or not the default permissions depend on the groups, in which case every cached result does.
+         */
+        final boolean includesDefaults;
+
+        /**
+         * The names of the groups whose cached results depend on the groups, including the groups themselves.
+         */
+        final Set<String> groupNames;
+
+        /**
+         * The IDs of the users whose cached results depend on the groups.
+         */
+        final Set<ID> userIds;
+
+        /**
+         * Creates a new record of the cached results that depend on some groups.
+         * @param includesDefaults Whether or not the default permissions depend on the groups.
+         * @param groupNames The names of the groups whose cached results depend on the groups.
+         * @param userIds The IDs of the users whose cached results depend on the groups.
+         */
+        GroupDependents(boolean includesDefaults, Set<String> groupNames, Set<ID> userIds)
+        {
+            this.includesDefaults = includesDefaults;
+            this.groupNames = groupNames;
+            this.userIds = userIds;
+        }
+
+        /**
+         * Wipes the cached results that depend on the groups.
+         */
+        void invalidate()
+        {
+            if(includesDefaults)
+            {
+                invalidateCache();
+                return;
+            }
+
+            for(BiCache<String, ?, ?> cache : groupCaches)
+                cache.invalidateFor(groupNames);
+
+            for(BiCache<ID, ?, ?> cache : userCaches)
+                cache.invalidateFor(userIds);
+        }
+    }
+    //endregion
+
+    //region Instance variables
+    /**
+     * The maximum number of results each single-argument cache holds, and the maximum number of first arguments each
+     * dual-argument cache holds results for.
+     */
+    private final int cacheSize;
+
+    /**
+     * The maximum number of results each dual-argument cache holds for each first argument.
+     */
+    private final int innerCacheSize;
+
+    /**
+     * The invalidation actions of all caches.
+     */
+    private final List<Runnable> allCaches = new ArrayList<>();
+
+    /**
+     * The caches of accessors whose first argument is a user ID.
+     */
+    private final List<BiCache<ID, ?, ?>> userCaches = new ArrayList<>();
+
+    /**
+     * The caches of accessors whose first argument is a group name.
+     */
+    private final List<BiCache<String, ?, ?>> groupCaches = new ArrayList<>();
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new concurrent cached permissions registry, with the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments into
+     * {@link #ConcurrentCachedPermissionsRegistry(PermissionsRegistry, int, int)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     * @param cacheSize The maximum number of results each single-argument cache holds, and the maximum number of first
+     *                  arguments, (such as users) each dual-argument cache holds results for.
+     * @param innerCacheSize The maximum number of results each dual-argument cache holds for each first argument.
+     */
+    public ConcurrentCachedPermissionsRegistry(Function<ID, String> idToString,
+                                               Function<String, ID> idFromString,
+                                               Path usersFile,
+                                               Path groupsFile,
+                                               int cacheSize,
+                                               int innerCacheSize)
+    {
+        this(new GroupMapPermissionsRegistry<>(idToString, idFromString, usersFile, groupsFile),
+             cacheSize, innerCacheSize);
+    }
+
+    /**
+     * Creates a new concurrent cached permissions registry, with the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments into
+     * {@link #ConcurrentCachedPermissionsRegistry(PermissionsRegistry)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public ConcurrentCachedPermissionsRegistry(Function<ID, String> idToString,
+                                               Function<String, ID> idFromString,
+                                               Path usersFile,
+                                               Path groupsFile)
+    { this(new GroupMapPermissionsRegistry<>(idToString, idFromString, usersFile, groupsFile)); }
+
+    /**
+     * Creates a new concurrent cached permissions registry, without the ability to save to/load from files. This is
+     * the equivalent of passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments
+     * into {@link #ConcurrentCachedPermissionsRegistry(PermissionsRegistry)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    public ConcurrentCachedPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
+    { this(new GroupMapPermissionsRegistry<>(idToString, idFromString)); }
+
+    /**
+     * Wraps an existing permissions registry in a concurrent cached permissions registry, providing synchronous access
+     * to it that caches accessor call results.
+     * @param inner The wrapped permissions registry.
+     * @param cacheSize The maximum number of results each single-argument cache holds, and the maximum number of first
+     *                  arguments, (such as users) each dual-argument cache holds results for.
+     * @param innerCacheSize The maximum number of results each dual-argument cache holds for each first argument.
+     */
+    public ConcurrentCachedPermissionsRegistry(PermissionsRegistry<ID> inner, int cacheSize, int innerCacheSize)
+    {
+        super(inner);
+
+        if(cacheSize < 1)
+            throw new IllegalArgumentException("cacheSize must be at least 1. Was: " + cacheSize);
+
+        if(innerCacheSize < 1)
+            throw new IllegalArgumentException("innerCacheSize must be at least 1. Was: " + innerCacheSize);
+
+        this.cacheSize = cacheSize;
+        this.innerCacheSize = innerCacheSize;
+    }
+
+    /**
+     * Wraps an existing permissions registry in a concurrent cached permissions registry, providing synchronous access
+     * to it that caches accessor call results, using {@link CachedPermissionsRegistry#defaultCacheSize} and
+     * {@link CachedPermissionsRegistry#defaultInnerCacheSize}.
+     * @param inner The wrapped permissions registry.
+     */
+    public ConcurrentCachedPermissionsRegistry(PermissionsRegistry<ID> inner)
+    { this(inner, CachedPermissionsRegistry.defaultCacheSize, CachedPermissionsRegistry.defaultInnerCacheSize); }
+    //endregion
+
+    //region methods
+    //region Caching
+    /**
+     * Creates a new cache for an accessor whose first argument is a user ID, which is invalidated for a user where that
+     * user is modified.
+     * @param function The accessor.
+     * @param <TArg2> The type of the accessor's second argument.
+     * @param <TResult> The type returned by the accessor.
+     * @return A new cache.
+     */
+    private <TArg2, TResult> BiCache<ID, TArg2, TResult> newUserCache(BiFunction<ID, TArg2, TResult> function)
+    {
+        BiCache<ID, TArg2, TResult> cache = new BiCache<>(function);
+        userCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Creates a new cache for an accessor whose first argument is a group name, which is invalidated for a group where
+     * that group, or any group it extends from, is modified.
+     * @param function The accessor.
+     * @param <TArg2> The type of the accessor's second argument.
+     * @param <TResult> The type returned by the accessor.
+     * @return A new cache.
+     */
+    private <TArg2, TResult> BiCache<String, TArg2, TResult> newGroupCache(BiFunction<String, TArg2, TResult> function)
+    {
+        BiCache<String, TArg2, TResult> cache = new BiCache<>(function);
+        groupCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Gets a result from the given map, or where it's not in the map, adds it to the map and computes it. Where
+     * another thread is already computing the result, waits for it to be computed instead - unless this thread is
+     * synchronised on the registry, which the other thread may be waiting for, in which case the result is computed
+     * again without being stored.
+     * @param values The map of results, or of results being computed.
+     * @param key The key of the result in the map.
+     * @param computation The computation of the result.
+     * @param capacity The maximum number of results the map should hold.
+     * @param <K> The type of the keys of the map.
+     * @param <V> The type of the result.
+     * @return The result.
+     */
+    private <K, V> V getOrCompute(ConcurrentHashMap<K, FutureTask<V>> values,
+                                  K key,
+                                  Callable<V> computation,
+                                  int capacity)
+    {
+        FutureTask<V> task = values.get(key);
+
+        if(task == null)
+        {
+            FutureTask<V> newTask = new FutureTask<>(computation);
+            task = values.putIfAbsent(key, newTask);
+
+            if(task == null)
+            {
+                task = newTask;
+                evictIfFull(values, key, capacity);
+                newTask.run();
+            }
+        }
+
+        if(!task.isDone() && Thread.holdsLock(inner))
+        {
+            FutureTask<V> uncachedTask = new FutureTask<>(computation);
+            uncachedTask.run();
+            task = uncachedTask;
+        }
+
+        boolean interrupted = false;
+
+        try
+        {
+            while(true)
+            {
+                try
+                { return task.get(); }
+                catch(InterruptedException e)
+                { interrupted = true; }
+                catch(ExecutionException e)
+                {
+                    // Not cached, so the computation is attempted again next time.
+                    values.remove(key, task);
+                    Throwable cause = e.getCause();
+
+                    if(cause instanceof RuntimeException)
+                        throw (RuntimeException)cause;
+
+                    if(cause instanceof Error)
+                        throw (Error)cause;
+
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+        finally
+        {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Discards arbitrary entries from the given map, other than the one with the given key, until it holds no more than
+     * the given number of entries.
+     * @param values The map.
+     * @param keyToKeep The key of the entry not to discard.
+     * @param capacity The maximum number of entries the map should hold.
+     * @param <K> The type of the keys of the map.
+     */
+    private static <K> void evictIfFull(ConcurrentHashMap<K, ?> values, K keyToKeep, int capacity)
+    {
+        if(values.size() <= capacity)
+            return;
+
+        for(Iterator<K> iterator = values.keySet().iterator(); iterator.hasNext() && values.size() > capacity;)
+            if(!iterator.next().equals(keyToKeep))
+                iterator.remove();
+    }
+
+    /**
+     * Deletes the caches for all accessors of this permissions registry.
+     */
+    public void invalidateCache()
+    {
+        for(Runnable invalidation : allCaches)
+            invalidation.run();
+    }
+
+    /**
+     * Deletes the cached results of accessors for the given users.
+     * @param userIds The IDs of the users to delete the cached results for.
+     */
+    private void invalidateCacheForUsers(Collection<ID> userIds)
+    {
+        for(BiCache<ID, ?, ?> cache : userCaches)
+            cache.invalidateFor(userIds);
+    }
+
+    /**
+     * Deletes the cached results of accessors for the given user.
+     * @param userId The ID of the user to delete the cached results for.
+     */
+    public void invalidateCacheForUser(ID userId)
+    { invalidateCacheForUsers(Collections.singletonList(userId)); }
+
+    /**
+     * Deletes the cached results of accessors that depend on the given group - those for the group, for groups that
+     * extend from it, and for users that have it. Where the default permissions have the group, this deletes the caches
+     * for all accessors.
+     * @param groupName The name of the group to delete the dependent cached results of.
+     */
+    public void invalidateCacheForGroup(String groupName)
+    {
+        synchronized(inner)
+        { getCachedDependentsOf(Collections.singletonList(groupName)).invalidate(); }
+    }
+
+    /**
+     * Finds the first arguments of the cached results that depend on the given groups, according to the groups the
+     * users and groups cached results are stored for currently have. This should be called before the groups are
+     * modified, while synchronised on the registry until the cached results are invalidated, as modifying them may
+     * change which groups and users have them.
+     * @param groupNames The names of the groups.
+     * @return The first arguments of the cached results that depend on the given groups.
+     */
+    private GroupDependents getCachedDependentsOf(Collection<String> groupNames)
+    {
+        for(String groupName : groupNames)
+            if(inner.isDefaultGroup(groupName))
+                return new GroupDependents(true, Collections.emptySet(), Collections.emptySet());
+
+        Set<String> dependentGroupNames = new HashSet<>(groupNames);
+        Set<String> checkedGroupNames = new HashSet<>(groupNames);
+        Set<ID> dependentUserIds = new HashSet<>();
+        Set<ID> checkedUserIds = new HashSet<>();
+
+        for(BiCache<String, ?, ?> cache : groupCaches)
+            for(String groupName : cache.getCachedFirstArgs())
+                if(checkedGroupNames.add(groupName) && inner.groupExtendsFromAnyGroups(groupName, groupNames))
+                    dependentGroupNames.add(groupName);
+
+        for(BiCache<ID, ?, ?> cache : userCaches)
+            for(ID userId : cache.getCachedFirstArgs())
+                if(checkedUserIds.add(userId) && inner.userHasAnyGroups(userId, groupNames))
+                    dependentUserIds.add(userId);
+
+        return new GroupDependents(false, dependentGroupNames, dependentUserIds);
+    }
+    //endregion
+
+    //region PermissionRegistry methods
+    //region Assertions
+    @Override
+    public void assertUserHasPermission(ID userId, String permission) throws UserMissingPermissionException
+    {
+        if(!userHasPermission(userId, permission))
+            throw new UserMissingPermissionException(userId, permission);
+    }
+
+    @Override
+    public void assertGroupHasPermission(String groupName, String permission) throws GroupMissingPermissionException
+    {
+        if(!groupHasPermission(groupName, permission))
+            throw new GroupMissingPermissionException(groupName, permission);
+    }
+
+    @Override
+    public void assertIsDefaultPermission(String permission) throws PermissionNotDefaultException
+    {
+        if(!isDefaultPermission(permission))
+            throw new PermissionNotDefaultException(permission);
+    }
+    //endregion
+
+    //region Accessors
+    private final BiCache<ID, String, PermissionStatus> uPStatusCache = newUserCache(super::getUserPermissionStatus);
+    private final BiCache<String, String, PermissionStatus> gPStatusCache = newGroupCache(super::getGroupPermissionStatus);
+    private final Cache<String, PermissionStatus> dPStatusCache = new Cache<>(super::getDefaultPermissionStatus);
+    private final BiCache<ID, String, Boolean> uHasPermissionCache = newUserCache(super::userHasPermission);
+    private final BiCache<String, String, Boolean> gHasPermissionCache = newGroupCache(super::groupHasPermission);
+    private final Cache<String, Boolean> dHasPermissionCache = new Cache<>(super::isDefaultPermission);
+    private final BiCache<ID, String, Boolean> uHasAnySubPermsOfCache = newUserCache(super::userHasAnySubPermissionOf);
+    private final BiCache<String, String, Boolean> gHasAnySubPermsOfCache = newGroupCache(super::groupHasAnySubPermissionOf);
+    private final Cache<String, Boolean> dHasAnySubPermsOfCache = new Cache<>(super::isOrAnySubPermissionOfIsDefault);
+    private final BiCache<ID, String, String> uPArgCache = newUserCache(super::getUserPermissionArg);
+    private final BiCache<String, String, String> gPArgCache = newGroupCache(super::getGroupPermissionArg);
+    private final Cache<String, String> dPArgCache = new Cache<>(super::getDefaultPermissionArg);
+    private final BiCache<ID, String, Boolean> uHasGroupCache = newUserCache(super::userHasGroup);
+    private final BiCache<String, String, Boolean> gHasGroupCache = newGroupCache(super::groupExtendsFromGroup);
+    private final Cache<String, Boolean> dHasGroupCache = new Cache<>(super::isDefaultGroup);
+
+    @Override
+    public PermissionStatus getUserPermissionStatus(ID userId, String permission)
+    { return uPStatusCache.get(userId, permission); }
+
+    @Override
+    public PermissionStatus getGroupPermissionStatus(String groupName, String permission)
+    { return gPStatusCache.get(groupName, permission); }
+
+    @Override
+    public PermissionStatus getDefaultPermissionStatus(String permission)
+    { return dPStatusCache.get(permission); }
+
+    @Override
+    public boolean userHasPermission(ID userId, String permission)
+    { return uHasPermissionCache.get(userId, permission); }
+
+    @Override
+    public boolean groupHasPermission(String groupName, String permission)
+    { return gHasPermissionCache.get(groupName, permission); }
+
+    @Override
+    public boolean isDefaultPermission(String permission)
+    { return dHasPermissionCache.get(permission); }
+
+    @Override
+    public boolean userHasAnySubPermissionOf(ID userId, String permission)
+    { return uHasAnySubPermsOfCache.get(userId, permission); }
+
+    @Override
+    public boolean groupHasAnySubPermissionOf(String groupId, String permission)
+    { return gHasAnySubPermsOfCache.get(groupId, permission); }
+
+    @Override
+    public boolean isOrAnySubPermissionOfIsDefault(String permission)
+    { return dHasAnySubPermsOfCache.get(permission); }
+
+    @Override
+    public String getUserPermissionArg(ID userId, String permission)
+    { return uPArgCache.get(userId, permission); }
+
+    @Override
+    public String getGroupPermissionArg(String groupId, String permission)
+    { return gPArgCache.get(groupId, permission); }
+
+    @Override
+    public String getDefaultPermissionArg(String permission)
+    { return dPArgCache.get(permission); }
+
+    @Override
+    public boolean userHasGroup(ID userId, String groupName)
+    { return uHasGroupCache.get(userId, groupName); }
+
+    @Override
+    public boolean groupExtendsFromGroup(String groupId, String superGroupName)
+    { return gHasGroupCache.get(groupId, superGroupName); }
+
+    @Override
+    public boolean isDefaultGroup(String groupId)
+    { return dHasGroupCache.get(groupId); }
+    //endregion
+
+    //region Mutators
+    /*
+
+    Modifications of a group are made while synchronised on the registry from before the cached results depending on it
+    are found until after they're invalidated, so that no other modification can change which users and groups have it
+    in the meantime.
+
+     */
+
+    @Override
+    public void performOperationSynchronously(Consumer<PermissionsRegistry<ID>> operation)
+    {
+        super.performOperationSynchronously(operation);
+        invalidateCache();
+    }
+
+    @Override
+    public void prune()
+    {
+        super.prune();
+        invalidateCache();
+    }
+
+    @Override
+    public void prune(Collection<String> groupNames)
+    {
+        super.prune(groupNames);
+        invalidateCache();
+    }
+
+    @Override
+    public void absorb(PermissionsRegistry<ID> other)
+    {
+        super.absorb(other);
+        invalidateCache();
+    }
+
+    @Override
+    public void removeContentsOf(PermissionsRegistry<ID> other)
+    {
+        super.removeContentsOf(other);
+        invalidateCache();
+    }
+
+    @Override
+    public Permission assignUserPermission(ID userId, String permission)
+    {
+        Permission result = super.assignUserPermission(userId, permission);
+        invalidateCacheForUser(userId);
+        return result;
+    }
+
+    @Override
+    public Permission assignGroupPermission(String groupId, String permission)
+    {
+        Permission result;
+
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupId));
+            result = super.assignGroupPermission(groupId, permission);
+            dependents.invalidate();
+        }
+
+        return result;
+    }
+
+    @Override
+    public Permission assignDefaultPermission(String permission)
+    {
+        Permission result = super.assignDefaultPermission(permission);
+        invalidateCache();
+        return result;
+    }
+
+    @Override
+    public void assignUserPermissions(ID userId, List<String> permissions)
+    {
+        super.assignUserPermissions(userId, permissions);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void assignUserPermissions(ID userId, String[] permissions)
+    {
+        super.assignUserPermissions(userId, permissions);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void assignGroupPermissions(String groupName, List<String> permissions)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.assignGroupPermissions(groupName, permissions);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void assignGroupPermissions(String groupName, String[] permissions)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.assignGroupPermissions(groupName, permissions);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void assignDefaultPermissions(List<String> permissions)
+    {
+        super.assignDefaultPermissions(permissions);
+        invalidateCache();
+    }
+
+    @Override
+    public void assignDefaultPermissions(String[] permissions)
+    {
+        super.assignDefaultPermissions(permissions);
+        invalidateCache();
+    }
+
+    @Override
+    public Permission revokeUserPermission(ID userId, String permission)
+    {
+        Permission result = super.revokeUserPermission(userId, permission);
+        invalidateCacheForUser(userId);
+        return result;
+    }
+
+    @Override
+    public Permission revokeGroupPermission(String groupeName, String permission)
+    {
+        Permission result;
+
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupeName));
+            result = super.revokeGroupPermission(groupeName, permission);
+            dependents.invalidate();
+        }
+
+        return result;
+    }
+
+    @Override
+    public Permission revokeDefaultPermission(String permission)
+    {
+        Permission result = super.revokeDefaultPermission(permission);
+        invalidateCache();
+        return result;
+    }
+
+    @Override
+    public void revokeAllUserPermissions(ID userId)
+    {
+        super.revokeAllUserPermissions(userId);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void revokeAllGroupPermissions(String groupName)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.revokeAllGroupPermissions(groupName);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void revokeAllDefaultPermissions()
+    {
+        super.revokeAllDefaultPermissions();
+        invalidateCache();
+    }
+
+    @Override
+    public void assignGroupToUser(ID userId, String groupNameBeingAssigned)
+    {
+        super.assignGroupToUser(userId, groupNameBeingAssigned);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void assignGroupToGroup(String groupName, String groupNameBeingAssigned)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.assignGroupToGroup(groupName, groupNameBeingAssigned);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void assignDefaultGroup(String groupNameBeingAssigned)
+    {
+        super.assignDefaultGroup(groupNameBeingAssigned);
+        invalidateCache();
+    }
+
+    @Override
+    public void assignGroupsToUser(ID userId, List<String> groupNamesBeingAssigned)
+    {
+        super.assignGroupsToUser(userId, groupNamesBeingAssigned);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void assignGroupsToUser(ID userId, String[] groupNamesBeingAssigned)
+    {
+        super.assignGroupsToUser(userId, groupNamesBeingAssigned);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void assignGroupsToGroup(String groupName, List<String> groupNamesBeingAssigned)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.assignGroupsToGroup(groupName, groupNamesBeingAssigned);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void assignGroupsToGroup(String groupName, String[] groupNamesBeingAssigned)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.assignGroupsToGroup(groupName, groupNamesBeingAssigned);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void assignDefaultGroups(List<String> groupNameBeingAssigned)
+    {
+        super.assignDefaultGroups(groupNameBeingAssigned);
+        invalidateCache();
+    }
+
+    @Override
+    public void assignDefaultGroups(String[] groupNameBeingAssigned)
+    {
+        super.assignDefaultGroups(groupNameBeingAssigned);
+        invalidateCache();
+    }
+
+    @Override
+    public boolean revokeGroupFromUser(ID userId, String groupNameBeingRevoked)
+    {
+        boolean result = super.revokeGroupFromUser(userId, groupNameBeingRevoked);
+        invalidateCacheForUser(userId);
+        return result;
+    }
+
+    @Override
+    public boolean revokeGroupFromGroup(String groupName, String groupNameBeingRevoked)
+    {
+        boolean result;
+
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            result = super.revokeGroupFromGroup(groupName, groupNameBeingRevoked);
+            dependents.invalidate();
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean revokeDefaultGroup(String groupNameBeingRevoked)
+    {
+        boolean result = super.revokeDefaultGroup(groupNameBeingRevoked);
+        invalidateCache();
+        return result;
+    }
+
+    @Override
+    public void revokeAllGroupsFromUser(ID userId)
+    {
+        super.revokeAllGroupsFromUser(userId);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void revokeAllGroupsFromGroup(String groupName)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.revokeAllGroupsFromGroup(groupName);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void revokeAllDefaultGroups()
+    {
+        super.revokeAllDefaultGroups();
+        invalidateCache();
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        invalidateCache();
+    }
+
+    @Override
+    public void clearUsers()
+    {
+        super.clearUsers();
+        invalidateCache();
+    }
+
+    @Override
+    public void clearUsers(Collection<ID> userIds)
+    {
+        super.clearUsers(userIds);
+        invalidateCacheForUsers(userIds);
+    }
+
+    @Override
+    public void clearUsers(ID[] userIds)
+    {
+        super.clearUsers(userIds);
+        invalidateCacheForUsers(Arrays.asList(userIds));
+    }
+
+    @Override
+    public void clearUser(ID userId)
+    {
+        super.clearUser(userId);
+        invalidateCacheForUser(userId);
+    }
+
+    @Override
+    public void clearGroups()
+    {
+        super.clearGroups();
+        invalidateCache();
+    }
+
+    @Override
+    public void clearGroups(Collection<String> groupNames)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(groupNames);
+            super.clearGroups(groupNames);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void clearGroups(String[] groupNames)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Arrays.asList(groupNames));
+            super.clearGroups(groupNames);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void clearGroup(String groupName)
+    {
+        synchronized(inner)
+        {
+            GroupDependents dependents = getCachedDependentsOf(Collections.singletonList(groupName));
+            super.clearGroup(groupName);
+            dependents.invalidate();
+        }
+    }
+
+    @Override
+    public void clearDefaults()
+    {
+        super.clearDefaults();
+        invalidateCache();
+    }
+
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        super.batch(transaction);
+        invalidateCache();
+    }
+
+    @Override
+    public void load() throws IOException
+    {
+        super.load();
+        invalidateCache();
+    }
+    //endregion
+    //endregion
+    //endregion
+}
@@ -0,0 +1,694 @@
+package scot.massie.lib.permissions.decorators;
+
+import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
+import scot.massie.lib.permissions.LazyLoadingPermissionsRegistry;
+import scot.massie.lib.permissions.PermissionsRegistry;
+import scot.massie.lib.permissions.PermissionsRegistryDecorator;
+import scot.massie.lib.permissions.PermissionsRegistryDiff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link PermissionsRegistry} decorator that reloads its enclosed registry when its users or groups files are
+ * changed by something other than the registry itself.</p>
+ *
+ * <p>Rather than clearing the registry and loading it again from scratch, which would leave it without permissions
+ * while the files were being read, the changed file is parsed in the background into a registry of its own, compared
+ * against the registry being reloaded, and only the users and groups that differ are replaced. This is applied as a
+ * single {@link #batch(Consumer) batch}, so a registry that makes batches atomic, such as one wrapped in a
+ * {@link ThreadsafePermissionsRegistry}, never appears half-reloaded.</p>
+ *
+ * <p>The users and groups files are expected to be in the format written by {@link GroupMapPermissionsRegistry}. The
+ * registry should be saved through this decorator rather than the registry it wraps, so that the files it writes
+ * aren't mistaken for outside changes.</p>
+ *
+ * <p>A {@link LazyLoadingPermissionsRegistry} can't be hot-reloaded, as it reads users not yet loaded from where they
+ * were in the users file when it was loaded, which no longer holds once the file has been changed.</p>
+ * @see PermissionsRegistry
+ * @param <ID> The type of the unique identifier used to represent users.
+ */
+public class HotReloadingPermissionsRegistry<ID extends Comparable<? super ID>>
+        extends PermissionsRegistryDecorator<ID>
+        implements Closeable
+{
+    //region Instance variables
+    /**
+     * How long, in milliseconds, the files are waited on to stop changing by default before they're reloaded.
+     */
+    private static final long defaultSettleMillis = 100;
+
+    /**
+     * How long, in milliseconds, the files are waited on to stop changing before they're reloaded.
+     */
+    private final long settleMillis;
+
+    /**
+     * What's done with any exception thrown while reloading the files in response to them changing.
+     */
+    private final Consumer<? super Exception> reloadFailureHandler;
+
+    /**
+     * Lock held while the files are reloaded, or while the registry is saved to or loaded from them.
+     */
+    private final Object reloadLock = new Object();
+
+    /**
+     * Lock held while the file watcher is started or stopped.
+     */
+    private final Object watcherLock = new Object();
+
+    /**
+     * The hash of the contents the users file was last known to have, or null if it wasn't known or the file didn't
+     * exist. Guarded by {@link #reloadLock}.
+     */
+    private byte[] knownUsersFileHash = null;
+
+    /**
+     * The hash of the contents the groups file was last known to have, or null if it wasn't known or the file didn't
+     * exist. Guarded by {@link #reloadLock}.
+     */
+    private byte[] knownGroupsFileHash = null;
+
+    /**
+     * A future that completes once every background save started through this registry has finished, and the contents
+     * of the files it wrote have been recorded as known. Guarded by {@link #reloadLock}.
+     */
+    private CompletableFuture<Void> backgroundSavesRecorded = CompletableFuture.completedFuture(null);
+
+    /**
+     * The watch service watching the directories containing the files, or null if they're not being watched. Guarded
+     * by {@link #watcherLock}.
+     */
+    private WatchService watchService = null;
+    //endregion
+
+    //region initialisation
+    /**
+     * Creates a new hot-reloading permissions registry, with the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments into
+     * {@link #HotReloadingPermissionsRegistry(PermissionsRegistry)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public HotReloadingPermissionsRegistry(Function<ID, String> idToString,
+                                           Function<String, ID> idFromString,
+                                           Path usersFile,
+                                           Path groupsFile)
+    {
+        super(idToString, idFromString, usersFile, groupsFile);
+        this.settleMillis = defaultSettleMillis;
+        this.reloadFailureHandler = Throwable::printStackTrace;
+    }
+
+    /**
+     * Creates a new hot-reloading permissions registry, without the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link GroupMapPermissionsRegistry} created with the given arguments into
+     * {@link #HotReloadingPermissionsRegistry(PermissionsRegistry)}.
+     * @param idToString The conversion for turning a user ID into a reversible string representation of it.
+     * @param idFromString The conversion for turning a user ID as a string string back into a user ID object.
+     */
+    public HotReloadingPermissionsRegistry(Function<ID, String> idToString, Function<String, ID> idFromString)
+    {
+        super(idToString, idFromString);
+        this.settleMillis = defaultSettleMillis;
+        this.reloadFailureHandler = Throwable::printStackTrace;
+    }
+
+    /**
+     * Wraps an existing permissions registry in a hot-reloading permissions registry, which reloads it from its files
+     * when they change. Exceptions thrown while reloading are printed.
+     * @param inner The wrapped permissions registry.
+     * @throws IllegalArgumentException If the given registry is a {@link LazyLoadingPermissionsRegistry}.
+     */
+    public HotReloadingPermissionsRegistry(PermissionsRegistry<ID> inner)
+    { this(inner, defaultSettleMillis, Throwable::printStackTrace); }
+
+    /**
+     * Wraps an existing permissions registry in a hot-reloading permissions registry, which reloads it from its files
+     * when they change.
+     * @param inner The wrapped permissions registry.
+     * @param settleMillis How long, in milliseconds, to wait for the files to stop changing before reloading them.
+     * @param reloadFailureHandler What to do with any exception thrown while reloading the files in response to them
+     *                             changing.
+     * @throws IllegalArgumentException If the given registry is a {@link LazyLoadingPermissionsRegistry}.
+     */
+    public HotReloadingPermissionsRegistry(PermissionsRegistry<ID> inner,
+                                           long settleMillis,
+                                           Consumer<? super Exception> reloadFailureHandler)
+    {
+        super(inner);
+
+        if(inner instanceof LazyLoadingPermissionsRegistry)
+            throw new IllegalArgumentException("Lazy-loading permissions registries can't be hot-reloaded.");
+
+        this.settleMillis = settleMillis;
+        this.reloadFailureHandler = reloadFailureHandler;
+    }
+    //endregion
+
+    //region methods
+    //region Watching
+    /**
+     * <p>Starts watching the users and groups files, reloading the registry from them on a background thread whenever
+     * they're changed by something other than this registry.</p>
+     *
+     * <p>Does nothing if the files are already being watched, or if no users or groups files have been provided to the
+     * registry.</p>
+     * @throws IOException If an IO exception is thrown in the process of starting to watch the files.
+     */
+    public void startWatching() throws IOException
+    {
+        synchronized(watcherLock)
+        {
+            if(watchService != null)
+                return;
+
+            Set<Path> files = getWatchedFiles();
+
+            if(files.isEmpty())
+                return;
+
+            WatchService ws = files.iterator().next().getFileSystem().newWatchService();
+            Set<Path> directories = new HashSet<>();
+
+            try
+            {
+                for(Path file : files)
+                    if(directories.add(file.getParent()))
+                        file.getParent().register(ws,
+                                                  StandardWatchEventKinds.ENTRY_CREATE,
+                                                  StandardWatchEventKinds.ENTRY_MODIFY,
+                                                  StandardWatchEventKinds.ENTRY_DELETE);
+            }
+            catch(IOException | RuntimeException e)
+            {
+                ws.close();
+                throw e;
+            }
+
+            Thread watcher = new Thread(() -> watchFiles(ws, files), "permissions-file-watcher");
+            watcher.setDaemon(true);
+            watchService = ws;
+            watcher.start();
+        }
+    }
+
+    /**
+     * Stops watching the users and groups files. Does nothing if they're not being watched.
+     * @throws IOException If an IO exception is thrown in the process of stopping watching the files.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        synchronized(watcherLock)
+        {
+            if(watchService == null)
+                return;
+
+            WatchService ws = watchService;
+            watchService = null;
+            ws.close();
+        }
+    }
+
+    /**
+     * Gets the absolute paths of the users and groups files, where provided.
+     * @return A set containing the users and groups files, where provided.
+     */
+    private Set<Path> getWatchedFiles()
+    {
+        Set<Path> files = new HashSet<>();
+        Path usersFile = inner.getUsersFilePath();
+        Path groupsFile = inner.getGroupsFilePath();
+
+        if(usersFile != null)
+            files.add(usersFile.toAbsolutePath());
+
+        if(groupsFile != null)
+            files.add(groupsFile.toAbsolutePath());
+
+        return files;
+    }
+
+    /**
+     * Waits for changes to the given files, reloading the registry once they've stopped changing. Returns when the
+     * given watch service is closed.
+     * @param ws The watch service watching the directories containing the given files.
+     * @param files The files to reload the registry from when they change.
+     */
+    private void watchFiles(WatchService ws, Set<Path> files)
+    {
+        try
+        {
+            for(;;)
+            {
+                if(!isForWatchedFile(ws.take(), files))
+                    continue;
+
+                // Editors may write a file in several steps, so the files are left to settle before being read.
+                for(WatchKey key; (key = ws.poll(settleMillis, TimeUnit.MILLISECONDS)) != null;)
+                    isForWatchedFile(key, files);
+
+                try
+                { reload(); }
+                catch(IOException | RuntimeException e)
+                { reloadFailureHandler.accept(e); }
+            }
+        }
+        catch(InterruptedException | ClosedWatchServiceException e)
+        { /* Watching has stopped. */ }
+    }
+
+    /**
+     * Checks whether any of the events of the given watch key are for the given files, and resets the key.
+     * @param key The watch key to check the events of.
+     * @param files The files being watched.
+     * @return True if any of the events of the given key are for any of the given files, or if events may have been
+     *         lost. Otherwise, false.
+     */
+    private static boolean isForWatchedFile(WatchKey key, Set<Path> files)
+    {
+        boolean result = false;
+        Path directory = (Path)key.watchable();
+
+        for(WatchEvent<?> event : key.pollEvents())
+        {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW
+            || files.contains(directory.resolve((Path)event.context())))
+            { result = true; }
+        }
+
+        key.reset();
+        return result;
+    }
+    //endregion
+
+    //region Reloading
+    /**
+     * <p>Reloads the registry from its users and groups files, if either has changed since the registry was last saved
+     * to, loaded from, or reloaded from them.</p>
+     *
+     * <p>The files are read into a separate registry, and only the users, groups, and default permissions that differ
+     * between it and this registry are replaced, in a single batch. A users or groups file that doesn't exist is
+     * treated as being empty.</p>
+     *
+     * <p>Where background saves started through this registry haven't yet finished, this waits for them first, so
+     * that the files they write aren't mistaken for outside changes.</p>
+     * @return True if either file had changed and the registry was reloaded. Otherwise, false.
+     * @throws IOException If an IO exception is thrown in the process of reading the files.
+     */
+    public boolean reload() throws IOException
+    {
+        for(;;)
+        {
+            CompletableFuture<Void> backgroundSaves;
+
+            synchronized(reloadLock)
+            {
+                backgroundSaves = backgroundSavesRecorded;
+
+                if(backgroundSaves.isDone())
+                    return reloadFiles();
+            }
+
+            // Waited on outwith the lock, as the files' contents are recorded as known while holding it.
+            backgroundSaves.handle((result, exception) -> null).join();
+        }
+    }
+
+    /**
+     * Reloads the registry from its users and groups files, if either has changed since the registry was last saved
+     * to, loaded from, or reloaded from them. Must be called while holding {@link #reloadLock}.
+     * @see #reload()
+     * @return True if either file had changed and the registry was reloaded. Otherwise, false.
+     * @throws IOException If an IO exception is thrown in the process of reading the files.
+     */
+    private boolean reloadFiles() throws IOException
+    {
+        Path usersFile = inner.getUsersFilePath();
+        Path groupsFile = inner.getGroupsFilePath();
+
+        byte[] usersContents = readIfExists(usersFile);
+        byte[] groupsContents = readIfExists(groupsFile);
+        byte[] usersHash = hashOf(usersContents);
+        byte[] groupsHash = hashOf(groupsContents);
+
+        if(Arrays.equals(usersHash, knownUsersFileHash) && Arrays.equals(groupsHash, knownGroupsFileHash))
+            return false;
+
+        GroupMapPermissionsRegistry<ID> fresh
+                = new GroupMapPermissionsRegistry<>(inner.getIdToStringFunction(), inner.getIdFromStringFunction());
+
+        if(groupsContents != null)
+            fresh.loadGroupsFromSaveString(new String(groupsContents, StandardCharsets.UTF_8));
+
+        if(usersContents != null)
+            fresh.loadUsersFromSaveString(new String(usersContents, StandardCharsets.UTF_8));
+
+        Map<String, String> freshGroupBlocks = getBlocks(fresh.groupsToSaveString(), true);
+        Map<String, String> freshUserBlocks = getBlocks(fresh.usersToSaveString(), false);
+
+        inner.batch(reg ->
+        {
+            // Compared in the batch, so nothing can be modified between being compared and being replaced. Only
+            // the users and groups whose content hashes differ are looked at, so this is quick where little has
+            // changed.
+            PermissionsRegistryDiff<ID> diff = fresh.diff(reg);
+
+            if(diff.isEmpty())
+                return;
+
+            // The diff goes from the fresh registry to the live one, so users and groups "added" are those to
+            // remove.
+            List<String> groupsToReplace = new ArrayList<>(diff.getGroupsRemoved());
+            groupsToReplace.addAll(diff.getGroupsChanged());
+            List<ID> usersToReplace = new ArrayList<>(diff.getUsersRemoved());
+            usersToReplace.addAll(diff.getUsersChanged());
+
+            if(diff.haveDefaultsChanged())
+                groupsToReplace.add("*");
+
+            try
+            {
+                applyGroupChanges(reg, fresh, groupsToReplace, freshGroupBlocks);
+                applyUserChanges(reg, usersToReplace, diff.getUsersAdded(), freshUserBlocks);
+            }
+            catch(IOException e)
+            { throw new UncheckedIOException(e); }
+
+            // Groups are removed last, as they may still be referenced up until the other changes have been
+            // applied.
+            for(String groupName : diff.getGroupsAdded())
+                reg.clearGroup(groupName);
+        });
+
+        knownUsersFileHash = usersHash;
+        knownGroupsFileHash = groupsHash;
+        return true;
+    }
+
+    /**
+     * Replaces the given groups in the given registry with their contents in the given blocks.
+     * @param reg The registry to replace the groups of.
+     * @param fresh The registry the blocks were written by.
+     * @param groupNames The names of the groups to replace, where "*" is the default permissions.
+     * @param blocks The save strings of the groups, by group name.
+     * @throws IOException If an IO exception is thrown in the process of reading the blocks.
+     */
+    private static void applyGroupChanges(PermissionsRegistry<?> reg,
+                                          PermissionsRegistry<?> fresh,
+                                          List<String> groupNames,
+                                          Map<String, String> blocks)
+            throws IOException
+    {
+        if(groupNames.isEmpty())
+            return;
+
+        StringBuilder saveString = new StringBuilder();
+
+        for(String groupName : groupNames)
+        {
+            if(groupName.equals("*"))
+            {
+                reg.revokeAllDefaultPermissions();
+                reg.revokeAllDefaultGroups();
+            }
+            else
+            {
+                reg.revokeAllGroupPermissions(groupName);
+                reg.revokeAllGroupsFromGroup(groupName);
+
+                // A priority of 0 isn't written, so loading the group's block wouldn't reset a priority it has.
+                Double livePriority = reg.getGroupPriority(groupName);
+
+                if(livePriority != null && livePriority != 0 && fresh.getGroupPriority(groupName) == 0)
+                    saveString.append(groupName).append(": 0\n");
+            }
+
+            // Default permissions that are empty aren't written.
+            if(blocks.containsKey(groupName))
+                saveString.append(blocks.get(groupName)).append("\n\n");
+        }
+
+        reg.loadGroupsFromSaveString(saveString.toString());
+    }
+
+    /**
+     * Replaces the given users in the given registry with their contents in the given blocks, and removes the given
+     * removed users.
+     * @param reg The registry to replace the users of.
+     * @param userIds The IDs of the users to replace.
+     * @param removedUserIds The IDs of the users to remove.
+     * @param blocks The save strings of the users, by the string representation of their IDs.
+     * @param <T> The type of the unique identifier used to represent users.
+     * @throws IOException If an IO exception is thrown in the process of reading the blocks.
+     */
+    private static <T extends Comparable<? super T>> void applyUserChanges(PermissionsRegistry<T> reg,
+                                                                           Collection<T> userIds,
+                                                                           Collection<T> removedUserIds,
+                                                                           Map<String, String> blocks)
+            throws IOException
+    {
+        List<T> usersToClear = new ArrayList<>(userIds);
+        usersToClear.addAll(removedUserIds);
+
+        if(!usersToClear.isEmpty())
+            reg.clearUsers(usersToClear);
+
+        if(userIds.isEmpty())
+            return;
+
+        Function<T, String> idToString = reg.getIdToStringFunction();
+        StringBuilder saveString = new StringBuilder();
+
+        for(T userId : userIds)
+            saveString.append(blocks.get(idToString.apply(userId))).append("\n\n");
+
+        reg.loadUsersFromSaveString(saveString.toString());
+    }
+
+    /**
+     * Splits a save string into the blocks for each user or group in it, where a block is a line that isn't indented
+     * followed by all of the indented lines after it.
+     * @param saveString The save string to split.
+     * @param forGroups Whether the save string is of groups, rather than of users.
+     * @return A map of the blocks in the given save string, without trailing newlines, by the ID as a string of the
+     *         user or the name of the group each is for, where "*" is the default permissions.
+     */
+    static Map<String, String> getBlocks(String saveString, boolean forGroups)
+    {
+        Map<String, String> blocks = new HashMap<>();
+        String key = null;
+        int blockStart = 0;
+
+        for(int lineStart = 0; lineStart < saveString.length();)
+        {
+            int lineEnd = saveString.indexOf('\n', lineStart);
+
+            if(lineEnd < 0)
+                lineEnd = saveString.length();
+
+            String line = saveString.substring(lineStart, lineEnd);
+
+            if(!line.startsWith(" ") && !line.trim().isEmpty())
+            {
+                if(key != null)
+                    blocks.put(key, withoutTrailingNewlines(saveString.substring(blockStart, lineStart)));
+
+                key = forGroups ? getGroupNameFromHeader(line) : getUserIdFromHeader(line);
+                blockStart = lineStart;
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        if(key != null)
+            blocks.put(key, withoutTrailingNewlines(saveString.substring(blockStart)));
+
+        return blocks;
+    }
+
+    /**
+     * Gets the name of the group a header line in a groups save string is for, as read by
+     * {@link GroupMapPermissionsRegistry}.
+     * @param header The unindented line at the start of a group's block.
+     * @return The name of the group, or "*" for the default permissions.
+     */
+    private static String getGroupNameFromHeader(String header)
+    {
+        int prioritySeparatorPosition = header.lastIndexOf(':');
+        int groupPrefixPosition = header.lastIndexOf('#');
+
+        if(groupPrefixPosition < prioritySeparatorPosition)
+            groupPrefixPosition = -1;
+
+        return prioritySeparatorPosition > 0 ? header.substring(0, prioritySeparatorPosition).trim()
+             : groupPrefixPosition       > 0 ? header.substring(0, groupPrefixPosition).trim()
+             :                                 header.trim();
+    }
+
+    /**
+     * Gets the ID as a string of the user a header line in a users save string is for, as read by
+     * {@link GroupMapPermissionsRegistry}.
+     * @param header The unindented line at the start of a user's block.
+     * @return The ID of the user, as a string.
+     */
+    private static String getUserIdFromHeader(String header)
+    {
+        int groupPrefixPosition = header.lastIndexOf('#');
+        return groupPrefixPosition < 0 ? header.trim() : header.substring(0, groupPrefixPosition).trim();
+    }
+
+    /**
+     * Gets the given string, without any newline characters at the end of it.
+     * @param s The string to trim.
+     * @return The given string, without any trailing newline characters.
+     */
+    private static String withoutTrailingNewlines(String s)
+    {
+        int end = s.length();
+
+        while(end > 0 && s.charAt(end - 1) == '\n')
+            end--;
+
+        return s.substring(0, end);
+    }
+
+    /**
+     * Records the current contents of the users and groups files as being known, so that they aren't reloaded until
+     * they change again. Must be called while holding {@link #reloadLock}.
+     * @throws IOException If an IO exception is thrown in the process of reading the files.
+     */
+    private void recordFileContentsAsKnown() throws IOException
+    {
+        knownUsersFileHash = hashOf(readIfExists(inner.getUsersFilePath()));
+        knownGroupsFileHash = hashOf(readIfExists(inner.getGroupsFilePath()));
+    }
+
+    /**
+     * Reads the contents of the given file.
+     * @param file The file to read.
+     * @return The contents of the given file, or null if the file is null or doesn't exist.
+     * @throws IOException If an IO exception is thrown in the process of reading the file.
+     */
+    private static byte[] readIfExists(Path file) throws IOException
+    {
+        if(file == null || !Files.exists(file))
+            return null;
+
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * Gets the SHA-256 hash of the given contents.
+     * @param contents The contents to hash.
+     * @return The hash of the given contents, or null if the given contents are null.
+     */
+    private static byte[] hashOf(byte[] contents)
+    {
+        if(contents == null)
+            return null;
+
+        try
+        { return MessageDigest.getInstance("SHA-256").digest(contents); }
+        catch(NoSuchAlgorithmException e)
+        { throw new IllegalStateException("SHA-256 is not supported.", e); }
+    }
+    //endregion
+
+    //region PermissionRegistry methods
+    @Override
+    public void save() throws IOException
+    {
+        synchronized(reloadLock)
+        {
+            inner.save();
+            recordFileContentsAsKnown();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The contents of the files written are recorded as known once they've been written. Until then, the registry
+     * isn't reloaded from them, so that the files written aren't mistaken for outside changes.</p>
+     * @return A future that completes once the contents of the registry as of this call have been written and
+     *         recorded as known, or that completes exceptionally with the IO exception thrown in the process.
+     */
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        synchronized(reloadLock)
+        {
+            // Recorded asynchronously, so the thread the files were written on isn't held up waiting for the lock.
+            inner.saveInBackground().whenCompleteAsync((r, exception) ->
+            {
+                if(exception != null)
+                {
+                    result.completeExceptionally(exception instanceof CompletionException ? exception.getCause()
+                                                                                          : exception);
+                    return;
+                }
+
+                synchronized(reloadLock)
+                {
+                    try
+                    { recordFileContentsAsKnown(); }
+                    catch(IOException e)
+                    {
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                }
+
+                result.complete(null);
+            });
+
+            backgroundSavesRecorded = backgroundSavesRecorded.isDone() ? result
+                                    : CompletableFuture.allOf(backgroundSavesRecorded, result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void load() throws IOException
+    {
+        synchronized(reloadLock)
+        {
+            inner.load();
+            recordFileContentsAsKnown();
+        }
+    }
+    //endregion
+    //endregion
+}
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -64,6 +65,11 @@ public class PermissionsRegistryWithEvents<ID extends Comparable<? super ID>> ex
      */
     protected final InvokableEvent<PermissionsLoadedEventArgs<ID>> loaded_internal = new SetEvent<>();
 
+    /**
+     * Fired when a batch of operations is applied to the registry.
+     */
+    protected final InvokableEvent<PermissionsBatchAppliedEventArgs<ID>> batchApplied_internal = new SetEvent<>();
+
     /**
      * Fired when the contents of the permissions registry are changed.
      *
@@ -75,6 +81,7 @@ public class PermissionsRegistryWithEvents<ID extends Comparable<? super ID>> ex
      *     <li>groupRevoked_internal</li>
      *     <li>cleared_internal</li>
      *     <li>loaded_internal</li>
+     *     <li>batchApplied_internal</li>
      * </ul>
      */
     protected final InvokableEvent<PermissionsChangedEventArgs<ID>> contentsChanged_internal = new SetEvent<>();
@@ -85,6 +92,7 @@ public class PermissionsRegistryWithEvents<ID extends Comparable<? super ID>> ex
         groupRevoked_internal      .register(contentsChanged_internal, args -> args);
         cleared_internal           .register(contentsChanged_internal, args -> args);
         loaded_internal            .register(contentsChanged_internal, args -> args);
+        batchApplied_internal      .register(contentsChanged_internal, args -> args);
     }
     //endregion
 
@@ -122,6 +130,12 @@ public class PermissionsRegistryWithEvents<ID extends Comparable<? super ID>> ex
      */
     public final Event<PermissionsLoadedEventArgs<ID>> loaded = new ProtectedEvent<>(loaded_internal);
 
+    /**
+     * Fired when a batch of operations is applied to the registry. Operations performed as part of a batch do not fire
+     * their own individual events.
+     */
+    public final Event<PermissionsBatchAppliedEventArgs<ID>> batchApplied = new ProtectedEvent<>(batchApplied_internal);
+
     /**
      * Fired when the contents of the permissions registry are changed.
      *
@@ -133,6 +147,7 @@ public class PermissionsRegistryWithEvents<ID extends Comparable<? super ID>> ex
      *     <li>groupRevoked</li>
      *     <li>cleared</li>
      *     <li>loaded</li>
+     *     <li>batchApplied</li>
      * </ul>
      */
     public final Event<PermissionsChangedEventArgs<ID>> contentsChanged
@@ -459,6 +474,13 @@ public class PermissionsRegistryWithEvents<ID extends Comparable<? super ID>> ex
         throw new UnsupportedOperationException("Not implemented yet.");
     }
 
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        super.batch(transaction);
+        batchApplied_internal.invoke(new PermissionsBatchAppliedEventArgs<>(this));
+    }
+
     @Override
     public void load() throws IOException
     {
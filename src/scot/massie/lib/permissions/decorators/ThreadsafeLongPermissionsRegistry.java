@@ -0,0 +1,175 @@
+package scot.massie.lib.permissions.decorators;
+
+import scot.massie.lib.permissions.LongPermissionsRegistry;
+import scot.massie.lib.permissions.Permission;
+import scot.massie.lib.permissions.PermissionStatus;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.nio.file.Path;
+
+/**
+ * <p>A {@link LongPermissionsRegistry} decorator providing synchronous access, including to its overloads taking
+ * primitive long user IDs.</p>
+ * @see ThreadsafePermissionsRegistry
+ * @see LongPermissionsRegistry
+ */
+public final class ThreadsafeLongPermissionsRegistry extends ThreadsafePermissionsRegistry<Long>
+{
+    //region Instance fields
+    /**
+     * The permissions registry being decorated. This is the same object as {@link #inner}, typed to allow access to its
+     * overloads taking primitive long user IDs.
+     */
+    private final LongPermissionsRegistry longInner;
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new threadsafe long-keyed permissions registry, with the ability to save to/load from files. This is the
+     * equivalent of passing a new instance of {@link LongPermissionsRegistry} created with the given arguments into
+     * {@link #ThreadsafeLongPermissionsRegistry(LongPermissionsRegistry)}.
+     * @param usersFile The filepath of the users permissions save file.
+     * @param groupsFile The filepath of the groups permissions save file.
+     */
+    public ThreadsafeLongPermissionsRegistry(Path usersFile, Path groupsFile)
+    { this(new LongPermissionsRegistry(usersFile, groupsFile)); }
+
+    /**
+     * Creates a new threadsafe long-keyed permissions registry, without the ability to save to/load from files. This is
+     * the equivalent of passing a new instance of {@link LongPermissionsRegistry} into
+     * {@link #ThreadsafeLongPermissionsRegistry(LongPermissionsRegistry)}.
+     */
+    public ThreadsafeLongPermissionsRegistry()
+    { this(new LongPermissionsRegistry()); }
+
+    /**
+     * Wraps an existing long-keyed permissions registry in a threadsafe permissions registry, providing synchronous
+     * access to it.
+     * @param inner The wrapped permissions registry.
+     */
+    public ThreadsafeLongPermissionsRegistry(LongPermissionsRegistry inner)
+    {
+        super(inner);
+        this.longInner = inner;
+    }
+    //endregion
+
+    //region Methods
+    /**
+     * @see LongPermissionsRegistry#assertUserHasPermission(long, String)
+     */
+    public void assertUserHasPermission(long userId, String permission) throws UserMissingPermissionException
+    {
+        synchronized(inner)
+        { longInner.assertUserHasPermission(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#getUserPermissionStatus(long, String)
+     */
+    public PermissionStatus getUserPermissionStatus(long userId, String permission)
+    {
+        synchronized(inner)
+        { return longInner.getUserPermissionStatus(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#userHasPermission(long, String)
+     */
+    public boolean userHasPermission(long userId, String permission)
+    {
+        synchronized(inner)
+        { return longInner.userHasPermission(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#userHasAllPermissions(long, Iterable)
+     */
+    public boolean userHasAllPermissions(long userId, Iterable<String> permissions)
+    {
+        synchronized(inner)
+        { return longInner.userHasAllPermissions(userId, permissions); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#userHasAnyPermissions(long, Iterable)
+     */
+    public boolean userHasAnyPermissions(long userId, Iterable<String> permissions)
+    {
+        synchronized(inner)
+        { return longInner.userHasAnyPermissions(userId, permissions); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#userHasAnySubPermissionOf(long, String)
+     */
+    public boolean userHasAnySubPermissionOf(long userId, String permission)
+    {
+        synchronized(inner)
+        { return longInner.userHasAnySubPermissionOf(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#getUserPermissionArg(long, String)
+     */
+    public String getUserPermissionArg(long userId, String permission)
+    {
+        synchronized(inner)
+        { return longInner.getUserPermissionArg(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#userHasGroup(long, String)
+     */
+    public boolean userHasGroup(long userId, String groupName)
+    {
+        synchronized(inner)
+        { return longInner.userHasGroup(userId, groupName); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#assignUserPermission(long, String)
+     */
+    public Permission assignUserPermission(long userId, String permission)
+    {
+        synchronized(inner)
+        { return longInner.assignUserPermission(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#revokeUserPermission(long, String)
+     */
+    public Permission revokeUserPermission(long userId, String permission)
+    {
+        synchronized(inner)
+        { return longInner.revokeUserPermission(userId, permission); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#assignGroupToUser(long, String)
+     */
+    public void assignGroupToUser(long userId, String groupNameBeingAssigned)
+    {
+        synchronized(inner)
+        { longInner.assignGroupToUser(userId, groupNameBeingAssigned); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#revokeGroupFromUser(long, String)
+     */
+    public boolean revokeGroupFromUser(long userId, String groupNameBeingRevoked)
+    {
+        synchronized(inner)
+        { return longInner.revokeGroupFromUser(userId, groupNameBeingRevoked); }
+    }
+
+    /**
+     * @see LongPermissionsRegistry#clearUser(long)
+     */
+    public void clearUser(long userId)
+    {
+        synchronized(inner)
+        { longInner.clearUser(userId); }
+    }
+    //endregion
+}
@@ -15,6 +15,7 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -23,7 +24,7 @@ import java.util.function.Function;
  * @see PermissionsRegistry
  * @param <ID>The type of the unique identifier used to represent users.
  */
-public final class ThreadsafePermissionsRegistry<ID extends Comparable<? super ID>>
+public class ThreadsafePermissionsRegistry<ID extends Comparable<? super ID>>
         extends PermissionsRegistryDecorator<ID>
 {
     /*
@@ -977,6 +978,13 @@ public final class ThreadsafePermissionsRegistry<ID extends Comparable<? super I
         { inner.prune(groupNames); }
     }
 
+    @Override
+    public void batch(Consumer<PermissionsRegistry<ID>> transaction)
+    {
+        synchronized(inner)
+        { inner.batch(transaction); }
+    }
+
     @Override
     public String usersToSaveString()
     {
@@ -998,6 +1006,14 @@ public final class ThreadsafePermissionsRegistry<ID extends Comparable<? super I
         { inner.save(); }
     }
 
+    @Override
+    public CompletableFuture<Void> saveInBackground()
+    {
+        // The contents are captured while synchronised, but written after the lock is released.
+        synchronized(inner)
+        { return inner.saveInBackground(); }
+    }
+
     @Override
     public void load() throws IOException
     {
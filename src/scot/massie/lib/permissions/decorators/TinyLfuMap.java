@@ -0,0 +1,377 @@
+package scot.massie.lib.permissions.decorators;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>A map holding a bounded number of entries, evicting them according to {@link CacheEvictionPolicy#TINY_LFU}.</p>
+ *
+ * <p>New entries are added to a small window, ordered by how recently they were accessed. Where the window is full, its
+ * least recently accessed entry becomes a candidate for the main area of the map, and is only moved there where the
+ * main area has room, or where the candidate's key has been accessed more often than that of the main area's least
+ * recently accessed entry, which is evicted in its place. Otherwise, the candidate is evicted.</p>
+ *
+ * <p>How often keys have been accessed is estimated by a count-min sketch of small counters, which are halved
+ * periodically so that keys that were accessed often long ago do not stay in the map forever.</p>
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+final class TinyLfuMap<K, V> extends AbstractMap<K, V>
+{
+    //region Subclasses
+    /**
+     * Estimates how often keys have been accessed, in a fixed amount of space, using a count-min sketch with 4 rows
+     * of counters that saturate at 15.
+     */
+    private static final class FrequencySketch
+    {
+        /**
+         * The number of rows of counters. Each key is counted in one counter in each row.
+         */
+        private static final int rowCount = 4;
+
+        /**
+         * The maximum value a counter can reach.
+         */
+        private static final int maxCount = 15;
+
+        /**
+         * The seeds used to choose the counter a key is counted in, in each row.
+         */
+        private static final int[] seeds = { 0x97cb3127, 0xb9f1e1cf, 0x5c1d8b5b, 0x8ebc6af1 };
+
+        /**
+         * The counters, stored row after row, two to a byte. Even-indexed counters are stored in the low 4 bits of a
+         * byte, and odd-indexed counters in the high 4 bits.
+         */
+        private final byte[] counters;
+
+        /**
+         * One less than the number of counters in each row, which is a power of two.
+         */
+        private final int rowMask;
+
+        /**
+         * The number of accesses recorded after which all counters are halved.
+         */
+        private final int sampleSize;
+
+        /**
+         * The number of accesses recorded since the counters were last halved.
+         */
+        private int additions = 0;
+
+        /**
+         * Creates a new frequency sketch, with at least 4 counters in each row for each entry the map can hold, such
+         * that keys accessed once rarely share all of their counters with keys accessed often.
+         * @param capacity The number of entries the map whose keys are being counted can hold.
+         */
+        FrequencySketch(int capacity)
+        {
+            int rowLength = Integer.highestOneBit(Math.max(16, capacity * 4 - 1) << 1);
+            this.counters = new byte[rowLength * rowCount / 2];
+            this.rowMask = rowLength - 1;
+            this.sampleSize = capacity * 10;
+        }
+
+        /**
+         * Gets the index of the counter the given key's hash is counted in, in the given row.
+         * @param hash The hash of the key.
+         * @param row The row of counters.
+         * @return The index of the counter, counting across all rows.
+         */
+        private int indexOf(int hash, int row)
+        {
+            int h = (hash ^ seeds[row]) * 0x9e3779b9;
+            h ^= h >>> 16;
+            return row * (rowMask + 1) + (h & rowMask);
+        }
+
+        /**
+         * Gets the value of a counter.
+         * @param index The index of the counter, counting across all rows.
+         * @return The value of the counter.
+         */
+        private int get(int index)
+        { return (counters[index >>> 1] >>> ((index & 1) << 2)) & 0xF; }
+
+        /**
+         * Records an access of the given key.
+         * @param key The key accessed.
+         */
+        void increment(Object key)
+        {
+            int hash = key == null ? 0 : key.hashCode();
+
+            for(int row = 0; row < rowCount; row++)
+            {
+                int i = indexOf(hash, row);
+
+                if(get(i) < maxCount)
+                    counters[i >>> 1] += 1 << ((i & 1) << 2);
+            }
+
+            if(++additions >= sampleSize)
+                halve();
+        }
+
+        /**
+         * Estimates how many times the given key has been accessed, since the counters were last halved.
+         * @param key The key.
+         * @return The lowest of the counters the key is counted in.
+         */
+        int frequencyOf(Object key)
+        {
+            int hash = key == null ? 0 : key.hashCode();
+            int frequency = maxCount;
+
+            for(int row = 0; row < rowCount; row++)
+                frequency = Math.min(frequency, get(indexOf(hash, row)));
+
+            return frequency;
+        }
+
+        /**
+         * Halves all counters, such that accesses long ago count for less than recent ones.
+         */
+        private void halve()
+        {
+            for(int i = 0; i < counters.length; i++)
+                counters[i] = (byte)((counters[i] >>> 1) & 0x77);
+
+            additions >>= 1;
+        }
+    }
+
+    /**
+     * Set view of the entries of the map, the entries of the window followed by those of the main area.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            return new Iterator<Map.Entry<K, V>>()
+            {
+                Iterator<Map.Entry<K, V>> current = window.entrySet().iterator();
+                boolean inWindow = true;
+
+                @Override
+                public boolean hasNext()
+                {
+                    if(inWindow && !current.hasNext())
+                    {
+                        current = main.entrySet().iterator();
+                        inWindow = false;
+                    }
+
+                    return current.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next()
+                {
+                    if(!hasNext())
+                        throw new NoSuchElementException();
+
+                    return current.next();
+                }
+
+                @Override
+                public void remove()
+                { current.remove(); }
+            };
+        }
+
+        @Override
+        public int size()
+        { return window.size() + main.size(); }
+
+        @Override
+        public void clear()
+        { TinyLfuMap.this.clear(); }
+    }
+    //endregion
+
+    //region Instance fields
+    /**
+     * The recently added entries, ordered from least to most recently accessed.
+     */
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The entries admitted from the window, ordered from least to most recently accessed.
+     */
+    private final LinkedHashMap<K, V> main = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The maximum number of entries in the window.
+     */
+    private final int windowCapacity;
+
+    /**
+     * The maximum number of entries in the main area.
+     */
+    private final int mainCapacity;
+
+    /**
+     * The estimates of how often keys have been accessed.
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * The action performed with the key and value of each entry evicted from this map.
+     */
+    private final BiConsumer<? super K, ? super V> onEvicted;
+
+    /**
+     * Set view of the entries of this map.
+     */
+    private final EntrySet entrySet = new EntrySet();
+    //endregion
+
+    //region Initialisation
+    /**
+     * Creates a new TinyLFU map, with 1% of the given capacity, (at least 1) reserved for the window.
+     * @param capacity The maximum number of entries the map may hold.
+     */
+    TinyLfuMap(int capacity)
+    { this(capacity, (key, value) -> {}); }
+
+    /**
+     * Creates a new TinyLFU map, with 1% of the given capacity, (at least 1) reserved for the window.
+     * @param capacity The maximum number of entries the map may hold.
+     * @param onEvicted The action to perform with the key and value of each entry the map evicts, as it's evicted.
+     */
+    TinyLfuMap(int capacity, BiConsumer<? super K, ? super V> onEvicted)
+    {
+        if(capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1. Was: " + capacity);
+
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.sketch = new FrequencySketch(capacity);
+        this.onEvicted = onEvicted;
+    }
+    //endregion
+
+    //region Methods
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This counts as an access of the given key, whether or not an entry exists for it.</p>
+     * @param key The key.
+     * @return The value associated with the key, or null if there is none.
+     */
+    @Override
+    public V get(Object key)
+    {
+        sketch.increment(key);
+        V value = window.get(key);
+        return value != null || window.containsKey(key) ? value : main.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    { return window.containsKey(key) || main.containsKey(key); }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Where no entry exists for the key, it's added to the window, which may cause another entry to be evicted. This
+     * does not count as an access of the given key.</p>
+     * @param key The key.
+     * @param value The value to associate with the key.
+     * @return The value previously associated with the key, or null if there was none.
+     */
+    @Override
+    public V put(K key, V value)
+    {
+        if(window.containsKey(key))
+            return window.put(key, value);
+
+        if(main.containsKey(key))
+            return main.put(key, value);
+
+        window.put(key, value);
+
+        if(window.size() > windowCapacity)
+            evictFromWindow();
+
+        return null;
+    }
+
+    /**
+     * Moves the least recently accessed entry of the window into the main area where it has room for it, or where the
+     * entry's key has been accessed more often than that of the main area's least recently accessed entry, which is
+     * evicted. Otherwise, evicts the window's least recently accessed entry.
+     */
+    private void evictFromWindow()
+    {
+        Iterator<Map.Entry<K, V>> windowIterator = window.entrySet().iterator();
+        Map.Entry<K, V> candidate = windowIterator.next();
+        windowIterator.remove();
+
+        if(main.size() < mainCapacity)
+        {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        if(mainCapacity == 0)
+        {
+            onEvicted.accept(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        Iterator<Map.Entry<K, V>> mainIterator = main.entrySet().iterator();
+        Map.Entry<K, V> victim = mainIterator.next();
+
+        if(sketch.frequencyOf(candidate.getKey()) > sketch.frequencyOf(victim.getKey()))
+        {
+            K victimKey = victim.getKey();
+            V victimValue = victim.getValue();
+            mainIterator.remove();
+            main.put(candidate.getKey(), candidate.getValue());
+            onEvicted.accept(victimKey, victimValue);
+        }
+        else
+            onEvicted.accept(candidate.getKey(), candidate.getValue());
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        if(window.containsKey(key))
+            return window.remove(key);
+
+        return main.remove(key);
+    }
+
+    @Override
+    public int size()
+    { return window.size() + main.size(); }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The estimates of how often keys have been accessed are kept.</p>
+     */
+    @Override
+    public void clear()
+    {
+        window.clear();
+        main.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    { return entrySet; }
+    //endregion
+}
@@ -2,20 +2,30 @@ package scot.massie.lib.permissions;
 
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import scot.massie.lib.permissions.exceptions.MissingPermissionException;
 import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -28,6 +38,9 @@ public class GroupMapPermissionsRegistryTest extends PermissionsRegistryTest<Gro
 
      */
 
+    @TempDir
+    Path tempDir;
+
     @Override
     protected GroupMapPermissionsRegistry<String> getNewPermissionsRegistry()
     { return new GroupMapPermissionsRegistry<>(s -> s, s -> s); }
@@ -47,4 +60,388 @@ public class GroupMapPermissionsRegistryTest extends PermissionsRegistryTest<Gro
     @Override
     protected void createGroup(GroupMapPermissionsRegistry<String> reg, String groupName, double priority)
     { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    GroupMapPermissionsRegistry<String> getNewFileBackedRegistry()
+    { return new GroupMapPermissionsRegistry<>(s -> s, s -> s, tempDir.resolve("users.txt"), tempDir.resolve("groups.txt")); }
+
+    String readFile(String fileName) throws IOException
+    { return new String(Files.readAllBytes(tempDir.resolve(fileName)), StandardCharsets.UTF_8); }
+
+    @Test
+    void saveInBackground_writesContentsAsOfCall() throws IOException, ExecutionException, InterruptedException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+        reg.assignGroupPermission("group1", "some.group.permission");
+        String usersSaveString = reg.usersToSaveString();
+        String groupsSaveString = reg.groupsToSaveString();
+
+        CompletableFuture<Void> save = reg.saveInBackground();
+        assertFalse(reg.hasBeenDifferentiatedFromFiles());
+        reg.assignUserPermission("user2", "some.other.permission");
+        save.get();
+
+        assertEquals(usersSaveString, readFile("users.txt"));
+        assertEquals(groupsSaveString, readFile("groups.txt"));
+        assertThat(tempDir.resolve("users.txt.tmp")).doesNotExist();
+        assertTrue(reg.hasBeenDifferentiatedFromFiles());
+    }
+
+    @Test
+    void saveInBackground_repeatedCalls_lastContentsWritten() throws IOException, ExecutionException, InterruptedException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+
+        for(int i = 0; i < 50; i++)
+        {
+            reg.assignUserPermission("user" + i, "some.permission" + i);
+            saves.add(reg.saveInBackground());
+        }
+
+        CompletableFuture.allOf(saves.toArray(new CompletableFuture[0])).get();
+        assertEquals(reg.usersToSaveString(), readFile("users.txt"));
+
+        GroupMapPermissionsRegistry<String> loaded = getNewFileBackedRegistry();
+        loaded.load();
+        assertEquals(reg.usersToSaveString(), loaded.usersToSaveString());
+    }
+
+    @Test
+    void saveInBackground_failed_writtenByNextSave() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+
+        // The temporary file can't be written while a non-empty directory is in its place.
+        Files.createDirectories(tempDir.resolve("users.txt.tmp").resolve("blocker"));
+        CompletableFuture<Void> save = reg.saveInBackground();
+        assertThatThrownBy(save::get).isInstanceOf(ExecutionException.class);
+        assertTrue(reg.hasBeenDifferentiatedFromFiles());
+
+        Files.delete(tempDir.resolve("users.txt.tmp").resolve("blocker"));
+        Files.delete(tempDir.resolve("users.txt.tmp"));
+        reg.save();
+        assertEquals(reg.usersToSaveString(), readFile("users.txt"));
+        assertFalse(reg.hasBeenDifferentiatedFromFiles());
+    }
+
+    @Test
+    void saveInBackground_noFiles_completesImmediately()
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+
+        assertThat(reg.saveInBackground()).isCompleted();
+    }
+
+    @Test
+    void save_onlyWritesModifiedFiles() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupPermission("group2", "some.other.group.permission");
+        reg.save();
+
+        Files.delete(tempDir.resolve("groups.txt"));
+        reg.assignUserPermission("user2", "some.other.permission");
+        reg.save();
+
+        assertThat(tempDir.resolve("groups.txt")).doesNotExist();
+        assertEquals(reg.usersToSaveString(), readFile("users.txt"));
+
+        reg.assignGroupToUser("user3", "group1");
+        reg.save();
+        assertThat(tempDir.resolve("groups.txt")).doesNotExist();
+
+        reg.clearGroup("group1");
+        reg.save();
+        assertEquals(reg.groupsToSaveString(), readFile("groups.txt"));
+        assertEquals(reg.usersToSaveString(), readFile("users.txt"));
+    }
+
+    @Test
+    void save_unchangedContents_notRewritten() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+        reg.save();
+
+        Files.write(tempDir.resolve("users.txt"), "unchanged".getBytes(StandardCharsets.UTF_8));
+        reg.assignUserPermission("user2", "some.permission");
+        reg.clearUser("user2");
+        assertTrue(reg.hasBeenDifferentiatedFromFiles());
+        reg.save();
+
+        assertEquals("unchanged", readFile("users.txt"));
+        assertFalse(reg.hasBeenDifferentiatedFromFiles());
+    }
+
+    @Test
+    void loadSnapshot_matchesSavedRegistry() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.permission: multi\nline arg");
+        reg.assignUserPermission("user1", "-some.permission.under.*");
+        reg.assignUserPermission("user2", "*");
+        reg.assignGroupPermission("group1", "some.group.permission.*: arg");
+        reg.assignGroupToGroup("group1", "group2");
+        reg.assignGroupToUser("user1", "group1");
+        reg.assignDefaultPermission("some.default.permission");
+        reg.assignDefaultGroup("group3");
+        createGroup(reg, "group2", 2.5);
+        createGroup(reg, "group3", 7);
+        reg.saveSnapshot(tempDir.resolve("snapshot.bin"));
+
+        GroupMapPermissionsRegistry<String> loaded = getNewPermissionsRegistry();
+        loaded.assignUserPermission("user3", "some.permission.to.be.cleared");
+        loaded.loadSnapshot(tempDir.resolve("snapshot.bin"));
+
+        assertEquals(reg.usersToSaveString(), loaded.usersToSaveString());
+        assertEquals(reg.groupsToSaveString(), loaded.groupsToSaveString());
+        assertEquals("multi\nline arg", loaded.getUserPermissionArg("user1", "some.permission"));
+        assertTrue(loaded.userHasPermission("user1", "some.group.permission.thing"));
+        assertFalse(loaded.userHasPermission("user1", "some.permission.under.thing"));
+        assertTrue(loaded.userHasPermission("user2", "anything"));
+        assertThat(loaded.getGroupPriorityAsLong("group3")).isEqualTo(7L);
+        assertThat(loaded.getGroupPriority("group2")).isEqualTo(2.5);
+        assertTrue(loaded.hasBeenDifferentiatedFromFiles());
+    }
+
+    @Test
+    void loadSnapshot_notSnapshot_throws() throws IOException
+    {
+        Files.write(tempDir.resolve("snapshot.bin"), "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        assertThatThrownBy(() -> reg.loadSnapshot(tempDir.resolve("snapshot.bin"))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void loadSnapshot_differingOnlyInPermissions_savedAfterwards() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignGroupToUser("user1", "group1");
+        reg.save();
+        String usersFileBefore = readFile("users.txt");
+
+        GroupMapPermissionsRegistry<String> other = getNewPermissionsRegistry();
+        other.assignGroupToUser("user1", "group1");
+        other.assignUserPermission("user1", "some.permission");
+        other.saveSnapshot(tempDir.resolve("snapshot.bin"));
+
+        reg.loadSnapshot(tempDir.resolve("snapshot.bin"));
+        reg.save();
+
+        assertNotEquals(usersFileBefore, readFile("users.txt"));
+        assertEquals(other.usersToSaveString(), readFile("users.txt"));
+    }
+
+    @Test
+    void loadSnapshot_diffAgainstLoadedFromSaveStrings() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.permission: arg");
+        reg.assignUserPermission("user1", "-some.permission.under.*");
+        reg.assignGroupPermission("group1", "some.group.permission.*");
+        reg.assignGroupToUser("user1", "group1");
+        reg.assignDefaultPermission("some.default.permission");
+        reg.saveSnapshot(tempDir.resolve("snapshot.bin"));
+
+        GroupMapPermissionsRegistry<String> fromSnapshot = getNewPermissionsRegistry();
+        fromSnapshot.loadSnapshot(tempDir.resolve("snapshot.bin"));
+
+        GroupMapPermissionsRegistry<String> fromSaveStrings = getNewPermissionsRegistry();
+        fromSaveStrings.loadGroupsFromSaveString(reg.groupsToSaveString());
+        fromSaveStrings.loadUsersFromSaveString(reg.usersToSaveString());
+
+        assertTrue(fromSnapshot.diff(fromSaveStrings).isEmpty());
+        assertEquals(fromSaveStrings.getContentHash(), fromSnapshot.getContentHash());
+
+        fromSaveStrings.revokeUserPermission("user1", "some.permission");
+        assertThat(fromSnapshot.diff(fromSaveStrings).getUsersChanged()).containsExactly("user1");
+    }
+
+    @Test
+    void load_usersInParallel_matchesLoadingSequentially() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupToGroup("group1", "group2");
+
+        // Large enough to be split into multiple chunks.
+        for(int i = 0; i < 5000; i++)
+        {
+            reg.assignUserPermission("user" + i, "some.permission" + (i % 10) + ": multi\nline arg");
+            reg.assignUserPermission("user" + i, "-some.other.permission" + (i % 3));
+            reg.assignGroupToUser("user" + i, "group" + (i % 3));
+        }
+
+        reg.save();
+
+        // A user appearing a second time, assigned a group not in the groups file.
+        Files.write(tempDir.resolve("users.txt"),
+                    (readFile("users.txt") + "\nuser7 #group4\n    another.permission: arg\n        continued\n")
+                            .getBytes(StandardCharsets.UTF_8));
+
+        GroupMapPermissionsRegistry<String> sequential = getNewFileBackedRegistry();
+        sequential.load();
+
+        GroupMapPermissionsRegistry<String> parallel = getNewFileBackedRegistry();
+        parallel.setLoadsUsersInParallel(true);
+        parallel.load();
+
+        assertEquals(sequential.usersToSaveString(), parallel.usersToSaveString());
+        assertEquals(sequential.groupsToSaveString(), parallel.groupsToSaveString());
+        assertEquals("arg\ncontinued", parallel.getUserPermissionArg("user7", "another.permission"));
+        assertTrue(parallel.userHasGroup("user7", "group4"));
+        assertTrue(parallel.userHasPermission("user7", "some.permission7"));
+        assertTrue(parallel.userHasPermission("user4", "some.group.permission"));
+        assertFalse(parallel.hasBeenDifferentiatedFromFiles());
+    }
+
+    @Test
+    void getContentHash_sameContents() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignUserPermission("user1", "some.permission");
+        reg.assignGroupToUser("user1", "group1");
+
+        GroupMapPermissionsRegistry<String> other = getNewPermissionsRegistry();
+        other.loadGroupsFromSaveString(reg.groupsToSaveString());
+        other.loadUsersFromSaveString(reg.usersToSaveString());
+        assertEquals(reg.getContentHash(), other.getContentHash());
+
+        other.assignUserPermission("user1", "some.other.permission");
+        assertNotEquals(reg.getContentHash(), other.getContentHash());
+
+        other.revokeUserPermission("user1", "some.other.permission");
+        assertEquals(reg.getContentHash(), other.getContentHash());
+    }
+
+    @Test
+    void diff() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupPermission("group2", "some.group.permission");
+        reg.assignUserPermission("user1", "some.permission");
+        reg.assignUserPermission("user2", "some.permission");
+        reg.assignUserPermission("user3", "some.permission");
+
+        GroupMapPermissionsRegistry<String> other = getNewPermissionsRegistry();
+        other.loadGroupsFromSaveString(reg.groupsToSaveString());
+        other.loadUsersFromSaveString(reg.usersToSaveString());
+        assertTrue(reg.diff(other).isEmpty());
+
+        other.clearUser("user1");
+        other.assignUserPermission("user2", "some.other.permission");
+        other.assignUserPermission("user4", "some.permission");
+        other.loadGroupsFromSaveString("group1: 5");
+        other.clearGroup("group2");
+        other.assignGroupPermission("group3", "some.group.permission");
+        other.assignDefaultPermission("some.default.permission");
+
+        PermissionsRegistryDiff<String> diff = reg.diff(other);
+        assertThat(diff.getUsersAdded()).containsExactly("user4");
+        assertThat(diff.getUsersRemoved()).containsExactly("user1");
+        assertThat(diff.getUsersChanged()).containsExactly("user2");
+        assertThat(diff.getGroupsAdded()).containsExactly("group3");
+        assertThat(diff.getGroupsRemoved()).containsExactly("group2");
+        assertThat(diff.getGroupsChanged()).containsExactly("group1");
+        assertTrue(diff.haveDefaultsChanged());
+    }
+
+    GroupMapPermissionsRegistry<String> getNewRegistryToAbsorb()
+    {
+        GroupMapPermissionsRegistry<String> other = getNewPermissionsRegistry();
+        other.assignGroupPermission("group1", "some.group.permission: group arg");
+        other.assignGroupPermission("group2", "-some.group.permission.*");
+        other.assignGroupToGroup("group2", "group1");
+        other.assignDefaultPermission("some.default.permission: default arg");
+        other.assignGroupToUser("user1", "group2");
+        other.assignGroupToUser("user2", "group3");
+
+        for(int i = 1; i <= 20; i++)
+            other.assignUserPermission("user" + i, "some.permission" + i + ": arg" + i);
+
+        return other;
+    }
+
+    @Test
+    void absorb_groupMap_sameAsLoadingSaveStrings() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.existing.permission");
+        reg.assignGroupPermission("group1", "some.existing.group.permission");
+        GroupMapPermissionsRegistry<String> other = getNewRegistryToAbsorb();
+
+        GroupMapPermissionsRegistry<String> expected = getNewPermissionsRegistry();
+        expected.loadGroupsFromSaveString(reg.groupsToSaveString());
+        expected.loadUsersFromSaveString(reg.usersToSaveString());
+        expected.loadGroupsFromSaveString(other.groupsToSaveString());
+        expected.loadUsersFromSaveString(other.usersToSaveString());
+
+        reg.absorb(other);
+        assertEquals(expected.usersToSaveString(), reg.usersToSaveString());
+        assertEquals(expected.groupsToSaveString(), reg.groupsToSaveString());
+        assertEquals(expected.getContentHash(), reg.getContentHash());
+        assertEquals("arg3", reg.getUserPermissionArg("user3", "some.permission3"));
+        assertEquals("default arg", reg.getDefaultPermissionArg("some.default.permission"));
+        assertTrue(reg.userHasPermission("user1", "some.existing.permission"));
+        assertTrue(reg.userHasPermission("user1", "some.group.permission"));
+        assertFalse(reg.userHasPermission("user1", "some.group.permission.child"));
+    }
+
+    @Test
+    void absorb_inParallel_sameAsSequential()
+    {
+        GroupMapPermissionsRegistry<String> sequential = getNewPermissionsRegistry();
+        GroupMapPermissionsRegistry<String> parallel = getNewPermissionsRegistry();
+        sequential.absorb(getNewRegistryToAbsorb(), false);
+        parallel.absorb(getNewRegistryToAbsorb(), true);
+
+        assertEquals(sequential.usersToSaveString(), parallel.usersToSaveString());
+        assertEquals(sequential.groupsToSaveString(), parallel.groupsToSaveString());
+        assertEquals(sequential.getContentHash(), parallel.getContentHash());
+    }
+
+    @Test
+    void removeContentsOf_groupMap()
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewRegistryToAbsorb();
+        reg.assignDefaultPermission("some.other.default.permission");
+
+        GroupMapPermissionsRegistry<String> other = getNewPermissionsRegistry();
+        other.assignUserPermission("user1", "some.permission1");
+        other.assignGroupPermission("group2", "some.group.permission.*");
+        other.assignDefaultPermission("-some.default.permission");
+
+        reg.removeContentsOf(other);
+        assertThat(reg.getUsers()).doesNotContain("user1").contains("user2");
+        assertThat(reg.getGroupNames()).doesNotContain("group2").contains("group1");
+        assertFalse(reg.isDefaultPermission("some.default.permission"));
+        assertTrue(reg.isDefaultPermission("some.other.default.permission"));
+        assertTrue(reg.userHasPermission("user2", "some.permission2"));
+    }
+
+    @Test
+    void save_contentsRevertedSinceSaved_fileNotWritten() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+        reg.save();
+
+        FileTime lastModified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(tempDir.resolve("users.txt"), lastModified);
+        reg.assignUserPermission("user1", "some.other.permission");
+        reg.revokeUserPermission("user1", "some.other.permission");
+        reg.save();
+        assertEquals(lastModified, Files.getLastModifiedTime(tempDir.resolve("users.txt")));
+
+        reg.assignUserPermission("user2", "some.permission");
+        reg.save();
+        assertThat(readFile("users.txt")).contains("user2");
+    }
 }
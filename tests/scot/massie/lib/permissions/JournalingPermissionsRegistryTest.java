@@ -0,0 +1,178 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JournalingPermissionsRegistryTest extends PermissionsRegistryTest<JournalingPermissionsRegistry<String>>
+{
+    @TempDir
+    Path tempDir;
+
+    @Override
+    protected JournalingPermissionsRegistry<String> getNewPermissionsRegistry()
+    {
+        return new JournalingPermissionsRegistry<>(s -> s, s -> s, tempDir.resolve("users.txt"),
+                                                   tempDir.resolve("groups.txt"), tempDir.resolve("journal.txt"),
+                                                   0, 0);
+    }
+
+    @Override
+    protected void createUser(JournalingPermissionsRegistry<String> reg, String userId)
+    { reg.getUserPermissionsGroupOrNew(userId); }
+
+    @Override
+    protected void createGroup(JournalingPermissionsRegistry<String> reg, String groupName)
+    { reg.getGroupPermissionsGroupOrNew(groupName); }
+
+    @Override
+    protected void createGroup(JournalingPermissionsRegistry<String> reg, String groupName, int priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    @Override
+    protected void createGroup(JournalingPermissionsRegistry<String> reg, String groupName, double priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    JournalingPermissionsRegistry<String> getLoadedRegistry() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.load();
+        return reg;
+    }
+
+    void populate(PermissionsRegistry<String> reg)
+    {
+        reg.assignUserPermission("user1", "some.permission: multi\nline\targ");
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupToUser("user1", "group1");
+        reg.assignDefaultPermission("some.default.permission");
+        reg.revokeUserPermission("user1", "some.permission.not.had");
+    }
+
+    @Test
+    void load_replaysModificationsNotSaved() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        populate(reg);
+        reg.close();
+
+        JournalingPermissionsRegistry<String> loaded = getLoadedRegistry();
+        assertThat(loaded.usersToSaveString()).isEqualTo(reg.usersToSaveString());
+        assertThat(loaded.groupsToSaveString()).isEqualTo(reg.groupsToSaveString());
+        assertThat(loaded.userHasPermission("user1", "some.group.permission")).isTrue();
+    }
+
+    @Test
+    void load_replaysModificationsMadeSinceSave() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        populate(reg);
+        reg.save();
+        reg.revokeGroupFromUser("user1", "group1");
+        reg.assignUserPermission("user2", "some.other.permission");
+        reg.close();
+
+        JournalingPermissionsRegistry<String> loaded = getLoadedRegistry();
+        assertThat(loaded.usersToSaveString()).isEqualTo(reg.usersToSaveString());
+        assertThat(loaded.userHasPermission("user1", "some.group.permission")).isFalse();
+    }
+
+    @Test
+    void load_groupPriorityReplayed() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.getGroupPermissionsGroupOrNew("group1", 5L);
+        reg.getGroupPermissionsGroupOrNew("group2", 2.5);
+        reg.close();
+
+        JournalingPermissionsRegistry<String> loaded = getLoadedRegistry();
+        assertThat(loaded.getGroupPriorityAsLong("group1")).isEqualTo(5L);
+        assertThat(loaded.getGroupPriority("group2")).isEqualTo(2.5);
+    }
+
+    @Test
+    void load_incompleteRecordIgnored() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        populate(reg);
+        reg.close();
+        Files.write(tempDir.resolve("journal.txt"), "AUP\tuser2\tsome.perm".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+        JournalingPermissionsRegistry<String> loaded = getLoadedRegistry();
+        assertThat(loaded.usersToSaveString()).isEqualTo(reg.usersToSaveString());
+        assertThat(loaded.getUsers()).doesNotContain("user2");
+    }
+
+    @Test
+    void batch_recordedOnlyIfApplied() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+
+        assertThatThrownBy(() -> reg.batch(r ->
+        {
+            r.assignUserPermission("user1", "some.permission");
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+
+        reg.batch(r ->
+        {
+            r.assignUserPermission("user2", "some.permission");
+            r.assignGroupToUser("user2", "group1");
+        });
+
+        reg.close();
+
+        JournalingPermissionsRegistry<String> loaded = getLoadedRegistry();
+        assertThat(loaded.getUsers()).containsExactly("user2");
+        assertThat(loaded.userHasGroup("user2", "group1")).isTrue();
+    }
+
+    @Test
+    void save_discardsJournal() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        populate(reg);
+        reg.save();
+
+        assertThat(Files.exists(tempDir.resolve("journal.txt"))).isFalse();
+        assertThat(getLoadedRegistry().usersToSaveString()).isEqualTo(reg.usersToSaveString());
+    }
+
+    @Test
+    void saveInBackground_keepsModificationsMadeWhileSaving()
+            throws IOException, ExecutionException, InterruptedException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        populate(reg);
+        reg.saveInBackground();
+        reg.assignUserPermission("user2", "some.other.permission");
+        reg.saveInBackground().get();
+        reg.assignUserPermission("user3", "yet.another.permission");
+        reg.close();
+
+        assertThat(Files.exists(tempDir.resolve("journal.txt.old"))).isFalse();
+        assertThat(getLoadedRegistry().usersToSaveString()).isEqualTo(reg.usersToSaveString());
+    }
+
+    @Test
+    void absorb_savesRegistry() throws IOException
+    {
+        JournalingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        GroupMapPermissionsRegistry<String> other = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        populate(other);
+        reg.absorb(other);
+
+        assertThat(reg.hasBeenDifferentiatedFromFiles()).isFalse();
+        assertThat(getLoadedRegistry().usersToSaveString()).isEqualTo(other.usersToSaveString());
+    }
+}
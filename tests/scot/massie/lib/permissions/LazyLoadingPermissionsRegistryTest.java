@@ -0,0 +1,196 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LazyLoadingPermissionsRegistryTest
+        extends PermissionsRegistryTest<LazyLoadingPermissionsRegistry<String>>
+{
+    /*
+
+    Note: The registries tested by the inherited tests may only have one user loaded at a time, so that users are
+    unloaded and reloaded as often as possible.
+
+     */
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    protected LazyLoadingPermissionsRegistry<String> getNewPermissionsRegistry()
+    { return new LazyLoadingPermissionsRegistry<>(s -> s, s -> s, null, null, 1); }
+
+    @Override
+    protected void createUser(LazyLoadingPermissionsRegistry<String> reg, String userId)
+    { reg.getUserPermissionsGroupOrNew(userId); }
+
+    @Override
+    protected void createGroup(LazyLoadingPermissionsRegistry<String> reg, String groupName)
+    { reg.getGroupPermissionsGroupOrNew(groupName); }
+
+    @Override
+    protected void createGroup(LazyLoadingPermissionsRegistry<String> reg, String groupName, int priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    @Override
+    protected void createGroup(LazyLoadingPermissionsRegistry<String> reg, String groupName, double priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    GroupMapPermissionsRegistry<String> saveEagerRegistry() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = new GroupMapPermissionsRegistry<>(
+                s -> s, s -> s, tempDir.resolve("users.txt"), tempDir.resolve("groups.txt"));
+
+        for(int i = 0; i < 20; i++)
+        {
+            reg.assignUserPermission("user" + i, "some.permission" + i + ": multi\nline arg");
+
+            if(i % 2 == 0)
+                reg.assignGroupToUser("user" + i, "group1");
+        }
+
+        reg.assignGroupToUser("groupOnlyUser", "group1");
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.save();
+        return reg;
+    }
+
+    LazyLoadingPermissionsRegistry<String> loadLazyRegistry(int maxLoadedUsers) throws IOException
+    {
+        LazyLoadingPermissionsRegistry<String> reg = new LazyLoadingPermissionsRegistry<>(
+                s -> s, s -> s, tempDir.resolve("users.txt"), tempDir.resolve("groups.txt"), maxLoadedUsers);
+
+        reg.load();
+        return reg;
+    }
+
+    @Test
+    void load_doesNotParseUsers() throws IOException
+    {
+        saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(5);
+
+        assertThat(reg.getLoadedUserCount()).isEqualTo(0);
+        assertThat(reg.getUsers()).hasSize(21).contains("user0", "user19", "groupOnlyUser");
+        assertThat(reg.hasBeenDifferentiatedFromFiles()).isFalse();
+    }
+
+    @Test
+    void querying_loadsUsersAsNeeded() throws IOException
+    {
+        saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(5);
+
+        for(int i = 0; i < 20; i++)
+        {
+            assertThat(reg.userHasPermission("user" + i, "some.permission" + i)).isTrue();
+            assertThat(reg.getUserPermissionArg("user" + i, "some.permission" + i)).isEqualTo("multi\nline arg");
+            assertThat(reg.userHasPermission("user" + i, "some.group.permission")).isEqualTo(i % 2 == 0);
+        }
+
+        assertThat(reg.getLoadedUserCount()).isEqualTo(5);
+        assertThat(reg.hasBeenDifferentiatedFromFiles()).isFalse();
+    }
+
+    @Test
+    void unloadedUsers_keepModifications() throws IOException
+    {
+        saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(2);
+        reg.assignUserPermission("user3", "some.new.permission");
+        reg.revokeGroupFromUser("user4", "group1");
+
+        for(int i = 10; i < 20; i++)
+            reg.userHasPermission("user" + i, "some.permission");
+
+        assertThat(reg.userHasPermission("user3", "some.new.permission")).isTrue();
+        assertThat(reg.userHasPermission("user3", "some.permission3")).isTrue();
+        assertThat(reg.userHasGroup("user4", "group1")).isFalse();
+    }
+
+    @Test
+    void save_matchesEagerRegistry() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> eager = saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(3);
+        reg.userHasPermission("user7", "some.permission7");
+        reg.assignUserPermission("user8", "some.new.permission");
+        eager.assignUserPermission("user8", "some.new.permission");
+
+        assertThat(reg.usersToSaveString()).isEqualTo(eager.usersToSaveString());
+
+        reg.save();
+        String usersFileContents = new String(Files.readAllBytes(tempDir.resolve("users.txt")), StandardCharsets.UTF_8);
+        assertThat(usersFileContents).isEqualTo(eager.usersToSaveString());
+
+        // Users not loaded should be read from their new positions in the rewritten file.
+        for(int i = 0; i < 20; i++)
+            assertThat(reg.userHasPermission("user" + i, "some.permission" + i)).isTrue();
+    }
+
+    @Test
+    void clearGroup_removesGroupFromUnloadedUsers() throws IOException
+    {
+        saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(2);
+        reg.assignGroupPermission("group2", "some.other.permission");
+        reg.clearGroup("group1");
+
+        assertThat(reg.getGroupNames()).containsExactly("group2");
+        assertThat(reg.userHasGroup("user0", "group1")).isFalse();
+        assertThat(reg.userHasGroup("groupOnlyUser", "group1")).isFalse();
+        assertThat(reg.getGroupNames()).containsExactly("group2");
+    }
+
+    @Test
+    void setLoadsUsersInParallel_throws()
+    {
+        LazyLoadingPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.setLoadsUsersInParallel(false);
+
+        assertThatThrownBy(() -> reg.setLoadsUsersInParallel(true))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void diff_comparesUnloadedUsersWithoutLoadingThem() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> eager = saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(2);
+
+        assertThat(eager.diff(reg).isEmpty()).isTrue();
+        assertThat(reg.getContentHash()).isEqualTo(eager.getContentHash());
+        assertThat(reg.getLoadedUserCount()).isEqualTo(0);
+
+        reg.assignUserPermission("user3", "some.new.permission");
+
+        // Unloads user3 again.
+        for(int i = 10; i < 15; i++)
+            reg.userHasPermission("user" + i, "some.permission");
+
+        PermissionsRegistryDiff<String> diff = eager.diff(reg);
+        assertThat(diff.getUsersChanged()).containsExactly("user3");
+        assertThat(diff.getUsersAdded()).isEmpty();
+        assertThat(diff.getUsersRemoved()).isEmpty();
+        assertThat(reg.getLoadedUserCount()).isEqualTo(2);
+    }
+
+    @Test
+    void clearUser_removesUnloadedUser() throws IOException
+    {
+        saveEagerRegistry();
+        LazyLoadingPermissionsRegistry<String> reg = loadLazyRegistry(2);
+        reg.clearUser("user5");
+
+        assertThat(reg.getUsers()).hasSize(20).doesNotContain("user5");
+        assertThat(reg.userHasPermission("user5", "some.permission5")).isFalse();
+    }
+}
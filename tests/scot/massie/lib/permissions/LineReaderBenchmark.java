@@ -0,0 +1,60 @@
+package scot.massie.lib.permissions;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * <p>Measures the throughput, in MB/s, of reading the users save string of a generated registry line-by-line, and of
+ * loading a registry from it.</p>
+ *
+ * <p>Run with the number of users to generate as the first argument, (default 100000) and the number of times to read
+ * the save string as the second. (default 5)</p>
+ */
+public final class LineReaderBenchmark
+{
+    private LineReaderBenchmark()
+    { }
+
+    static double megabytesPerSecond(long chars, long nanos)
+    { return (chars * 2 / (1024.0 * 1024.0)) / (nanos / 1e9); }
+
+    public static void main(String[] args) throws IOException
+    {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        GroupMapPermissionsRegistry<String> reg = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        SnapshotBenchmark.populate(reg, userCount);
+
+        for(int i = 0; i < userCount; i += 10)
+            reg.assignUserPermission("user" + i, "some.multiline.permission: first line\nsecond line\n    third line");
+
+        String saveString = reg.usersToSaveString();
+        System.out.printf("Users: %d%nSave string: %d chars%n", userCount, saveString.length());
+
+        for(int i = 0; i < runs; i++)
+        {
+            long start = System.nanoTime();
+            int lineCount = 0;
+
+            try(GroupMapPermissionsRegistry.PermissionsLineReader reader
+                        = new GroupMapPermissionsRegistry.PermissionsLineReader(new StringReader(saveString)))
+            {
+                while(reader.readLine() != null)
+                    lineCount++;
+            }
+
+            long readNanos = System.nanoTime() - start;
+
+            GroupMapPermissionsRegistry<String> loaded = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+            start = System.nanoTime();
+            loaded.loadUsersFromSaveString(saveString);
+            long loadNanos = System.nanoTime() - start;
+
+            System.out.printf("Run %d: readLine() %d lines at %.1f MB/s, loadUsersFromSaveString() at %.1f MB/s%n",
+                              i + 1, lineCount,
+                              megabytesPerSecond(saveString.length(), readNanos),
+                              megabytesPerSecond(saveString.length(), loadNanos));
+        }
+    }
+}
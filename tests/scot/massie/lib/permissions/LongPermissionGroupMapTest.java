@@ -0,0 +1,111 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LongPermissionGroupMapTest
+{
+    //region Methods
+    @Test
+    void get_empty()
+    {
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        assertThat(map.get(5L)).isNull();
+        assertThat(map.containsKey(5L)).isFalse();
+        assertThat(map).isEmpty();
+    }
+
+    @Test
+    void put_thenGet()
+    {
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        PermissionGroup pg = new PermissionGroup("5");
+
+        assertThat(map.put(5L, pg)).isNull();
+        assertThat(map.get(5L)).isSameAs(pg);
+        assertThat(map.get((Object)5L)).isSameAs(pg);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void put_replaces()
+    {
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        PermissionGroup first = new PermissionGroup("5");
+        PermissionGroup second = new PermissionGroup("5");
+
+        map.put(5L, first);
+
+        assertThat(map.put(5L, second)).isSameAs(first);
+        assertThat(map.get(5L)).isSameAs(second);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remove_notPresent()
+    {
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        map.put(5L, new PermissionGroup("5"));
+
+        assertThat(map.remove(6L)).isNull();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void putAndRemove_manyEntries_matchesHashMap()
+    {
+        // Enough entries to force resizing and collisions, removing some to exercise moving entries back on removal.
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        Map<Long, PermissionGroup> expected = new HashMap<>();
+
+        for(long i = -5000; i < 5000; i++)
+        {
+            long key = i * 1024;
+            PermissionGroup pg = new PermissionGroup(Long.toString(key));
+            map.put(key, pg);
+            expected.put(key, pg);
+        }
+
+        for(long i = -5000; i < 5000; i += 3)
+        {
+            long key = i * 1024;
+            assertThat(map.remove(key)).isSameAs(expected.remove(key));
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(map).isEqualTo(expected);
+
+        for(Map.Entry<Long, PermissionGroup> entry : expected.entrySet())
+            assertThat(map.get(entry.getKey().longValue())).isSameAs(entry.getValue());
+    }
+
+    @Test
+    void computeIfAbsent()
+    {
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        PermissionGroup created = map.computeIfAbsent(5L, id -> new PermissionGroup(Long.toString(id)));
+
+        assertThat(created.getName()).isEqualTo("5");
+        assertThat(map.computeIfAbsent(5L, id -> new PermissionGroup("other"))).isSameAs(created);
+    }
+
+    @Test
+    void clear()
+    {
+        LongPermissionGroupMap map = new LongPermissionGroupMap();
+        map.put(5L, new PermissionGroup("5"));
+        map.put(6L, new PermissionGroup("6"));
+
+        map.clear();
+
+        assertThat(map).isEmpty();
+        assertThat(map.get(5L)).isNull();
+        assertThat(map.keySet()).isEmpty();
+        assertThat(map.values()).isEmpty();
+    }
+    //endregion
+}
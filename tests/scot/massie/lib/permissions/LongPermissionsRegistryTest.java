@@ -0,0 +1,60 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LongPermissionsRegistryTest
+{
+    //region Methods
+    @Test
+    void primitiveAndBoxedOverloadsAgree()
+    {
+        LongPermissionsRegistry reg = new LongPermissionsRegistry();
+        reg.assignUserPermission(5L, "some.permission.doot");
+        reg.assignGroupToUser(5L, "group1");
+        reg.assignGroupPermission("group1", "some.other.permission");
+
+        assertThat(reg.userHasPermission(5L, "some.permission.doot")).isTrue();
+        assertThat(reg.userHasPermission(Long.valueOf(5L), "some.permission.doot")).isTrue();
+        assertThat(reg.userHasPermission(5L, "some.other.permission")).isTrue();
+        assertThat(reg.userHasPermission(6L, "some.permission.doot")).isFalse();
+        assertThat(reg.userHasAllPermissions(5L, Arrays.asList("some.permission.doot", "some.other.permission")))
+                .isTrue();
+        assertThat(reg.userHasGroup(5L, "group1")).isTrue();
+        assertThat(reg.getUsers()).containsExactly(5L);
+    }
+
+    @Test
+    void revokeAndClear()
+    {
+        LongPermissionsRegistry reg = new LongPermissionsRegistry();
+        reg.assignUserPermission(5L, "some.permission.doot");
+        reg.assignUserPermission(6L, "some.permission.doot");
+
+        assertThat(reg.revokeUserPermission(5L, "some.permission.doot")).isNotNull();
+        assertThat(reg.userHasPermission(5L, "some.permission.doot")).isFalse();
+
+        reg.clearUser(6L);
+        assertThat(reg.getUsers()).containsExactly(5L);
+    }
+
+    @Test
+    void savingAndLoading() throws IOException
+    {
+        LongPermissionsRegistry reg = new LongPermissionsRegistry();
+        reg.assignUserPermission(-12345678901L, "some.permission.doot");
+        reg.assignGroupToUser(42L, "group1");
+
+        LongPermissionsRegistry loaded = new LongPermissionsRegistry();
+        loaded.loadGroupsFromSaveString(reg.groupsToSaveString());
+        loaded.loadUsersFromSaveString(reg.usersToSaveString());
+
+        assertThat(loaded.userHasPermission(-12345678901L, "some.permission.doot")).isTrue();
+        assertThat(loaded.userHasGroup(42L, "group1")).isTrue();
+    }
+    //endregion
+}
@@ -0,0 +1,144 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedPermissionsRegistryTest
+{
+    @TempDir
+    Path tempDir;
+
+    static final List<String> permissionsToCheck = Arrays.asList(
+            "some", "some.permission", "some.permission.under", "some.permission.under.further", "some.other",
+            "some.group.permission", "some.group.permission.thing", "some.default.permission", "ünïcödé.permission",
+            "anything", "");
+
+    static final List<String> groupsToCheck = Arrays.asList("group1", "group2", "group3", "group4", "*");
+
+    GroupMapPermissionsRegistry<String> getPopulatedRegistry()
+    {
+        GroupMapPermissionsRegistry<String> reg = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        reg.assignUserPermission("user1", "some.permission: multi\nline arg");
+        reg.assignUserPermission("user1", "-some.permission.under.*");
+        reg.assignUserPermission("user2", "*");
+        reg.assignUserPermission("user2", "-some.other");
+        reg.assignUserPermission("user3", "ünïcödé.permission: ärg");
+        reg.assignGroupPermission("group1", "some.group.permission.*: arg");
+        reg.assignGroupPermission("group2", "-some.group.permission.thing");
+        reg.assignGroupPermission("group2", "some.other");
+        reg.assignGroupToGroup("group1", "group2");
+        reg.assignGroupToUser("user1", "group1");
+        reg.assignGroupToUser("user3", "group2");
+        reg.assignDefaultPermission("some.default.permission");
+        reg.assignDefaultGroup("group3");
+        reg.assignGroupPermission("group3", "some.permission.under.further");
+        reg.getGroupPermissionsGroupOrNew("group2", 5L);
+        return reg;
+    }
+
+    MappedPermissionsRegistry<String> getMappedRegistry(GroupMapPermissionsRegistry<String> reg) throws IOException
+    {
+        Path snapshotFile = tempDir.resolve("snapshot.bin");
+        reg.saveMappableSnapshot(snapshotFile);
+        return new MappedPermissionsRegistry<>(s -> s, snapshotFile);
+    }
+
+    @Test
+    void permissionQueries_matchRegistry() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getPopulatedRegistry();
+        MappedPermissionsRegistry<String> mapped = getMappedRegistry(reg);
+
+        for(String permission : permissionsToCheck)
+        {
+            for(String userId : Arrays.asList("user1", "user2", "user3", "user4"))
+            {
+                assertThat(mapped.getUserPermissionStatus(userId, permission))
+                        .as(userId + ", " + permission)
+                        .isEqualTo(reg.getUserPermissionStatus(userId, permission));
+            }
+
+            for(String groupName : groupsToCheck)
+            {
+                assertThat(mapped.getGroupPermissionStatus(groupName, permission))
+                        .as(groupName + ", " + permission)
+                        .isEqualTo(reg.getGroupPermissionStatus(groupName, permission));
+            }
+
+            assertThat(mapped.getDefaultPermissionStatus(permission))
+                    .as(permission)
+                    .isEqualTo(reg.getDefaultPermissionStatus(permission));
+        }
+    }
+
+    @Test
+    void groupQueries_matchRegistry() throws IOException
+    {
+        GroupMapPermissionsRegistry<String> reg = getPopulatedRegistry();
+        MappedPermissionsRegistry<String> mapped = getMappedRegistry(reg);
+
+        for(String superGroupName : groupsToCheck)
+        {
+            for(String userId : Arrays.asList("user1", "user2", "user3", "user4"))
+            {
+                assertThat(mapped.userHasGroup(userId, superGroupName))
+                        .as(userId + ", " + superGroupName)
+                        .isEqualTo(reg.userHasGroup(userId, superGroupName));
+            }
+
+            for(String groupName : groupsToCheck)
+            {
+                assertThat(mapped.groupExtendsFromGroup(groupName, superGroupName))
+                        .as(groupName + ", " + superGroupName)
+                        .isEqualTo(reg.groupExtendsFromGroup(groupName, superGroupName));
+            }
+
+            assertThat(mapped.isDefaultGroup(superGroupName))
+                    .as(superGroupName)
+                    .isEqualTo(reg.isDefaultGroup(superGroupName));
+        }
+
+        assertThat(mapped.getGroupNames()).containsExactly("group1", "group2", "group3");
+        assertThat(mapped.getUserCount()).isEqualTo(3);
+    }
+
+    @Test
+    void args_matchRegistry() throws IOException
+    {
+        MappedPermissionsRegistry<String> mapped = getMappedRegistry(getPopulatedRegistry());
+
+        assertThat(mapped.getUserPermissionArg("user1", "some.permission")).isEqualTo("multi\nline arg");
+        assertThat(mapped.getUserPermissionArg("user1", "some.group.permission.thing")).isEqualTo("arg");
+        assertThat(mapped.getUserPermissionArg("user3", "ünïcödé.permission")).isEqualTo("ärg");
+        assertThat(mapped.getUserPermissionArg("user2", "some.permission")).isNull();
+    }
+
+    @Test
+    void assertUserHasPermission_throwsWhereMissing() throws IOException, UserMissingPermissionException
+    {
+        MappedPermissionsRegistry<String> mapped = getMappedRegistry(getPopulatedRegistry());
+        mapped.assertUserHasPermission("user2", "anything");
+
+        assertThatThrownBy(() -> mapped.assertUserHasPermission("user2", "some.other"))
+                .isInstanceOf(UserMissingPermissionException.class);
+    }
+
+    @Test
+    void open_notSnapshot_throws() throws IOException
+    {
+        Path file = tempDir.resolve("snapshot.bin");
+        Files.write(file, "not a snapshot at all".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> new MappedPermissionsRegistry<String>(s -> s, file)).isInstanceOf(IOException.class);
+    }
+}
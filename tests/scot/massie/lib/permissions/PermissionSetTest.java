@@ -5,6 +5,8 @@ import scot.massie.lib.collections.trees.Tree;
 import scot.massie.lib.collections.trees.TreeEntry;
 import scot.massie.lib.functionalinterfaces.Condition;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.text.ParseException;
 import java.util.Arrays;
 
@@ -754,6 +756,30 @@ class PermissionSetTest
                                                     + "-one.two\n"
                                                     + "uno.dos.*:\n    doot\n    noot");
     }
+
+    @Test
+    void toSaveString_multiLineArgWithBlankLine() throws ParseException
+    {
+        PermissionSet pset = new PermissionSet();
+        pset.set("first.second: doot\n\nnoot");
+        assertThat(pset.toSaveString()).isEqualTo("first.second:\n    doot\n\n    noot");
+    }
+    //endregion
+
+    //region writeSaveString(...)
+    @Test
+    void writeSaveString_indented() throws ParseException, IOException
+    {
+        PermissionSet pset = new PermissionSet();
+        pset.set("first.second");
+        pset.set("uno.dos.*: doot\nnoot");
+        pset.set("-one.two");
+
+        StringWriter writer = new StringWriter();
+        pset.writeSaveString(new IndentingWriter(writer, "    "));
+
+        assertThat(writer.toString()).isEqualTo(pset.toSaveString().replaceAll("(?m)^(?=.+)", "    "));
+    }
     //endregion
     //endregion
     //endregion
@@ -977,6 +1003,45 @@ class PermissionSetTest
         assertThat(perm.hasArg()).isTrue();
         assertThat(perm.getArg()).isEqualTo("doot\nhoot\nnoot");
     }
+
+    @Test
+    void setWhileDeIndenting_withDoublyIndentedLines() throws ParseException
+    {
+        PermissionSet pset = new PermissionSet();
+        pset.setWhileDeIndenting("first.second:\n    doot\n        hoot\n\n    noot");
+        assertThat(pset.getPermission("first.second").getArg()).isEqualTo("doot\n    hoot\n\nnoot");
+    }
+    //endregion
+
+    //region BulkSetter
+    @Test
+    void bulkSetter_matchesSettingIndividually() throws ParseException
+    {
+        String[] lines = { "-first.*", "first.second", "first.second.third: doot", "first.second.third.*",
+                           "first.third:\n    doot\n    noot", "second.first", "*" };
+
+        PermissionSet individually = new PermissionSet();
+        PermissionSet inBulk = new PermissionSet();
+        PermissionSet.BulkSetter bulkSetter = inBulk.newBulkSetter();
+
+        for(String line : lines)
+        {
+            individually.setWhileDeIndenting(line);
+            bulkSetter.setWhileDeIndenting(line);
+        }
+
+        assertThat(inBulk.toSaveString()).isEqualTo(individually.toSaveString());
+        assertThat(inBulk.getPermission("first.third").getArg()).isEqualTo("doot\nnoot");
+        assertThat(inBulk.negatesPermission("first.fourth")).isTrue();
+    }
+
+    @Test
+    void bulkSetter_illegalPermission()
+    {
+        PermissionSet.BulkSetter bulkSetter = new PermissionSet().newBulkSetter();
+        assertThrows(ParseException.class, () -> bulkSetter.setWhileDeIndenting("first.*.second"));
+        assertThrows(ParseException.class, () -> bulkSetter.setWhileDeIndenting("first-second"));
+    }
     //endregion
 
     //region createPermissionFromString(...)
@@ -1091,6 +1156,116 @@ class PermissionSetTest
 
     //endregion
     //endregion
+
+    //region getContentHash()
+    @Test
+    void getContentHash_sameRegardlessOfOrder() throws ParseException
+    {
+        PermissionSet a = new PermissionSet();
+        PermissionSet b = new PermissionSet();
+        a.set("first.second: doot");
+        a.set("-first.*");
+        a.set("*");
+        b.set("*");
+        b.set("-first.*");
+        b.set("first.second: doot");
+        assertEquals(a.getContentHash(), b.getContentHash());
+    }
+
+    @Test
+    void getContentHash_differentPermissions() throws ParseException
+    {
+        PermissionSet a = new PermissionSet();
+        PermissionSet b = new PermissionSet();
+        a.set("first.Aa");
+        b.set("first.BB");
+        assertNotEquals(a.getContentHash(), b.getContentHash());
+
+        b.set("first.BB.*");
+        b.remove("first.BB");
+        assertNotEquals(a.getContentHash(), b.getContentHash());
+
+        a.set("first.Aa: doot");
+        b.set("first.Aa: noot");
+        assertNotEquals(a.getContentHash(), b.getContentHash());
+    }
+
+    @Test
+    void getContentHash_afterRemovingAndClearing() throws ParseException
+    {
+        PermissionSet pset = new PermissionSet();
+        long emptyHash = pset.getContentHash();
+        pset.set("first.second");
+        long hashWithOne = pset.getContentHash();
+        pset.set("first.second.*");
+        pset.set("-third");
+        pset.remove("first.second.*");
+        pset.remove("third");
+        assertEquals(hashWithOne, pset.getContentHash());
+
+        pset.clear();
+        assertEquals(emptyHash, pset.getContentHash());
+    }
+    //endregion
+
+    //region setAll() / removeAll()
+    @Test
+    void setAll_sameAsSettingEach() throws ParseException
+    {
+        String[] perms = { "*", "first.second: doot", "-first.*", "third.fourth.*: noot", "fifth" };
+        PermissionSet source = new PermissionSet();
+        PermissionSet expected = new PermissionSet();
+        expected.set("sixth");
+
+        for(String perm : perms)
+        {
+            source.set(perm);
+            expected.set(perm);
+        }
+
+        PermissionSet pset = new PermissionSet();
+        pset.set("sixth");
+        pset.setAll(source);
+        assertEquals(expected.getPermissionsAsStrings(true), pset.getPermissionsAsStrings(true));
+        assertEquals(expected.getContentHash(), pset.getContentHash());
+        assertTrue(pset.hasPermission("third.fourth.fifth"));
+        assertFalse(pset.hasPermission("first.third"));
+    }
+
+    @Test
+    void removeAll_sameAsRemovingEach() throws ParseException
+    {
+        PermissionSet pset = new PermissionSet();
+        pset.set("*");
+        pset.set("first.second: doot");
+        pset.set("-first.*");
+        pset.set("third");
+
+        PermissionSet toRemove = new PermissionSet();
+        toRemove.set("first.*");
+        toRemove.set("fourth");
+
+        PermissionSet expected = new PermissionSet();
+        expected.set("*");
+        expected.set("first.second: doot");
+        expected.set("third");
+
+        pset.removeAll(toRemove);
+        assertEquals(expected.getPermissionsAsStrings(true), pset.getPermissionsAsStrings(true));
+        assertEquals(expected.getContentHash(), pset.getContentHash());
+    }
+
+    @Test
+    void removeAll_self_empty() throws ParseException
+    {
+        PermissionSet pset = new PermissionSet();
+        pset.set("first.second");
+        pset.set("-third.*");
+        pset.removeAll(pset);
+        assertTrue(pset.isEmpty());
+        assertEquals(new PermissionSet().getContentHash(), pset.getContentHash());
+    }
+    //endregion
     //endregion
     //endregion
 }
\ No newline at end of file
@@ -1887,6 +1887,15 @@ public abstract class PermissionsRegistryTest<TPReg extends PermissionsRegistry<
                                              "yet.another.permission"))
                 .isTrue();
     }
+
+    @Test
+    void hasAnyPermissions_groupDoesntExist()
+    {
+        TPReg reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.permission.doot");
+
+        assertThat(reg.groupHasAnyPermissions("group1", "some.permission.doot", "some.other.permission")).isFalse();
+    }
     //endregion
 
     //region Has any subpermission of
@@ -3049,6 +3058,98 @@ public abstract class PermissionsRegistryTest<TPReg extends PermissionsRegistry<
     }
     //endregion
 
+    //region Batches
+    @Test
+    void batch_appliesAll()
+    {
+        TPReg reg = getNewPermissionsRegistry();
+
+        reg.batch(tx ->
+        {
+            tx.assignUserPermission("user1", "some.permission.doot");
+            tx.assignGroupToUser("user1", "group1");
+            tx.assignGroupPermission("group1", "some.permission.noot");
+            tx.assignDefaultPermission("some.other.permission");
+        });
+
+        assertThat(reg.getUserPermissions("user1")).containsExactly("some.permission.doot");
+        assertThat(reg.getGroupsOfUser("user1")).containsExactly("group1");
+        assertThat(reg.getGroupPermissions("group1")).containsExactly("some.permission.noot");
+        assertThat(reg.getDefaultPermissions()).containsExactly("some.other.permission");
+    }
+
+    @Test
+    void batch_throws_rollsBackUsers()
+    {
+        TPReg reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.permission.doot");
+        reg.assignGroupToUser("user1", "group1");
+
+        assertThatThrownBy(() -> reg.batch(tx ->
+        {
+            tx.assignUserPermission("user1", "some.permission.noot");
+            tx.revokeUserPermission("user1", "some.permission.doot");
+            tx.revokeGroupFromUser("user1", "group1");
+            tx.assignUserPermission("user2", "some.other.permission");
+            throw new IllegalStateException("Batch failed.");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(reg.getUsers()).containsExactly("user1");
+        assertThat(reg.getUserPermissions("user1")).containsExactly("some.permission.doot");
+        assertThat(reg.getGroupsOfUser("user1")).containsExactly("group1");
+    }
+
+    @Test
+    void batch_throws_rollsBackGroupsAndDefaults()
+    {
+        TPReg reg = getNewPermissionsRegistry();
+        createGroup(reg, "group1", 5);
+        reg.assignGroupPermission("group1", "some.permission.doot");
+        reg.assignDefaultGroup("group1");
+        reg.assignUserPermission("user1", "some.other.permission");
+
+        assertThatThrownBy(() -> reg.batch(tx ->
+        {
+            tx.revokeAllGroupPermissions("group1");
+            tx.assignGroupToGroup("group1", "group2");
+            tx.assignGroupToUser("user1", "group3");
+            tx.revokeDefaultGroup("group1");
+            tx.assignDefaultPermission("yet.another.permission");
+            throw new IllegalStateException("Batch failed.");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(reg.getGroupNames()).containsExactly("group1");
+        assertThat(reg.getGroupPriority("group1")).isEqualTo(5.0);
+        assertThat(reg.getGroupPermissions("group1")).containsExactly("some.permission.doot");
+        assertThat(reg.getGroupsOfGroup("group1")).isEmpty();
+        assertThat(reg.getGroupsOfUser("user1")).isEmpty();
+        assertThat(reg.getDefaultGroups()).containsExactly("group1");
+        assertThat(reg.getDefaultPermissions()).isEmpty();
+    }
+
+    @Test
+    void batch_throwsAfterClearing_rollsBack()
+    {
+        TPReg reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("user1", "some.permission.doot");
+        reg.assignGroupToUser("user1", "group1");
+        reg.assignGroupPermission("group1", "some.permission.noot");
+
+        assertThatThrownBy(() -> reg.batch(tx ->
+        {
+            tx.assignUserPermission("user1", "some.other.permission");
+            tx.clear();
+            tx.assignUserPermission("user2", "yet.another.permission");
+            throw new IllegalStateException("Batch failed.");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(reg.getUsers()).containsExactly("user1");
+        assertThat(reg.getUserPermissions("user1")).containsExactly("some.permission.doot");
+        assertThat(reg.getGroupsOfUser("user1")).containsExactly("group1");
+        assertThat(reg.getGroupPermissions("group1")).containsExactly("some.permission.noot");
+    }
+    //endregion
+
     //region Set flags
 
     //endregion
@@ -0,0 +1,257 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReplicatingPermissionsRegistryTest
+        extends PermissionsRegistryTest<ReplicatingPermissionsRegistry<String>>
+{
+    @Override
+    protected ReplicatingPermissionsRegistry<String> getNewPermissionsRegistry()
+    { return new ReplicatingPermissionsRegistry<>(s -> s, s -> s, null, null, null, 0, 0, 4); }
+
+    @Override
+    protected void createUser(ReplicatingPermissionsRegistry<String> reg, String userId)
+    { reg.getUserPermissionsGroupOrNew(userId); }
+
+    @Override
+    protected void createGroup(ReplicatingPermissionsRegistry<String> reg, String groupName)
+    { reg.getGroupPermissionsGroupOrNew(groupName); }
+
+    @Override
+    protected void createGroup(ReplicatingPermissionsRegistry<String> reg, String groupName, int priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    @Override
+    protected void createGroup(ReplicatingPermissionsRegistry<String> reg, String groupName, double priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    ReplicaPermissionsRegistry<String> getNewFollower(ReplicatingPermissionsRegistry<String> leader,
+                                                      InProcessReplicationChannel channel) throws IOException
+    {
+        ReplicaPermissionsRegistry<String> follower = new ReplicaPermissionsRegistry<>(s -> s, s -> s);
+        leader.addFollower(channel);
+        follower.follow(channel.getOtherEnd());
+        return follower;
+    }
+
+    void populate(PermissionsRegistry<String> reg)
+    {
+        reg.assignUserPermission("user1", "some.permission: multi\nline\targ");
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupToUser("user1", "group1");
+        reg.assignDefaultPermission("some.default.permission");
+    }
+
+    void assertSameContents(GroupMapPermissionsRegistry<String> leader, GroupMapPermissionsRegistry<String> follower)
+    {
+        assertThat(follower.usersToSaveString()).isEqualTo(leader.usersToSaveString());
+        assertThat(follower.groupsToSaveString()).isEqualTo(leader.groupsToSaveString());
+    }
+
+    @Test
+    void follow_catchesUpFromSnapshot() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        populate(leader);
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, new InProcessReplicationChannel());
+
+        assertSameContents(leader, follower);
+        assertThat(follower.getLeaderId()).isEqualTo(leader.getLeaderId());
+        assertThat(follower.getLastAppliedSequenceNumber()).isEqualTo(leader.getLastSequenceNumber());
+    }
+
+    @Test
+    void modificationsReplicatedInOrder() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, new InProcessReplicationChannel());
+        populate(leader);
+        leader.revokeGroupFromUser("user1", "group1");
+        leader.loadGroupsFromSaveString("group2: 5\n    some.other.permission");
+
+        assertSameContents(leader, follower);
+        assertThat(follower.getGroupPriority("group2")).isEqualTo(5.0);
+        assertThat(follower.getLastAppliedSequenceNumber()).isEqualTo(6);
+    }
+
+    @Test
+    void batch_replicatedOnlyIfApplied() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, new InProcessReplicationChannel());
+
+        assertThatThrownBy(() -> leader.batch(r ->
+        {
+            r.assignUserPermission("user1", "some.permission");
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+
+        leader.batch(r ->
+        {
+            r.assignUserPermission("user2", "some.permission");
+            r.assignGroupToUser("user2", "group1");
+        });
+
+        assertThat(follower.getUsers()).containsExactly("user2");
+        assertThat(follower.userHasGroup("user2", "group1")).isTrue();
+        assertThat(follower.getLastAppliedSequenceNumber()).isEqualTo(1);
+    }
+
+    @Test
+    void modificationFailedPartway_sendsSnapshot() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, new InProcessReplicationChannel());
+        leader.assignUserPermission("user1", "first.permission");
+
+        List<String> permissions = Arrays.asList("some.permission", null, "other.permission");
+        assertThatThrownBy(() -> leader.assignUserPermissions("user1", permissions))
+                .isInstanceOf(NullPointerException.class);
+
+        assertThat(leader.userHasPermission("user1", "some.permission")).isTrue();
+        assertSameContents(leader, follower);
+        assertThat(follower.getLastAppliedSequenceNumber()).isEqualTo(leader.getLastSequenceNumber());
+
+        leader.assignUserPermission("user2", "some.permission");
+        assertSameContents(leader, follower);
+    }
+
+    @Test
+    void missedModifications_caughtUpFromBacklog() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        InProcessReplicationChannel channel = new InProcessReplicationChannel();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, channel);
+        leader.assignUserPermission("user1", "some.permission");
+
+        leader.removeFollower(channel);
+        leader.assignUserPermission("user2", "some.permission");
+        leader.assignUserPermission("user3", "some.permission");
+        leader.addFollower(channel);
+        assertThat(follower.getUsers()).containsExactly("user1");
+
+        leader.assignUserPermission("user4", "some.permission");
+        assertSameContents(leader, follower);
+        assertThat(follower.getLastAppliedSequenceNumber()).isEqualTo(4);
+    }
+
+    @Test
+    void missedModificationsNotInBacklog_caughtUpFromSnapshot() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        InProcessReplicationChannel channel = new InProcessReplicationChannel();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, channel);
+        follower.assignUserPermission("user0", "not.on.leader");
+
+        leader.removeFollower(channel);
+
+        for(int i = 1; i <= 6; i++)
+            leader.assignUserPermission("user" + i, "some.permission");
+
+        leader.addFollower(channel);
+        follower.requestCatchUp();
+        assertSameContents(leader, follower);
+        assertThat(follower.getUsers()).doesNotContain("user0");
+    }
+
+    @Test
+    void absorb_sendsSnapshot() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, new InProcessReplicationChannel());
+        GroupMapPermissionsRegistry<String> other = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        populate(other);
+        leader.absorb(other);
+
+        assertSameContents(leader, follower);
+        assertThat(follower.userHasPermission("user1", "some.group.permission")).isTrue();
+    }
+
+    @Test
+    void snapshotFailedToApply_caughtUp() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        InProcessReplicationChannel channel = new InProcessReplicationChannel();
+        AtomicBoolean failNextClear = new AtomicBoolean(false);
+
+        ReplicaPermissionsRegistry<String> follower = new ReplicaPermissionsRegistry<String>(s -> s, s -> s)
+        {
+            @Override
+            public void clear()
+            {
+                if(failNextClear.getAndSet(false))
+                    throw new IllegalStateException();
+
+                super.clear();
+            }
+        };
+
+        leader.addFollower(channel);
+        follower.follow(channel.getOtherEnd());
+        leader.assignUserPermission("user1", "some.permission");
+
+        GroupMapPermissionsRegistry<String> other = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        populate(other);
+        failNextClear.set(true);
+        leader.absorb(other);
+
+        assertThat(failNextClear.get()).isFalse();
+        assertSameContents(leader, follower);
+        assertThat(follower.getLastAppliedSequenceNumber()).isEqualTo(leader.getLastSequenceNumber());
+    }
+
+    @Test
+    void newLeader_caughtUpFromSnapshot() throws IOException
+    {
+        ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+        ReplicaPermissionsRegistry<String> follower = getNewFollower(leader, new InProcessReplicationChannel());
+        leader.assignUserPermission("user1", "some.permission");
+
+        ReplicatingPermissionsRegistry<String> newLeader = getNewPermissionsRegistry();
+        InProcessReplicationChannel newChannel = new InProcessReplicationChannel();
+        newLeader.addFollower(newChannel);
+        newLeader.assignUserPermission("user2", "some.permission");
+        follower.follow(newChannel.getOtherEnd());
+
+        assertSameContents(newLeader, follower);
+        assertThat(follower.getLeaderId()).isEqualTo(newLeader.getLeaderId());
+    }
+
+    @Test
+    void streamChannel_replicatesModifications() throws IOException, InterruptedException
+    {
+        PipedInputStream leaderInput = new PipedInputStream();
+        PipedInputStream followerInput = new PipedInputStream();
+        PipedOutputStream leaderOutput = new PipedOutputStream(followerInput);
+        PipedOutputStream followerOutput = new PipedOutputStream(leaderInput);
+
+        try(StreamReplicationChannel leaderEnd = new StreamReplicationChannel(leaderInput, leaderOutput);
+            StreamReplicationChannel followerEnd = new StreamReplicationChannel(followerInput, followerOutput))
+        {
+            ReplicatingPermissionsRegistry<String> leader = getNewPermissionsRegistry();
+            ReplicaPermissionsRegistry<String> follower = new ReplicaPermissionsRegistry<>(s -> s, s -> s);
+            leader.assignUserPermission("user1", "some.permission");
+            leader.addFollower(leaderEnd);
+            follower.follow(followerEnd);
+
+            synchronized(leader)
+            { populate(leader); }
+
+            for(int i = 0; i < 500 && follower.getLastAppliedSequenceNumber() < leader.getLastSequenceNumber(); i++)
+                Thread.sleep(10);
+
+            synchronized(follower)
+            { assertSameContents(leader, follower); }
+        }
+    }
+}
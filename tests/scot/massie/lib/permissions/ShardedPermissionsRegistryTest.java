@@ -0,0 +1,160 @@
+package scot.massie.lib.permissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedPermissionsRegistryTest extends PermissionsRegistryTest<ShardedPermissionsRegistry<String>>
+{
+    @TempDir
+    Path tempDir;
+
+    @Override
+    protected ShardedPermissionsRegistry<String> getNewPermissionsRegistry()
+    { return new ShardedPermissionsRegistry<>(s -> s, s -> s, 4); }
+
+    @Override
+    protected void createUser(ShardedPermissionsRegistry<String> reg, String userId)
+    { reg.getUserPermissionsGroupOrNew(userId); }
+
+    @Override
+    protected void createGroup(ShardedPermissionsRegistry<String> reg, String groupName)
+    { reg.getGroupPermissionsGroupOrNew(groupName); }
+
+    @Override
+    protected void createGroup(ShardedPermissionsRegistry<String> reg, String groupName, int priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    @Override
+    protected void createGroup(ShardedPermissionsRegistry<String> reg, String groupName, double priority)
+    { reg.getGroupPermissionsGroupOrNew(groupName, priority); }
+
+    ShardedPermissionsRegistry<String> getNewFileBackedRegistry(int shardCount)
+    {
+        return new ShardedPermissionsRegistry<>(s -> s, s -> s, tempDir.resolve("users.txt"),
+                                                tempDir.resolve("groups.txt"), shardCount);
+    }
+
+    void populate(PermissionsRegistry<String> reg)
+    {
+        for(int i = 0; i < 40; i++)
+        {
+            reg.assignUserPermission("user" + i, "some.permission" + i + ": multi\nline arg");
+
+            if(i % 4 == 0)
+                reg.assignGroupToUser("user" + i, "group1");
+        }
+
+        reg.assignGroupPermission("group1", "some.group.permission");
+    }
+
+    @Test
+    void saveStrings_matchUnshardedRegistry()
+    {
+        ShardedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        GroupMapPermissionsRegistry<String> unsharded = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        populate(reg);
+        populate(unsharded);
+
+        assertThat(reg.usersToSaveString()).isEqualTo(unsharded.usersToSaveString());
+        assertThat(reg.groupsToSaveString()).isEqualTo(unsharded.groupsToSaveString());
+    }
+
+    @Test
+    void save_writesFilePerShard() throws IOException
+    {
+        ShardedPermissionsRegistry<String> reg = getNewFileBackedRegistry(3);
+        populate(reg);
+        reg.save();
+
+        assertThat(reg.hasBeenDifferentiatedFromFiles()).isFalse();
+        assertThat(tempDir.resolve("groups.txt")).exists();
+
+        for(int i = 0; i < 3; i++)
+            assertThat(tempDir.resolve("users.txt." + i)).exists();
+    }
+
+    @Test
+    void load_withDifferentShardCount() throws IOException
+    {
+        ShardedPermissionsRegistry<String> reg = getNewFileBackedRegistry(3);
+        populate(reg);
+        reg.save();
+
+        ShardedPermissionsRegistry<String> loaded = getNewFileBackedRegistry(5);
+        loaded.load();
+
+        assertThat(loaded.usersToSaveString()).isEqualTo(reg.usersToSaveString());
+        assertThat(loaded.userHasPermission("user8", "some.group.permission")).isTrue();
+        assertThat(loaded.userHasPermission("user9", "some.group.permission")).isFalse();
+        assertThat(loaded.hasBeenDifferentiatedFromFiles()).isTrue();
+
+        loaded.save();
+        assertThat(tempDir.resolve("users.txt.4")).exists();
+
+        ShardedPermissionsRegistry<String> fewer = getNewFileBackedRegistry(2);
+        fewer.load();
+        fewer.save();
+        assertThat(Files.exists(tempDir.resolve("users.txt.2"))).isFalse();
+        assertThat(fewer.usersToSaveString()).isEqualTo(reg.usersToSaveString());
+    }
+
+    @Test
+    void modifyingGroup_invalidatesCachedResultsOfAllShards()
+    {
+        ShardedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        populate(reg);
+
+        assertThat(reg.userHasPermission("user4", "some.other.permission")).isFalse();
+        reg.assignGroupPermission("group1", "some.other.permission");
+        assertThat(reg.userHasPermission("user4", "some.other.permission")).isTrue();
+        reg.assignDefaultPermission("yet.another.permission");
+        assertThat(reg.userHasPermission("user5", "yet.another.permission")).isTrue();
+    }
+
+    @Test
+    void saveInBackground_matchesSave() throws IOException, ExecutionException, InterruptedException
+    {
+        ShardedPermissionsRegistry<String> reg = getNewFileBackedRegistry(3);
+        populate(reg);
+        reg.saveInBackground().get();
+
+        assertThat(reg.hasBeenDifferentiatedFromFiles()).isFalse();
+
+        ShardedPermissionsRegistry<String> loaded = getNewFileBackedRegistry(3);
+        loaded.load();
+        assertThat(loaded.usersToSaveString()).isEqualTo(reg.usersToSaveString());
+        assertThat(loaded.groupsToSaveString()).isEqualTo(reg.groupsToSaveString());
+    }
+
+    @Test
+    void clearGroup_onlyRewritesShardsOfAffectedUsers() throws IOException
+    {
+        ShardedPermissionsRegistry<String> reg = getNewFileBackedRegistry(4);
+
+        for(int i = 0; i < 20; i++)
+            reg.assignUserPermission("user" + i, "some.permission" + i);
+
+        reg.assignGroupToUser("user7", "group1");
+        reg.assignGroupPermission("group2", "some.group.permission");
+        reg.save();
+
+        for(int i = 0; i < 4; i++)
+            Files.delete(tempDir.resolve("users.txt." + i));
+
+        reg.clearGroup("group1");
+        reg.save();
+
+        for(int i = 0; i < 4; i++)
+        {
+            assertThat(Files.exists(tempDir.resolve("users.txt." + i)))
+                    .isEqualTo(i == reg.getShardIndexOf("user7"));
+        }
+    }
+}
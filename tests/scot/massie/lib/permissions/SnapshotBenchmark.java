@@ -0,0 +1,77 @@
+package scot.massie.lib.permissions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>Compares loading a registry from its users and groups files against loading it from a binary snapshot of the same
+ * data, and the sizes of the files involved.</p>
+ *
+ * <p>Run with the number of users to generate as the first argument, (default 100000) and the number of times to load
+ * each as the second. (default 5)</p>
+ */
+public final class SnapshotBenchmark
+{
+    private SnapshotBenchmark()
+    { }
+
+    static GroupMapPermissionsRegistry<String> getRegistry(Path dir)
+    { return new GroupMapPermissionsRegistry<>(s -> s, s -> s, dir.resolve("users.txt"), dir.resolve("groups.txt")); }
+
+    static void populate(GroupMapPermissionsRegistry<String> reg, int userCount)
+    {
+        for(int i = 0; i < 50; i++)
+        {
+            reg.assignGroupPermission("group" + i, "some.group.permission" + i + ".*");
+            reg.assignGroupPermission("group" + i, "-some.group.permission" + i + ".negated");
+
+            if(i > 0)
+                reg.assignGroupToGroup("group" + i, "group" + (i - 1));
+        }
+
+        reg.assignDefaultPermission("some.default.permission");
+
+        for(int i = 0; i < userCount; i++)
+        {
+            String userId = "user" + i;
+            reg.assignUserPermission(userId, "some.permission.node" + (i % 100) + ".thing");
+            reg.assignUserPermission(userId, "some.other.permission" + (i % 7) + ": some argument " + (i % 13));
+            reg.assignGroupToUser(userId, "group" + (i % 50));
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path dir = Files.createTempDirectory("permissions-snapshot-benchmark");
+        Path snapshotFile = dir.resolve("snapshot.bin");
+
+        GroupMapPermissionsRegistry<String> reg = getRegistry(dir);
+        populate(reg, userCount);
+        reg.save();
+        reg.saveSnapshot(snapshotFile);
+
+        long textSize = Files.size(dir.resolve("users.txt")) + Files.size(dir.resolve("groups.txt"));
+        long snapshotSize = Files.size(snapshotFile);
+        System.out.printf("Users: %d%nText files: %d bytes%nSnapshot: %d bytes (%.1f%%)%n",
+                          userCount, textSize, snapshotSize, 100.0 * snapshotSize / textSize);
+
+        for(int i = 0; i < runs; i++)
+        {
+            GroupMapPermissionsRegistry<String> fromText = getRegistry(dir);
+            long start = System.nanoTime();
+            fromText.load();
+            long textNanos = System.nanoTime() - start;
+
+            GroupMapPermissionsRegistry<String> fromSnapshot = getRegistry(dir);
+            start = System.nanoTime();
+            fromSnapshot.loadSnapshot(snapshotFile);
+            long snapshotNanos = System.nanoTime() - start;
+
+            System.out.printf("Run %d: load() %.1f ms, loadSnapshot() %.1f ms%n",
+                              i + 1, textNanos / 1e6, snapshotNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package scot.massie.lib.permissions.decorators;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
+import scot.massie.lib.permissions.PermissionsRegistry;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AsyncPermissionsRegistryTest
+{
+    @TempDir
+    Path tempDir;
+
+    AsyncPermissionsRegistry<String> getNewAsyncRegistry()
+    { return new AsyncPermissionsRegistry<>(s -> s, s -> s); }
+
+    AsyncPermissionsRegistry<String> getNewFileBackedAsyncRegistry()
+    { return new AsyncPermissionsRegistry<>(s -> s, s -> s, tempDir.resolve("users.txt"), tempDir.resolve("groups.txt")); }
+
+    @Test
+    void modificationsOfUser_performedInOrder() throws ExecutionException, InterruptedException
+    {
+        AsyncPermissionsRegistry<String> reg = getNewAsyncRegistry();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+
+        for(int i = 0; i < 100; i++)
+        {
+            futures.add(reg.assignUserPermission("user1", "some.permission" + i));
+            futures.add(reg.revokeUserPermission("user1", "some.permission" + i));
+            futures.add(reg.assignUserPermission("user2", "some.permission" + i));
+        }
+
+        futures.add(reg.assignUserPermission("user1", "some.permission50"));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        assertThat(reg.getInner().getUserPermissions("user1")).containsExactly("some.permission50");
+        assertThat(reg.getInner().getUserPermissions("user2")).hasSize(100);
+    }
+
+    @Test
+    void query_afterModification() throws ExecutionException, InterruptedException
+    {
+        AsyncPermissionsRegistry<String> reg = getNewAsyncRegistry();
+        reg.assignGroupPermission("group1", "some.permission").get();
+        reg.assignGroupToUser("user1", "group1").get();
+
+        assertThat(reg.userHasPermission("user1", "some.permission").get()).isTrue();
+        assertThat(reg.userHasGroup("user1", "group1").get()).isTrue();
+        assertThat(reg.userHasPermission("user2", "some.permission").get()).isFalse();
+    }
+
+    @Test
+    void assertUserHasPermission_completesExceptionally()
+    {
+        AsyncPermissionsRegistry<String> reg = getNewAsyncRegistry();
+
+        assertThatThrownBy(() -> reg.assertUserHasPermission("user1", "some.permission").get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(UserMissingPermissionException.class);
+    }
+
+    @Test
+    void failedModification_doesNotPreventLaterModifications() throws ExecutionException, InterruptedException
+    {
+        AsyncPermissionsRegistry<String> reg = getNewAsyncRegistry();
+        CompletableFuture<Object> failed = reg.modifyUser("user1", r -> { throw new IllegalStateException(); });
+        CompletableFuture<?> later = reg.assignUserPermission("user1", "some.permission");
+        later.get();
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(reg.userHasPermission("user1", "some.permission").get()).isTrue();
+    }
+
+    @Test
+    void saveAndLoad_performedAfterPreviousModifications() throws ExecutionException, InterruptedException
+    {
+        AsyncPermissionsRegistry<String> reg = getNewFileBackedAsyncRegistry();
+
+        for(int i = 0; i < 20; i++)
+            reg.assignUserPermission("user" + i, "some.permission" + i);
+
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.save().get();
+
+        AsyncPermissionsRegistry<String> loaded = getNewFileBackedAsyncRegistry();
+        loaded.load().get();
+
+        assertThat(loaded.getInner().usersToSaveString()).isEqualTo(reg.getInner().usersToSaveString());
+        assertThat(loaded.getInner().groupsToSaveString()).isEqualTo(reg.getInner().groupsToSaveString());
+    }
+
+    @Test
+    void modificationsAfterClear_notCleared() throws ExecutionException, InterruptedException
+    {
+        AsyncPermissionsRegistry<String> reg = getNewAsyncRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+        reg.assignDefaultPermission("some.default.permission");
+        reg.clear();
+        reg.assignUserPermission("user1", "some.other.permission").get();
+
+        PermissionsRegistry<String> inner = reg.getInner();
+        assertThat(inner.getUserPermissions("user1")).containsExactly("some.other.permission");
+        assertThat(inner.getDefaultPermissions()).isEmpty();
+    }
+
+    @Test
+    void operations_performedOnGivenExecutor() throws ExecutionException, InterruptedException
+    {
+        AtomicInteger tasksRun = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        try
+        {
+            AsyncPermissionsRegistry<String> reg = new AsyncPermissionsRegistry<>(
+                    new ThreadsafePermissionsRegistry<>(new GroupMapPermissionsRegistry<>(s -> s, s -> s)),
+                    runnable -> { tasksRun.incrementAndGet(); executorService.execute(runnable); });
+
+            reg.assignUserPermission("user1", "some.permission").get();
+            assertThat(reg.userHasPermission("user1", "some.permission").get()).isTrue();
+            assertThat(tasksRun.get()).isGreaterThanOrEqualTo(2);
+        }
+        finally
+        {
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
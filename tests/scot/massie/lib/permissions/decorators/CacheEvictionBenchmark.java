@@ -0,0 +1,113 @@
+package scot.massie.lib.permissions.decorators;
+
+import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>Compares the hit rates of the {@link CacheEvictionPolicy cache eviction policies} of
+ * {@link CachedPermissionsRegistry} by replaying a workload of permission checks, where both the users checked and the
+ * permissions checked for them follow Zipf distributions, such that a few users and permissions account for most
+ * checks.</p>
+ *
+ * <p>Run with the number of users as the first argument, (default 20000) the number of checks as the second, (default
+ * 2000000) the Zipf exponent as the third, (default 0.9) and the cache size as the fourth. (default 1000) The inner
+ * cache size is the default.</p>
+ */
+public final class CacheEvictionBenchmark
+{
+    private CacheEvictionBenchmark()
+    { }
+
+    /**
+     * Samples ranks from 0 (most frequent) to a given count, (exclusive) following a Zipf distribution.
+     */
+    static final class ZipfSampler
+    {
+        final double[] cumulativeProbabilities;
+
+        ZipfSampler(int count, double exponent)
+        {
+            cumulativeProbabilities = new double[count];
+            double total = 0;
+
+            for(int i = 0; i < count; i++)
+                cumulativeProbabilities[i] = total += 1 / Math.pow(i + 1, exponent);
+
+            for(int i = 0; i < count; i++)
+                cumulativeProbabilities[i] /= total;
+        }
+
+        int sample(Random random)
+        {
+            int i = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+            return Math.min(i < 0 ? -i - 1 : i, cumulativeProbabilities.length - 1);
+        }
+    }
+
+    /**
+     * A registry that counts the permission checks that reach it, which are those the cache missed.
+     */
+    static final class CountingRegistry extends GroupMapPermissionsRegistry<String>
+    {
+        long checks = 0;
+
+        CountingRegistry()
+        { super(s -> s, s -> s); }
+
+        @Override
+        public boolean userHasPermission(String userId, String permission)
+        {
+            checks++;
+            return super.userHasPermission(userId, permission);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int checkCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        double exponent = args.length > 2 ? Double.parseDouble(args[2]) : 0.9;
+        int cacheSize = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int permissionCount = 200;
+
+        String[] users = new String[userCount];
+        String[] permissions = new String[permissionCount];
+
+        for(int i = 0; i < userCount; i++)
+            users[i] = "user" + i;
+
+        for(int i = 0; i < permissionCount; i++)
+            permissions[i] = "some.permission" + (i % 20) + ".node" + i;
+
+        ZipfSampler userSampler = new ZipfSampler(userCount, exponent);
+        ZipfSampler permissionSampler = new ZipfSampler(permissionCount, exponent);
+        System.out.printf("Users: %d, checks: %d, exponent: %.2f, cache size: %d, inner cache size: %d%n",
+                          userCount, checkCount, exponent, cacheSize, CachedPermissionsRegistry.defaultInnerCacheSize);
+
+        for(CacheEvictionPolicy policy : CacheEvictionPolicy.values())
+        {
+            CountingRegistry inner = new CountingRegistry();
+
+            for(int i = 0; i < userCount; i++)
+            {
+                inner.assignUserPermission(users[i], "some.permission" + (i % 20) + ".*");
+                inner.assignGroupToUser(users[i], "group" + (i % 10));
+            }
+
+            CachedPermissionsRegistry<String> reg = new CachedPermissionsRegistry<>(
+                    inner, cacheSize, CachedPermissionsRegistry.defaultInnerCacheSize, policy);
+
+            Random random = new Random(1);
+            long start = System.nanoTime();
+
+            for(int i = 0; i < checkCount; i++)
+                reg.userHasPermission(users[userSampler.sample(random)], permissions[permissionSampler.sample(random)]);
+
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%-20s hit rate %.2f%%, %.1f ms%n",
+                              policy, 100.0 * (checkCount - inner.checks) / checkCount, nanos / 1e6);
+        }
+    }
+}
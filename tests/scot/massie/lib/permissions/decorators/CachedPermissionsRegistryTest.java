@@ -1,13 +1,23 @@
 package scot.massie.lib.permissions.decorators;
 
+import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
 import scot.massie.lib.events.InvokableEvent;
 import scot.massie.lib.events.SetEvent;
 import scot.massie.lib.events.args.EventArgs;
 import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
 import scot.massie.lib.permissions.PermissionsRegistryDecoratorTest;
+import scot.massie.lib.permissions.exceptions.UserMissingPermissionException;
 import scot.massie.lib.utils.wrappers.IntCounter;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,9 +28,9 @@ public class CachedPermissionsRegistryTest
     protected CachedPermissionsRegistry<String> getNewPermissionsRegistry()
     { return new CachedPermissionsRegistry<>(s -> s, s -> s); }
 
-    protected CachedPermissionsRegistry<String> getNewPermsRegWithInnerCallEvent(InvokableEvent<EventArgs> event)
+    protected GroupMapPermissionsRegistry<String> getNewInnerWithCallEvent(InvokableEvent<EventArgs> event)
     {
-        GroupMapPermissionsRegistry<String> inner = new GroupMapPermissionsRegistry<String>(s -> s, s -> s)
+        return new GroupMapPermissionsRegistry<String>(s -> s, s -> s)
         {
             @Override
             public String getUserPermissionArg(String userId, String permission)
@@ -38,8 +48,22 @@ public class CachedPermissionsRegistryTest
                 return result;
             }
         };
+    }
 
-        return new CachedPermissionsRegistry<>(inner);
+    protected CachedPermissionsRegistry<String> getNewPermsRegWithInnerCallEvent(InvokableEvent<EventArgs> event)
+    { return new CachedPermissionsRegistry<>(getNewInnerWithCallEvent(event)); }
+
+    protected CachedPermissionsRegistry<String> getNewPermsRegWithInnerHasPermissionCounter(IntCounter counter)
+    {
+        return new CachedPermissionsRegistry<>(new GroupMapPermissionsRegistry<String>(s -> s, s -> s)
+        {
+            @Override
+            public boolean userHasPermission(String userId, String permission)
+            {
+                counter.incr();
+                return super.userHasPermission(userId, permission);
+            }
+        });
     }
 
 
@@ -79,4 +103,248 @@ public class CachedPermissionsRegistryTest
         assertThat(reg.getDefaultPermissionArg("my.permission.doot")).isEqualTo("some arg");
         assertThat(c.get()).isEqualTo(1);
     }
+
+    @Test
+    void userHasAllPermissions_singlePermissionCacheIsUsed()
+    {
+        IntCounter c = new IntCounter();
+        CachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerHasPermissionCounter(c);
+
+        reg.assignUserPermission("foo", "first.permission");
+        reg.assignUserPermission("foo", "second.permission");
+
+        assertThat(reg.userHasAllPermissions("foo", "first.permission", "second.permission")).isTrue();
+        assertThat(c.get()).isEqualTo(2);
+        assertThat(reg.userHasAllPermissions("foo", "second.permission", "first.permission")).isTrue();
+        assertThat(reg.userHasPermission("foo", "first.permission")).isTrue();
+        assertThat(c.get()).isEqualTo(2);
+        assertThat(reg.userHasAnyPermissions("foo", "first.permission", "third.permission")).isTrue();
+        assertThat(c.get()).isEqualTo(2);
+        assertThat(reg.userHasAllPermissions("foo", "third.permission", "first.permission")).isFalse();
+        assertThat(c.get()).isEqualTo(3);
+    }
+
+    @Test
+    void assertUserHasAllPermissions_singlePermissionCacheIsUsed()
+    {
+        IntCounter c = new IntCounter();
+        CachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerHasPermissionCounter(c);
+
+        reg.assignUserPermission("foo", "first.permission");
+
+        assertThatThrownBy(() -> reg.assertUserHasAllPermissions("foo", "first.permission", "second.permission"))
+                .isInstanceOf(UserMissingPermissionException.class)
+                .asInstanceOf(InstanceOfAssertFactories.type(UserMissingPermissionException.class))
+                .satisfies(ex -> assertThat(ex.getPermissions()).containsExactly("second.permission"));
+        assertThat(c.get()).isEqualTo(2);
+
+        assertDoesNotThrow(() -> reg.assertUserHasPermission("foo", "first.permission"));
+        assertThatThrownBy(() -> reg.assertUserHasPermission("foo", "second.permission"))
+                .isInstanceOf(UserMissingPermissionException.class);
+        assertThat(c.get()).isEqualTo(2);
+    }
+
+    @Test
+    void getCacheStats_countsHitsMissesAndInvalidations()
+    {
+        CachedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("foo", "my.permission");
+        reg.userHasPermission("foo", "my.permission");
+        reg.userHasPermission("foo", "my.permission");
+        reg.userHasPermission("bar", "my.permission");
+
+        CacheStats stats = reg.getCacheStats().get("userHasPermission");
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getMissCount()).isEqualTo(2);
+        assertThat(stats.getSize()).isEqualTo(2);
+        assertThat(stats.getInvalidationCount()).isEqualTo(0);
+
+        reg.assignUserPermission("foo", "other.permission");
+        stats = reg.getCacheStats().get("userHasPermission");
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(stats.getInvalidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getCacheStats_countsEvictions()
+    {
+        CachedPermissionsRegistry<String> reg = new CachedPermissionsRegistry<>(
+                new GroupMapPermissionsRegistry<String>(s -> s, s -> s), 2, 2, CacheEvictionPolicy.LEAST_RECENTLY_USED);
+
+        for(int i = 0; i < 5; i++)
+            reg.isDefaultPermission("my.permission" + i);
+
+        CacheStats stats = reg.getCacheStats().get("isDefaultPermission");
+        assertThat(stats.getMissCount()).isEqualTo(5);
+        assertThat(stats.getEvictionCount()).isEqualTo(3);
+        assertThat(stats.getSize()).isEqualTo(2);
+    }
+
+    @Test
+    void registerMXBean_statsReadable() throws Exception
+    {
+        CachedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.isDefaultPermission("my.permission");
+        reg.isDefaultPermission("my.permission");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = reg.registerMXBean("registerMXBean_statsReadable");
+
+        try
+        {
+            assertThat(server.getAttribute(name, "HitCount")).isEqualTo(1L);
+            assertThat(server.getAttribute(name, "MissCount")).isEqualTo(1L);
+            assertThat(server.getAttribute(name, "Size")).isEqualTo(1);
+        }
+        finally
+        { server.unregisterMBean(name); }
+    }
+
+    @Test
+    void warmUpFromAccessProfile_savedResultsAreCached() throws Exception
+    {
+        Path file = Files.createTempFile("permissions-access-profile", ".txt");
+
+        try
+        {
+            CachedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+            reg.assignUserPermission("foo", "my.permission");
+            reg.userHasPermission("foo", "my.permission");
+            reg.groupHasPermission("somegroup", "my.permission");
+            reg.saveAccessProfile(file);
+
+            CachedPermissionsRegistry<String> warmedReg = getNewPermissionsRegistry();
+            warmedReg.assignUserPermission("foo", "my.permission");
+            warmedReg.warmUpFromAccessProfile(file).get();
+            assertThat(warmedReg.getCacheStats().get("userHasPermission").getSize()).isEqualTo(1);
+            assertThat(warmedReg.getCacheStats().get("groupHasPermission").getSize()).isEqualTo(1);
+
+            assertTrue(warmedReg.userHasPermission("foo", "my.permission"));
+            assertThat(warmedReg.getCacheStats().get("userHasPermission").getHitCount()).isEqualTo(1);
+        }
+        finally
+        { Files.deleteIfExists(file); }
+    }
+
+    @Test
+    void warmUpFromAccessProfile_invalidIdSkipped() throws Exception
+    {
+        Path file = Files.createTempFile("permissions-access-profile", ".txt");
+
+        try
+        {
+            Files.write(file, Arrays.asList("U\tfoo\tmy.permission",
+                                            "U\tnot a valid id\tmy.permission",
+                                            "U\tbar\tmy.permission"));
+
+            CachedPermissionsRegistry<String> reg = new CachedPermissionsRegistry<>(s -> s, s ->
+            {
+                if(s.contains(" "))
+                    throw new IllegalArgumentException("Invalid ID: " + s);
+
+                return s;
+            });
+
+            assertThatCode(() -> reg.warmUpFromAccessProfile(file).get()).doesNotThrowAnyException();
+            assertThat(reg.getCacheStats().get("userHasPermission").getSize()).isEqualTo(2);
+        }
+        finally
+        { Files.deleteIfExists(file); }
+    }
+
+    @Test
+    void warmUpFromAccessProfile_fileDoesntExist()
+    {
+        CachedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        Path file = Paths.get("this-access-profile-does-not-exist.txt");
+        assertThatCode(() -> reg.warmUpFromAccessProfile(file).get()).doesNotThrowAnyException();
+        assertThat(reg.getCacheStats().get("userHasPermission").getSize()).isEqualTo(0);
+    }
+
+    @Test
+    void tinyLfu_cacheIsUsed()
+    {
+        InvokableEvent<EventArgs> e = new SetEvent<>();
+        CachedPermissionsRegistry<String> reg = new CachedPermissionsRegistry<>(
+                getNewInnerWithCallEvent(e), 2, 2, CacheEvictionPolicy.TINY_LFU);
+        IntCounter c = new IntCounter();
+        e.register(args -> c.incr());
+
+        reg.assignUserPermission("foo", "my.permission.doot: some arg");
+        assertThat(reg.getUserPermissionArg("foo", "my.permission.doot")).isEqualTo("some arg");
+        assertThat(reg.getUserPermissionArg("foo", "my.permission.doot")).isEqualTo("some arg");
+        assertThat(c.get()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_invalidCacheSize_throws()
+    {
+        GroupMapPermissionsRegistry<String> inner = new GroupMapPermissionsRegistry<>(s -> s, s -> s);
+        assertThatThrownBy(() -> new CachedPermissionsRegistry<>(inner, 0, 1, CacheEvictionPolicy.TINY_LFU))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CachedPermissionsRegistry<>(inner, 1, 0, CacheEvictionPolicy.TINY_LFU))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void userModified_otherUsersCacheKept()
+    {
+        InvokableEvent<EventArgs> e = new SetEvent<>();
+        CachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerCallEvent(e);
+        IntCounter c = new IntCounter();
+        e.register(args -> c.incr());
+
+        reg.assignUserPermission("foo", "my.permission: foo arg");
+        reg.assignUserPermission("bar", "my.permission: bar arg");
+        reg.getUserPermissionArg("foo", "my.permission");
+        reg.getUserPermissionArg("bar", "my.permission");
+        assertThat(c.get()).isEqualTo(2);
+
+        reg.assignUserPermission("foo", "my.permission: new foo arg");
+        assertThat(reg.getUserPermissionArg("bar", "my.permission")).isEqualTo("bar arg");
+        assertThat(c.get()).isEqualTo(2);
+        assertThat(reg.getUserPermissionArg("foo", "my.permission")).isEqualTo("new foo arg");
+        assertThat(c.get()).isEqualTo(3);
+    }
+
+    @Test
+    void groupModified_onlyDependentsCacheInvalidated()
+    {
+        InvokableEvent<EventArgs> e = new SetEvent<>();
+        CachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerCallEvent(e);
+        IntCounter c = new IntCounter();
+        e.register(args -> c.incr());
+
+        reg.assignGroupToGroup("subgroup", "supergroup");
+        reg.assignGroupToUser("foo", "subgroup");
+        reg.assignUserPermission("bar", "my.permission: bar arg");
+        assertThat(reg.getUserPermissionArg("foo", "my.permission")).isNull();
+        reg.getUserPermissionArg("bar", "my.permission");
+        assertThat(reg.groupHasPermission("subgroup", "my.permission")).isFalse();
+        assertThat(c.get()).isEqualTo(2);
+
+        reg.assignGroupPermission("supergroup", "my.permission: group arg");
+        assertThat(reg.groupHasPermission("subgroup", "my.permission")).isTrue();
+        assertThat(reg.getUserPermissionArg("bar", "my.permission")).isEqualTo("bar arg");
+        assertThat(c.get()).isEqualTo(2);
+        assertThat(reg.getUserPermissionArg("foo", "my.permission")).isEqualTo("group arg");
+        assertThat(c.get()).isEqualTo(3);
+    }
+
+    @Test
+    void defaultGroupModified_allCacheInvalidated()
+    {
+        InvokableEvent<EventArgs> e = new SetEvent<>();
+        CachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerCallEvent(e);
+        IntCounter c = new IntCounter();
+        e.register(args -> c.incr());
+
+        reg.assignDefaultGroup("defaultgroup");
+        reg.assignUserPermission("bar", "other.permission");
+        assertThat(reg.getUserPermissionArg("bar", "my.permission")).isNull();
+        assertThat(c.get()).isEqualTo(1);
+
+        reg.assignGroupPermission("defaultgroup", "my.permission: group arg");
+        assertThat(reg.getUserPermissionArg("bar", "my.permission")).isEqualTo("group arg");
+        assertThat(c.get()).isEqualTo(2);
+    }
 }
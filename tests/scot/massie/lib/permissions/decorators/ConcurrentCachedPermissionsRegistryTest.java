@@ -0,0 +1,182 @@
+package scot.massie.lib.permissions.decorators;
+
+import org.junit.jupiter.api.Test;
+import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
+import scot.massie.lib.permissions.PermissionsRegistryDecoratorTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ConcurrentCachedPermissionsRegistryTest
+        extends PermissionsRegistryDecoratorTest<ConcurrentCachedPermissionsRegistry<String>>
+{
+    @Override
+    protected ConcurrentCachedPermissionsRegistry<String> getNewPermissionsRegistry()
+    { return new ConcurrentCachedPermissionsRegistry<>(s -> s, s -> s); }
+
+    protected ConcurrentCachedPermissionsRegistry<String> getNewPermsRegWithInnerCallCounter(AtomicInteger counter)
+    {
+        return new ConcurrentCachedPermissionsRegistry<>(new GroupMapPermissionsRegistry<String>(s -> s, s -> s)
+        {
+            @Override
+            public String getUserPermissionArg(String userId, String permission)
+            {
+                counter.incrementAndGet();
+
+                try
+                { Thread.sleep(50); }
+                catch(InterruptedException e)
+                { Thread.currentThread().interrupt(); }
+
+                return super.getUserPermissionArg(userId, permission);
+            }
+        });
+    }
+
+    @Test
+    void getUserPermissionArg_cacheIsUsed()
+    {
+        AtomicInteger c = new AtomicInteger();
+        ConcurrentCachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerCallCounter(c);
+        reg.assignUserPermission("foo", "my.permission.doot: some arg");
+
+        assertThat(reg.getUserPermissionArg("foo", "my.permission.doot")).isEqualTo("some arg");
+        assertThat(reg.getUserPermissionArg("foo", "my.permission.doot")).isEqualTo("some arg");
+        assertThat(c.get()).isEqualTo(1);
+
+        reg.assignUserPermission("foo", "my.permission.doot: some other arg");
+        assertThat(reg.getUserPermissionArg("foo", "my.permission.doot")).isEqualTo("some other arg");
+        assertThat(c.get()).isEqualTo(2);
+    }
+
+    @Test
+    void getUserPermissionArg_concurrentMisses_computedOnce() throws Exception
+    {
+        AtomicInteger c = new AtomicInteger();
+        ConcurrentCachedPermissionsRegistry<String> reg = getNewPermsRegWithInnerCallCounter(c);
+        reg.assignUserPermission("foo", "my.permission.doot: some arg");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        try
+        {
+            for(int i = 0; i < 8; i++)
+                results.add(executor.submit(() ->
+                {
+                    start.await();
+                    return reg.getUserPermissionArg("foo", "my.permission.doot");
+                }));
+
+            start.countDown();
+
+            for(Future<String> result : results)
+                assertThat(result.get()).isEqualTo("some arg");
+        }
+        finally
+        { executor.shutdownNow(); }
+
+        assertThat(c.get()).isEqualTo(1);
+    }
+
+    @Test
+    void getUserPermissionArg_modifiedWhileMissComputed_nextCallReturnsNewResult() throws Exception
+    {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean blockNextCall = new AtomicBoolean(false);
+
+        ConcurrentCachedPermissionsRegistry<String> reg
+                = new ConcurrentCachedPermissionsRegistry<>(new GroupMapPermissionsRegistry<String>(s -> s, s -> s)
+        {
+            @Override
+            public String getUserPermissionArg(String userId, String permission)
+            {
+                String result = super.getUserPermissionArg(userId, permission);
+
+                if(blockNextCall.getAndSet(false))
+                {
+                    computing.countDown();
+
+                    try
+                    { release.await(); }
+                    catch(InterruptedException e)
+                    { Thread.currentThread().interrupt(); }
+                }
+
+                return result;
+            }
+        });
+
+        reg.assignUserPermission("foo", "my.permission.doot: some arg");
+        blockNextCall.set(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try
+        {
+            Future<String> miss = executor.submit(() -> reg.getUserPermissionArg("foo", "my.permission.doot"));
+            computing.await();
+
+            AtomicBoolean modificationStarted = new AtomicBoolean(false);
+            Future<?> modification = executor.submit(() ->
+            {
+                modificationStarted.set(true);
+                reg.assignUserPermission("foo", "my.permission.doot: some other arg");
+            });
+
+            while(!modificationStarted.get())
+                Thread.yield();
+
+            // Give the modification time to reach the registry's lock, held by the miss being computed.
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThat(miss.get()).isEqualTo("some arg");
+            modification.get();
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertThat(reg.getUserPermissionArg("foo", "my.permission.doot")).isEqualTo("some other arg");
+    }
+
+    @Test
+    void groupModified_dependentUsersInvalidated()
+    {
+        ConcurrentCachedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignGroupToGroup("subgroup", "supergroup");
+        reg.assignGroupToUser("foo", "subgroup");
+        assertThat(reg.userHasPermission("foo", "my.permission")).isFalse();
+        assertThat(reg.groupHasPermission("subgroup", "my.permission")).isFalse();
+
+        reg.assignGroupPermission("supergroup", "my.permission");
+        assertThat(reg.userHasPermission("foo", "my.permission")).isTrue();
+        assertThat(reg.groupHasPermission("subgroup", "my.permission")).isTrue();
+    }
+
+    @Test
+    void performOperationSynchronously_cachedAccessorsUsable()
+    {
+        ConcurrentCachedPermissionsRegistry<String> reg = getNewPermissionsRegistry();
+        reg.assignUserPermission("foo", "my.permission");
+
+        reg.performOperationSynchronously(inner ->
+        {
+            assertThat(reg.userHasPermission("foo", "my.permission")).isTrue();
+            inner.revokeUserPermission("foo", "my.permission");
+        });
+
+        assertThat(reg.userHasPermission("foo", "my.permission")).isFalse();
+    }
+}
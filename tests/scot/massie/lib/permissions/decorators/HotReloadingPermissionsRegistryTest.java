@@ -0,0 +1,174 @@
+package scot.massie.lib.permissions.decorators;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scot.massie.lib.permissions.GroupMapPermissionsRegistry;
+import scot.massie.lib.permissions.LazyLoadingPermissionsRegistry;
+import scot.massie.lib.permissions.PermissionsRegistryDecoratorTest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotReloadingPermissionsRegistryTest
+        extends PermissionsRegistryDecoratorTest<HotReloadingPermissionsRegistry<String>>
+{
+    @TempDir
+    Path tempDir;
+
+    @Override
+    protected HotReloadingPermissionsRegistry<String> getNewPermissionsRegistry()
+    { return new HotReloadingPermissionsRegistry<>(s -> s, s -> s); }
+
+    HotReloadingPermissionsRegistry<String> getNewFileBackedRegistry()
+    {
+        return new HotReloadingPermissionsRegistry<>(s -> s, s -> s,
+                                                     tempDir.resolve("users.txt"),
+                                                     tempDir.resolve("groups.txt"));
+    }
+
+    void writeFile(String fileName, String contents) throws IOException
+    { Files.write(tempDir.resolve(fileName), contents.getBytes(StandardCharsets.UTF_8)); }
+
+    @Test
+    void constructor_lazyLoadingRegistry_throws()
+    {
+        LazyLoadingPermissionsRegistry<String> inner = new LazyLoadingPermissionsRegistry<>(
+                s -> s, s -> s, tempDir.resolve("users.txt"), tempDir.resolve("groups.txt"));
+
+        assertThatThrownBy(() -> new HotReloadingPermissionsRegistry<>(inner))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reload_afterSave_doesNothing() throws IOException
+    {
+        HotReloadingPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignUserPermission("user1", "some.permission");
+        reg.save();
+        assertFalse(reg.reload());
+    }
+
+    @Test
+    void reload_duringBackgroundSave_doesntRevertLaterChanges() throws Exception
+    {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Holds up the background save's completion after its files have been written.
+        GroupMapPermissionsRegistry<String> inner = new GroupMapPermissionsRegistry<String>(
+                s -> s, s -> s, tempDir.resolve("users.txt"), tempDir.resolve("groups.txt"))
+        {
+            @Override
+            public CompletableFuture<Void> saveInBackground()
+            {
+                return super.saveInBackground().thenRunAsync(() ->
+                {
+                    written.countDown();
+
+                    try
+                    { release.await(); }
+                    catch(InterruptedException e)
+                    { throw new IllegalStateException(e); }
+                });
+            }
+        };
+
+        HotReloadingPermissionsRegistry<String> reg = new HotReloadingPermissionsRegistry<>(inner, 100, e -> { });
+        reg.assignUserPermission("user1", "some.permission");
+        reg.save();
+
+        reg.assignUserPermission("user1", "some.other.permission");
+        CompletableFuture<Void> save = reg.saveInBackground();
+        written.await();
+        reg.assignUserPermission("user1", "permission.after.save");
+
+        CompletableFuture<Boolean> reload = CompletableFuture.supplyAsync(() ->
+        {
+            try
+            { return reg.reload(); }
+            catch(IOException e)
+            { throw new UncheckedIOException(e); }
+        });
+
+        Thread.sleep(100);
+        release.countDown();
+        save.get();
+
+        assertFalse(reload.get());
+        assertTrue(reg.userHasPermission("user1", "some.other.permission"));
+        assertTrue(reg.userHasPermission("user1", "permission.after.save"));
+    }
+
+    @Test
+    void reload_appliesChangedUsersAndGroups() throws IOException
+    {
+        HotReloadingPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupToGroup("group2", "group1");
+        reg.loadGroupsFromSaveString("group2: 5");
+        reg.assignUserPermission("user1", "some.permission");
+        reg.assignGroupToUser("user2", "group2");
+        reg.assignUserPermission("user3", "some.other.permission");
+        reg.save();
+
+        writeFile("users.txt", "user1\n    some.permission\n\nuser2 #group1\n\nuser4\n    new.permission\n");
+        writeFile("groups.txt", "group1\n    some.group.permission\n\ngroup2 #group1\n\n*\n    default.permission\n");
+
+        assertTrue(reg.reload());
+        assertThat(reg.getUsers()).containsExactlyInAnyOrder("user1", "user2", "user4");
+        assertThat(reg.getGroupsOfUser("user2")).containsExactly("group1");
+        assertTrue(reg.userHasPermission("user4", "new.permission"));
+        assertTrue(reg.userHasPermission("user3", "default.permission"));
+        assertEquals(0.0, reg.getGroupPriority("group2"));
+        assertFalse(reg.reload());
+    }
+
+    @Test
+    void reload_removedGroup() throws IOException
+    {
+        HotReloadingPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignGroupPermission("group1", "some.group.permission");
+        reg.assignGroupPermission("group2", "some.other.group.permission");
+        reg.assignGroupToUser("user1", "group1");
+        reg.save();
+
+        writeFile("users.txt", "user1\n    some.permission\n");
+        writeFile("groups.txt", "group2\n    some.other.group.permission\n");
+
+        assertTrue(reg.reload());
+        assertThat(reg.getGroupNames()).containsExactly("group2");
+        assertTrue(reg.userHasPermission("user1", "some.permission"));
+    }
+
+    @Test
+    void reload_matchesLoading() throws IOException
+    {
+        HotReloadingPermissionsRegistry<String> reg = getNewFileBackedRegistry();
+        reg.assignGroupPermission("group1", "some.group.permission: some arg");
+        reg.assignUserPermission("user1", "some.permission");
+        reg.save();
+
+        writeFile("users.txt",
+                  "user1\n    -some.permission\n    another.permission: multi\n        line\n\nuser2 #group1\n");
+        writeFile("groups.txt", "group1: 3\n    some.group.permission: another arg\n");
+        reg.reload();
+
+        GroupMapPermissionsRegistry<String> loaded = new GroupMapPermissionsRegistry<>(s -> s, s -> s,
+                                                                                       tempDir.resolve("users.txt"),
+                                                                                       tempDir.resolve("groups.txt"));
+        loaded.load();
+        assertEquals(loaded.usersToSaveString(), reg.usersToSaveString());
+        assertEquals(loaded.groupsToSaveString(), reg.groupsToSaveString());
+    }
+}
@@ -0,0 +1,76 @@
+package scot.massie.lib.permissions.decorators;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TinyLfuMapTest
+{
+    @Test
+    void put_neverExceedsCapacity()
+    {
+        Map<Integer, Integer> map = new TinyLfuMap<>(10);
+
+        for(int i = 0; i < 1000; i++)
+            map.put(i, i);
+
+        assertThat(map.size()).isLessThanOrEqualTo(10);
+        assertThat(map.entrySet()).hasSize(map.size());
+    }
+
+    @Test
+    void put_reportsEachEvictedEntry()
+    {
+        Map<Integer, Integer> evicted = new HashMap<>();
+        Map<Integer, Integer> map = new TinyLfuMap<>(10, evicted::put);
+
+        for(int i = 0; i < 1000; i++)
+            map.put(i, i * 2);
+
+        assertThat(evicted).hasSize(1000 - map.size());
+        assertThat(evicted).doesNotContainKeys(map.keySet().toArray(new Integer[0]));
+        evicted.forEach((key, value) -> assertThat(value).isEqualTo(key * 2));
+    }
+
+    @Test
+    void put_frequentlyAccessedKeysNotDisplacedByScan()
+    {
+        Map<Integer, Integer> map = new TinyLfuMap<>(100);
+
+        for(int round = 0; round < 10; round++)
+            for(int i = 0; i < 50; i++)
+                map.computeIfAbsent(i, x -> x);
+
+        for(int i = 1000; i < 2000; i++)
+            map.computeIfAbsent(i, x -> x);
+
+        for(int i = 0; i < 50; i++)
+            assertThat(map).containsKey(i);
+    }
+
+    @Test
+    void put_existingKey_replacesValue()
+    {
+        Map<String, String> map = new TinyLfuMap<>(5);
+        map.put("a", "first");
+        assertThat(map.put("a", "second")).isEqualTo("first");
+        assertThat(map.get("a")).isEqualTo("second");
+        assertThat(map).hasSize(1);
+    }
+
+    @Test
+    void remove()
+    {
+        Map<String, String> map = new TinyLfuMap<>(5);
+        map.put("a", "first");
+        map.put("b", "second");
+        assertThat(map.remove("a")).isEqualTo("first");
+        assertThat(map).containsOnlyKeys("b");
+
+        map.keySet().removeIf(k -> k.equals("b"));
+        assertThat(map).isEmpty();
+    }
+}